@@ -0,0 +1,86 @@
+package task.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import task.model.Account;
+import task.model.Money;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Account#withdraw(BigDecimal)} and {@link Account#deposit(BigDecimal)} cost. Account is not thread safe, so
+ * every benchmark thread works with its own account; {@code delta} selects the fixed-point path ({@code 0.01}) or the
+ * {@link BigDecimal} fallback ({@code 0.000000001}).
+ * <p>
+ * The fixed-point path must not allocate: bytes allocated by the benchmark thread are checked after every iteration,
+ * and the benchmark fails if an operation allocates. The same number is reported by the {@code -prof gc} profiler as
+ * {@code gc.alloc.rate.norm}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountBenchmark {
+
+    @Param({"0.01", "0.000000001"})
+    public String delta;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private BigDecimal deltaValue;
+    private Account account;
+
+    private long operations;
+    private long allocatedBytes;
+
+    @Setup
+    public void setUp() {
+        deltaValue = new BigDecimal(delta);
+        account = new Account().setId(1).setAmount(new BigDecimal("1000000.12345678"));
+    }
+
+    @Setup(Level.Iteration)
+    public void startAllocationCheck() {
+        operations = 0;
+        allocatedBytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkAllocation() {
+        final long bytes = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBytes;
+        if (Money.toUnits(deltaValue) != Money.NOT_REPRESENTABLE && operations > 0 && bytes >= operations) {
+            throw new IllegalStateException(String.format(
+                    "fixed-point path allocates %.2f bytes per operation", (double) bytes / operations));
+        }
+    }
+
+    @Benchmark
+    public Account withdrawAndDeposit() {
+        operations++;
+        return account.withdraw(deltaValue).deposit(deltaValue);
+    }
+
+    @Benchmark
+    public boolean canWithdraw() {
+        operations++;
+        return account.canWithdraw(deltaValue);
+    }
+}
@@ -0,0 +1,56 @@
+package task.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Picks account ids from {@code [1, accountCount]}. With probability {@code skew} the picked id is the hot account
+ * {@code 1}, otherwise the id is picked uniformly, so {@code skew = 0} means no contention on a single account and
+ * {@code skew = 1} means every transfer touches the hot account.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class AccountIdSampler {
+
+    public static final long HOT_ACCOUNT_ID = 1;
+
+    private final int accountCount;
+    private final double skew;
+
+    public AccountIdSampler(int accountCount, double skew) {
+        checkArgument(accountCount > 1, "accountCount must be greater than 1: %s", accountCount);
+        checkArgument(skew >= 0 && skew <= 1, "skew must be in [0, 1]: %s", skew);
+        this.accountCount = accountCount;
+        this.skew = skew;
+    }
+
+    /**
+     * Pick account id.
+     *
+     * @return account id
+     */
+    public long next() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < skew) {
+            return HOT_ACCOUNT_ID;
+        }
+        return 1 + random.nextInt(accountCount);
+    }
+
+    /**
+     * Pick account id which is not equal to {@code accountId}. The hot account isn't preferred here, so a pair of
+     * {@link #next()} and {@link #nextOtherThan(long)} touches the hot account with probability {@code skew}.
+     *
+     * @param accountId account id to skip
+     * @return account id
+     */
+    public long nextOtherThan(long accountId) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        long otherId;
+        do {
+            otherId = 1 + random.nextInt(accountCount);
+        } while (otherId == accountId);
+        return otherId;
+    }
+}
@@ -0,0 +1,245 @@
+package task.benchmark;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ResultHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import task.AccountServiceConfiguration;
+import task.config.DataSourceConfiguration;
+import task.dao.AccountDao;
+import task.dao.AccountDaoMock;
+import task.manager.AccountManager;
+import task.model.Account;
+import task.service.AccountService;
+import task.service.AccountServiceImpl;
+import task.service.ConcurrencyLimitingExecutor;
+import task.service.OffloadingAccountService;
+import task.service.VirtualThreads;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput of {@link AccountService#transferAsync} of the locking engine when the database is slow. Every database
+ * call takes a connection from a pool of {@link #POOL_SIZE} connections which, like MyBatis {@code PooledDataSource},
+ * waits for a free connection in a {@code synchronized} block. Transfers are executed like the service does it by
+ * default:
+ * <ul>
+ * <li>{@code platform} - by the pool of {@link AccountServiceConfiguration#DEFAULT_ASYNC_TRANSFER_THREADS} platform
+ * threads;</li>
+ * <li>{@code virtual} - by a virtual thread per transfer, at most {@link #POOL_SIZE} of them at once by
+ * {@link ConcurrencyLimitingExecutor};</li>
+ * <li>{@code virtual-unlimited} - by a virtual thread per transfer without the limit, so virtual threads waiting for a
+ * connection pin their carrier threads.</li>
+ * </ul>
+ * Every invocation submits {@link #BURST} transfers at once and waits for all of them, which models a burst of
+ * concurrent requests.
+ * <p>
+ * The virtual modes need Java 21+ (the {@code java17+} profile is activated automatically), on older runtimes their
+ * setup fails and JMH skips them.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AsyncTransferBenchmark {
+
+    private static final int BURST = 4096;
+    private static final int ACCOUNT_COUNT = 10_000;
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000");
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+    private static final int POOL_SIZE = new DataSourceConfiguration().getMaximumPoolSize();
+
+    @Param({"platform", "virtual", "virtual-unlimited"})
+    public String threads;
+
+    /**
+     * Simulated latency of every database call.
+     */
+    @Param({"100", "1000"})
+    public long latencyMicros;
+
+    private ExecutorService executor;
+    private AccountService accountService;
+    private AccountIdSampler sampler;
+
+    @Setup
+    public void setUp() throws Exception {
+        final Executor transferExecutor;
+        switch (threads) {
+            case "platform":
+                executor = Executors.newFixedThreadPool(AccountServiceConfiguration.DEFAULT_ASYNC_TRANSFER_THREADS);
+                transferExecutor = executor;
+                break;
+            case "virtual":
+                executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+                transferExecutor = new ConcurrencyLimitingExecutor(executor, POOL_SIZE);
+                break;
+            case "virtual-unlimited":
+                executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+                transferExecutor = executor;
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported threads: " + threads);
+        }
+
+        final AccountDao accountDao = new SlowAccountDao(new AccountDaoMock(), POOL_SIZE,
+                TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+        for (int i = 0; i < ACCOUNT_COUNT; i++) {
+            accountDao.insert(new Account().setAmount(INITIAL_AMOUNT));
+        }
+        accountService = new OffloadingAccountService(
+                new AccountServiceImpl(new AccountManager(accountDao), accountDao), transferExecutor);
+        sampler = new AccountIdSampler(ACCOUNT_COUNT, 0.0);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void transferAsync() throws Exception {
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[BURST];
+        for (int i = 0; i < BURST; i++) {
+            final long accountId = sampler.next();
+            futures[i] = accountService.transferAsync(accountId, sampler.nextOtherThan(accountId), AMOUNT)
+                    .toCompletableFuture();
+        }
+        CompletableFuture.allOf(futures).get();
+    }
+
+    /**
+     * Takes a connection and parks the calling thread for the given latency before every call, like a blocking JDBC
+     * round trip.
+     */
+    private static final class SlowAccountDao implements AccountDao {
+
+        private final AccountDao delegate;
+        private final long latencyNanos;
+        private int freeConnections;
+
+        SlowAccountDao(AccountDao delegate, int connections, long latencyNanos) {
+            this.delegate = delegate;
+            this.freeConnections = connections;
+            this.latencyNanos = latencyNanos;
+        }
+
+        // like PooledDataSource, waits for a free connection in a synchronized block
+        private void roundTrip() {
+            synchronized (this) {
+                while (freeConnections == 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                }
+                freeConnections--;
+            }
+            try {
+                LockSupport.parkNanos(latencyNanos);
+            } finally {
+                synchronized (this) {
+                    freeConnections++;
+                    notify();
+                }
+            }
+        }
+
+        @Override
+        public Account select(long accountId) {
+            roundTrip();
+            return delegate.select(accountId);
+        }
+
+        @Override
+        public void selectEach(ResultHandler<Account> handler) {
+            roundTrip();
+            delegate.selectEach(handler);
+        }
+
+        @Override
+        public List<Account> selectAll(Collection<Long> accountIds) {
+            roundTrip();
+            return delegate.selectAll(accountIds);
+        }
+
+        @Override
+        public void insert(Account account) {
+            delegate.insert(account);
+        }
+
+        @Override
+        public List<Long> allocateIds(int count) {
+            return delegate.allocateIds(count);
+        }
+
+        @Override
+        public void insertAll(List<Account> accounts) {
+            delegate.insertAll(accounts);
+        }
+
+        @Override
+        public int update(Account account) {
+            roundTrip();
+            return delegate.update(account);
+        }
+
+        @Override
+        public int debit(long accountId, BigDecimal amount) {
+            roundTrip();
+            return delegate.debit(accountId, amount);
+        }
+
+        @Override
+        public int credit(long accountId, BigDecimal amount) {
+            roundTrip();
+            return delegate.credit(accountId, amount);
+        }
+
+        @Override
+        public long selectMaxId() {
+            return delegate.selectMaxId();
+        }
+
+        @Override
+        public void restartSequence(long nextId) {
+            delegate.restartSequence(nextId);
+        }
+
+        @Override
+        public List<BatchResult> flush() {
+            return delegate.flush();
+        }
+
+        @Override
+        public int ping() {
+            return delegate.ping();
+        }
+    }
+}
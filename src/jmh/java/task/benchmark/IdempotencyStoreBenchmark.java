@@ -0,0 +1,66 @@
+package task.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import task.service.IdempotencyStore;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of looking up a request id in the {@link IdempotencyStore} depending on the number of remembered ids: a lookup
+ * of a retried id, a lookup of an unknown id and a put of a new id, which switches generations when one is full.
+ * Number of threads is set by the JMH {@code -t} option.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IdempotencyStoreBenchmark {
+
+    private static final String VALUE = "value";
+
+    @Param({"1000", "1000000", "8000000"})
+    public int keyCount;
+
+    private IdempotencyStore<String> store;
+    private final AtomicLong nextKey = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        store = new IdempotencyStore<>(keyCount, 1, TimeUnit.HOURS);
+        for (long key = 1; key <= keyCount; key++) {
+            store.putIfAbsent(key, VALUE);
+        }
+        nextKey.set(keyCount);
+    }
+
+    @Benchmark
+    public String getKnown() {
+        return store.get(1 + ThreadLocalRandom.current().nextInt(keyCount));
+    }
+
+    @Benchmark
+    public String getUnknown() {
+        return store.get(keyCount + 1 + ThreadLocalRandom.current().nextInt(keyCount));
+    }
+
+    @Benchmark
+    public String putNew() {
+        return store.putIfAbsent(nextKey.incrementAndGet(), VALUE);
+    }
+}
@@ -0,0 +1,61 @@
+package task.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import task.api.TransferRequest;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON (de)serialisation of {@link TransferRequest} with the object mapper configured the same way as in Dropwizard.
+ * Number of threads is set by the JMH {@code -t} option.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"100", "10000000"})
+    public int accountCount;
+
+    @Param({"3.45", "12345678.12345678"})
+    public String amount;
+
+    private ObjectMapper objectMapper;
+    private TransferRequest request;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = Jackson.newObjectMapper();
+        request = new TransferRequest(accountCount - 1, accountCount, new BigDecimal(amount));
+        json = objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public TransferRequest deserialize() throws Exception {
+        return objectMapper.readValue(json, TransferRequest.class);
+    }
+}
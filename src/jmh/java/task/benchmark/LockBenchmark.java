@@ -0,0 +1,93 @@
+package task.benchmark;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import task.service.StripedLocks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cost of getting and taking the pair of transfer locks: {@link StripedLocks} used by
+ * {@link task.service.AccountServiceImpl} against the weak-valued Guava cache of locks it used before. Number of
+ * threads is set by the JMH {@code -t} option.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int accountCount;
+
+    @Param({"0.0", "0.5"})
+    public double skew;
+
+    @Param({"1024"})
+    public int stripes;
+
+    private AccountIdSampler sampler;
+    private StripedLocks stripedLocks;
+    private LoadingCache<Long, Lock> locksByAccountId;
+
+    @Setup
+    public void setUp() {
+        sampler = new AccountIdSampler(accountCount, skew);
+        stripedLocks = new StripedLocks(stripes);
+        locksByAccountId = CacheBuilder.newBuilder()
+                .weakValues()
+                .build(new CacheLoader<Long, Lock>() {
+                    @Override
+                    public Lock load(Long key) throws Exception {
+                        return new ReentrantLock();
+                    }
+                });
+    }
+
+    @Benchmark
+    public void stripedLocks() {
+        final long accountId = sampler.next();
+        final long otherId = sampler.nextOtherThan(accountId);
+        final int stripe = stripedLocks.stripeOf(accountId);
+        final int otherStripe = stripedLocks.stripeOf(otherId);
+        lockPair(stripedLocks.getLock(Math.min(stripe, otherStripe)), stripedLocks.getLock(Math.max(stripe, otherStripe)));
+    }
+
+    @Benchmark
+    public void guavaWeakCache() {
+        final long accountId = sampler.next();
+        final long otherId = sampler.nextOtherThan(accountId);
+        lockPair(locksByAccountId.getUnchecked(Math.min(accountId, otherId)),
+                locksByAccountId.getUnchecked(Math.max(accountId, otherId)));
+    }
+
+    private static void lockPair(Lock firstLock, Lock secondLock) {
+        firstLock.lock();
+        try {
+            if (secondLock != firstLock) {
+                secondLock.lock();
+                secondLock.unlock();
+            }
+        } finally {
+            firstLock.unlock();
+        }
+    }
+}
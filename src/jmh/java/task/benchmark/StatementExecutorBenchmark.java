@@ -0,0 +1,89 @@
+package task.benchmark;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import task.TestDataSource;
+import task.dao.AccountDao;
+import task.model.Account;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one statement executed by the MyBatis {@code SIMPLE}, {@code REUSE} or {@code BATCH} executor against
+ * in-memory HSQLDB. Every invocation runs {@link #STATEMENTS} statements in one session (like a transaction of
+ * {@link task.manager.AccountManager#transferAll}), so the difference between executors is the cost of preparing
+ * a statement that is saved by reusing it. Selects of the {@code BATCH} executor are executed like {@code SIMPLE} ones.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementExecutorBenchmark {
+
+    private static final int STATEMENTS = 100;
+    private static final int ACCOUNT_COUNT = 1000;
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000");
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"SIMPLE", "REUSE", "BATCH"})
+    public ExecutorType executorType;
+
+    private SqlSessionManager sqlSessionManager;
+
+    @Setup
+    public void setUp() throws Exception {
+        sqlSessionManager = new TestDataSource("sql/database-schema.sql").createInjector()
+                .getInstance(SqlSessionManager.class);
+        try (SqlSession session = sqlSessionManager.openSession(ExecutorType.BATCH)) {
+            final AccountDao accountDao = session.getMapper(AccountDao.class);
+            for (int i = 0; i < ACCOUNT_COUNT; i++) {
+                accountDao.insert(new Account().setAmount(INITIAL_AMOUNT));
+            }
+            session.commit();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENTS)
+    public BigDecimal select() {
+        BigDecimal total = BigDecimal.ZERO;
+        try (SqlSession session = sqlSessionManager.openSession(executorType)) {
+            final AccountDao accountDao = session.getMapper(AccountDao.class);
+            for (int i = 0; i < STATEMENTS; i++) {
+                total = total.add(accountDao.select(1 + i % ACCOUNT_COUNT).getAmount());
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENTS)
+    public void debitAndCredit() {
+        try (SqlSession session = sqlSessionManager.openSession(executorType)) {
+            final AccountDao accountDao = session.getMapper(AccountDao.class);
+            for (int i = 0; i < STATEMENTS; i += 2) {
+                accountDao.debit(1 + i % ACCOUNT_COUNT, AMOUNT);
+                accountDao.credit(2 + i % ACCOUNT_COUNT, AMOUNT);
+            }
+            session.commit();
+        }
+    }
+}
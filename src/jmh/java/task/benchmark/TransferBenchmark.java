@@ -0,0 +1,86 @@
+package task.benchmark;
+
+import com.google.inject.Injector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import task.TestDataSource;
+import task.dao.AccountDao;
+import task.dao.AccountDaoMock;
+import task.manager.AccountManager;
+import task.model.Account;
+import task.service.AccountService;
+import task.service.AccountServiceImpl;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccountServiceImpl#transfer(long, long, BigDecimal)} throughput against {@link AccountDaoMock} or a real
+ * in-memory HSQLDB database. Number of threads is set by the JMH {@code -t} option.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+
+    private static final BigDecimal INITIAL_AMOUNT = new BigDecimal("1000000000");
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"mock", "hsqldb"})
+    public String backend;
+
+    @Param({"100", "10000"})
+    public int accountCount;
+
+    @Param({"0.0", "0.5"})
+    public double skew;
+
+    private AccountService accountService;
+    private AccountIdSampler sampler;
+
+    @Setup
+    public void setUp() throws Exception {
+        final AccountDao accountDao;
+        final AccountManager accountManager;
+        if ("mock".equals(backend)) {
+            accountDao = new AccountDaoMock();
+            accountManager = new AccountManager(accountDao);
+        } else {
+            final Injector injector = new TestDataSource("sql/database-schema.sql").createInjector();
+            accountDao = injector.getInstance(AccountDao.class);
+            accountManager = injector.getInstance(AccountManager.class);
+        }
+        for (int i = 0; i < accountCount; i++) {
+            accountDao.insert(new Account().setAmount(INITIAL_AMOUNT));
+        }
+        accountService = new AccountServiceImpl(accountManager, accountDao);
+        sampler = new AccountIdSampler(accountCount, skew);
+    }
+
+    @Benchmark
+    public void transfer() {
+        final long accountId = sampler.next();
+        final long otherId = sampler.nextOtherThan(accountId);
+        // random direction keeps balances of hot and cold accounts stable
+        if (ThreadLocalRandom.current().nextBoolean()) {
+            accountService.transfer(accountId, otherId, AMOUNT);
+        } else {
+            accountService.transfer(otherId, accountId, AMOUNT);
+        }
+    }
+}
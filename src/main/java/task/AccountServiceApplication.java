@@ -1,30 +1,79 @@
 package task;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.Provider;
 import com.google.inject.Scopes;
+import com.google.inject.name.Names;
+import com.google.inject.util.Modules;
 import io.dropwizard.Application;
-import io.dropwizard.Configuration;
 import io.dropwizard.configuration.ResourceConfigurationSourceProvider;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.SqlSessionManager;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.mybatis.guice.XMLMyBatisModule;
 import org.mybatis.guice.datasource.builtin.PooledDataSourceProvider;
 import org.mybatis.guice.datasource.helper.JdbcHelper;
+import task.admin.ContendedAccountsServlet;
+import task.admin.ResetContendedAccountsTask;
+import task.config.AccountCacheConfiguration;
+import task.config.DataSourceConfiguration;
+import task.config.GroupCommitConfiguration;
+import task.config.HotAccountsConfiguration;
+import task.config.IdempotencyConfiguration;
+import task.config.LedgerConfiguration;
+import task.config.PartitioningConfiguration;
 import task.dao.AccountDao;
+import task.dao.AccountShards;
+import task.dao.CachingAccountDaoModule;
+import task.dao.DataSourceMetrics;
+import task.dao.HikariDataSourceProvider;
+import task.dao.ShardedAccountDao;
+import task.dao.StatementMetrics;
 import task.health.DatabaseHealthCheck;
+import task.health.LedgerHealthCheck;
 import task.manager.AccountManager;
+import task.manager.HotAccountManager;
+import task.protocol.TransferServer;
 import task.rest.AccountExceptionMapper;
 import task.rest.AccountResource;
 import task.service.AccountService;
+import task.service.AccountServiceEngine;
 import task.service.AccountServiceImpl;
+import task.service.ConcurrencyLimitingExecutor;
+import task.service.ConditionalAccountService;
+import task.service.GroupCommitAccountService;
+import task.service.HotAccounts;
+import task.service.IdempotentTransfers;
+import task.service.LedgerAccountService;
+import task.service.OffloadingAccountService;
+import task.service.PartitionedAccountService;
+import task.service.ShardedAccountService;
+import task.service.StripedLocks;
+import task.service.ThreadType;
+import task.service.VirtualThreads;
 
 import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import static com.google.inject.name.Names.bindProperties;
 import static org.apache.ibatis.io.Resources.getResourceAsReader;
@@ -34,7 +83,7 @@ import static org.apache.ibatis.io.Resources.getResourceAsReader;
  *
  * @author Anton Kotov (kotov-anton@yandex.ru)
  */
-public class AccountServiceApplication extends Application<Configuration> {
+public class AccountServiceApplication extends Application<AccountServiceConfiguration> {
     public static void main(String[] args) throws Exception {
         if (args.length == 0) {
             args = new String[]{"server", "/application-config.yaml"};
@@ -48,7 +97,7 @@ public class AccountServiceApplication extends Application<Configuration> {
     }
 
     @Override
-    public void initialize(Bootstrap<Configuration> bootstrap) {
+    public void initialize(Bootstrap<AccountServiceConfiguration> bootstrap) {
         // Search config file on classpath
         bootstrap.setConfigurationSourceProvider(new ResourceConfigurationSourceProvider());
 
@@ -56,56 +105,255 @@ public class AccountServiceApplication extends Application<Configuration> {
     }
 
     @Override
-    public void run(Configuration configuration, Environment environment) throws Exception {
+    public void run(AccountServiceConfiguration configuration, Environment environment) throws Exception {
+        final AccountServiceEngine engine = configuration.getEngine();
+        final DataSourceConfiguration dataSourceConfiguration = configuration.getDataSource();
+        final Module myBatisModule = new XMLMyBatisModule() {
+            @Override
+            protected void initialize() {
+                setEnvironmentId("test");
+                install(JdbcHelper.HSQLDB_IN_MEMORY_NAMED);
+
+                bind(MetricRegistry.class).toInstance(environment.metrics());
+                switch (dataSourceConfiguration.getPool()) {
+                    case BUILTIN:
+                        bind(DataSource.class).toProvider(PooledDataSourceProvider.class).in(Scopes.SINGLETON);
+                        break;
+                    case HIKARI:
+                        bind(DataSourceConfiguration.class).toInstance(dataSourceConfiguration);
+                        bind(DataSource.class).toProvider(HikariDataSourceProvider.class).in(Scopes.SINGLETON);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unsupported pool: " + dataSourceConfiguration.getPool());
+                }
+                bind(TransactionFactory.class).to(JdbcTransactionFactory.class).in(Scopes.SINGLETON);
+
+                setClassPathResource("mybatis-config.xml");
+
+                // bind classes with transactional method(s)
+                bind(AccountManager.class);
+                bind(HotAccountManager.class);
+
+                final Properties dataSourceProperties = createDataSourceProperties(dataSourceConfiguration);
+                addProperties(dataSourceProperties);
+                bindProperties(binder(), dataSourceProperties);
+            }
+        };
+        final HotAccountsConfiguration hotAccounts = configuration.getHotAccounts();
+        if (!hotAccounts.getAccountIds().isEmpty() && engine != AccountServiceEngine.LOCKING) {
+            throw new IllegalArgumentException("hotAccounts are not supported by engine: " + engine);
+        }
+        final StatementMetrics statementMetrics = new StatementMetrics(environment.metrics());
+        final AccountCacheConfiguration accountCache = configuration.getAccountCache();
+        final Module daoModule;
+        if (engine == AccountServiceEngine.SHARDED) {
+            if (accountCache.isEnabled()) {
+                throw new IllegalArgumentException("accountCache is not supported by engine: " + engine);
+            }
+            final AccountShards shards = createShards(configuration.getSharding().getShards(), dataSourceConfiguration,
+                    statementMetrics);
+            daoModule = Modules.override(myBatisModule).with(new AbstractModule() {
+                @Override
+                protected void configure() {
+                    bind(AccountShards.class).toInstance(shards);
+                    bind(AccountDao.class).to(ShardedAccountDao.class).in(Scopes.SINGLETON);
+                }
+            });
+        } else if (accountCache.isEnabled()) {
+            daoModule = Modules.override(myBatisModule).with(
+                    new CachingAccountDaoModule(accountCache.getMaximumSize(), environment.metrics()));
+        } else {
+            daoModule = myBatisModule;
+        }
+        final Executor asyncTransferExecutor = createAsyncTransferExecutor(configuration, environment);
+        final StripedLocks locks = new StripedLocks(configuration.getLockStripes());
+        locks.registerMetrics(environment.metrics());
         final Injector injector = Guice.createInjector(
                 new AbstractModule() {
                     @Override
                     protected void configure() {
-                        bind(AccountService.class).to(AccountServiceImpl.class);
+                        bind(StripedLocks.class).toInstance(locks);
+                        bind(LedgerConfiguration.class).toInstance(configuration.getLedger());
+                        bind(PartitioningConfiguration.class).toInstance(configuration.getPartitioning());
+                        bind(GroupCommitConfiguration.class).toInstance(configuration.getGroupCommit());
+                        bind(IdempotencyConfiguration.class).toInstance(configuration.getIdempotency());
+                        bind(HotAccountsConfiguration.class).toInstance(hotAccounts);
+                        bind(HotAccounts.class).in(Scopes.SINGLETON);
+                        bind(IdempotentTransfers.class).in(Scopes.SINGLETON);
+                        bind(Executor.class).annotatedWith(Names.named(OffloadingAccountService.BLOCKING))
+                                .toInstance(asyncTransferExecutor);
+                        switch (engine) {
+                            case LOCKING:
+                                bindBlocking(AccountServiceImpl.class);
+                                bindHotAccounts();
+                                break;
+                            case LEDGER:
+                                bind(AccountService.class).to(LedgerAccountService.class);
+                                bind(LedgerAccountService.class).in(Scopes.SINGLETON);
+                                break;
+                            case CONDITIONAL:
+                                bindBlocking(ConditionalAccountService.class);
+                                break;
+                            case PARTITIONED:
+                                bind(AccountService.class).to(PartitionedAccountService.class);
+                                bind(PartitionedAccountService.class).in(Scopes.SINGLETON);
+                                break;
+                            case SHARDED:
+                                bindBlocking(ShardedAccountService.class);
+                                break;
+                            case GROUP_COMMIT:
+                                bind(AccountService.class).to(GroupCommitAccountService.class);
+                                bind(GroupCommitAccountService.class).in(Scopes.SINGLETON);
+                                break;
+                            default:
+                                throw new IllegalArgumentException("unsupported engine: " + engine);
+                        }
                     }
-                },
-                new XMLMyBatisModule() {
-                    @Override
-                    protected void initialize() {
-                        setEnvironmentId("test");
-                        install(JdbcHelper.HSQLDB_IN_MEMORY_NAMED);
-
-                        bind(DataSource.class).toProvider(PooledDataSourceProvider.class).in(Scopes.SINGLETON);
-                        bind(TransactionFactory.class).to(JdbcTransactionFactory.class).in(Scopes.SINGLETON);
-
-                        setClassPathResource("mybatis-config.xml");
 
-                        // bind classes with transactional method(s)
-                        bind(AccountManager.class);
+                    // hot accounts are passed explicitly, so the locking engine is injectable without the slot mapper
+                    private void bindHotAccounts() {
+                        final Provider<AccountManager> accountManager = getProvider(AccountManager.class);
+                        final Provider<AccountDao> accountDao = getProvider(AccountDao.class);
+                        final Provider<HotAccounts> hotAccounts = getProvider(HotAccounts.class);
+                        bind(AccountServiceImpl.class).toProvider((Provider<AccountServiceImpl>) () ->
+                                new AccountServiceImpl(accountManager.get(), accountDao.get(), locks,
+                                        hotAccounts.get()));
+                    }
 
-                        final Properties dataSourceProperties = createDataSourceProperties();
-                        addProperties(dataSourceProperties);
-                        bindProperties(binder(), dataSourceProperties);
+                    // asynchronous transfers of a blocking engine are executed by the async transfer executor
+                    private void bindBlocking(Class<? extends AccountService> implementation) {
+                        bind(AccountService.class).annotatedWith(Names.named(OffloadingAccountService.BLOCKING))
+                                .to(implementation).in(Scopes.SINGLETON);
+                        bind(AccountService.class).to(OffloadingAccountService.class).in(Scopes.SINGLETON);
                     }
-                }
+                },
+                daoModule
         );
 
+        final DataSource dataSource = injector.getInstance(DataSource.class);
+        manageDataSource(dataSource, environment);
+        statementMetrics.install(injector.getInstance(SqlSessionFactory.class).getConfiguration());
+
         // prepare the test db
-        DataSource dataSource = injector.getInstance(DataSource.class);
-        ScriptRunner runner = new ScriptRunner(dataSource.getConnection());
-        runner.setAutoCommit(true);
-        runner.setStopOnError(true);
-        runner.setDelimiter("/");
-        runner.runScript(getResourceAsReader("sql/database-schema.sql"));
-        runner.runScript(getResourceAsReader("sql/database-test-data.sql"));
-        runner.closeConnection();
+        runScripts(dataSource, "sql/database-schema.sql", "sql/database-test-data.sql");
+        if (engine == AccountServiceEngine.LOCKING) {
+            injector.getInstance(HotAccounts.class).createSlots();
+        }
+        if (engine == AccountServiceEngine.SHARDED) {
+            injector.getInstance(ShardedAccountService.class).recoverPendingTransfers();
+            // test accounts are created through the service, so they get ids 1 and 2 on the first two shards
+            final AccountService accountService = injector.getInstance(AccountService.class);
+            accountService.create(new BigDecimal("123.45"));
+            accountService.create(new BigDecimal("678.90"));
+        }
+
+        if (engine == AccountServiceEngine.LEDGER) {
+            environment.lifecycle().manage(injector.getInstance(LedgerAccountService.class));
+        } else if (engine == AccountServiceEngine.PARTITIONED) {
+            environment.lifecycle().manage(injector.getInstance(PartitionedAccountService.class));
+        } else if (engine == AccountServiceEngine.GROUP_COMMIT) {
+            environment.lifecycle().manage(injector.getInstance(GroupCommitAccountService.class));
+        }
 
         final DatabaseHealthCheck healthCheck = new DatabaseHealthCheck(injector.getInstance(AccountDao.class));
         environment.healthChecks().register("database", healthCheck);
+        if (engine == AccountServiceEngine.LEDGER) {
+            environment.healthChecks().register("ledger",
+                    new LedgerHealthCheck(injector.getInstance(LedgerAccountService.class)));
+        }
 
         final AccountResource resource = injector.getInstance(AccountResource.class);
         environment.jersey().register(resource);
 
         final AccountExceptionMapper exceptionMapper = new AccountExceptionMapper();
         environment.jersey().register(exceptionMapper);
+
+        // waits for locks are attributed to accounts by the LOCKING engine only, the others report no accounts
+        environment.admin()
+                .addServlet("contended-accounts",
+                        new ContendedAccountsServlet(locks.getContendedAccounts(), environment.getObjectMapper()))
+                .addMapping(ContendedAccountsServlet.PATH);
+        environment.admin().addTask(new ResetContendedAccountsTask(locks.getContendedAccounts()));
+
+        if (configuration.getBinaryProtocol().isEnabled()) {
+            // managed after the engine, so it is stopped before the engine
+            environment.lifecycle().manage(new TransferServer(injector.getInstance(AccountService.class),
+                    configuration.getBinaryProtocol()));
+        }
+    }
+
+    private void manageDataSource(DataSource dataSource, Environment environment) {
+        if (dataSource instanceof PooledDataSource) {
+            // HikariCP registers its metrics by itself
+            DataSourceMetrics.register((PooledDataSource) dataSource, environment.metrics());
+        }
+        if (dataSource instanceof Closeable) {
+            environment.lifecycle().manage(new Managed() {
+                @Override
+                public void start() {
+                }
+
+                @Override
+                public void stop() throws Exception {
+                    ((Closeable) dataSource).close();
+                }
+            });
+        }
+    }
+
+    private Executor createAsyncTransferExecutor(AccountServiceConfiguration configuration, Environment environment) {
+        final int threads = configuration.getAsyncTransferThreads();
+        final ThreadType threadType = configuration.getAsyncTransferThreadType();
+        switch (threadType) {
+            case PLATFORM:
+                return environment.lifecycle()
+                        .executorService("async-transfer-%d")
+                        .minThreads(threads)
+                        .maxThreads(threads)
+                        .build();
+            case VIRTUAL:
+                final ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+                environment.lifecycle().manage(new ExecutorServiceManager(executor, Duration.seconds(5), "async-transfer"));
+                // virtual threads are not pooled, so the number of concurrent transfers is limited explicitly
+                return new ConcurrencyLimitingExecutor(executor, threads);
+            default:
+                throw new IllegalArgumentException("unsupported thread type: " + threadType);
+        }
+    }
+
+    private AccountShards createShards(int shards, DataSourceConfiguration dataSourceConfiguration,
+                                       StatementMetrics statementMetrics) throws Exception {
+        final List<SqlSessionManager> sqlSessionManagers = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            final Properties properties = createDataSourceProperties(dataSourceConfiguration);
+            properties.setProperty("JDBC.schema", "aname-shard-" + shard);
+
+            final SqlSessionFactory sqlSessionFactory;
+            try (Reader reader = getResourceAsReader("mybatis-config.xml")) {
+                sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader, "test", properties);
+            }
+            statementMetrics.install(sqlSessionFactory.getConfiguration());
+            final DataSource dataSource = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+            runScripts(dataSource, "sql/database-schema.sql");
+            AccountShards.partitionSequence(dataSource, shard, shards);
+
+            sqlSessionManagers.add(SqlSessionManager.newInstance(sqlSessionFactory));
+        }
+        return new AccountShards(sqlSessionManagers);
+    }
+
+    private void runScripts(DataSource dataSource, String... scripts) throws Exception {
+        ScriptRunner runner = new ScriptRunner(dataSource.getConnection());
+        runner.setAutoCommit(true);
+        runner.setStopOnError(true);
+        runner.setDelimiter("/");
+        for (String script : scripts) {
+            runner.runScript(getResourceAsReader(script));
+        }
+        runner.closeConnection();
     }
 
-    private Properties createDataSourceProperties() {
+    private Properties createDataSourceProperties(DataSourceConfiguration dataSourceConfiguration) {
         Properties myBatisProperties = new Properties();
         myBatisProperties.setProperty("mybatis.environment.id", "test");
         myBatisProperties.setProperty("JDBC.driver", "org.hsqldb.jdbcDriver");
@@ -113,6 +361,8 @@ public class AccountServiceApplication extends Application<Configuration> {
         myBatisProperties.setProperty("JDBC.username", "sa");
         myBatisProperties.setProperty("JDBC.password", "");
         myBatisProperties.setProperty("JDBC.autoCommit", "false");
+        myBatisProperties.setProperty("mybatis.pooled.maximumActiveConnections",
+                String.valueOf(dataSourceConfiguration.getMaximumPoolSize()));
         return myBatisProperties;
     }
 }
@@ -0,0 +1,238 @@
+package task;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.Configuration;
+import task.config.AccountCacheConfiguration;
+import task.config.BinaryProtocolConfiguration;
+import task.config.DataSourceConfiguration;
+import task.config.GroupCommitConfiguration;
+import task.config.HotAccountsConfiguration;
+import task.config.IdempotencyConfiguration;
+import task.config.LedgerConfiguration;
+import task.config.PartitioningConfiguration;
+import task.config.ShardingConfiguration;
+import task.service.AccountServiceEngine;
+import task.service.StripedLocks;
+import task.service.ThreadType;
+
+import javax.annotation.Nullable;
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Application configuration. Every property has a default value, so the service can be started without any
+ * configuration file.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class AccountServiceConfiguration extends Configuration {
+
+    /**
+     * Default number of threads executing asynchronous transfers by {@link ThreadType#PLATFORM} threads.
+     */
+    public static final int DEFAULT_ASYNC_TRANSFER_THREADS = 64;
+
+    @NotNull
+    private AccountServiceEngine engine = AccountServiceEngine.LOCKING;
+
+    @Min(1)
+    private int lockStripes = StripedLocks.DEFAULT_STRIPES;
+
+    // null - DEFAULT_ASYNC_TRANSFER_THREADS for platform threads and the size of the connection pool for virtual ones
+    @Nullable
+    @Min(1)
+    private Integer asyncTransferThreads;
+
+    @NotNull
+    private ThreadType asyncTransferThreadType = ThreadType.PLATFORM;
+
+    @Valid
+    @NotNull
+    private DataSourceConfiguration dataSource = new DataSourceConfiguration();
+
+    @Valid
+    @NotNull
+    private LedgerConfiguration ledger = new LedgerConfiguration();
+
+    @Valid
+    @NotNull
+    private PartitioningConfiguration partitioning = new PartitioningConfiguration();
+
+    @Valid
+    @NotNull
+    private GroupCommitConfiguration groupCommit = new GroupCommitConfiguration();
+
+    @Valid
+    @NotNull
+    private ShardingConfiguration sharding = new ShardingConfiguration();
+
+    @Valid
+    @NotNull
+    private AccountCacheConfiguration accountCache = new AccountCacheConfiguration();
+
+    @Valid
+    @NotNull
+    private HotAccountsConfiguration hotAccounts = new HotAccountsConfiguration();
+
+    @Valid
+    @NotNull
+    private IdempotencyConfiguration idempotency = new IdempotencyConfiguration();
+
+    @Valid
+    @NotNull
+    private BinaryProtocolConfiguration binaryProtocol = new BinaryProtocolConfiguration();
+
+    @JsonProperty
+    public AccountServiceEngine getEngine() {
+        return engine;
+    }
+
+    @JsonProperty
+    public void setEngine(AccountServiceEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Get number of account lock stripes used by {@link AccountServiceEngine#LOCKING} engine.
+     *
+     * @return number of lock stripes
+     */
+    @JsonProperty
+    public int getLockStripes() {
+        return lockStripes;
+    }
+
+    @JsonProperty
+    public void setLockStripes(int lockStripes) {
+        this.lockStripes = lockStripes;
+    }
+
+    /**
+     * Get number of threads executing asynchronous transfers of blocking engines, see
+     * {@link task.service.OffloadingAccountService}. For {@link ThreadType#VIRTUAL} threads it is the maximal number
+     * of concurrently executed transfers, which defaults to the size of the connection pool: a virtual thread waiting
+     * for a connection of the MyBatis pool pins its carrier thread.
+     *
+     * @return number of threads
+     */
+    @JsonProperty
+    public int getAsyncTransferThreads() {
+        if (asyncTransferThreads != null) {
+            return asyncTransferThreads;
+        }
+        return asyncTransferThreadType == ThreadType.VIRTUAL
+                ? dataSource.getMaximumPoolSize()
+                : DEFAULT_ASYNC_TRANSFER_THREADS;
+    }
+
+    @JsonProperty
+    public void setAsyncTransferThreads(@Nullable Integer asyncTransferThreads) {
+        this.asyncTransferThreads = asyncTransferThreads;
+    }
+
+    /**
+     * Get type of threads executing asynchronous transfers of blocking engines.
+     *
+     * @return thread type
+     */
+    @JsonProperty
+    public ThreadType getAsyncTransferThreadType() {
+        return asyncTransferThreadType;
+    }
+
+    @JsonProperty
+    public void setAsyncTransferThreadType(ThreadType asyncTransferThreadType) {
+        this.asyncTransferThreadType = asyncTransferThreadType;
+    }
+
+    @JsonProperty
+    public DataSourceConfiguration getDataSource() {
+        return dataSource;
+    }
+
+    @JsonProperty
+    public void setDataSource(DataSourceConfiguration dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @JsonProperty
+    public LedgerConfiguration getLedger() {
+        return ledger;
+    }
+
+    @JsonProperty
+    public void setLedger(LedgerConfiguration ledger) {
+        this.ledger = ledger;
+    }
+
+    @JsonProperty
+    public PartitioningConfiguration getPartitioning() {
+        return partitioning;
+    }
+
+    @JsonProperty
+    public void setPartitioning(PartitioningConfiguration partitioning) {
+        this.partitioning = partitioning;
+    }
+
+    @JsonProperty
+    public GroupCommitConfiguration getGroupCommit() {
+        return groupCommit;
+    }
+
+    @JsonProperty
+    public void setGroupCommit(GroupCommitConfiguration groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    @JsonProperty
+    public ShardingConfiguration getSharding() {
+        return sharding;
+    }
+
+    @JsonProperty
+    public void setSharding(ShardingConfiguration sharding) {
+        this.sharding = sharding;
+    }
+
+    @JsonProperty
+    public AccountCacheConfiguration getAccountCache() {
+        return accountCache;
+    }
+
+    @JsonProperty
+    public void setAccountCache(AccountCacheConfiguration accountCache) {
+        this.accountCache = accountCache;
+    }
+
+    @JsonProperty
+    public HotAccountsConfiguration getHotAccounts() {
+        return hotAccounts;
+    }
+
+    @JsonProperty
+    public void setHotAccounts(HotAccountsConfiguration hotAccounts) {
+        this.hotAccounts = hotAccounts;
+    }
+
+    @JsonProperty
+    public IdempotencyConfiguration getIdempotency() {
+        return idempotency;
+    }
+
+    @JsonProperty
+    public void setIdempotency(IdempotencyConfiguration idempotency) {
+        this.idempotency = idempotency;
+    }
+
+    @JsonProperty
+    public BinaryProtocolConfiguration getBinaryProtocol() {
+        return binaryProtocol;
+    }
+
+    @JsonProperty
+    public void setBinaryProtocol(BinaryProtocolConfiguration binaryProtocol) {
+        this.binaryProtocol = binaryProtocol;
+    }
+}
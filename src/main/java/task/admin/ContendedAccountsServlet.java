@@ -0,0 +1,82 @@
+package task.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import task.metrics.HeavyHitters;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin servlet of the accounts with the longest total waits for their locks, used to find the accounts causing lock
+ * convoys at runtime. Responds with a JSON array of {@code {"accountId": 2, "waitMillis": 12.5}} objects in descending
+ * order of waits, the number of accounts is limited by the {@code limit} query parameter.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class ContendedAccountsServlet extends HttpServlet {
+
+    public static final String PATH = "/contended-accounts";
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_LIMIT = 16;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final transient HeavyHitters contendedAccounts;
+    private final transient ObjectMapper objectMapper;
+
+    public ContendedAccountsServlet(HeavyHitters contendedAccounts, ObjectMapper objectMapper) {
+        this.contendedAccounts = contendedAccounts;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        final int limit;
+        try {
+            limit = parseLimit(request.getParameter("limit"));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        final List<Map<String, Object>> accounts = new ArrayList<>();
+        contendedAccounts.getTop(limit).forEach((accountId, waitNanos) -> {
+            final Map<String, Object> account = new LinkedHashMap<>();
+            account.put("accountId", accountId);
+            account.put("waitMillis", waitNanos / NANOS_PER_MILLI);
+            accounts.add(account);
+        });
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        response.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+        try (OutputStream output = response.getOutputStream()) {
+            objectMapper.writeValue(output, accounts);
+        }
+    }
+
+    private int parseLimit(String value) {
+        if (value == null) {
+            return DEFAULT_LIMIT;
+        }
+        final int limit;
+        try {
+            limit = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("limit is not a number: " + value);
+        }
+        if (limit <= 0 || limit > contendedAccounts.capacity()) {
+            throw new IllegalArgumentException("limit must be in range [1, " + contendedAccounts.capacity() + "]: "
+                    + limit);
+        }
+        return limit;
+    }
+}
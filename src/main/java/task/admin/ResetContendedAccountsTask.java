@@ -0,0 +1,29 @@
+package task.admin;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.dropwizard.servlets.tasks.Task;
+import task.metrics.HeavyHitters;
+
+import java.io.PrintWriter;
+
+/**
+ * Admin task forgetting the accounts tracked by {@link ContendedAccountsServlet}, so the waits of an incident are not
+ * mixed with older ones: {@code POST /tasks/reset-contended-accounts}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class ResetContendedAccountsTask extends Task {
+
+    private final HeavyHitters contendedAccounts;
+
+    public ResetContendedAccountsTask(HeavyHitters contendedAccounts) {
+        super("reset-contended-accounts");
+        this.contendedAccounts = contendedAccounts;
+    }
+
+    @Override
+    public void execute(ImmutableMultimap<String, String> parameters, PrintWriter output) {
+        contendedAccounts.clear();
+        output.println("Contended accounts are reset");
+    }
+}
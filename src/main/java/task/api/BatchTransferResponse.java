@@ -0,0 +1,41 @@
+package task.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import task.model.TransferOutcome;
+
+import java.util.List;
+
+/**
+ * Represents response for batch transfer operation: outcome of every transfer in the order of the request.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class BatchTransferResponse {
+
+    private final List<TransferOutcome> outcomes;
+
+    @JsonCreator
+    public BatchTransferResponse(@JsonProperty("outcomes") List<TransferOutcome> outcomes) {
+        this.outcomes = outcomes;
+    }
+
+    public List<TransferOutcome> getOutcomes() {
+        return outcomes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        BatchTransferResponse that = (BatchTransferResponse) o;
+
+        return outcomes != null ? outcomes.equals(that.outcomes) : that.outcomes == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return outcomes != null ? outcomes.hashCode() : 0;
+    }
+}
@@ -0,0 +1,40 @@
+package task.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Represents response for bulk create account operation: id of every new account in the order of the request.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class BulkCreateAccountResponse {
+
+    private final List<Long> accountIds;
+
+    @JsonCreator
+    public BulkCreateAccountResponse(@JsonProperty("accountIds") List<Long> accountIds) {
+        this.accountIds = accountIds;
+    }
+
+    public List<Long> getAccountIds() {
+        return accountIds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        BulkCreateAccountResponse that = (BulkCreateAccountResponse) o;
+
+        return accountIds != null ? accountIds.equals(that.accountIds) : that.accountIds == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return accountIds != null ? accountIds.hashCode() : 0;
+    }
+}
@@ -0,0 +1,95 @@
+package task.api;
+
+import task.model.Account;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Format of the account export: one line per account with id and amount.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public enum ExportFormat {
+
+    /**
+     * Newline delimited JSON objects in the format of {@link GetAccountResponse}.
+     */
+    NDJSON("application/x-ndjson", "accounts.ndjson") {
+        @Override
+        public void writeHeader(Writer writer) {
+        }
+
+        @Override
+        public void writeAccount(Writer writer, Account account) throws IOException {
+            writer.write("{\"accountId\":");
+            writer.write(Long.toString(account.getId()));
+            writer.write(",\"amount\":");
+            writer.write(account.getAmount().toPlainString());
+            writer.write("}\n");
+        }
+    },
+
+    /**
+     * Comma separated values with the {@code accountId,amount} header line.
+     */
+    CSV("text/csv", "accounts.csv") {
+        @Override
+        public void writeHeader(Writer writer) throws IOException {
+            writer.write("accountId,amount\n");
+        }
+
+        @Override
+        public void writeAccount(Writer writer, Account account) throws IOException {
+            writer.write(Long.toString(account.getId()));
+            writer.write(',');
+            writer.write(account.getAmount().toPlainString());
+            writer.write('\n');
+        }
+    };
+
+    private final String mediaType;
+    private final String fileName;
+
+    ExportFormat(String mediaType, String fileName) {
+        this.mediaType = mediaType;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Parse format name ignoring case, used for query parameters.
+     *
+     * @param name format name, e.g. {@code csv}
+     * @return format
+     * @throws IllegalArgumentException if there is no format with such name
+     */
+    public static ExportFormat fromString(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Write lines preceding the accounts.
+     *
+     * @param writer writer of the export
+     * @throws IOException if the writer fails
+     */
+    public abstract void writeHeader(Writer writer) throws IOException;
+
+    /**
+     * Write the line of the account.
+     *
+     * @param writer  writer of the export
+     * @param account account
+     * @throws IOException if the writer fails
+     */
+    public abstract void writeAccount(Writer writer, Account account) throws IOException;
+}
@@ -2,7 +2,9 @@ package task.api;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import javax.annotation.Nullable;
 import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
 
@@ -12,6 +14,9 @@ import java.math.BigDecimal;
  * @author Anton Kotov (kotov-anton@yandex.ru)
  */
 public class TransferRequest {
+    @Nullable
+    @Min(1)
+    private Long requestId;
     @NotNull
     private long from;
     @NotNull
@@ -24,11 +29,28 @@ public class TransferRequest {
     }
 
     public TransferRequest(long from, long to, BigDecimal amount) {
+        this(null, from, to, amount);
+    }
+
+    public TransferRequest(@Nullable Long requestId, long from, long to, BigDecimal amount) {
+        this.requestId = requestId;
         this.from = from;
         this.to = to;
         this.amount = amount;
     }
 
+    /**
+     * Get optional id of the transfer chosen by the client, e.g. a random positive number. A retry with the same id
+     * is not applied twice, see {@link task.service.IdempotentTransfers}.
+     *
+     * @return request id or {@code null} if the transfer is not deduplicated
+     */
+    @Nullable
+    @JsonProperty
+    public Long getRequestId() {
+        return requestId;
+    }
+
     @JsonProperty
     public long getFrom() {
         return from;
@@ -51,6 +73,7 @@ public class TransferRequest {
 
         TransferRequest request = (TransferRequest) o;
 
+        if (requestId != null ? !requestId.equals(request.requestId) : request.requestId != null) return false;
         if (from != request.from) return false;
         if (to != request.to) return false;
         return amount != null ? amount.equals(request.amount) : request.amount == null;
@@ -58,7 +81,8 @@ public class TransferRequest {
 
     @Override
     public int hashCode() {
-        int result = (int) (from ^ (from >>> 32));
+        int result = requestId != null ? requestId.hashCode() : 0;
+        result = 31 * result + (int) (from ^ (from >>> 32));
         result = 31 * result + (int) (to ^ (to >>> 32));
         result = 31 * result + (amount != null ? amount.hashCode() : 0);
         return result;
@@ -0,0 +1,48 @@
+package task.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the {@link task.dao.CachingAccountDao}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class AccountCacheConfiguration {
+
+    private boolean enabled;
+
+    @Min(1)
+    private long maximumSize = 100_000;
+
+    /**
+     * Check whether committed account amounts are cached in front of the database.
+     *
+     * @return {@code true} if the cache is enabled
+     */
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Get maximal number of cached accounts, the least recently used ones are evicted first.
+     *
+     * @return maximal number of cached accounts
+     */
+    @JsonProperty
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    @JsonProperty
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+}
@@ -0,0 +1,87 @@
+package task.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the {@link task.protocol.TransferServer}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class BinaryProtocolConfiguration {
+
+    private boolean enabled = false;
+
+    @Min(0)
+    @Max(65535)
+    private int port = 8082;
+
+    @Min(1)
+    private int maxConnections = 64;
+
+    @Min(1)
+    private int maxInFlight = 1024;
+
+    /**
+     * Check whether transfers are accepted by the binary protocol besides HTTP.
+     *
+     * @return {@code true} if the binary protocol is enabled
+     */
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Get TCP port of the binary protocol, {@code 0} means any free port.
+     *
+     * @return port
+     */
+    @JsonProperty
+    public int getPort() {
+        return port;
+    }
+
+    @JsonProperty
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Get maximal number of open connections, every connection is served by its own reader and writer threads.
+     *
+     * @return maximal number of connections
+     */
+    @JsonProperty
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    @JsonProperty
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * Get maximal number of transfers of one connection being executed or waiting for their responses to be written,
+     * further requests are not read until some of the responses are written.
+     *
+     * @return maximal number of transfers in flight per connection
+     */
+    @JsonProperty
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @JsonProperty
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+}
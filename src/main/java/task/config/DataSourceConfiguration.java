@@ -0,0 +1,88 @@
+package task.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import task.dao.ConnectionPool;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Configuration of the pool of database connections.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class DataSourceConfiguration {
+
+    @NotNull
+    private ConnectionPool pool = ConnectionPool.BUILTIN;
+
+    @Min(1)
+    private int maximumPoolSize = 10;
+
+    @Min(0)
+    private int minimumIdle = 10;
+
+    @Min(250)
+    private long connectionTimeoutMillis = 30_000;
+
+    /**
+     * Get implementation of the connection pool.
+     *
+     * @return connection pool
+     */
+    @JsonProperty
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    @JsonProperty
+    public void setPool(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Get maximal number of connections of the pool.
+     *
+     * @return maximal pool size
+     */
+    @JsonProperty
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    @JsonProperty
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    /**
+     * Get minimal number of idle connections kept by the {@link ConnectionPool#HIKARI} pool.
+     *
+     * @return minimal number of idle connections
+     */
+    @JsonProperty
+    public int getMinimumIdle() {
+        return minimumIdle;
+    }
+
+    @JsonProperty
+    public void setMinimumIdle(int minimumIdle) {
+        this.minimumIdle = minimumIdle;
+    }
+
+    /**
+     * Get maximal time to wait for a connection of the {@link ConnectionPool#HIKARI} pool before the acquisition
+     * fails.
+     *
+     * @return connection timeout in milliseconds
+     */
+    @JsonProperty
+    public long getConnectionTimeoutMillis() {
+        return connectionTimeoutMillis;
+    }
+
+    @JsonProperty
+    public void setConnectionTimeoutMillis(long connectionTimeoutMillis) {
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+    }
+}
@@ -0,0 +1,68 @@
+package task.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the {@link task.service.GroupCommitAccountService}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class GroupCommitConfiguration {
+
+    @Min(1)
+    private int maxGroupSize = 64;
+
+    @Min(0)
+    private long maxDelayMicros = 200;
+
+    @Min(1)
+    private int queueCapacity = 65536;
+
+    /**
+     * Get maximal number of transfers committed in one transaction.
+     *
+     * @return maximal group size
+     */
+    @JsonProperty
+    public int getMaxGroupSize() {
+        return maxGroupSize;
+    }
+
+    @JsonProperty
+    public void setMaxGroupSize(int maxGroupSize) {
+        this.maxGroupSize = maxGroupSize;
+    }
+
+    /**
+     * Get maximal time the first transfer of a group waits for others before the group is committed, {@code 0} means
+     * that only already queued transfers are grouped.
+     *
+     * @return maximal delay in microseconds
+     */
+    @JsonProperty
+    public long getMaxDelayMicros() {
+        return maxDelayMicros;
+    }
+
+    @JsonProperty
+    public void setMaxDelayMicros(long maxDelayMicros) {
+        this.maxDelayMicros = maxDelayMicros;
+    }
+
+    /**
+     * Get capacity of the queue between request threads and the committer thread.
+     *
+     * @return queue capacity
+     */
+    @JsonProperty
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @JsonProperty
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
@@ -0,0 +1,52 @@
+package task.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Configuration of the {@link task.service.HotAccounts}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class HotAccountsConfiguration {
+
+    @NotNull
+    private List<Long> accountIds = Collections.emptyList();
+
+    @Min(1)
+    private int slots = 16;
+
+    /**
+     * Get ids of accounts receiving most of the deposits, the accounts must exist when the service starts.
+     *
+     * @return hot account ids
+     */
+    @JsonProperty
+    public List<Long> getAccountIds() {
+        return accountIds;
+    }
+
+    @JsonProperty
+    public void setAccountIds(List<Long> accountIds) {
+        this.accountIds = accountIds;
+    }
+
+    /**
+     * Get number of sub-balance slots the deposits to every hot account are spread over.
+     *
+     * @return number of slots
+     */
+    @JsonProperty
+    public int getSlots() {
+        return slots;
+    }
+
+    @JsonProperty
+    public void setSlots(int slots) {
+        this.slots = slots;
+    }
+}
@@ -0,0 +1,52 @@
+package task.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the {@link task.service.IdempotentTransfers}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class IdempotencyConfiguration {
+
+    @Min(1)
+    @Max(1 << 29)
+    private int maxKeys = 262_144;
+
+    @Min(1)
+    private long ttlSeconds = 600;
+
+    /**
+     * Get maximal number of request ids remembered within {@code ttlSeconds}, the memory of the store is allocated
+     * for twice as many ids.
+     *
+     * @return maximal number of request ids per time-to-live
+     */
+    @JsonProperty
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    @JsonProperty
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Get minimal time a request id is remembered for, unless more than {@code maxKeys} ids arrive within this time.
+     *
+     * @return time-to-live of request ids in seconds
+     */
+    @JsonProperty
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    @JsonProperty
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
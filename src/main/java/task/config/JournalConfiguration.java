@@ -0,0 +1,106 @@
+package task.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import task.journal.Durability;
+import task.journal.TransferJournal;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Configuration of the {@link TransferJournal} of the {@link task.service.LedgerAccountService}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class JournalConfiguration {
+
+    private boolean enabled;
+
+    @NotNull
+    private String directory = "journal";
+
+    @Min(TransferJournal.MIN_SEGMENT_SIZE)
+    private int segmentSize = 64 * 1024 * 1024;
+
+    @NotNull
+    private Durability durability = Durability.GROUP;
+
+    @Min(0)
+    private long snapshotInterval = 1_000_000;
+
+    /**
+     * Check whether transfers are persisted to the journal instead of the database.
+     *
+     * @return {@code true} if the journal is enabled
+     */
+    @JsonProperty
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @JsonProperty
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Get directory of journal segment files.
+     *
+     * @return journal directory
+     */
+    @JsonProperty
+    public String getDirectory() {
+        return directory;
+    }
+
+    @JsonProperty
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get size of one memory-mapped journal segment in bytes.
+     *
+     * @return segment size
+     */
+    @JsonProperty
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    @JsonProperty
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Get when journal records are forced to the storage device.
+     *
+     * @return durability of the journal
+     */
+    @JsonProperty
+    public Durability getDurability() {
+        return durability;
+    }
+
+    @JsonProperty
+    public void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+
+    /**
+     * Get number of journal records after which the ledger takes a snapshot of balances, {@code 0} means that
+     * snapshots are taken only when the ledger is stopped.
+     *
+     * @return number of records between snapshots
+     */
+    @JsonProperty
+    public long getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    @JsonProperty
+    public void setSnapshotInterval(long snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+}
@@ -0,0 +1,52 @@
+package task.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Configuration of the {@link task.service.LedgerAccountService}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class LedgerConfiguration {
+
+    @Min(1)
+    private int ringBufferSize = 65536;
+
+    @Valid
+    @NotNull
+    private JournalConfiguration journal = new JournalConfiguration();
+
+    /**
+     * Get capacity of the ring buffer between request threads and the sequencer thread.
+     *
+     * @return ring buffer capacity
+     */
+    @JsonProperty
+    public int getRingBufferSize() {
+        return ringBufferSize;
+    }
+
+    @JsonProperty
+    public void setRingBufferSize(int ringBufferSize) {
+        this.ringBufferSize = ringBufferSize;
+    }
+
+    /**
+     * Get configuration of the transfer journal.
+     *
+     * @return journal configuration
+     */
+    @JsonProperty
+    public JournalConfiguration getJournal() {
+        return journal;
+    }
+
+    @JsonProperty
+    public void setJournal(JournalConfiguration journal) {
+        this.journal = journal;
+    }
+}
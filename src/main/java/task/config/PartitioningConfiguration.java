@@ -0,0 +1,50 @@
+package task.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the {@link task.service.PartitionedAccountService}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class PartitioningConfiguration {
+
+    @Min(1)
+    private int partitions = 16;
+
+    @Min(1)
+    private int queueCapacity = 65536;
+
+    /**
+     * Get number of single-threaded partitions the accounts are hashed onto.
+     *
+     * @return number of partitions
+     */
+    @JsonProperty
+    public int getPartitions() {
+        return partitions;
+    }
+
+    @JsonProperty
+    public void setPartitions(int partitions) {
+        this.partitions = partitions;
+    }
+
+    /**
+     * Get maximal number of tasks queued to one partition, further transfers to the partition are rejected until
+     * some of them are executed.
+     *
+     * @return capacity of the queue of a partition
+     */
+    @JsonProperty
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @JsonProperty
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
@@ -0,0 +1,31 @@
+package task.config;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Configuration of the {@link task.service.ShardedAccountService}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class ShardingConfiguration {
+
+    @Min(1)
+    private int shards = 4;
+
+    /**
+     * Get number of databases the accounts are partitioned across.
+     *
+     * @return number of shards
+     */
+    @JsonProperty
+    public int getShards() {
+        return shards;
+    }
+
+    @JsonProperty
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+}
@@ -1,8 +1,15 @@
 package task.dao;
 
+import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ResultHandler;
 import task.model.Account;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * This DAO provides key methods for saving and retrieving accounts.
  * The implementation is generated by mybatis framework.
@@ -11,6 +18,12 @@ import task.model.Account;
  */
 public interface AccountDao {
 
+    /**
+     * Maximal number of elements of one IN list, see {@link #selectAll(Collection)}. Must be equal to the chunk size
+     * of the {@code selectAll} statement in {@code sql/account.xml}.
+     */
+    int MAX_IN_LIST_SIZE = 1000;
+
     /**
      * Select account by id.
      *
@@ -19,6 +32,23 @@ public interface AccountDao {
      */
     Account select(@Param("accountId") long accountId);
 
+    /**
+     * Select accounts by ids with one query. Ids are put to IN lists of at most {@value #MAX_IN_LIST_SIZE} elements,
+     * like Oracle requires.
+     *
+     * @param accountIds account ids, not empty
+     * @return existing accounts with given ids in no particular order, every account once
+     */
+    List<Account> selectAll(@Param("accountIds") Collection<Long> accountIds);
+
+    /**
+     * Pass every account to {@code handler} in order of ids while the rows are fetched from the database, so memory
+     * doesn't depend on the number of accounts. The handler is called by the calling thread within the query.
+     *
+     * @param handler handler of accounts
+     */
+    void selectEach(ResultHandler<Account> handler);
+
     /**
      * Create new account with given amount. The method sets new generated account id to the {@code account} object.
      *
@@ -26,6 +56,25 @@ public interface AccountDao {
      */
     void insert(@Param("account") Account account);
 
+    /**
+     * Take {@code count} new account ids from the account id sequence by one query. The query takes one sequence value
+     * per id rather than a reserved block: {@link #insert(Account)} takes ids from the same sequence, and altering it is
+     * a DDL statement that can't take part in a transaction.
+     *
+     * @param count number of ids, positive
+     * @return new account ids
+     */
+    List<Long> allocateIds(@Param("count") int count);
+
+    /**
+     * Create new accounts with ids already set, e.g. by {@link #allocateIds(int)}, by one multi-row insert. Inside
+     * a transaction started with {@link org.apache.ibatis.session.ExecutorType#BATCH} executor consecutive calls
+     * with the same number of accounts are sent to the database as one JDBC batch.
+     *
+     * @param accounts accounts with ids, not empty
+     */
+    void insertAll(@Param("accounts") List<Account> accounts);
+
     /**
      * Update existing account with new amount value.
      *
@@ -34,6 +83,50 @@ public interface AccountDao {
      */
     int update(@Param("account") Account account);
 
+    /**
+     * Withdraw {@code amount} from the account by one relative update guarded by the balance check, so the account
+     * is neither read before nor locked by the application.
+     *
+     * @param accountId account id
+     * @param amount    positive amount to withdraw
+     * @return number of updated rows: 1 when account exists and its amount is not less than {@code amount},
+     * 0 otherwise
+     */
+    int debit(@Param("accountId") long accountId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Deposit {@code amount} to the account by one relative update.
+     *
+     * @param accountId account id
+     * @param amount    positive amount to deposit
+     * @return number of updated rows: 1 when account exists, 0 otherwise
+     */
+    int credit(@Param("accountId") long accountId, @Param("amount") BigDecimal amount);
+
+    /**
+     * Select the greatest account id.
+     *
+     * @return greatest account id, 0 when there are no accounts
+     */
+    long selectMaxId();
+
+    /**
+     * Restart account id sequence, so that the next inserted account gets {@code nextId}. Used to move the sequence
+     * past ids of accounts restored from outside the database.
+     *
+     * @param nextId next account id
+     */
+    void restartSequence(@Param("nextId") long nextId);
+
+    /**
+     * Execute statements batched by the current session. Makes sense only inside a transaction started with
+     * {@link org.apache.ibatis.session.ExecutorType#BATCH} executor.
+     *
+     * @return results of the batched statements, empty list when nothing is batched
+     */
+    @Flush
+    List<BatchResult> flush();
+
     /**
      * Health-check.
      *
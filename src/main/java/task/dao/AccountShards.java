@@ -0,0 +1,81 @@
+package task.dao;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.ibatis.session.SqlSessionManager;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Databases the accounts are partitioned across. Account with id {@code i} belongs to the shard
+ * {@code (i - 1) mod size()}: the account id sequence of every shard is restarted by
+ * {@link #partitionSequence(DataSource, int, int)}, so ids generated by a shard always belong to it.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public final class AccountShards {
+
+    private final List<SqlSessionManager> sqlSessionManagers;
+
+    public AccountShards(List<SqlSessionManager> sqlSessionManagers) {
+        checkArgument(!sqlSessionManagers.isEmpty(), "no shards");
+        this.sqlSessionManagers = ImmutableList.copyOf(sqlSessionManagers);
+    }
+
+    /**
+     * Restart account id sequence of the shard, so that it generates ids {@code shard + 1},
+     * {@code shard + 1 + shards}, {@code shard + 1 + 2 * shards}, etc. Must be called before any account is inserted
+     * to the shard.
+     *
+     * @param dataSource data source of the shard
+     * @param shard      shard index
+     * @param shards     number of shards
+     * @throws SQLException if the sequence can't be altered
+     */
+    public static void partitionSequence(DataSource dataSource, int shard, int shards) throws SQLException {
+        checkArgument(shard >= 0 && shard < shards, "shard %s is out of [0, %s)", shard, shards);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("ALTER SEQUENCE ACCOUNT_ID_SEQ RESTART WITH " + (shard + 1) + " INCREMENT BY " + shards);
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+
+    /**
+     * Get shard of the account.
+     *
+     * @param accountId account id
+     * @return shard index in {@code [0, size())}
+     */
+    public int shardOf(long accountId) {
+        return (int) Math.floorMod(accountId - 1, (long) sqlSessionManagers.size());
+    }
+
+    /**
+     * Get session manager of the shard.
+     *
+     * @param shard shard index
+     * @return session manager
+     */
+    public SqlSessionManager get(int shard) {
+        return sqlSessionManagers.get(shard);
+    }
+
+    /**
+     * Get number of shards.
+     *
+     * @return number of shards
+     */
+    public int size() {
+        return sqlSessionManagers.size();
+    }
+}
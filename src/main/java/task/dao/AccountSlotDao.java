@@ -0,0 +1,68 @@
+package task.dao;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * This DAO provides methods for sub-balance slots of hot accounts: deposits to a hot account are spread over its
+ * slots, so they don't contend for the {@code ACCOUNT} row. Balance of a hot account is the amount of its
+ * {@code ACCOUNT} row plus amounts of all its slots.
+ * <p>
+ * Slots avoid contention only on a store with row-level write locks. HSQLDB in its default {@code LOCKS} transaction
+ * mode locks the whole {@code ACCOUNT_SLOT} table on write until the commit, so deposits to different slots are still
+ * serialized by the database.
+ * <p>
+ * The implementation is generated by mybatis framework.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ * @see task.service.HotAccounts
+ */
+public interface AccountSlotDao {
+
+    /**
+     * Select balance of the account including its slots by one query.
+     *
+     * @param accountId account id
+     * @return balance if account with provided {@code accountId} exists, {@code null} - otherwise.
+     */
+    BigDecimal selectBalance(@Param("accountId") long accountId);
+
+    /**
+     * Select amounts of all slots of the account.
+     *
+     * @param accountId account id
+     * @return amounts in order of slots, which are numbered from 0 without gaps; empty list if the account has no slots
+     */
+    List<BigDecimal> selectSlotAmounts(@Param("accountId") long accountId);
+
+    /**
+     * Create empty slot of the account unless it exists.
+     *
+     * @param accountId account id
+     * @param slot      slot number
+     * @return number of inserted rows: 1 when account exists and has no such slot, 0 otherwise
+     */
+    int insertSlot(@Param("accountId") long accountId, @Param("slot") int slot);
+
+    /**
+     * Deposit {@code amount} to the slot by one relative update.
+     *
+     * @param accountId account id
+     * @param slot      slot number
+     * @param amount    positive amount to deposit
+     * @return number of updated rows: 1 when the slot exists, 0 otherwise
+     */
+    int credit(@Param("accountId") long accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    /**
+     * Withdraw {@code amount} from the slot by one relative update, so deposits made since the slot was read are kept.
+     *
+     * @param accountId account id
+     * @param slot      slot number
+     * @param amount    amount to withdraw, not greater than the amount of the slot
+     * @return number of updated rows: 1 when the slot exists, 0 otherwise
+     */
+    int debit(@Param("accountId") long accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+}
@@ -0,0 +1,301 @@
+package task.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSessionManager;
+import task.model.Account;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Decorator of {@link AccountDao} that keeps committed account amounts in a bounded cache.
+ * <p>
+ * {@link #select(long)} is served from the cache when possible. {@link #insert(Account)} and
+ * {@link #update(Account)} outside of a transaction are committed immediately, so they update the cache at once.
+ * Inside a transaction new amounts are remembered per thread and put to the cache only when the session commits, or
+ * dropped (and invalidated) when it rolls back. Accounts changed by relative {@link #debit} and {@link #credit}
+ * updates are invalidated instead, since only the database knows their new amounts. Session events are received by
+ * a MyBatis plugin registered by {@link #install(Configuration)}, so the cache never serves an uncommitted amount.
+ * <p>
+ * A missed account is selected outside of any ordering with commits, so the selected amount may be older than an
+ * amount published or invalidated by a commit in the meantime. Every write to the cache bumps the generation of the
+ * stripe of the account, and a selected amount is published only if the generation of its stripe didn't change
+ * since before the select. The check and the write are done by {@link java.util.concurrent.ConcurrentMap#compute}
+ * of the same key, so they are atomic.
+ * <p>
+ * The writers of an account by {@link #update(Account)} must be serialized until commit (which
+ * {@link task.service.AccountServiceImpl} does by account locks), otherwise the cache could be left with the older
+ * of two concurrently committed amounts.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class CachingAccountDao implements AccountDao {
+
+    // must be a power of two
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final AccountDao delegate;
+    private final SqlSessionManager sqlSessionManager;
+    private final Cache<Long, BigDecimal> amountsByAccountId;
+
+    // generations of stripes of accounts, bumped by every write to the cache
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    // amounts written by the current session and not committed yet, null for relatively updated accounts
+    private final ThreadLocal<Map<Long, BigDecimal>> pendingAmounts = ThreadLocal.withInitial(HashMap::new);
+
+    public CachingAccountDao(AccountDao delegate, SqlSessionManager sqlSessionManager, long maximumSize) {
+        this.delegate = delegate;
+        this.sqlSessionManager = sqlSessionManager;
+        this.amountsByAccountId = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Register the plugin that publishes or drops pending amounts on commit or rollback of MyBatis sessions. Must be
+     * called before any session is opened.
+     *
+     * @param configuration MyBatis configuration
+     */
+    public void install(Configuration configuration) {
+        configuration.addInterceptor(new TransactionListener());
+    }
+
+    /**
+     * Register hit, miss and eviction metrics of the cache.
+     *
+     * @param metrics registry to register metrics in
+     */
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(name(CachingAccountDao.class, "hits"),
+                (Gauge<Long>) () -> amountsByAccountId.stats().hitCount());
+        metrics.register(name(CachingAccountDao.class, "misses"),
+                (Gauge<Long>) () -> amountsByAccountId.stats().missCount());
+        metrics.register(name(CachingAccountDao.class, "evictions"),
+                (Gauge<Long>) () -> amountsByAccountId.stats().evictionCount());
+        metrics.register(name(CachingAccountDao.class, "hitRate"),
+                (Gauge<Double>) () -> amountsByAccountId.stats().hitRate());
+        metrics.register(name(CachingAccountDao.class, "size"),
+                (Gauge<Long>) amountsByAccountId::size);
+    }
+
+    @Override
+    public Account select(long accountId) {
+        final BigDecimal cached = amountsByAccountId.getIfPresent(accountId);
+        if (cached != null) {
+            return new Account().setId(accountId).setAmount(cached);
+        }
+        final int stripe = stripe(accountId);
+        final long generation = generations.get(stripe);
+        final Account account = delegate.select(accountId);
+        if (account == null) {
+            // absent accounts are not cached
+            return null;
+        }
+        final BigDecimal loaded = account.getAmount();
+        // a value put by a commit while the select is in progress wins over the selected one, and the selected one is
+        // dropped if the account was invalidated in the meantime
+        final BigDecimal amount = amountsByAccountId.asMap().compute(accountId, (id, current) ->
+                current != null || generations.get(stripe) != generation ? current : loaded);
+        return amount == null ? account : account.setAmount(amount);
+    }
+
+    /**
+     * Serve cached accounts from the cache and select the others by one query. Selected amounts are not put to the
+     * cache, so a large batch doesn't evict the accounts cached by transfers.
+     */
+    @Override
+    public List<Account> selectAll(Collection<Long> accountIds) {
+        final List<Account> accounts = new ArrayList<>(accountIds.size());
+        final Set<Long> missedIds = new HashSet<>();
+        for (long accountId : new HashSet<>(accountIds)) {
+            final BigDecimal amount = amountsByAccountId.getIfPresent(accountId);
+            if (amount != null) {
+                accounts.add(new Account().setId(accountId).setAmount(amount));
+            } else {
+                missedIds.add(accountId);
+            }
+        }
+        if (!missedIds.isEmpty()) {
+            accounts.addAll(delegate.selectAll(missedIds));
+        }
+        return accounts;
+    }
+
+    /**
+     * Not cached: committed amounts are written to the database as well.
+     */
+    @Override
+    public void selectEach(ResultHandler<Account> handler) {
+        delegate.selectEach(handler);
+    }
+
+    @Override
+    public void insert(Account account) {
+        delegate.insert(account);
+        written(account.getId(), account.getAmount());
+    }
+
+    @Override
+    public List<Long> allocateIds(int count) {
+        return delegate.allocateIds(count);
+    }
+
+    @Override
+    public void insertAll(List<Account> accounts) {
+        delegate.insertAll(accounts);
+        for (Account account : accounts) {
+            written(account.getId(), account.getAmount());
+        }
+    }
+
+    @Override
+    public int update(Account account) {
+        final int nRows = delegate.update(account);
+        if (sqlSessionManager.isManagedSessionStarted()) {
+            // in BATCH mode the real number of rows is known only after flush, so the commit decides
+            pendingAmounts.get().put(account.getId(), account.getAmount());
+        } else {
+            publish(account.getId(), nRows == 1 ? account.getAmount() : null);
+        }
+        return nRows;
+    }
+
+    // null amount means that the new amount is unknown (relative update), so the account is invalidated
+    private void written(long accountId, @Nullable BigDecimal amount) {
+        if (sqlSessionManager.isManagedSessionStarted()) {
+            pendingAmounts.get().put(accountId, amount);
+        } else {
+            publish(accountId, amount);
+        }
+    }
+
+    // put the committed amount to the cache or invalidate the account if the amount is null
+    private void publish(long accountId, @Nullable BigDecimal amount) {
+        amountsByAccountId.asMap().compute(accountId, (id, current) -> {
+            generations.incrementAndGet(stripe(id));
+            return amount;
+        });
+    }
+
+    private static int stripe(long accountId) {
+        return Long.hashCode(accountId) & (GENERATION_STRIPES - 1);
+    }
+
+    @Override
+    public int debit(long accountId, BigDecimal amount) {
+        final int nRows = delegate.debit(accountId, amount);
+        written(accountId, null);
+        return nRows;
+    }
+
+    @Override
+    public int credit(long accountId, BigDecimal amount) {
+        final int nRows = delegate.credit(accountId, amount);
+        written(accountId, null);
+        return nRows;
+    }
+
+    @Override
+    public long selectMaxId() {
+        return delegate.selectMaxId();
+    }
+
+    @Override
+    public void restartSequence(long nextId) {
+        delegate.restartSequence(nextId);
+    }
+
+    @Override
+    public List<BatchResult> flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public int ping() {
+        return delegate.ping();
+    }
+
+    private void afterCommit() {
+        final Map<Long, BigDecimal> pending = pendingAmounts.get();
+        if (!pending.isEmpty()) {
+            pending.forEach(this::publish);
+            pending.clear();
+        }
+    }
+
+    private void afterRollback() {
+        final Map<Long, BigDecimal> pending = pendingAmounts.get();
+        if (!pending.isEmpty()) {
+            for (long accountId : pending.keySet()) {
+                publish(accountId, null);
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * Receives commit, rollback and close events of MyBatis executors of the current thread.
+     */
+    @Intercepts({
+            @Signature(type = Executor.class, method = "commit", args = {boolean.class}),
+            @Signature(type = Executor.class, method = "rollback", args = {boolean.class}),
+            @Signature(type = Executor.class, method = "close", args = {boolean.class})
+    })
+    private final class TransactionListener implements Interceptor {
+
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            final Object result;
+            try {
+                result = invocation.proceed();
+            } catch (Throwable e) {
+                afterRollback();
+                throw e;
+            }
+            if ("commit".equals(invocation.getMethod().getName())) {
+                afterCommit();
+            } else {
+                // closing a session discards its uncommitted changes
+                afterRollback();
+            }
+            return result;
+        }
+
+        @Override
+        public Object plugin(Object target) {
+            return Plugin.wrap(target, this);
+        }
+
+        @Override
+        public void setProperties(Properties properties) {
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package task.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionManager;
+
+/**
+ * Overrides the {@link AccountDao} mapper binding of the MyBatis module with {@link CachingAccountDao}. Must be
+ * installed by {@link com.google.inject.util.Modules#override}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class CachingAccountDaoModule extends AbstractModule {
+
+    private final long maximumSize;
+    private final MetricRegistry metrics;
+
+    public CachingAccountDaoModule(long maximumSize, MetricRegistry metrics) {
+        this.maximumSize = maximumSize;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void configure() {
+    }
+
+    @Provides
+    @Singleton
+    AccountDao provideAccountDao(SqlSessionManager sqlSessionManager, SqlSessionFactory sqlSessionFactory) {
+        final CachingAccountDao accountDao =
+                new CachingAccountDao(sqlSessionManager.getMapper(AccountDao.class), sqlSessionManager, maximumSize);
+        accountDao.install(sqlSessionFactory.getConfiguration());
+        accountDao.registerMetrics(metrics);
+        return accountDao;
+    }
+}
@@ -0,0 +1,22 @@
+package task.dao;
+
+/**
+ * Available implementations of the pool of database connections, chosen by the {@code dataSource.pool} property of
+ * the application configuration.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public enum ConnectionPool {
+
+    /**
+     * MyBatis {@link org.apache.ibatis.datasource.pooled.PooledDataSource}: one monitor guards the whole pool, waiting
+     * is reported only as an average.
+     */
+    BUILTIN,
+
+    /**
+     * HikariCP, see {@link HikariDataSourceProvider}: lock-free borrowing, connection wait time and timeouts are
+     * reported to the metric registry.
+     */
+    HIKARI
+}
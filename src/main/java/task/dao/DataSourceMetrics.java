@@ -0,0 +1,49 @@
+package task.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.ibatis.datasource.pooled.PoolState;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Metrics of the pool of database connections.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public final class DataSourceMetrics {
+
+    /**
+     * Name of the connection pool, the prefix of its metrics.
+     */
+    public static final String POOL_NAME = "account-db";
+
+    private DataSourceMetrics() {
+    }
+
+    /**
+     * Register gauges of the MyBatis pool under the same names HikariCP uses where there is an equivalent. The pool
+     * keeps only totals, so waiting is reported as the average wait time and the number of waits.
+     *
+     * @param dataSource MyBatis pooled data source
+     * @param metrics    registry to register metrics in
+     */
+    public static void register(PooledDataSource dataSource, MetricRegistry metrics) {
+        final PoolState state = dataSource.getPoolState();
+        metrics.register(name(POOL_NAME, "pool", "ActiveConnections"),
+                (Gauge<Integer>) state::getActiveConnectionCount);
+        metrics.register(name(POOL_NAME, "pool", "IdleConnections"),
+                (Gauge<Integer>) state::getIdleConnectionCount);
+        metrics.register(name(POOL_NAME, "pool", "TotalConnections"),
+                (Gauge<Integer>) () -> state.getActiveConnectionCount() + state.getIdleConnectionCount());
+        metrics.register(name(POOL_NAME, "pool", "AverageWaitMillis"),
+                (Gauge<Long>) state::getAverageWaitTime);
+        metrics.register(name(POOL_NAME, "pool", "HadToWaitCount"),
+                (Gauge<Long>) state::getHadToWaitCount);
+        metrics.register(name(POOL_NAME, "pool", "ClaimedOverdueConnections"),
+                (Gauge<Long>) state::getClaimedOverdueConnectionCount);
+        metrics.register(name(POOL_NAME, "pool", "BadConnections"),
+                (Gauge<Long>) state::getBadConnectionCount);
+    }
+}
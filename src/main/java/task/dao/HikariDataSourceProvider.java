@@ -0,0 +1,50 @@
+package task.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import task.config.DataSourceConfiguration;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.sql.DataSource;
+
+/**
+ * Provides HikariCP data source configured by the same {@code JDBC.*} properties as the MyBatis
+ * {@link org.mybatis.guice.datasource.builtin.PooledDataSourceProvider}. The pool reports to the metric registry,
+ * under {@link DataSourceMetrics#POOL_NAME}{@code .pool.*}, the connection wait time ({@code Wait} timer), active,
+ * idle and pending connection counts, and the rate of acquisition timeouts ({@code ConnectionTimeoutRate} meter).
+ * The provided data source must be closed when it is not needed anymore.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class HikariDataSourceProvider implements Provider<DataSource> {
+
+    private final HikariConfig config = new HikariConfig();
+
+    @Inject
+    public HikariDataSourceProvider(@Named("JDBC.driver") String driver,
+                                    @Named("JDBC.url") String url,
+                                    @Named("JDBC.username") String username,
+                                    @Named("JDBC.password") String password,
+                                    @Named("JDBC.autoCommit") boolean autoCommit,
+                                    DataSourceConfiguration configuration,
+                                    MetricRegistry metrics) {
+        config.setPoolName(DataSourceMetrics.POOL_NAME);
+        config.setDriverClassName(driver);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setAutoCommit(autoCommit);
+        config.setMaximumPoolSize(configuration.getMaximumPoolSize());
+        config.setMinimumIdle(Math.min(configuration.getMinimumIdle(), configuration.getMaximumPoolSize()));
+        config.setConnectionTimeout(configuration.getConnectionTimeoutMillis());
+        config.setMetricRegistry(metrics);
+    }
+
+    @Override
+    public DataSource get() {
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,66 @@
+package task.dao;
+
+import org.apache.ibatis.annotations.Param;
+import task.model.PendingTransfer;
+
+import java.util.List;
+
+/**
+ * This DAO provides methods for the durable log of transfers between shards, see
+ * {@link task.service.ShardedAccountService}. A pending transfer is stored on the shard of its source account by the
+ * transaction of the debit, and a credit of it is marked on the shard of its destination account by the transaction
+ * of the credit, so a transfer interrupted by a crash can be completed exactly once.
+ * The implementation is generated by mybatis framework.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public interface PendingTransferDao {
+
+    /**
+     * Store the pending transfer, its id is set from the sequence of the shard.
+     *
+     * @param transfer pending transfer without id
+     */
+    void insert(@Param("transfer") PendingTransfer transfer);
+
+    /**
+     * Select all pending transfers of the shard.
+     *
+     * @return pending transfers in order of ids
+     */
+    List<PendingTransfer> selectAll();
+
+    /**
+     * Delete the pending transfer.
+     *
+     * @param transferId pending transfer id
+     * @return number of deleted rows: 1 when the transfer is pending, 0 otherwise
+     */
+    int delete(@Param("transferId") long transferId);
+
+    /**
+     * Mark the pending transfer of the source shard as credited. Fails if it is marked already.
+     *
+     * @param sourceShard shard of the source account
+     * @param transferId  pending transfer id on the source shard
+     */
+    void insertCredit(@Param("sourceShard") int sourceShard, @Param("transferId") long transferId);
+
+    /**
+     * Check whether the pending transfer of the source shard is marked as credited.
+     *
+     * @param sourceShard shard of the source account
+     * @param transferId  pending transfer id on the source shard
+     * @return {@code true} if the destination account is credited
+     */
+    boolean isCredited(@Param("sourceShard") int sourceShard, @Param("transferId") long transferId);
+
+    /**
+     * Delete the mark of the credit.
+     *
+     * @param sourceShard shard of the source account
+     * @param transferId  pending transfer id on the source shard
+     * @return number of deleted rows
+     */
+    int deleteCredit(@Param("sourceShard") int sourceShard, @Param("transferId") long transferId);
+}
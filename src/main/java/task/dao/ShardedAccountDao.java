@@ -0,0 +1,201 @@
+package task.dao;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.SqlSessionManager;
+import task.model.Account;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of {@link AccountDao} that routes every call to the shard of the account, see {@link AccountShards}.
+ * New accounts are inserted to shards in round-robin order.
+ * <p>
+ * Calls take part in a transaction when the managed session of the shard's {@link SqlSessionManager} is started by
+ * the caller, otherwise every call is committed at once.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class ShardedAccountDao implements AccountDao {
+
+    private final AccountShards shards;
+    private final List<AccountDao> accountDaos;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    @Inject
+    public ShardedAccountDao(AccountShards shards) {
+        this.shards = shards;
+        this.accountDaos = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            accountDaos.add(shards.get(shard).getMapper(AccountDao.class));
+        }
+    }
+
+    @Override
+    public Account select(long accountId) {
+        return route(accountId).select(accountId);
+    }
+
+    /**
+     * Select accounts from their shards, one query per shard.
+     */
+    @Override
+    public List<Account> selectAll(Collection<Long> accountIds) {
+        final List<List<Long>> idsByShard = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            idsByShard.add(new ArrayList<>());
+        }
+        for (long accountId : accountIds) {
+            idsByShard.get(shards.shardOf(accountId)).add(accountId);
+        }
+        final List<Account> accounts = new ArrayList<>(accountIds.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (!idsByShard.get(shard).isEmpty()) {
+                accounts.addAll(accountDaos.get(shard).selectAll(idsByShard.get(shard)));
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Pass accounts of every shard in order of shards, accounts of one shard are passed in order of ids.
+     */
+    @Override
+    public void selectEach(ResultHandler<Account> handler) {
+        for (AccountDao accountDao : accountDaos) {
+            accountDao.selectEach(handler);
+        }
+    }
+
+    @Override
+    public void insert(Account account) {
+        final int shard = Math.floorMod(nextShard.getAndIncrement(), shards.size());
+        accountDaos.get(shard).insert(account);
+    }
+
+    /**
+     * Take ids from sequences of shards in round-robin order, like {@link #insert(Account)} chooses shards. Every
+     * shard is queried once.
+     */
+    @Override
+    public List<Long> allocateIds(int count) {
+        final int firstShard = nextShard.getAndAdd(count);
+        final int[] counts = new int[shards.size()];
+        for (int i = 0; i < count; i++) {
+            counts[Math.floorMod(firstShard + i, shards.size())]++;
+        }
+        final List<Iterator<Long>> idsByShard = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            idsByShard.add(counts[shard] == 0
+                    ? Collections.emptyIterator()
+                    : accountDaos.get(shard).allocateIds(counts[shard]).iterator());
+        }
+        final List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(idsByShard.get(Math.floorMod(firstShard + i, shards.size())).next());
+        }
+        return ids;
+    }
+
+    /**
+     * Insert accounts to their shards, one multi-row insert per shard.
+     */
+    @Override
+    public void insertAll(List<Account> accounts) {
+        final List<List<Account>> accountsByShard = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            accountsByShard.add(new ArrayList<>());
+        }
+        for (Account account : accounts) {
+            accountsByShard.get(shards.shardOf(account.getId())).add(account);
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (!accountsByShard.get(shard).isEmpty()) {
+                accountDaos.get(shard).insertAll(accountsByShard.get(shard));
+            }
+        }
+    }
+
+    @Override
+    public int update(Account account) {
+        return route(account.getId()).update(account);
+    }
+
+    @Override
+    public int debit(long accountId, BigDecimal amount) {
+        return route(accountId).debit(accountId, amount);
+    }
+
+    @Override
+    public int credit(long accountId, BigDecimal amount) {
+        return route(accountId).credit(accountId, amount);
+    }
+
+    @Override
+    public long selectMaxId() {
+        long maxId = 0;
+        for (AccountDao accountDao : accountDaos) {
+            maxId = Math.max(maxId, accountDao.selectMaxId());
+        }
+        return maxId;
+    }
+
+    /**
+     * Restart the sequence of every shard at the first id of the shard not less than {@code nextId}. Sequences of
+     * shards are partitioned by {@link AccountShards#partitionSequence} and restarting keeps their increments, so every
+     * shard still generates only its own ids.
+     */
+    @Override
+    public void restartSequence(long nextId) {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            // ids of the shard are shard + 1 modulo the number of shards
+            accountDaos.get(shard).restartSequence(nextId + Math.floorMod(shard + 1 - nextId, (long) shards.size()));
+        }
+    }
+
+    /**
+     * Flush statements batched by managed sessions of all shards.
+     *
+     * @return results of the batched statements of all shards in order of shards
+     */
+    @Override
+    public List<BatchResult> flush() {
+        final List<BatchResult> results = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            final SqlSessionManager sqlSessionManager = shards.get(shard);
+            if (sqlSessionManager.isManagedSessionStarted()) {
+                results.addAll(sqlSessionManager.flushStatements());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Ping all shards.
+     *
+     * @return 1 when all shards are healthy, the first other value otherwise
+     */
+    @Override
+    public int ping() {
+        for (AccountDao accountDao : accountDaos) {
+            final int result = accountDao.ping();
+            if (result != 1) {
+                return result;
+            }
+        }
+        return 1;
+    }
+
+    private AccountDao route(long accountId) {
+        return accountDaos.get(shards.shardOf(accountId));
+    }
+}
@@ -0,0 +1,98 @@
+package task.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import task.metrics.HdrHistogramReservoir;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * MyBatis plugin measuring the time of database statements by mapped statement id, e.g.
+ * {@code account-db.statements.task.dao.AccountDao.select}, and the time of commits of modified sessions as
+ * {@code account-db.commit}.
+ * Statements of the {@link org.apache.ibatis.session.ExecutorType#BATCH} executor are only queued when they are
+ * executed, so their time is a part of the flush or of the commit.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class,
+                        BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "commit", args = {boolean.class})
+})
+public class StatementMetrics implements Interceptor {
+
+    private final MetricRegistry metrics;
+    private final Timer commitTimer;
+    private final ConcurrentMap<String, Timer> statementTimers = new ConcurrentHashMap<>();
+
+    public StatementMetrics(MetricRegistry metrics) {
+        this.metrics = metrics;
+        this.commitTimer = HdrHistogramReservoir.timer(metrics, name(DataSourceMetrics.POOL_NAME, "commit"));
+    }
+
+    /**
+     * Measure statements and commits of all sessions of the configuration opened from now on.
+     *
+     * @param configuration MyBatis configuration
+     */
+    public void install(Configuration configuration) {
+        configuration.addInterceptor(this);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        final Object firstArg = invocation.getArgs()[0];
+        final Timer timer;
+        if (firstArg instanceof MappedStatement) {
+            timer = getStatementTimer(((MappedStatement) firstArg).getId());
+        } else if (Boolean.TRUE.equals(firstArg)) {
+            timer = commitTimer;
+        } else {
+            // sessions outside transactions are committed after every statement, but nothing is sent to the database
+            return invocation.proceed();
+        }
+        try (Timer.Context ignored = timer.time()) {
+            return invocation.proceed();
+        }
+    }
+
+    private Timer getStatementTimer(String statementId) {
+        final Timer timer = statementTimers.get(statementId);
+        return timer != null ? timer : statementTimers.computeIfAbsent(statementId, id ->
+                HdrHistogramReservoir.timer(metrics, name(DataSourceMetrics.POOL_NAME, "statements", id)));
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+}
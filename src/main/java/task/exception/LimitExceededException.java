@@ -6,6 +6,9 @@ import java.util.Objects;
 /**
  * This exception is thrown by {@link task.model.Account} or implementation of {@link task.service.AccountService}
  * when someone tries to withdraw amount more than source account balance.
+ * <p>
+ * Like {@link NoSuchAccountException} it is an expected outcome of a transfer, so it has no stack trace and its
+ * message is built only when asked for.
  *
  * @author Anton Kotov (kotov-anton@yandex.ru)
  */
@@ -16,12 +19,17 @@ public class LimitExceededException extends RuntimeException {
     private final BigDecimal amount;
 
     public LimitExceededException(long accountId, BigDecimal delta, BigDecimal amount) {
-        super("Failed to withdraw from account: " + accountId + ": delta: " + delta + " is greater than amount: " + amount);
+        super(null, null, false, false);
         this.accountId = accountId;
         this.delta = Objects.requireNonNull(delta, "delta is null");
         this.amount = Objects.requireNonNull(amount, "amount is null");
     }
 
+    @Override
+    public String getMessage() {
+        return "Failed to withdraw from account: " + accountId + ": delta: " + delta + " is greater than amount: " + amount;
+    }
+
     public long getAccountId() {
         return accountId;
     }
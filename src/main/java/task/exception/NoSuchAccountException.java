@@ -3,6 +3,10 @@ package task.exception;
 /**
  * Implementation of {@link task.service.AccountService} throws this exception when someone tries to read or update
  * nonexistent account.
+ * <p>
+ * The exception is an expected outcome of a transfer rather than a bug, and engines without their own outcome path
+ * reject transfers by it in {@link task.service.AccountService#tryTransfer}, so it has no stack trace and its message
+ * is built only when asked for.
  *
  * @author Anton Kotov (kotov-anton@yandex.ru)
  */
@@ -11,10 +15,15 @@ public class NoSuchAccountException extends RuntimeException {
     private final long accountId;
 
     public NoSuchAccountException(long accountId) {
-        super("No such account: " + accountId);
+        super(null, null, false, false);
         this.accountId = accountId;
     }
 
+    @Override
+    public String getMessage() {
+        return "No such account: " + accountId;
+    }
+
     public long getAccountId() {
         return accountId;
     }
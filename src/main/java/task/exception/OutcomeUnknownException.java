@@ -0,0 +1,15 @@
+package task.exception;
+
+/**
+ * Account service throws this exception when a transfer failed after it could have been applied, e.g. its journal
+ * record could not be made durable, so it is not known whether the transfer takes effect. Unlike other failures such
+ * a transfer must not be retried as a new one.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class OutcomeUnknownException extends RuntimeException {
+
+    public OutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
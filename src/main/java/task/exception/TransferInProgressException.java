@@ -0,0 +1,21 @@
+package task.exception;
+
+/**
+ * {@link task.service.IdempotentTransfers} throws this exception when a transfer is retried with the request id of
+ * a transfer which is still being executed.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class TransferInProgressException extends RuntimeException {
+
+    private final long requestId;
+
+    public TransferInProgressException(long requestId) {
+        super("Transfer is in progress: " + requestId);
+        this.requestId = requestId;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+}
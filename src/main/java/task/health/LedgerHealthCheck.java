@@ -0,0 +1,30 @@
+package task.health;
+
+import com.codahale.metrics.health.HealthCheck;
+import task.service.LedgerAccountService;
+
+import javax.inject.Inject;
+
+/**
+ * This class checks that the ledger is not stopped by a failure of its journal.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class LedgerHealthCheck extends HealthCheck {
+
+    private final LedgerAccountService ledger;
+
+    @Inject
+    public LedgerHealthCheck(LedgerAccountService ledger) {
+        this.ledger = ledger;
+    }
+
+    @Override
+    protected Result check() throws Exception {
+        final Throwable failure = ledger.getFailure();
+        if (failure == null) {
+            return Result.healthy();
+        }
+        return Result.unhealthy(failure);
+    }
+}
@@ -0,0 +1,229 @@
+package task.journal;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Balances of all accounts known to the ledger as of a {@link TransferJournal} sequence number. Together with the
+ * journal records after that sequence a snapshot restores the balances without replaying the whole journal.
+ * <p>
+ * A snapshot file is {@code [magic][sequence][count]} followed by {@code count} entries
+ * {@code [accountId][scale][length][unscaled amount]} and a CRC32 checksum of everything before it. Files are written
+ * to a temporary file, forced and atomically renamed, so a crash never leaves a partially written snapshot behind;
+ * a damaged file is skipped in favour of the previous one.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@Immutable
+public class BalanceSnapshot {
+
+    private static final String PREFIX = "balances-";
+    private static final String SUFFIX = ".snapshot";
+    private static final int MAGIC = 0x42414C31;
+    // the latest snapshot and the previous one in case the latest is damaged
+    private static final int KEPT_SNAPSHOTS = 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+    // account id, scale, length and at least one byte of the amount
+    private static final int MIN_ENTRY_SIZE = 14;
+
+    private final long sequence;
+    private final long[] accountIds;
+    private final BigDecimal[] amounts;
+
+    private BalanceSnapshot(long sequence, long[] accountIds, BigDecimal[] amounts) {
+        this.sequence = sequence;
+        this.accountIds = accountIds;
+        this.amounts = amounts;
+    }
+
+    /**
+     * Copy balances. The balances must not be modified during the copy.
+     *
+     * @param sequence sequence of the last journal record applied to the balances
+     * @param balances balances by account id
+     * @return snapshot of the balances
+     */
+    public static BalanceSnapshot copyOf(long sequence, Map<Long, BigDecimal> balances) {
+        final long[] accountIds = new long[balances.size()];
+        final BigDecimal[] amounts = new BigDecimal[balances.size()];
+        int i = 0;
+        for (Map.Entry<Long, BigDecimal> entry : balances.entrySet()) {
+            accountIds[i] = entry.getKey();
+            amounts[i] = entry.getValue();
+            i++;
+        }
+        return new BalanceSnapshot(sequence, accountIds, amounts);
+    }
+
+    /**
+     * Get sequence of the last journal record applied to the balances.
+     *
+     * @return journal sequence
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get number of accounts in the snapshot.
+     *
+     * @return number of accounts
+     */
+    public int size() {
+        return accountIds.length;
+    }
+
+    /**
+     * Pass every account id and its balance to the consumer.
+     *
+     * @param consumer consumer of account ids and balances
+     */
+    public void forEach(BiConsumer<Long, BigDecimal> consumer) {
+        for (int i = 0; i < accountIds.length; i++) {
+            consumer.accept(accountIds[i], amounts[i]);
+        }
+    }
+
+    /**
+     * Write the snapshot to {@code directory} and delete snapshots older than the previous one.
+     *
+     * @param directory directory of snapshot files
+     * @return written file
+     * @throws IOException if the snapshot can't be written
+     */
+    public Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        final Path file = directory.resolve(String.format("%s%020d%s", PREFIX, sequence, SUFFIX));
+        final Path temporary = directory.resolve(file.getFileName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile())) {
+            final CheckedOutputStream checked = new CheckedOutputStream(stream, new CRC32());
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(checked, BUFFER_SIZE));
+            output.writeInt(MAGIC);
+            output.writeLong(sequence);
+            output.writeInt(accountIds.length);
+            for (int i = 0; i < accountIds.length; i++) {
+                final byte[] unscaled = amounts[i].unscaledValue().toByteArray();
+                output.writeLong(accountIds[i]);
+                output.writeInt(amounts[i].scale());
+                output.writeByte(unscaled.length);
+                output.write(unscaled);
+            }
+            output.flush();
+            output.writeInt((int) checked.getChecksum().getValue());
+            output.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        final List<Path> snapshots = listSnapshots(directory);
+        for (int i = 0; i < snapshots.size() - KEPT_SNAPSHOTS; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        return file;
+    }
+
+    /**
+     * Read the latest intact snapshot from {@code directory}.
+     *
+     * @param directory directory of snapshot files
+     * @return the latest intact snapshot, empty if there is none
+     * @throws IOException if snapshot files can't be read
+     */
+    public static Optional<BalanceSnapshot> readLatest(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Optional.empty();
+        }
+        final List<Path> snapshots = listSnapshots(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            final Optional<BalanceSnapshot> snapshot = read(snapshots.get(i));
+            if (snapshot.isPresent()) {
+                return snapshot;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Get sequence of the oldest snapshot kept in {@code directory}. Journal records up to it are not needed for
+     * recovery even if the latest snapshot is damaged.
+     *
+     * @param directory directory of snapshot files
+     * @return sequence of the oldest snapshot or {@code 0} if there are no snapshots
+     * @throws IOException if the directory can't be listed
+     */
+    public static long oldestSequence(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        final List<Path> snapshots = listSnapshots(directory);
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        final String name = snapshots.get(0).getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static Optional<BalanceSnapshot> read(Path file) throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+            final CheckedInputStream checked = new CheckedInputStream(stream, new CRC32());
+            final DataInputStream input = new DataInputStream(checked);
+            if (input.readInt() != MAGIC) {
+                return Optional.empty();
+            }
+            final long sequence = input.readLong();
+            final int count = input.readInt();
+            if (count < 0 || count > Files.size(file) / MIN_ENTRY_SIZE) {
+                return Optional.empty();
+            }
+            final long[] accountIds = new long[count];
+            final BigDecimal[] amounts = new BigDecimal[count];
+            for (int i = 0; i < count; i++) {
+                accountIds[i] = input.readLong();
+                final int scale = input.readInt();
+                final byte[] unscaled = new byte[input.readUnsignedByte()];
+                input.readFully(unscaled);
+                amounts[i] = new BigDecimal(new BigInteger(unscaled), scale);
+            }
+            final int expectedChecksum = new DataInputStream(stream).readInt();
+            if (expectedChecksum != (int) checked.getChecksum().getValue()) {
+                return Optional.empty();
+            }
+            return Optional.of(new BalanceSnapshot(sequence, accountIds, amounts));
+        } catch (EOFException | NumberFormatException e) {
+            // damaged length fields
+            return Optional.empty();
+        }
+    }
+
+    private static List<Path> listSnapshots(Path directory) throws IOException {
+        final List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            stream.forEach(snapshots::add);
+        }
+        // sequences are zero-padded, so names are ordered as sequences
+        Collections.sort(snapshots);
+        return snapshots;
+    }
+}
@@ -0,0 +1,26 @@
+package task.journal;
+
+/**
+ * When records appended to a {@link TransferJournal} are forced to the storage device.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public enum Durability {
+
+    /**
+     * Records are never forced explicitly: they survive a crash of the process (the mapped pages belong to the
+     * operating system), but not a crash of the machine.
+     */
+    NONE,
+
+    /**
+     * {@link TransferJournal#sync(long)} waits for a background flusher that forces all records appended so far by
+     * one {@code fsync}, so concurrent writers share the cost of a flush.
+     */
+    GROUP,
+
+    /**
+     * {@link TransferJournal#sync(long)} forces the records by the calling thread.
+     */
+    SYNC
+}
@@ -0,0 +1,38 @@
+package task.journal;
+
+import task.model.Transfer;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Transfer read from a {@link TransferJournal} together with its sequence number.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@Immutable
+public class JournalRecord {
+
+    private final long sequence;
+    private final Transfer transfer;
+
+    public JournalRecord(long sequence, Transfer transfer) {
+        this.sequence = sequence;
+        this.transfer = transfer;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Transfer getTransfer() {
+        return transfer;
+    }
+
+    @Override
+    public String toString() {
+        return "JournalRecord{" +
+                "sequence=" + sequence +
+                ", transfer=" + transfer +
+                '}';
+    }
+}
@@ -0,0 +1,495 @@
+package task.journal;
+
+import task.model.Transfer;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Binary append-only journal of applied transfers written through memory-mapped file segments.
+ * <p>
+ * Every transfer is stored as one record {@code [length][crc32][sequence][fromAccountId][toAccountId][scale]
+ * [unscaled amount]}, where {@code length} and {@code crc32} describe the payload that follows them. Records get
+ * consecutive sequence numbers starting from 1. The journal is split into segments of a fixed size named after the
+ * sequence of their first record, a new segment is started when a record does not fit into the current one.
+ * Segments are zero-filled, so the first zero length marks the end of a segment. A record torn by a crash of the
+ * machine is detected by its checksum and is treated as the end of the journal.
+ * <p>
+ * A record from {@link #EXTERNAL_ACCOUNT_ID} is the initial deposit of a new account rather than a transfer.
+ * <p>
+ * {@link #append(Transfer)} only copies the record to the mapped segment, {@link #sync(long)} makes appended records
+ * durable according to the configured {@link Durability}.
+ * <p>
+ * A failure to force a segment is fatal: it is not known which of the appended records reached the storage device,
+ * so the journal rejects all later appends and syncs, and the application must recover from the journal on restart.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class TransferJournal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "transfers-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    // length and checksum of the payload
+    private static final int HEADER_SIZE = 8;
+    // sequence, fromAccountId, toAccountId and scale of the amount
+    private static final int FIXED_PAYLOAD_SIZE = 28;
+    private static final int MAX_UNSCALED_SIZE = 64;
+    private static final int MAX_PAYLOAD_SIZE = FIXED_PAYLOAD_SIZE + MAX_UNSCALED_SIZE;
+
+    /**
+     * Source of money deposited to a new account. Account ids start from 1, so it is never a real account.
+     */
+    public static final long EXTERNAL_ACCOUNT_ID = 0;
+
+    /**
+     * Minimal size of a segment: it must hold at least one record.
+     */
+    public static final int MIN_SEGMENT_SIZE = HEADER_SIZE + MAX_PAYLOAD_SIZE;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Durability durability;
+
+    private final Object appendLock = new Object();
+    @GuardedBy("appendLock")
+    private final ByteBuffer payload = ByteBuffer.allocate(MAX_PAYLOAD_SIZE);
+    @GuardedBy("appendLock")
+    private final CRC32 checksum = new CRC32();
+    // written under appendLock, read by flushing threads
+    private volatile MappedByteBuffer segment;
+    private volatile long lastSequence;
+
+    private final Object flushLock = new Object();
+    @GuardedBy("flushLock")
+    private long requestedSequence;
+    // set by the first failed force, written under flushLock
+    private volatile RuntimeException failure;
+    private volatile long flushedSequence;
+    private volatile boolean closed;
+    private final Thread flusher;
+
+    /**
+     * Open the journal, see {@link #open(Path, int, Durability)}. The directory must exist.
+     */
+    protected TransferJournal(Path directory, int segmentSize, Durability durability) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.durability = durability;
+
+        final List<Path> segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            this.segment = createSegment(1);
+            this.lastSequence = 0;
+        } else {
+            final Path last = segments.get(segments.size() - 1);
+            final long firstSequence = firstSequenceOf(last);
+            final MappedByteBuffer buffer = map(last, FileChannel.MapMode.READ_WRITE);
+            final long[] sequence = {firstSequence - 1};
+            final int end = scan(buffer, firstSequence, record -> sequence[0] = record.getSequence());
+            // a torn record must not be mistaken for the continuation of records appended after it
+            for (int i = end; i < buffer.limit(); i++) {
+                if (buffer.get(i) != 0) {
+                    buffer.put(i, (byte) 0);
+                }
+            }
+            buffer.position(end);
+            this.segment = buffer;
+            this.lastSequence = sequence[0];
+        }
+        this.flushedSequence = lastSequence;
+
+        if (durability == Durability.GROUP) {
+            flusher = new Thread(this::runFlusher, "journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Open the journal in {@code directory}, creating the directory if needed. Appending continues after the last
+     * intact record of the existing segments.
+     *
+     * @param directory   directory of segment files
+     * @param segmentSize size of a new segment in bytes, at least {@link #MIN_SEGMENT_SIZE}
+     * @param durability  when appended records are forced to the storage device
+     * @return opened journal
+     * @throws IOException if segments can't be read or created
+     */
+    public static TransferJournal open(Path directory, int segmentSize, Durability durability) throws IOException {
+        checkArgument(segmentSize >= MIN_SEGMENT_SIZE, "segmentSize < %s: %s", MIN_SEGMENT_SIZE, segmentSize);
+        Files.createDirectories(directory);
+        return new TransferJournal(directory, segmentSize, durability);
+    }
+
+    /**
+     * Read intact records of the journal in {@code directory} in order of their sequence numbers.
+     *
+     * @param directory    directory of segment files
+     * @param fromSequence sequence of the first record to read
+     * @param consumer     consumer of the records
+     * @throws IOException if segments can't be read
+     */
+    public static void read(Path directory, long fromSequence, Consumer<JournalRecord> consumer) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        final List<Path> segments = listSegments(directory);
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) <= fromSequence) {
+                continue;
+            }
+            final Path segment = segments.get(i);
+            scan(map(segment, FileChannel.MapMode.READ_ONLY), firstSequenceOf(segment), record -> {
+                if (record.getSequence() >= fromSequence) {
+                    consumer.accept(record);
+                }
+            });
+        }
+    }
+
+    /**
+     * Delete segments of the journal in {@code directory} whose records all have sequences up to {@code sequence},
+     * e.g. records covered by a {@link BalanceSnapshot}. The last segment is never deleted, since appending continues
+     * in it.
+     *
+     * @param directory directory of segment files
+     * @param sequence  sequence of the last record that is no longer needed
+     * @return number of deleted segments
+     * @throws IOException if segments can't be listed or deleted
+     */
+    public static int deleteSegments(Path directory, long sequence) throws IOException {
+        final List<Path> segments = listSegments(directory);
+        int deleted = 0;
+        // a segment ends right before the first record of the next one
+        for (int i = 0; i + 1 < segments.size() && firstSequenceOf(segments.get(i + 1)) - 1 <= sequence; i++) {
+            Files.deleteIfExists(segments.get(i));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * Append the transfer to the journal. The record is not guaranteed to be durable until {@link #sync(long)}.
+     *
+     * @param transfer transfer to append
+     * @return sequence number of the record
+     * @throws IllegalArgumentException if the unscaled amount is too large
+     * @throws IllegalStateException    if the journal is closed or failed
+     * @throws UncheckedIOException     if a new segment can't be created
+     */
+    public long append(Transfer transfer) {
+        final BigDecimal amount = transfer.getAmount();
+        final byte[] unscaled = amount.unscaledValue().toByteArray();
+        checkArgument(unscaled.length <= MAX_UNSCALED_SIZE, "amount is too large: %s", amount);
+
+        synchronized (appendLock) {
+            checkState(!closed, "journal is closed");
+            checkNotFailed();
+            final long sequence = lastSequence + 1;
+            payload.clear();
+            payload.putLong(sequence)
+                    .putLong(transfer.getFromAccountId())
+                    .putLong(transfer.getToAccountId())
+                    .putInt(amount.scale())
+                    .put(unscaled)
+                    .flip();
+            checksum.reset();
+            checksum.update(payload.array(), 0, payload.limit());
+
+            MappedByteBuffer buffer = segment;
+            if (buffer.remaining() < HEADER_SIZE + payload.limit()) {
+                buffer = roll(buffer, sequence);
+            }
+            buffer.putInt(payload.limit()).putInt((int) checksum.getValue()).put(payload);
+            lastSequence = sequence;
+            return sequence;
+        }
+    }
+
+    /**
+     * Make the next appended record get sequence {@code sequence + 1} if the journal is behind {@code sequence}. Used
+     * when records forced by nobody were lost by a crash of the machine, while a state derived from them (a
+     * {@link BalanceSnapshot}) survived: new records must not reuse sequences of the lost ones.
+     *
+     * @param sequence sequence the journal must not be behind
+     */
+    public void advanceTo(long sequence) {
+        synchronized (appendLock) {
+            checkState(!closed, "journal is closed");
+            if (sequence > lastSequence) {
+                // sequences are consecutive within a segment, so the gap starts a new one
+                roll(segment, sequence + 1);
+                lastSequence = sequence;
+                flushedSequence = Math.max(flushedSequence, sequence);
+            }
+        }
+    }
+
+    @GuardedBy("appendLock")
+    private MappedByteBuffer roll(MappedByteBuffer full, long firstSequence) {
+        if (durability != Durability.NONE) {
+            // flushing threads force only the current segment, so the full one must be durable before the switch
+            synchronized (flushLock) {
+                checkNotFailed();
+                try {
+                    force(full);
+                } catch (RuntimeException e) {
+                    failure = e;
+                    flushLock.notifyAll();
+                    throw e;
+                }
+            }
+        }
+        try {
+            final MappedByteBuffer buffer = createSegment(firstSequence);
+            segment = buffer;
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Make records up to {@code sequence} durable according to the configured {@link Durability}.
+     *
+     * @param sequence sequence of the last record that must be durable
+     * @throws IllegalStateException if the journal is closed, failed or can't be forced
+     */
+    public void sync(long sequence) {
+        if (durability == Durability.NONE || flushedSequence >= sequence) {
+            return;
+        }
+        synchronized (flushLock) {
+            checkNotFailed();
+            if (durability == Durability.SYNC) {
+                // threads waiting for the lock are likely covered by this flush
+                if (flushedSequence < sequence) {
+                    try {
+                        force();
+                    } catch (RuntimeException e) {
+                        failure = e;
+                        throw new IllegalStateException("journal flush failed", e);
+                    }
+                }
+                return;
+            }
+            requestedSequence = Math.max(requestedSequence, sequence);
+            flushLock.notifyAll();
+            boolean interrupted = false;
+            while (flushedSequence < sequence) {
+                checkNotFailed();
+                checkState(!closed, "journal is closed");
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Get sequence number of the last appended record.
+     *
+     * @return sequence of the last record or {@code 0} if the journal is empty
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Check whether forcing the journal failed, then it rejects appends and syncs.
+     *
+     * @return {@code true} if the journal failed
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    private void checkNotFailed() {
+        final RuntimeException cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("journal flush failed", cause);
+        }
+    }
+
+    private void force() {
+        // read before the segment: records up to it are either in that segment or in the forced full ones
+        final long sequence = lastSequence;
+        force(segment);
+        flushedSequence = sequence;
+    }
+
+    /**
+     * Force changes of the mapped segment to the storage device.
+     *
+     * @param buffer mapped segment
+     */
+    protected void force(MappedByteBuffer buffer) {
+        buffer.force();
+    }
+
+    private void runFlusher() {
+        while (true) {
+            synchronized (flushLock) {
+                while (!closed && requestedSequence <= flushedSequence) {
+                    try {
+                        flushLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+            }
+            // appending and new sync requests go on while the segment is forced, they are covered by the next flush
+            RuntimeException failure = null;
+            try {
+                force();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            synchronized (flushLock) {
+                if (failure != null) {
+                    // fatal: waiting and later syncs fail at once
+                    this.failure = failure;
+                }
+                flushLock.notifyAll();
+            }
+            if (failure != null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop the flusher and force appended records unless durability is {@link Durability#NONE} or the journal failed.
+     */
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+        }
+        if (flusher != null) {
+            boolean interrupted = false;
+            while (flusher.isAlive()) {
+                try {
+                    flusher.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (durability != Durability.NONE && failure == null) {
+            force();
+        }
+    }
+
+    private MappedByteBuffer createSegment(long firstSequence) throws IOException {
+        final Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // mapping beyond the end extends the file with zeros, the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode) throws IOException {
+        final StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            return channel.map(mode, 0, channel.size());
+        }
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        final List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        // sequences are zero-padded, so names are ordered as sequences
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        final String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Read records of one segment until its end or the first record that is not intact.
+     *
+     * @return position after the last intact record
+     */
+    private static int scan(ByteBuffer buffer, long firstSequence, Consumer<JournalRecord> consumer) {
+        final CRC32 checksum = new CRC32();
+        long expectedSequence = firstSequence;
+        while (buffer.remaining() >= HEADER_SIZE) {
+            final int start = buffer.position();
+            final int length = buffer.getInt();
+            final int expectedChecksum = buffer.getInt();
+            if (length <= FIXED_PAYLOAD_SIZE || length > MAX_PAYLOAD_SIZE || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            final byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            checksum.reset();
+            checksum.update(bytes, 0, length);
+            final ByteBuffer record = ByteBuffer.wrap(bytes);
+            final long sequence = record.getLong();
+            if ((int) checksum.getValue() != expectedChecksum || sequence != expectedSequence) {
+                buffer.position(start);
+                break;
+            }
+            final long fromAccountId = record.getLong();
+            final long toAccountId = record.getLong();
+            final int scale = record.getInt();
+            final byte[] unscaled = new byte[record.remaining()];
+            record.get(unscaled);
+            consumer.accept(new JournalRecord(sequence,
+                    new Transfer(fromAccountId, toAccountId, new BigDecimal(new BigInteger(unscaled), scale))));
+            expectedSequence++;
+        }
+        return buffer.position();
+    }
+}
@@ -1,25 +1,56 @@
 package task.manager;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Lists;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
 import org.mybatis.guice.transactional.Transactional;
 import task.dao.AccountDao;
+import task.exception.LimitExceededException;
 import task.exception.NoSuchAccountException;
+import task.metrics.HdrHistogramReservoir;
 import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.math.BigDecimal;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.codahale.metrics.MetricRegistry.name;
 
 /**
  * Account manager guarantees transactional transfer.
+ * <p>
+ * Transfers run on the {@link ExecutorType#REUSE} executor, so a statement repeated within a transaction (e.g. debits
+ * and credits of a batch of transfers) is prepared only once. Bulk writes run on the {@link ExecutorType#BATCH}
+ * executor and are sent to the database as one JDBC batch.
+ * <p>
+ * Transfers are measured by the {@code task.manager.AccountManager.transfer} timer, which covers their statements but
+ * neither the begin nor the commit of the transaction.
  *
  * @author Anton Kotov (kotov-anton@yandex.ru)
  */
 public class AccountManager {
 
+    // accounts per multi-row insert, full chunks share one statement and so one JDBC batch
+    private static final int INSERT_CHUNK_SIZE = 500;
+
     private final AccountDao accountDao;
+    private final Timer transferTimer;
 
-    @Inject
     public AccountManager(AccountDao accountDao) {
+        this(accountDao, new MetricRegistry());
+    }
+
+    @Inject
+    public AccountManager(AccountDao accountDao, MetricRegistry metrics) {
         this.accountDao = accountDao;
+        this.transferTimer = HdrHistogramReservoir.timer(metrics, name(AccountManager.class, "transfer"));
     }
 
     /**
@@ -30,13 +61,179 @@ public class AccountManager {
      * @param toAccount   destination account
      * @param amount      money to transfer
      */
-    @Transactional
+    @Transactional(executorType = ExecutorType.REUSE)
     public void transfer(Account fromAccount, Account toAccount, BigDecimal amount) {
-        fromAccount.withdraw(amount);
-        safeUpdate(fromAccount);
+        try (Timer.Context ignored = transferTimer.time()) {
+            fromAccount.withdraw(amount);
+            safeUpdate(fromAccount);
+
+            toAccount.deposit(amount);
+            safeUpdate(toAccount);
+        }
+    }
+
+    /**
+     * Transfer money from {@code fromAccountId} to {@code toAccountId} by two relative updates in one transaction,
+     * see {@link AccountDao#debit} and {@link AccountDao#credit}. Accounts are neither selected before nor locked by
+     * the application: the balance check is done by the database, so the method is safe for several service instances
+     * sharing one database. The source account is selected only when the debit fails, to tell the reason.
+     *
+     * @param fromAccountId source account id
+     * @param toAccountId   destination account id
+     * @param amount        positive money to transfer
+     * @throws NoSuchAccountException when any of accounts doesn't exist
+     * @throws LimitExceededException when amount is greater than source account balance
+     */
+    @Transactional(executorType = ExecutorType.REUSE)
+    public void transfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        try (Timer.Context ignored = transferTimer.time()) {
+            if (accountDao.debit(fromAccountId, amount) != 1) {
+                // zero rows are updated either for absent account or for insufficient balance
+                final Account fromAccount = accountDao.select(fromAccountId);
+                if (fromAccount == null) {
+                    throw new NoSuchAccountException(fromAccountId);
+                }
+                throw new LimitExceededException(fromAccountId, amount, fromAccount.getAmount());
+            }
+            if (accountDao.credit(toAccountId, amount) != 1) {
+                // the debit is undone by the rollback
+                throw new NoSuchAccountException(toAccountId);
+            }
+        }
+    }
+
+    /**
+     * Transfer money like {@link #transfer(long, long, BigDecimal)}, but return the reason of a failed transfer instead
+     * of throwing an exception. Nothing is rolled back, a debit of a failed transfer is compensated within the
+     * transaction.
+     *
+     * @param fromAccountId source account id
+     * @param toAccountId   destination account id
+     * @param amount        positive money to transfer
+     * @return outcome of the transfer
+     */
+    @Transactional(executorType = ExecutorType.REUSE)
+    public TransferOutcome tryTransfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        try (Timer.Context ignored = transferTimer.time()) {
+            return debitAndCredit(fromAccountId, toAccountId, amount);
+        }
+    }
 
-        toAccount.deposit(amount);
-        safeUpdate(toAccount);
+    /**
+     * Apply {@code transfers} one by one in one transaction by relative updates, see
+     * {@link #transfer(long, long, BigDecimal)}. A failed transfer doesn't prevent others from being applied.
+     *
+     * @param transfers transfers to apply
+     * @return outcomes of transfers in the same order
+     */
+    @Transactional(executorType = ExecutorType.REUSE)
+    public List<TransferOutcome> transferAll(List<Transfer> transfers) {
+        final List<TransferOutcome> outcomes = new ArrayList<>(transfers.size());
+        for (Transfer transfer : transfers) {
+            outcomes.add(debitAndCredit(transfer.getFromAccountId(), transfer.getToAccountId(), transfer.getAmount()));
+        }
+        return outcomes;
+    }
+
+    /**
+     * Apply {@code transfers} one by one in one transaction like {@link #transferAll(List)}, but tell the reason of
+     * every failed transfer as the exception {@link #transfer(long, long, BigDecimal)} would throw. A failed transfer
+     * doesn't prevent others from being applied.
+     *
+     * @param transfers transfers to apply
+     * @return for every transfer in the same order: {@code null} if it is applied, otherwise
+     * {@link NoSuchAccountException} or {@link LimitExceededException}
+     */
+    @Transactional(executorType = ExecutorType.REUSE)
+    public List<RuntimeException> transferEach(List<Transfer> transfers) {
+        final List<RuntimeException> failures = new ArrayList<>(transfers.size());
+        for (Transfer transfer : transfers) {
+            failures.add(transferOrFailure(
+                    transfer.getFromAccountId(), transfer.getToAccountId(), transfer.getAmount()));
+        }
+        return failures;
+    }
+
+    @Nullable
+    private RuntimeException transferOrFailure(long fromAccountId, long toAccountId, BigDecimal amount) {
+        if (accountDao.debit(fromAccountId, amount) != 1) {
+            final Account fromAccount = accountDao.select(fromAccountId);
+            if (fromAccount == null) {
+                return new NoSuchAccountException(fromAccountId);
+            }
+            return new LimitExceededException(fromAccountId, amount, fromAccount.getAmount());
+        }
+        if (accountDao.credit(toAccountId, amount) != 1) {
+            // compensate the debit, so the rest of the transaction is not affected
+            accountDao.credit(fromAccountId, amount);
+            return new NoSuchAccountException(toAccountId);
+        }
+        return null;
+    }
+
+    private TransferOutcome debitAndCredit(long fromAccountId, long toAccountId, BigDecimal amount) {
+        if (accountDao.debit(fromAccountId, amount) != 1) {
+            // zero rows are updated either for absent account or for insufficient balance
+            return accountDao.select(fromAccountId) == null
+                    ? TransferOutcome.NO_SUCH_ACCOUNT
+                    : TransferOutcome.LIMIT_EXCEEDED;
+        }
+        if (accountDao.credit(toAccountId, amount) != 1) {
+            // compensate the debit, so the rest of the transaction is not affected
+            accountDao.credit(fromAccountId, amount);
+            return TransferOutcome.NO_SUCH_ACCOUNT;
+        }
+        return TransferOutcome.OK;
+    }
+
+    /**
+     * Create accounts with {@code amounts} in one transaction. Ids are taken from the account id sequence by one
+     * query (one sequence value per account), and accounts are inserted by multi-row inserts sent to the database as
+     * one JDBC batch.
+     *
+     * @param amounts initial amounts of new accounts, {@code null} means zero
+     * @return created accounts in the order of {@code amounts}
+     */
+    @Transactional(executorType = ExecutorType.BATCH)
+    public List<Account> createAll(List<BigDecimal> amounts) {
+        final List<Account> accounts = new ArrayList<>(amounts.size());
+        if (amounts.isEmpty()) {
+            return accounts;
+        }
+        final List<Long> ids = accountDao.allocateIds(amounts.size());
+        for (int i = 0; i < amounts.size(); i++) {
+            final BigDecimal amount = amounts.get(i);
+            accounts.add(new Account().setId(ids.get(i)).setAmount(amount == null ? BigDecimal.ZERO : amount));
+        }
+        for (List<Account> chunk : Lists.partition(accounts, INSERT_CHUNK_SIZE)) {
+            accountDao.insertAll(chunk);
+        }
+        accountDao.flush();
+        return accounts;
+    }
+
+    /**
+     * Save new amounts of {@code accounts} in one transaction. Updates are sent to the database as one JDBC batch.
+     * If any account doesn't exist the whole transaction will be rolled back.
+     *
+     * @param accounts accounts to save
+     * @throws NoSuchAccountException when any of accounts doesn't exist
+     */
+    @Transactional(executorType = ExecutorType.BATCH)
+    public void updateAll(List<Account> accounts) {
+        for (Account account : accounts) {
+            accountDao.update(account);
+        }
+
+        int index = 0;
+        for (BatchResult result : accountDao.flush()) {
+            for (int nRows : result.getUpdateCounts()) {
+                if (nRows != 1 && nRows != Statement.SUCCESS_NO_INFO) {
+                    throw new NoSuchAccountException(accounts.get(index).getId());
+                }
+                index++;
+            }
+        }
     }
 
     private void safeUpdate(Account account) {
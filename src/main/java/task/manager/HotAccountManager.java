@@ -0,0 +1,102 @@
+package task.manager;
+
+import org.apache.ibatis.session.ExecutorType;
+import org.mybatis.guice.transactional.Transactional;
+import task.dao.AccountDao;
+import task.dao.AccountSlotDao;
+import task.exception.NoSuchAccountException;
+import task.model.Account;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Hot account manager guarantees transactional operations on sub-balance slots of hot accounts, see
+ * {@link AccountSlotDao}. Under the table locks of HSQLDB's default {@code LOCKS} transaction mode its transactions
+ * are serialized like those of {@link AccountManager}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class HotAccountManager {
+
+    private final AccountDao accountDao;
+    private final AccountSlotDao accountSlotDao;
+
+    @Inject
+    public HotAccountManager(AccountDao accountDao, AccountSlotDao accountSlotDao) {
+        this.accountDao = accountDao;
+        this.accountSlotDao = accountSlotDao;
+    }
+
+    /**
+     * Transfer money from {@code fromAccount} to the {@code slot} of the hot account {@code toAccountId} in
+     * transactional manner. The source account is updated with its new amount, and the slot by a relative update, so
+     * the destination account is neither read nor locked.
+     *
+     * @param fromAccount source account
+     * @param toAccountId destination hot account id
+     * @param slot        slot of the destination account
+     * @param amount      money to transfer
+     * @throws NoSuchAccountException when any of accounts or the slot doesn't exist
+     */
+    @Transactional(executorType = ExecutorType.REUSE)
+    public void transferToSlot(Account fromAccount, long toAccountId, int slot, BigDecimal amount) {
+        fromAccount.withdraw(amount);
+        if (accountDao.update(fromAccount) != 1) {
+            throw new NoSuchAccountException(fromAccount.getId());
+        }
+        if (accountSlotDao.credit(toAccountId, slot, amount) != 1) {
+            throw new NoSuchAccountException(toAccountId);
+        }
+    }
+
+    /**
+     * Move money of all slots of the account to its {@code ACCOUNT} row in transactional manner. The caller must
+     * guard the row from concurrent updates, deposits to the slots may go on.
+     *
+     * @param accountId account id
+     * @return account with its whole balance or {@code null} if the account doesn't exist
+     */
+    @Nullable
+    @Transactional(executorType = ExecutorType.REUSE)
+    public Account sweep(long accountId) {
+        final Account account = accountDao.select(accountId);
+        if (account == null) {
+            return null;
+        }
+        final List<BigDecimal> slotAmounts = accountSlotDao.selectSlotAmounts(accountId);
+        BigDecimal swept = BigDecimal.ZERO;
+        for (int slot = 0; slot < slotAmounts.size(); slot++) {
+            final BigDecimal slotAmount = slotAmounts.get(slot);
+            if (slotAmount.signum() > 0) {
+                accountSlotDao.debit(accountId, slot, slotAmount);
+                swept = swept.add(slotAmount);
+            }
+        }
+        if (swept.signum() > 0) {
+            account.deposit(swept);
+            accountDao.update(account);
+        }
+        return account;
+    }
+
+    /**
+     * Create missing slots {@code 0..slots-1} of the account in one transaction.
+     *
+     * @param accountId account id
+     * @param slots     number of slots
+     * @return {@code false} if the account doesn't exist
+     */
+    @Transactional(executorType = ExecutorType.REUSE)
+    public boolean createSlots(long accountId, int slots) {
+        if (accountDao.select(accountId) == null) {
+            return false;
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            accountSlotDao.insertSlot(accountId, slot);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,165 @@
+package task.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Reservoir of a metrics histogram backed by HdrHistogram. Unlike the default sampling reservoir it keeps every
+ * recorded value with a relative precision of 1%, so high percentiles of rare slow operations are not sampled away,
+ * and recording a value is wait-free and allocates nothing.
+ * <p>
+ * Values are recorded by a {@link Recorder} and are moved to the current window whenever a snapshot is taken. A window
+ * older than {@link #DEFAULT_WINDOW_SECONDS} becomes the previous window and the former previous window is dropped, so
+ * a snapshot covers at least the last window and at most two windows, and a regression shows up within minutes.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class HdrHistogramReservoir implements Reservoir {
+
+    public static final long DEFAULT_WINDOW_SECONDS = 60;
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final long windowNanos;
+    private final LongSupplier nanoTime;
+
+    @GuardedBy("this")
+    private Histogram interval;
+    @GuardedBy("this")
+    private Histogram current = new Histogram(SIGNIFICANT_DIGITS);
+    @GuardedBy("this")
+    private Histogram previous = new Histogram(SIGNIFICANT_DIGITS);
+    @GuardedBy("this")
+    private long currentStartNanos;
+
+    public HdrHistogramReservoir() {
+        this(DEFAULT_WINDOW_SECONDS, TimeUnit.SECONDS, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    HdrHistogramReservoir(long window, TimeUnit unit, LongSupplier nanoTime) {
+        checkArgument(window > 0, "window is not positive: %s", window);
+        this.windowNanos = unit.toNanos(window);
+        this.nanoTime = nanoTime;
+        this.currentStartNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Get the timer of the registry with given name, the timer is created with this reservoir if it doesn't exist.
+     *
+     * @param metrics registry of the timer
+     * @param name    name of the timer
+     * @return timer
+     */
+    public static Timer timer(MetricRegistry metrics, String name) {
+        return metrics.timer(name, () -> new Timer(new HdrHistogramReservoir()));
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        recorder.recordValue(Math.max(value, 0));
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        final long now = nanoTime.getAsLong();
+        if (now - currentStartNanos >= windowNanos) {
+            final Histogram dropped = previous;
+            previous = current;
+            dropped.reset();
+            current = dropped;
+            currentStartNanos = now;
+        }
+        interval = recorder.getIntervalHistogram(interval);
+        current.add(interval);
+        final Histogram histogram = previous.copy();
+        histogram.add(current);
+        return new HdrSnapshot(histogram);
+    }
+
+    private static final class HdrSnapshot extends Snapshot {
+
+        private final Histogram histogram;
+
+        private HdrSnapshot(Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            checkArgument(quantile >= 0 && quantile <= 1, "quantile is not in [0..1]: %s", quantile);
+            return histogram.getValueAtPercentile(quantile * 100);
+        }
+
+        @Override
+        public long[] getValues() {
+            final long[] values = new long[size()];
+            int index = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                final long count = Math.min(value.getCountAtValueIteratedTo(), values.length - index);
+                for (long i = 0; i < count; i++) {
+                    values[index++] = value.getValueIteratedTo();
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
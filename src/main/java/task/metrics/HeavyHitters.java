@@ -0,0 +1,157 @@
+package task.metrics;
+
+import com.google.common.math.IntMath;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.math.RoundingMode;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Lock-free sketch of the non-zero {@code long} keys with the largest totals of weights added to them, e.g. accounts
+ * with the longest total lock wait.
+ * <p>
+ * Totals are estimated by a count-min sketch: every key is hashed onto one counter in each of {@link #DEPTH} rows and
+ * its estimate is the least of its counters, so a total is never underestimated and is overestimated only by the
+ * weights of keys colliding with it in every row. Keys with the largest estimates are kept in a small table of
+ * candidates: a key whose estimate exceeds the estimate of the weakest candidate replaces it. Both are updated by
+ * atomic operations only, the memory is fixed and a key is never allocated.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class HeavyHitters {
+
+    private static final int DEPTH = 4;
+    private static final long EMPTY = 0;
+
+    // odd multipliers of independent hash functions of the rows
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final int shift;
+    private final int width;
+    private final AtomicLongArray counters;
+    private final AtomicLongArray candidates;
+
+    /**
+     * Create the sketch.
+     *
+     * @param capacity number of keys with the largest totals to track
+     * @param width    minimal number of counters in a row, the more counters the less the collisions
+     */
+    public HeavyHitters(int capacity, int width) {
+        checkArgument(capacity > 0, "capacity is not positive: %s", capacity);
+        checkArgument(width > 1 && width <= 1 << 28, "width must be in range [2, 2^28]: %s", width);
+        this.width = IntMath.ceilingPowerOfTwo(width);
+        this.shift = Long.SIZE - IntMath.log2(this.width, RoundingMode.UNNECESSARY);
+        this.counters = new AtomicLongArray(DEPTH * this.width);
+        this.candidates = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Add the weight to the total of the key.
+     *
+     * @param key    non-zero key
+     * @param weight weight, not positive weights are ignored
+     */
+    public void add(long key, long weight) {
+        checkArgument(key != EMPTY, "key must not be zero");
+        if (weight <= 0) {
+            return;
+        }
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.addAndGet(index(row, key), weight));
+        }
+        offer(key, estimate);
+    }
+
+    private void offer(long key, long estimate) {
+        int weakest = -1;
+        long weakestKey = EMPTY;
+        long weakestEstimate = Long.MAX_VALUE;
+        for (int i = 0; i < candidates.length(); i++) {
+            final long candidate = candidates.get(i);
+            if (candidate == key) {
+                return;
+            }
+            final long candidateEstimate = candidate == EMPTY ? 0 : estimate(candidate);
+            if (candidateEstimate < weakestEstimate) {
+                weakest = i;
+                weakestKey = candidate;
+                weakestEstimate = candidateEstimate;
+            }
+        }
+        if (estimate > weakestEstimate) {
+            // a lost race means that another key has just taken the place, the next weight of this key will retry
+            candidates.compareAndSet(weakest, weakestKey, key);
+        }
+    }
+
+    /**
+     * Get estimated total of the key.
+     *
+     * @param key non-zero key
+     * @return total, at least the sum of weights added to the key
+     */
+    public long estimate(long key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, key)));
+        }
+        return estimate;
+    }
+
+    /**
+     * Get keys with the largest totals.
+     *
+     * @param limit maximal number of keys
+     * @return estimated totals by keys, in descending order of totals
+     */
+    public Map<Long, Long> getTop(int limit) {
+        final Map<Long, Long> top = new LinkedHashMap<>();
+        IntStream.range(0, candidates.length())
+                .mapToLong(candidates::get)
+                .filter(key -> key != EMPTY)
+                .distinct()
+                .boxed()
+                .map(key -> new long[]{key, estimate(key)})
+                .filter(entry -> entry[1] > 0)
+                .sorted(Comparator.comparingLong((long[] entry) -> entry[1]).reversed())
+                .limit(limit)
+                .forEach(entry -> top.put(entry[0], entry[1]));
+        return top;
+    }
+
+    /**
+     * Get number of tracked keys.
+     *
+     * @return capacity
+     */
+    public int capacity() {
+        return candidates.length();
+    }
+
+    /**
+     * Forget all keys and totals. Weights added concurrently may be partially kept.
+     */
+    public void clear() {
+        for (int i = 0; i < candidates.length(); i++) {
+            candidates.set(i, EMPTY);
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    private int index(int row, long key) {
+        return row * width + (int) ((key * SEEDS[row]) >>> shift);
+    }
+}
@@ -8,6 +8,9 @@ import java.util.Objects;
 
 /**
  * Account provides key functionality to work with amount.
+ * <p>
+ * While the balance and the deltas fit into {@link Money} units, the arithmetic is done on {@code long} values.
+ * Otherwise (too many digits or an overflow) the account falls back to exact {@link BigDecimal} arithmetic.
  *
  * @see Account#getAmount
  * @see Account#setAmount(BigDecimal)
@@ -21,7 +24,13 @@ import java.util.Objects;
 public class Account {
 
     private long id;
+
+    // Balance in units of Money. It is authoritative while the balance is representable in units (compact is true),
+    // so withdraw and deposit don't create new BigDecimal objects.
+    private long units;
+    // Balance as decimal. It is authoritative when compact is false, otherwise it is a lazily created view of units.
     private BigDecimal amount = BigDecimal.ZERO;
+    private boolean compact = true;
 
     /**
      * Return account id.
@@ -49,6 +58,9 @@ public class Account {
      * @return account amount.
      */
     public BigDecimal getAmount() {
+        if (amount == null) {
+            amount = Money.toDecimal(units);
+        }
         return amount;
     }
 
@@ -62,10 +74,10 @@ public class Account {
      */
     public Account setAmount(BigDecimal amount) {
         Objects.requireNonNull(amount, "amount is null");
-        if (amount.compareTo(BigDecimal.ZERO) < 0) {
+        if (amount.signum() < 0) {
             throw new IllegalArgumentException("amount is negative: " + amount);
         }
-        this.amount = amount;
+        setBalance(amount);
         return this;
     }
 
@@ -79,7 +91,13 @@ public class Account {
      */
     public boolean canWithdraw(BigDecimal delta) {
         checkDelta(delta);
-        return delta.compareTo(amount) <= 0;
+        if (compact) {
+            final long deltaUnits = Money.toUnits(delta);
+            if (deltaUnits != Money.NOT_REPRESENTABLE) {
+                return deltaUnits <= units;
+            }
+        }
+        return delta.compareTo(getAmount()) <= 0;
     }
 
     /**
@@ -92,10 +110,22 @@ public class Account {
      * @throws LimitExceededException   when delta is greater than amount
      */
     public Account withdraw(BigDecimal delta) {
-        if (!canWithdraw(delta)) {
-            throw new LimitExceededException(id, delta, amount);
+        checkDelta(delta);
+        if (compact) {
+            final long deltaUnits = Money.toUnits(delta);
+            if (deltaUnits != Money.NOT_REPRESENTABLE) {
+                if (deltaUnits > units) {
+                    throw new LimitExceededException(id, delta, getAmount());
+                }
+                units -= deltaUnits;
+                amount = null;
+                return this;
+            }
         }
-        amount = amount.subtract(delta);
+        if (delta.compareTo(getAmount()) > 0) {
+            throw new LimitExceededException(id, delta, getAmount());
+        }
+        setBalance(getAmount().subtract(delta));
         return this;
     }
 
@@ -109,13 +139,31 @@ public class Account {
      */
     public Account deposit(BigDecimal delta) {
         checkDelta(delta);
-        amount = amount.add(delta);
+        if (compact) {
+            final long deltaUnits = Money.toUnits(delta);
+            if (deltaUnits != Money.NOT_REPRESENTABLE) {
+                try {
+                    units = Math.addExact(units, deltaUnits);
+                    amount = null;
+                    return this;
+                } catch (ArithmeticException e) {
+                    // overflow: fall back to BigDecimal
+                }
+            }
+        }
+        setBalance(getAmount().add(delta));
         return this;
     }
 
+    private void setBalance(BigDecimal amount) {
+        this.amount = amount;
+        this.units = Money.toUnits(amount);
+        this.compact = units != Money.NOT_REPRESENTABLE;
+    }
+
     private void checkDelta(BigDecimal delta) {
         Objects.requireNonNull(delta, "delta is null");
-        if (delta.compareTo(BigDecimal.ZERO) <= 0) {
+        if (delta.signum() <= 0) {
             throw new IllegalArgumentException("delta is negative or equals to zero: " + amount);
         }
     }
@@ -128,13 +176,13 @@ public class Account {
         Account account = (Account) o;
 
         if (id != account.id) return false;
-        return amount != null ? account.amount != null && amount.compareTo(account.amount) == 0 : account.amount == null;
+        return getAmount().compareTo(account.getAmount()) == 0;
     }
 
     @Override
     public int hashCode() {
         int result = (int) (id ^ (id >>> 32));
-        result = 31 * result + (amount != null ? amount.hashCode() : 0);
+        result = 31 * result + getAmount().stripTrailingZeros().hashCode();
         return result;
     }
 
@@ -142,7 +190,7 @@ public class Account {
     public String toString() {
         return "Account{" +
                 "id=" + id +
-                ", amount=" + amount +
+                ", amount=" + getAmount() +
                 '}';
     }
 }
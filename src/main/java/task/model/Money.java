@@ -0,0 +1,74 @@
+package task.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point representation of money as a {@code long} count of minor units at the scale of the
+ * {@code ACCOUNT.AMOUNT NUMBER(38, 8)} column: one unit is {@code 0.00000001}.
+ * <p>
+ * Only amounts with at most {@link #SCALE} fractional digits and at most {@link #MAX_INTEGER_DIGITS} integer digits
+ * are converted to units, so that a sum of two converted amounts never overflows. Other amounts are reported as
+ * {@link #NOT_REPRESENTABLE} and must be handled as {@link BigDecimal}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public final class Money {
+
+    /**
+     * Number of fractional digits of one minor unit.
+     */
+    public static final int SCALE = 8;
+
+    /**
+     * Maximal number of integer digits of an amount representable in units.
+     */
+    public static final int MAX_INTEGER_DIGITS = 10;
+
+    /**
+     * Returned by {@link #toUnits(BigDecimal)} when the amount can't be represented in units.
+     */
+    public static final long NOT_REPRESENTABLE = Long.MIN_VALUE;
+
+    private static final long[] TEN_POWERS = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L
+    };
+
+    // Unscaled values of at most this many digits are below 2^50, so they are recovered exactly from a double.
+    private static final int MAX_DOUBLE_PRECISION = 15;
+
+    private Money() {
+    }
+
+    /**
+     * Convert {@code amount} to units.
+     * <p>
+     * The conversion doesn't allocate for amounts of at most {@value #MAX_DOUBLE_PRECISION} digits:
+     * {@link BigDecimal#unscaledValue()} creates a new {@link java.math.BigInteger} on every call, so the unscaled
+     * value is recovered from {@link BigDecimal#doubleValue()} instead, which is computed from the compact
+     * {@code long} representation. A double holds such values with an error far below one unit, so rounding is exact.
+     *
+     * @param amount amount to convert
+     * @return amount in units or {@link #NOT_REPRESENTABLE} if the amount has too many fractional or integer digits
+     */
+    public static long toUnits(BigDecimal amount) {
+        final int scale = amount.scale();
+        final int precision = amount.precision();
+        if (scale > SCALE || scale < 0 || precision - scale > MAX_INTEGER_DIGITS) {
+            return NOT_REPRESENTABLE;
+        }
+        final long unscaled = precision <= MAX_DOUBLE_PRECISION
+                ? Math.round(amount.doubleValue() * TEN_POWERS[scale])
+                : amount.unscaledValue().longValue();
+        return unscaled * TEN_POWERS[SCALE - scale];
+    }
+
+    /**
+     * Convert {@code units} to {@link BigDecimal} with scale {@link #SCALE}.
+     *
+     * @param units amount in units
+     * @return amount as decimal
+     */
+    public static BigDecimal toDecimal(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+}
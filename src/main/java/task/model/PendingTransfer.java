@@ -0,0 +1,65 @@
+package task.model;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.math.BigDecimal;
+
+/**
+ * Transfer between shards whose source account is debited, but whose destination account may be not credited yet,
+ * see {@link task.dao.PendingTransferDao}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@NotThreadSafe
+public class PendingTransfer {
+
+    private long id;
+    private long fromAccountId;
+    private long toAccountId;
+    private BigDecimal amount;
+
+    public long getId() {
+        return id;
+    }
+
+    public PendingTransfer setId(long id) {
+        this.id = id;
+        return this;
+    }
+
+    public long getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public PendingTransfer setFromAccountId(long fromAccountId) {
+        this.fromAccountId = fromAccountId;
+        return this;
+    }
+
+    public long getToAccountId() {
+        return toAccountId;
+    }
+
+    public PendingTransfer setToAccountId(long toAccountId) {
+        this.toAccountId = toAccountId;
+        return this;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public PendingTransfer setAmount(BigDecimal amount) {
+        this.amount = amount;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "PendingTransfer{" +
+                "id=" + id +
+                ", fromAccountId=" + fromAccountId +
+                ", toAccountId=" + toAccountId +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package task.model;
+
+import javax.annotation.concurrent.Immutable;
+import java.math.BigDecimal;
+
+/**
+ * Single item of a batch transfer: money {@code amount} to transfer from one account to another.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@Immutable
+public class Transfer {
+
+    private final long fromAccountId;
+    private final long toAccountId;
+    private final BigDecimal amount;
+
+    public Transfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+    }
+
+    public long getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public long getToAccountId() {
+        return toAccountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Transfer transfer = (Transfer) o;
+
+        if (fromAccountId != transfer.fromAccountId) return false;
+        if (toAccountId != transfer.toAccountId) return false;
+        return amount != null ? amount.equals(transfer.amount) : transfer.amount == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (fromAccountId ^ (fromAccountId >>> 32));
+        result = 31 * result + (int) (toAccountId ^ (toAccountId >>> 32));
+        result = 31 * result + (amount != null ? amount.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Transfer{" +
+                "fromAccountId=" + fromAccountId +
+                ", toAccountId=" + toAccountId +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -0,0 +1,24 @@
+package task.model;
+
+/**
+ * Outcome of a single transfer.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public enum TransferOutcome {
+
+    /**
+     * Money is transferred.
+     */
+    OK,
+
+    /**
+     * Transfer amount is greater than amount on the source account, nothing is transferred.
+     */
+    LIMIT_EXCEEDED,
+
+    /**
+     * Source or destination account doesn't exist, nothing is transferred.
+     */
+    NO_SUCH_ACCOUNT
+}
@@ -0,0 +1,99 @@
+package task.protocol;
+
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Result of a transfer sent by the binary protocol, the code is the byte written to the response frame.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public enum ResultCode {
+
+    /**
+     * Money is transferred.
+     */
+    OK(0),
+
+    /**
+     * Source or destination account doesn't exist, like {@code 404 Not Found} of HTTP.
+     */
+    NO_SUCH_ACCOUNT(1),
+
+    /**
+     * Transfer amount is greater than amount on the source account.
+     */
+    LIMIT_EXCEEDED(2),
+
+    /**
+     * Transfer is invalid, e.g. the amount is not positive or the accounts are the same.
+     */
+    INVALID_REQUEST(3),
+
+    /**
+     * Transfer failed for any other reason, like {@code 500 Internal Server Error} of HTTP; it may have been applied.
+     */
+    ERROR(4);
+
+    private static final ResultCode[] BY_CODE = new ResultCode[values().length];
+
+    static {
+        for (ResultCode resultCode : values()) {
+            BY_CODE[resultCode.code] = resultCode;
+        }
+    }
+
+    private final byte code;
+
+    ResultCode(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Get result code by its byte.
+     *
+     * @param code byte of the response frame
+     * @return result code
+     * @throws IllegalArgumentException if there is no result with such code
+     */
+    public static ResultCode fromCode(byte code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("unknown result code: " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Get result of a transfer completed with {@code failure}, the mapping is the same as in
+     * {@link task.rest.AccountExceptionMapper}.
+     *
+     * @param failure exception of the transfer or {@code null} if it succeeded
+     * @return result code
+     */
+    public static ResultCode of(@Nullable Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause == null) {
+            return OK;
+        } else if (cause instanceof NoSuchAccountException) {
+            return NO_SUCH_ACCOUNT;
+        } else if (cause instanceof LimitExceededException) {
+            return LIMIT_EXCEEDED;
+        } else if (cause.getClass() == IllegalArgumentException.class) {
+            return INVALID_REQUEST;
+        } else {
+            return ERROR;
+        }
+    }
+}
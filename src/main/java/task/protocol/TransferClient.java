@@ -0,0 +1,126 @@
+package task.protocol;
+
+import task.model.Money;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ProtocolException;
+import java.net.Socket;
+
+import static task.protocol.TransferProtocol.RESULT;
+import static task.protocol.TransferProtocol.RESULT_LENGTH;
+import static task.protocol.TransferProtocol.TRANSFER;
+import static task.protocol.TransferProtocol.TRANSFER_LENGTH;
+
+/**
+ * Client of the binary {@link TransferProtocol}. Transfers are pipelined by sending several of them with
+ * {@link #send} and {@link #flush()} before receiving their results with {@link #receive()}; {@link #transfer} sends one
+ * transfer and waits for its result.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@NotThreadSafe
+public class TransferClient implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Socket socket;
+    private final DataInputStream input;
+    private final DataOutputStream output;
+
+    private long nextRequestId;
+
+    public TransferClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+        output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+    }
+
+    /**
+     * Write transfer request to the buffer, it is sent when the buffer is full or on {@link #flush()}.
+     *
+     * @param fromAccountId source account id
+     * @param toAccountId   destination account id
+     * @param amount        amount of money with at most {@link Money#SCALE} fractional digits
+     * @return id of the request, the result of the transfer is received with the same id
+     * @throws IllegalArgumentException if the amount can't be represented in {@link Money} units
+     * @throws IOException              if the connection fails
+     */
+    public long send(long fromAccountId, long toAccountId, BigDecimal amount) throws IOException {
+        final BigDecimal stripped = amount.stripTrailingZeros();
+        final long units = Money.toUnits(stripped.scale() < 0 ? stripped.setScale(0) : stripped);
+        if (units == Money.NOT_REPRESENTABLE) {
+            throw new IllegalArgumentException("amount can't be sent by the binary protocol: " + amount);
+        }
+        final long requestId = nextRequestId++;
+        output.writeInt(TRANSFER_LENGTH);
+        output.writeByte(TRANSFER);
+        output.writeLong(requestId);
+        output.writeLong(fromAccountId);
+        output.writeLong(toAccountId);
+        output.writeLong(units);
+        return requestId;
+    }
+
+    /**
+     * Send buffered requests.
+     *
+     * @throws IOException if the connection fails
+     */
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    /**
+     * Wait for the next result, results come in the order the transfers complete.
+     *
+     * @return result of a sent transfer
+     * @throws IOException if the connection fails or the server sends a malformed frame
+     */
+    public TransferResult receive() throws IOException {
+        final int length = input.readInt();
+        final byte type = input.readByte();
+        if (length != RESULT_LENGTH || type != RESULT) {
+            throw new ProtocolException("unexpected frame of length " + length + " and type " + type);
+        }
+        final long requestId = input.readLong();
+        final byte code = input.readByte();
+        try {
+            return new TransferResult(requestId, ResultCode.fromCode(code));
+        } catch (IllegalArgumentException e) {
+            throw new ProtocolException(e.getMessage());
+        }
+    }
+
+    /**
+     * Transfer money and wait for the result, there must be no other transfers in flight.
+     *
+     * @param fromAccountId source account id
+     * @param toAccountId   destination account id
+     * @param amount        amount of money with at most {@link Money#SCALE} fractional digits
+     * @return result of the transfer
+     * @throws IllegalArgumentException if the amount can't be represented in {@link Money} units
+     * @throws IOException              if the connection fails
+     */
+    public ResultCode transfer(long fromAccountId, long toAccountId, BigDecimal amount) throws IOException {
+        final long requestId = send(fromAccountId, toAccountId, amount);
+        flush();
+        final TransferResult result = receive();
+        if (result.getRequestId() != requestId) {
+            throw new ProtocolException("unexpected result of request " + result.getRequestId());
+        }
+        return result.getResultCode();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
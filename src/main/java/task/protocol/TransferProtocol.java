@@ -0,0 +1,40 @@
+package task.protocol;
+
+/**
+ * Layout of the binary transfer protocol. A client sends request frames over one TCP connection without waiting for
+ * responses, the server answers with one response frame per request, not necessarily in the order of requests, so
+ * responses are matched to requests by the request id chosen by the client. All numbers are big-endian.
+ * <pre>
+ * request:  int length = 33 | byte type = 1 | long requestId | long fromAccountId | long toAccountId | long amount
+ * response: int length = 10 | byte type = 2 | long requestId | byte resultCode
+ * </pre>
+ * The length doesn't include itself. The amount is a count of {@link task.model.Money} units, i.e. of
+ * {@code 0.00000001}. A frame of unknown type or length makes the server close the connection.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public final class TransferProtocol {
+
+    /**
+     * Type of the transfer request frame.
+     */
+    public static final byte TRANSFER = 1;
+
+    /**
+     * Length of the transfer request frame: type, request id, account ids and amount.
+     */
+    public static final int TRANSFER_LENGTH = 1 + 8 + 8 + 8 + 8;
+
+    /**
+     * Type of the response frame.
+     */
+    public static final byte RESULT = 2;
+
+    /**
+     * Length of the response frame: type, request id and {@link ResultCode}.
+     */
+    public static final int RESULT_LENGTH = 1 + 8 + 1;
+
+    private TransferProtocol() {
+    }
+}
@@ -0,0 +1,33 @@
+package task.protocol;
+
+/**
+ * Response of the binary protocol: result of the transfer sent with the request id.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class TransferResult {
+
+    private final long requestId;
+    private final ResultCode resultCode;
+
+    public TransferResult(long requestId, ResultCode resultCode) {
+        this.requestId = requestId;
+        this.resultCode = resultCode;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public ResultCode getResultCode() {
+        return resultCode;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferResult{" +
+                "requestId=" + requestId +
+                ", resultCode=" + resultCode +
+                '}';
+    }
+}
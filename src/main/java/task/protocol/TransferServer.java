@@ -0,0 +1,304 @@
+package task.protocol;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import task.config.BinaryProtocolConfiguration;
+import task.model.Money;
+import task.service.AccountService;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static task.protocol.TransferProtocol.RESULT;
+import static task.protocol.TransferProtocol.RESULT_LENGTH;
+import static task.protocol.TransferProtocol.TRANSFER;
+import static task.protocol.TransferProtocol.TRANSFER_LENGTH;
+
+/**
+ * TCP server of the binary {@link TransferProtocol}. It calls {@link AccountService#transferAsync} directly, so there
+ * is neither HTTP nor JSON on the path of a transfer.
+ * <p>
+ * Every connection is served by its own thread that reads requests and submits them without waiting for the results,
+ * so a client may pipeline up to {@code maxInFlight} transfers per connection. The threads completing the transfers,
+ * e.g. the sequencer of the {@code LEDGER} engine, only put responses to the queue of the connection, and a writer
+ * thread of the connection writes them to the socket. It flushes when the queue is drained, so under load many
+ * responses share one write to the socket while a lone response is sent at once, and a client that doesn't read its
+ * responses blocks only its own writer. A transfer counts as in flight until its response is written, so the queue
+ * holds at most {@code maxInFlight} responses.
+ * <p>
+ * The server must be started by {@link #start()} before use.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class TransferServer implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferServer.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AccountService accountService;
+    private final int port;
+    private final int maxConnections;
+    private final int maxInFlight;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    private volatile ServerSocket serverSocket;
+    private volatile ThreadPoolExecutor connectionExecutor;
+    private volatile ExecutorService writerExecutor;
+    private volatile Thread acceptor;
+
+    public TransferServer(AccountService accountService, BinaryProtocolConfiguration configuration) {
+        this.accountService = accountService;
+        this.port = configuration.getPort();
+        this.maxConnections = configuration.getMaxConnections();
+        this.maxInFlight = configuration.getMaxInFlight();
+    }
+
+    @Override
+    public synchronized void start() throws IOException {
+        if (acceptor != null) {
+            throw new IllegalStateException("server is already started");
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+        connectionExecutor = new ThreadPoolExecutor(0, maxConnections, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new ThreadFactoryBuilder().setNameFormat("binary-protocol-%d").build());
+        // writers are not limited: there is one per accepted connection, and it finishes before the connection does
+        writerExecutor = Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setNameFormat("binary-protocol-writer-%d").build());
+        acceptor = new Thread(this::runAcceptor, "binary-protocol-acceptor");
+        acceptor.start();
+        LOGGER.info("Binary transfer protocol is listening on port {}", serverSocket.getLocalPort());
+    }
+
+    @Override
+    public synchronized void stop() throws IOException, InterruptedException {
+        final Thread thread = acceptor;
+        if (thread == null) {
+            return;
+        }
+        acceptor = null;
+        serverSocket.close();
+        thread.join();
+
+        // readers fail on closed sockets, transfers in flight complete without sending responses
+        for (Socket socket : connections) {
+            socket.close();
+        }
+        connectionExecutor.shutdown();
+        connectionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        writerExecutor.shutdown();
+        writerExecutor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Get port the server is listening on, useful when it is configured with port {@code 0}.
+     *
+     * @return local port
+     */
+    public int getLocalPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void runAcceptor() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    LOGGER.warn("Failed to accept connection", e);
+                }
+                continue;
+            }
+            try {
+                connectionExecutor.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                LOGGER.warn("Connection from {} is rejected: {} connections are open",
+                        socket.getRemoteSocketAddress(), maxConnections);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        connections.add(socket);
+        try {
+            socket.setTcpNoDelay(true);
+            final Connection connection = new Connection(socket);
+            final Future<?> writer = writerExecutor.submit(connection::writeResponses);
+            try {
+                connection.readRequests();
+            } finally {
+                connection.awaitInFlight();
+                connection.finish();
+                awaitQuietly(writer);
+            }
+        } catch (EOFException | SocketException e) {
+            // the connection is closed by the client or by stop()
+        } catch (IOException e) {
+            LOGGER.warn("Connection from {} failed", socket.getRemoteSocketAddress(), e);
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void awaitQuietly(Future<?> writer) {
+        try {
+            Uninterruptibles.getUninterruptibly(writer);
+        } catch (ExecutionException e) {
+            LOGGER.warn("Writer of connection failed", e.getCause());
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    private final class Connection {
+
+        private final Socket socket;
+        private final DataInputStream input;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        // responses of completed transfers waiting for the writer, FINISHED after all of them
+        private final BlockingQueue<Response> responses = new LinkedBlockingQueue<>();
+
+        // used by the writer only
+        private final DataOutputStream output;
+        private boolean broken;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE));
+            this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+        }
+
+        private void readRequests() throws IOException {
+            while (true) {
+                final int length;
+                try {
+                    length = input.readInt();
+                } catch (EOFException e) {
+                    // the client has finished sending requests
+                    return;
+                }
+                if (length != TRANSFER_LENGTH) {
+                    LOGGER.warn("Connection from {} sent frame of unexpected length {}",
+                            socket.getRemoteSocketAddress(), length);
+                    return;
+                }
+                final byte type = input.readByte();
+                if (type != TRANSFER) {
+                    LOGGER.warn("Connection from {} sent frame of unknown type {}",
+                            socket.getRemoteSocketAddress(), type);
+                    return;
+                }
+                final long requestId = input.readLong();
+                final long fromAccountId = input.readLong();
+                final long toAccountId = input.readLong();
+                final long amount = input.readLong();
+
+                inFlight.acquireUninterruptibly();
+                final CompletionStage<Void> result;
+                try {
+                    result = accountService.transferAsync(fromAccountId, toAccountId, Money.toDecimal(amount));
+                } catch (RuntimeException e) {
+                    complete(requestId, e);
+                    continue;
+                }
+                result.whenComplete((ignored, failure) -> complete(requestId, failure));
+            }
+        }
+
+        // called by the thread completing the transfer, so it must never block
+        private void complete(long requestId, @Nullable Throwable failure) {
+            responses.add(new Response(requestId, ResultCode.of(failure)));
+        }
+
+        private void awaitInFlight() {
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+
+        // called when no transfers are in flight, so FINISHED is the last response in the queue
+        private void finish() {
+            responses.add(Response.FINISHED);
+        }
+
+        private void writeResponses() {
+            while (true) {
+                final Response response = Uninterruptibles.takeUninterruptibly(responses);
+                if (response == Response.FINISHED) {
+                    return;
+                }
+                respond(response.requestId, response.resultCode, responses.isEmpty());
+                inFlight.release();
+            }
+        }
+
+        private void respond(long requestId, ResultCode resultCode, boolean flush) {
+            if (broken) {
+                return;
+            }
+            try {
+                output.writeInt(RESULT_LENGTH);
+                output.writeByte(RESULT);
+                output.writeLong(requestId);
+                output.writeByte(resultCode.getCode());
+                if (flush) {
+                    output.flush();
+                }
+            } catch (IOException e) {
+                // the reader fails on the closed socket too, later responses are dropped
+                broken = true;
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private static final class Response {
+
+        private static final Response FINISHED = new Response(0, ResultCode.OK);
+
+        private final long requestId;
+        private final ResultCode resultCode;
+
+        private Response(long requestId, ResultCode resultCode) {
+            this.requestId = requestId;
+            this.resultCode = resultCode;
+        }
+    }
+}
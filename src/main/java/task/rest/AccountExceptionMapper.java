@@ -3,6 +3,7 @@ package task.rest;
 import com.google.common.collect.ImmutableMap;
 import task.exception.LimitExceededException;
 import task.exception.NoSuchAccountException;
+import task.exception.TransferInProgressException;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -23,6 +24,7 @@ public class AccountExceptionMapper implements ExceptionMapper<Exception> {
                     .put(LimitExceededException.class, Status.BAD_REQUEST)
                     .put(NoSuchAccountException.class, Status.NOT_FOUND)
                     .put(IllegalArgumentException.class, Status.BAD_REQUEST)
+                    .put(TransferInProgressException.class, Status.CONFLICT)
                     .build();
 
     @Override
@@ -1,23 +1,49 @@
 package task.rest;
 
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Throwables;
+import task.api.BatchTransferResponse;
+import task.api.BulkCreateAccountResponse;
 import task.api.CreateAccountRequest;
 import task.api.CreateAccountResponse;
+import task.api.ExportFormat;
 import task.api.GetAccountResponse;
 import task.api.TransferRequest;
 import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
 import task.service.AccountService;
+import task.service.IdempotentTransfers;
 
 import javax.inject.Inject;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Collectors;
 
 /**
  * This REST resource exposes {@link AccountService} API. Exceptions are handled by {@link AccountExceptionMapper}.
@@ -25,19 +51,33 @@ import javax.ws.rs.core.Response;
  * @author Anton Kotov (kotov-anton@yandex.ru)
  * @see CreateAccountRequest
  * @see CreateAccountResponse
+ * @see BulkCreateAccountResponse
  * @see GetAccountResponse
  * @see TransferRequest
+ * @see BatchTransferResponse
+ * @see ExportFormat
  * @see AccountExceptionMapper
  */
 @Path("/accounts")
 @Produces(MediaType.APPLICATION_JSON)
 public class AccountResource {
 
+    /**
+     * Maximal number of account ids of one {@code /accounts/batch} request and of transfers of one
+     * {@code /accounts/transfers} request.
+     */
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     private final AccountService accountService;
+    private final IdempotentTransfers idempotentTransfers;
 
     @Inject
-    public AccountResource(AccountService accountService) {
+    public AccountResource(AccountService accountService, IdempotentTransfers idempotentTransfers) {
         this.accountService = accountService;
+        this.idempotentTransfers = idempotentTransfers;
     }
 
     /**
@@ -54,6 +94,26 @@ public class AccountResource {
         return Response.ok(new CreateAccountResponse(account.getId())).build();
     }
 
+    /**
+     * Creates new account for every request of the batch at once.
+     *
+     * @param requests list of {@link CreateAccountRequest}
+     * @return {@link Response} with Status.OK status and {@link BulkCreateAccountResponse} entity with ids of new
+     * accounts in the order of the requests in case of success.
+     */
+    @Timed
+    @POST
+    @Path("/create-bulk")
+    public Response createAll(@Valid @NotNull List<CreateAccountRequest> requests) {
+        final List<BigDecimal> amounts = requests.stream()
+                .map(CreateAccountRequest::getAmount)
+                .collect(Collectors.toList());
+        final List<Long> accountIds = accountService.createAll(amounts).stream()
+                .map(Account::getId)
+                .collect(Collectors.toList());
+        return Response.ok(new BulkCreateAccountResponse(accountIds)).build();
+    }
+
     /**
      * Get account with given {@code accountId}.
      *
@@ -69,16 +129,180 @@ public class AccountResource {
     }
 
     /**
-     * Transfers money from one account to another.
+     * Get accounts with given ids, e.g. {@code /accounts/batch?id=1&id=2}. Missing accounts are skipped.
+     *
+     * @param accountIds account ids
+     * @return {@link Response} with Status.OK status and JSON array of accounts in the format of
+     * {@link GetAccountResponse}, in no particular order.
+     */
+    @Timed
+    @GET
+    @Path("/batch")
+    public Response getAccounts(@NotNull @Size(max = MAX_BATCH_SIZE) @QueryParam("id") List<Long> accountIds) {
+        return accountsResponse(accountService.getAccounts(accountIds));
+    }
+
+    /**
+     * Get accounts with ids given by JSON array in the body, same as {@link #getAccounts(List)} for lists of ids
+     * which are too long for the URL.
+     *
+     * @param accountIds account ids
+     * @return {@link Response} with Status.OK status and JSON array of accounts in the format of
+     * {@link GetAccountResponse}, in no particular order.
+     */
+    @Timed
+    @POST
+    @Path("/batch")
+    public Response getAccountsByPost(@NotNull @Size(max = MAX_BATCH_SIZE) List<Long> accountIds) {
+        return accountsResponse(accountService.getAccounts(accountIds));
+    }
+
+    // accounts are written straight to the response stream, without a response object per account
+    private static Response accountsResponse(List<Account> accounts) {
+        final StreamingOutput output = stream -> {
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(stream)) {
+                generator.writeStartArray();
+                for (Account account : accounts) {
+                    generator.writeStartObject();
+                    generator.writeNumberField("accountId", account.getId());
+                    generator.writeNumberField("amount", account.getAmount());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+        };
+        return Response.ok(output).build();
+    }
+
+    /**
+     * Export all accounts, e.g. for reconciliation. Accounts are written to the response while they are read from the
+     * database, so the memory doesn't depend on the number of accounts. The export is not a point-in-time snapshot
+     * when transfers run at the same time, see {@link AccountService#forEachAccount}.
+     *
+     * @param format {@link ExportFormat}, {@code ndjson} by default
+     * @return {@link Response} with Status.OK status and a line per account in the requested format.
+     */
+    @Timed
+    @GET
+    @Path("/export")
+    @Produces({"application/x-ndjson", "text/csv"})
+    public Response export(@DefaultValue("ndjson") @QueryParam("format") ExportFormat format) {
+        final StreamingOutput output = stream -> {
+            final Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(stream, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+            format.writeHeader(writer);
+            try {
+                accountService.forEachAccount(account -> {
+                    try {
+                        format.writeAccount(writer, account);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // the client has gone, the exception may be wrapped by MyBatis
+                for (Throwable cause : Throwables.getCausalChain(e)) {
+                    if (cause instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) cause).getCause();
+                    }
+                }
+                throw e;
+            }
+            writer.flush();
+        };
+        return Response.ok(output, format.getMediaType())
+                .header("Content-Disposition", "attachment; filename=\"" + format.getFileName() + "\"")
+                .build();
+    }
+
+    /**
+     * Transfers money from one account to another. A transfer with {@link TransferRequest#getRequestId()} is applied
+     * at most once, a retry gets the response of the first request, see {@link IdempotentTransfers}.
+     * A transfer rejected because of missing account or insufficient money is answered with its
+     * {@link TransferOutcome} without throwing an exception, see {@link AccountService#tryTransfer}.
      *
      * @param request {@link TransferRequest}
-     * @return {@link Response} with Status.OK status and "OK" entity in case of success.
+     * @return {@link Response} with Status.OK status and "OK" entity in case of success, Status.NOT_FOUND status and
+     * "NO_SUCH_ACCOUNT" entity when an account doesn't exist or Status.BAD_REQUEST status and "LIMIT_EXCEEDED" entity
+     * when there is not enough money on the source account.
      */
     @Timed
     @POST
     @Path("/transfer")
     public Response transfer(@Valid @NotNull TransferRequest request) {
-        accountService.transfer(request.getFrom(), request.getTo(), request.getAmount());
-        return Response.ok("OK").build();
+        final Long requestId = request.getRequestId();
+        final TransferOutcome outcome = requestId == null
+                ? accountService.tryTransfer(request.getFrom(), request.getTo(), request.getAmount())
+                : idempotentTransfers.tryTransfer(requestId, request.getFrom(), request.getTo(), request.getAmount());
+        return outcomeResponse(outcome);
+    }
+
+    private static Response outcomeResponse(TransferOutcome outcome) {
+        switch (outcome) {
+            case OK:
+                return Response.ok("OK").build();
+            case NO_SUCH_ACCOUNT:
+                return rejected(Response.Status.NOT_FOUND, outcome);
+            default:
+                return rejected(Response.Status.BAD_REQUEST, outcome);
+        }
+    }
+
+    private static Response rejected(Response.Status status, TransferOutcome outcome) {
+        return Response.status(status).entity(outcome.name()).type(MediaType.TEXT_PLAIN_TYPE).build();
+    }
+
+    /**
+     * Transfers money from one account to another asynchronously: the request thread is released as soon as the
+     * transfer is submitted to the service, and the response is sent when the transfer is done. A transfer with
+     * {@link TransferRequest#getRequestId()} is applied at most once like in {@link #transfer(TransferRequest)}, and
+     * a rejected transfer is answered with its {@link TransferOutcome} like there, see
+     * {@link AccountService#tryTransferAsync}.
+     *
+     * @param request       {@link TransferRequest}
+     * @param asyncResponse resumed with the same responses as {@link #transfer(TransferRequest)} returns, or with the
+     *                      exception handled by {@link AccountExceptionMapper} if the transfer failed otherwise.
+     */
+    @Timed
+    @POST
+    @Path("/transfer-async")
+    public void transferAsync(@Valid @NotNull TransferRequest request, @Suspended AsyncResponse asyncResponse) {
+        final Long requestId = request.getRequestId();
+        final CompletionStage<TransferOutcome> result = requestId == null
+                ? accountService.tryTransferAsync(request.getFrom(), request.getTo(), request.getAmount())
+                : idempotentTransfers.tryTransferAsync(
+                        requestId, request.getFrom(), request.getTo(), request.getAmount());
+        result.whenComplete((outcome, exception) -> {
+            if (exception == null) {
+                asyncResponse.resume(outcomeResponse(outcome));
+            } else if (exception instanceof CompletionException && exception.getCause() != null) {
+                asyncResponse.resume(exception.getCause());
+            } else {
+                asyncResponse.resume(exception);
+            }
+        });
+    }
+
+    /**
+     * Transfers money for every request of the batch in one transaction. Transfers are applied in the order of the
+     * requests, a transfer rejected because of missing account or insufficient money doesn't affect the others.
+     * Request ids are not supported, the batch is not deduplicated.
+     *
+     * @param requests list of {@link TransferRequest}
+     * @return {@link Response} with Status.OK status and {@link BatchTransferResponse} entity with outcome of every
+     * transfer in case of success.
+     */
+    @Timed
+    @POST
+    @Path("/transfers")
+    public Response transferAll(@Valid @NotNull @Size(max = MAX_BATCH_SIZE) List<TransferRequest> requests) {
+        if (requests.stream().anyMatch(request -> request.getRequestId() != null)) {
+            throw new IllegalArgumentException("requestId is not supported by batch transfers");
+        }
+        final List<Transfer> transfers = requests.stream()
+                .map(request -> new Transfer(request.getFrom(), request.getTo(), request.getAmount()))
+                .collect(Collectors.toList());
+        final List<TransferOutcome> outcomes = accountService.transferAll(transfers);
+        return Response.ok(new BatchTransferResponse(outcomes)).build();
     }
 }
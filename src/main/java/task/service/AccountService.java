@@ -3,9 +3,16 @@ package task.service;
 import task.exception.LimitExceededException;
 import task.exception.NoSuchAccountException;
 import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
 
 import javax.annotation.Nullable;
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
 
 /**
  * Main application service that provides key account functionality and is exposed as REST HTTP service.
@@ -22,6 +29,14 @@ public interface AccountService {
      */
     Account create(@Nullable BigDecimal amount);
 
+    /**
+     * Create new accounts with given {@code amounts} at once, e.g. to migrate existing accounts.
+     *
+     * @param amounts the money to create every new account with, {@code null} means zero
+     * @return new accounts in the order of {@code amounts}
+     */
+    List<Account> createAll(List<BigDecimal> amounts);
+
     /**
      * Get account with given {@code accountId}.
      *
@@ -31,6 +46,23 @@ public interface AccountService {
      */
     Account getAccount(long accountId);
 
+    /**
+     * Get accounts with given {@code accountIds} at once. Missing accounts are skipped.
+     *
+     * @param accountIds account ids
+     * @return existing accounts with given ids in no particular order, every account once
+     */
+    List<Account> getAccounts(Collection<Long> accountIds);
+
+    /**
+     * Pass every account to {@code action} in order of ids while accounts are read from the database, so memory
+     * doesn't depend on the number of accounts. Accounts changed by transfers running at the same time may be passed
+     * with either old or new amounts, so the result is not a point-in-time snapshot.
+     *
+     * @param action action to perform for every account, called by the calling thread
+     */
+    void forEachAccount(Consumer<Account> action);
+
     /**
      * Transfer money from account with id: {@code fromAccountId} to account with id: {@code toAccountId}.
      *
@@ -43,4 +75,80 @@ public interface AccountService {
      * @throws LimitExceededException   when {@code amount} is greater that amount on account with id: {@code fromAccountId}
      */
     void transfer(long fromAccountId, long toAccountId, BigDecimal amount);
+
+    /**
+     * Transfer money like {@link #transfer(long, long, BigDecimal)}, but return the expected rejections instead of
+     * throwing them, so a rejected transfer costs neither an exception nor its message.
+     * <p>
+     * The default implementation converts the exceptions of {@link #transfer}. They have no stack traces and build
+     * their messages only when asked for, so a rejection still costs an exception object, but neither a stack walk nor
+     * a message.
+     *
+     * @param fromAccountId account id to transfer money from
+     * @param toAccountId   account id to transfer money to
+     * @param amount        money amount to transfer
+     * @return {@link TransferOutcome#OK} if money is transferred, {@link TransferOutcome#NO_SUCH_ACCOUNT} when from- or
+     * to-account doesn't exist, {@link TransferOutcome#LIMIT_EXCEEDED} when {@code amount} is greater than amount on
+     * account with id: {@code fromAccountId}
+     * @throws NullPointerException     when {@code amount} is null
+     * @throws IllegalArgumentException when {@code fromAccountId == toAccountId} or amount is not positive
+     */
+    default TransferOutcome tryTransfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        try {
+            transfer(fromAccountId, toAccountId, amount);
+            return TransferOutcome.OK;
+        } catch (NoSuchAccountException e) {
+            return TransferOutcome.NO_SUCH_ACCOUNT;
+        } catch (LimitExceededException e) {
+            return TransferOutcome.LIMIT_EXCEEDED;
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #transfer(long, long, BigDecimal)}. The returned stage is completed when the
+     * transfer is done, or completed exceptionally with any of the exceptions {@link #transfer} throws.
+     * <p>
+     * The default implementation executes the transfer in the calling thread.
+     *
+     * @param fromAccountId account id to transfer money from
+     * @param toAccountId   account id to transfer money to
+     * @param amount        money amount to transfer
+     * @return stage completed when the transfer is done
+     */
+    default CompletionStage<Void> transferAsync(long fromAccountId, long toAccountId, BigDecimal amount) {
+        try {
+            transfer(fromAccountId, toAccountId, amount);
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFutures.failed(e);
+        }
+    }
+
+    /**
+     * Asynchronous version of {@link #tryTransfer(long, long, BigDecimal)}. The returned stage is completed with the
+     * outcome of the transfer when it is done, or completed exceptionally with any of the other exceptions
+     * {@link #transfer} throws.
+     * <p>
+     * The default implementation converts the rejections of {@link #transferAsync}.
+     *
+     * @param fromAccountId account id to transfer money from
+     * @param toAccountId   account id to transfer money to
+     * @param amount        money amount to transfer
+     * @return stage completed with the outcome of the transfer
+     */
+    default CompletionStage<TransferOutcome> tryTransferAsync(long fromAccountId, long toAccountId, BigDecimal amount) {
+        return TransferOutcomes.of(transferAsync(fromAccountId, toAccountId, amount));
+    }
+
+    /**
+     * Apply {@code transfers} one by one in the given order and commit them all at once. A transfer that can't be
+     * applied because of missing account or insufficient money is skipped and doesn't affect the others.
+     *
+     * @param transfers transfers to apply
+     * @return outcome of every transfer in the order of {@code transfers}
+     * @throws NullPointerException     when any transfer or its amount is null
+     * @throws IllegalArgumentException when any transfer has {@code fromAccountId == toAccountId} or not positive
+     *                                  amount, in this case nothing is transferred
+     */
+    List<TransferOutcome> transferAll(List<Transfer> transfers);
 }
@@ -0,0 +1,45 @@
+package task.service;
+
+/**
+ * Available implementations of {@link AccountService}. The engine is chosen by the {@code engine} property of the
+ * application configuration.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public enum AccountServiceEngine {
+
+    /**
+     * {@link AccountServiceImpl}: every transfer locks both accounts and reads and updates them in the database.
+     */
+    LOCKING,
+
+    /**
+     * {@link LedgerAccountService}: balances are kept in memory and transfers are applied one by one by
+     * a single sequencer thread.
+     */
+    LEDGER,
+
+    /**
+     * {@link ConditionalAccountService}: every transfer is two conditional relative updates without application
+     * locks, so several service instances can share one database.
+     */
+    CONDITIONAL,
+
+    /**
+     * {@link PartitionedAccountService}: accounts are hashed onto single-threaded partitions and every transfer is
+     * executed by the partition thread without account locks.
+     */
+    PARTITIONED,
+
+    /**
+     * {@link ShardedAccountService}: accounts are partitioned across several databases, transfers between them are
+     * sagas of local transactions.
+     */
+    SHARDED,
+
+    /**
+     * {@link GroupCommitAccountService}: transfers of concurrent requests are applied by conditional relative updates
+     * in one transaction per group, so a commit is shared by the whole group.
+     */
+    GROUP_COMMIT
+}
@@ -1,27 +1,32 @@
 package task.service;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import task.dao.AccountDao;
 import task.exception.LimitExceededException;
 import task.exception.NoSuchAccountException;
 import task.manager.AccountManager;
 import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.inject.Inject;
 import java.math.BigDecimal;
-import java.util.Objects;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static task.service.TransferPreconditions.checkTransfer;
+import static task.service.TransferPreconditions.checkTransfers;
 
 /**
  * Thread safe implementation of {@link AccountService}. If several threads want to modify the same account they will be
- * synchronized by lock for that particular account to prevent inconsistent state.
+ * synchronized by the lock of the stripe the account belongs to, see {@link StripedLocks}. Deposits to
+ * {@link HotAccounts} are the exception: they take only the lock of the source account and go to sub-balance slots.
  *
  * @author Anton Kotov (kotov-anton@yandex.ru)
  */
@@ -30,22 +35,24 @@ public class AccountServiceImpl implements AccountService {
 
     private final AccountManager accountManager;
     private final AccountDao accountDao;
+    private final StripedLocks locks;
+    private final HotAccounts hotAccounts;
 
-    // This cache keep locks per account id. Weak values guarantee that once the lock is unused the corresponding entity
-    // will be removed from the cache.
-    private final LoadingCache<Long, Lock> locksByAccountId = CacheBuilder.newBuilder()
-            .weakValues() // to avoid memory leak
-            .build(new CacheLoader<Long, Lock>() {
-                @Override
-                public Lock load(Long key) throws Exception {
-                    return new ReentrantLock();
-                }
-            });
+    public AccountServiceImpl(AccountManager accountManager, AccountDao accountDao) {
+        this(accountManager, accountDao, new StripedLocks());
+    }
 
     @Inject
-    public AccountServiceImpl(AccountManager accountManager, AccountDao accountDao) {
+    public AccountServiceImpl(AccountManager accountManager, AccountDao accountDao, StripedLocks locks) {
+        this(accountManager, accountDao, locks, HotAccounts.none());
+    }
+
+    public AccountServiceImpl(AccountManager accountManager, AccountDao accountDao, StripedLocks locks,
+                              HotAccounts hotAccounts) {
         this.accountManager = accountManager;
         this.accountDao = accountDao;
+        this.locks = locks;
+        this.hotAccounts = hotAccounts;
     }
 
     /**
@@ -58,13 +65,56 @@ public class AccountServiceImpl implements AccountService {
         return account;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> createAll(List<BigDecimal> amounts) {
+        return accountManager.createAll(amounts);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Account getAccount(long accountId) {
-        return Optional.ofNullable(accountDao.select(accountId))
-                .orElseThrow(() -> new NoSuchAccountException(accountId));
+        if (hotAccounts.contains(accountId)) {
+            return Optional.ofNullable(hotAccounts.getBalance(accountId))
+                    .map(balance -> new Account().setId(accountId).setAmount(balance))
+                    .orElseThrow(() -> new NoSuchAccountException(accountId));
+        }
+        return selectAccount(accountId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> getAccounts(Collection<Long> accountIds) {
+        if (accountIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<Account> accounts = accountDao.selectAll(accountIds);
+        if (!hotAccounts.isEmpty()) {
+            accounts.replaceAll(this::withSlots);
+        }
+        return accounts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        accountDao.selectEach(context -> action.accept(withSlots(context.getResultObject())));
+    }
+
+    private Account withSlots(Account account) {
+        if (!hotAccounts.contains(account.getId())) {
+            return account;
+        }
+        final BigDecimal balance = hotAccounts.getBalance(account.getId());
+        return balance == null ? account : new Account().setId(account.getId()).setAmount(balance);
     }
 
     /**
@@ -72,57 +122,181 @@ public class AccountServiceImpl implements AccountService {
      */
     @Override
     public void transfer(long fromAccountId, long toAccountId, BigDecimal amount) {
-        if (fromAccountId == toAccountId) {
-            throw new IllegalArgumentException("fromAccountId == toAccountId: " + fromAccountId);
+        checkTransfer(fromAccountId, toAccountId, amount);
+        threadSafeTransfer(fromAccountId, toAccountId, amount, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TransferOutcome tryTransfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        checkTransfer(fromAccountId, toAccountId, amount);
+        try {
+            return threadSafeTransfer(fromAccountId, toAccountId, amount, false);
+        } catch (NoSuchAccountException e) {
+            // thrown only when a hot source account short of money has lost its slots
+            return TransferOutcome.NO_SUCH_ACCOUNT;
         }
-        if (Objects.requireNonNull(amount, "amount is null").compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("amount is not positive: " + amount);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TransferOutcome> transferAll(List<Transfer> transfers) {
+        checkTransfers(transfers);
+
+        // all stripes of the batch are locked in ascending order to avoid deadlocks
+        final int[] stripes = transfers.stream()
+                .flatMap(transfer -> Stream.of(transfer.getFromAccountId(), transfer.getToAccountId()))
+                .mapToInt(locks::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int stripe : stripes) {
+            locks.lock(stripe);
+        }
+        try {
+            return transferAllInternal(transfers);
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                locks.getLock(stripes[i]).unlock();
+            }
         }
-        threadSafeTransfer(fromAccountId, toAccountId, amount);
     }
 
-    private void threadSafeTransfer(long fromAccountId, long toAccountId, BigDecimal amount) {
-        // locks are ordered to avoid deadlocks
-        final long firstId;
-        final long secondId;
-        if (fromAccountId < toAccountId) {
-            firstId = fromAccountId;
-            secondId = toAccountId;
-        } else {
-            firstId = toAccountId;
-            secondId = fromAccountId;
+    @GuardedBy("transferAll()")
+    private List<TransferOutcome> transferAllInternal(List<Transfer> transfers) {
+        if (!hotAccounts.isEmpty()) {
+            // withdrawals of the batch see the whole balance of hot accounts
+            transfers.stream()
+                    .mapToLong(Transfer::getFromAccountId)
+                    .filter(hotAccounts::contains)
+                    .distinct()
+                    .forEach(hotAccounts::sweep);
+        }
+        final TransferBatch batch = new TransferBatch(accountDao::select, transfers.size());
+        for (Transfer transfer : transfers) {
+            batch.apply(transfer);
+        }
+
+        final List<Account> updatedAccounts = batch.getUpdatedAccounts();
+        if (!updatedAccounts.isEmpty()) {
+            accountManager.updateAll(updatedAccounts);
+        }
+        return batch.getOutcomes();
+    }
+
+    // rejected transfers are thrown as exceptions by transfer() and returned as outcomes by tryTransfer()
+    private TransferOutcome threadSafeTransfer(long fromAccountId, long toAccountId, BigDecimal amount,
+                                               boolean throwRejections) {
+        if (hotAccounts.contains(toAccountId)) {
+            // the hot account is credited by a relative update of a slot, so only the source account is locked
+            final int fromStripe = locks.stripeOf(fromAccountId);
+            locks.addWait(fromAccountId, locks.lock(fromStripe));
+            try {
+                return depositInternal(fromAccountId, toAccountId, amount, throwRejections);
+            } finally {
+                locks.getLock(fromStripe).unlock();
+            }
         }
 
-        final Lock firstLock = getOrCreateLock(firstId);
-        final Lock secondLock = getOrCreateLock(secondId);
+        final int fromStripe = locks.stripeOf(fromAccountId);
+        final int toStripe = locks.stripeOf(toAccountId);
+        if (fromStripe == toStripe) {
+            // both accounts are guarded by the same lock, so any of them may be the contended one
+            final long waitNanos = locks.lock(fromStripe);
+            locks.addWait(fromAccountId, waitNanos);
+            locks.addWait(toAccountId, waitNanos);
+            try {
+                return transferInternal(fromAccountId, toAccountId, amount, throwRejections);
+            } finally {
+                locks.getLock(fromStripe).unlock();
+            }
+        }
+
+        // locks are ordered to avoid deadlocks
+        final boolean fromFirst = fromStripe < toStripe;
+        final int firstStripe = fromFirst ? fromStripe : toStripe;
+        final int secondStripe = fromFirst ? toStripe : fromStripe;
 
-        firstLock.lock();
+        locks.addWait(fromFirst ? fromAccountId : toAccountId, locks.lock(firstStripe));
         try {
-            secondLock.lock();
+            locks.addWait(fromFirst ? toAccountId : fromAccountId, locks.lock(secondStripe));
             try {
-                transferInternal(fromAccountId, toAccountId, amount);
+                return transferInternal(fromAccountId, toAccountId, amount, throwRejections);
             } finally {
-                secondLock.unlock();
+                locks.getLock(secondStripe).unlock();
             }
         } finally {
-            firstLock.unlock();
+            locks.getLock(firstStripe).unlock();
         }
     }
 
-    private Lock getOrCreateLock(long accountId) {
-        return locksByAccountId.getUnchecked(accountId);
+    @GuardedBy("threadSafeTransfer()")
+    private TransferOutcome transferInternal(long fromAccountId, long toAccountId, BigDecimal amount,
+                                             boolean throwRejections) {
+        final Account fromAccount = accountDao.select(fromAccountId);
+        if (fromAccount == null) {
+            return noSuchAccount(fromAccountId, throwRejections);
+        }
+        final Account toAccount = accountDao.select(toAccountId);
+        if (toAccount == null) {
+            return noSuchAccount(toAccountId, throwRejections);
+        }
+        final Account withdrawable = withdrawable(fromAccount, amount);
+
+        // this pre-check allows us to avoid extra database transaction: begin -> rollback in case of exceeded limit
+        if (!withdrawable.canWithdraw(amount)) {
+            return limitExceeded(withdrawable, amount, throwRejections);
+        }
+        accountManager.transfer(withdrawable, toAccount, amount);
+        return TransferOutcome.OK;
     }
 
     @GuardedBy("threadSafeTransfer()")
-    private void transferInternal(long fromAccountId, long toAccountId, BigDecimal amount) {
-        final Account fromAccount = getAccount(fromAccountId);
-        final Account toAccount = getAccount(toAccountId);
+    private TransferOutcome depositInternal(long fromAccountId, long toAccountId, BigDecimal amount,
+                                            boolean throwRejections) {
+        final Account fromAccount = accountDao.select(fromAccountId);
+        if (fromAccount == null) {
+            return noSuchAccount(fromAccountId, throwRejections);
+        }
+        final Account withdrawable = withdrawable(fromAccount, amount);
+        if (!withdrawable.canWithdraw(amount)) {
+            return limitExceeded(withdrawable, amount, throwRejections);
+        }
+        hotAccounts.deposit(withdrawable, toAccountId, amount);
+        return TransferOutcome.OK;
+    }
 
-        // this pre-check allows us to avoid extra database transaction: begin -> rollback in case of exceeded limit
-        if (!fromAccount.canWithdraw(amount)) {
-            throw new LimitExceededException(fromAccountId, amount, fromAccount.getAmount());
+    // the source account itself, or with the slots swept into it if it is a hot account short of money
+    @GuardedBy("threadSafeTransfer()")
+    private Account withdrawable(Account fromAccount, BigDecimal amount) {
+        final long accountId = fromAccount.getId();
+        if (fromAccount.canWithdraw(amount) || !hotAccounts.contains(accountId)) {
+            return fromAccount;
         }
+        return Optional.ofNullable(hotAccounts.sweep(accountId))
+                .orElseThrow(() -> new NoSuchAccountException(accountId));
+    }
+
+    private static TransferOutcome noSuchAccount(long accountId, boolean throwRejections) {
+        if (throwRejections) {
+            throw new NoSuchAccountException(accountId);
+        }
+        return TransferOutcome.NO_SUCH_ACCOUNT;
+    }
 
-        accountManager.transfer(fromAccount, toAccount, amount);
+    private static TransferOutcome limitExceeded(Account fromAccount, BigDecimal amount, boolean throwRejections) {
+        if (throwRejections) {
+            throw new LimitExceededException(fromAccount.getId(), amount, fromAccount.getAmount());
+        }
+        return TransferOutcome.LIMIT_EXCEEDED;
+    }
+
+    private Account selectAccount(long accountId) {
+        return Optional.ofNullable(accountDao.select(accountId))
+                .orElseThrow(() -> new NoSuchAccountException(accountId));
     }
 }
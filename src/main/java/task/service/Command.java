@@ -0,0 +1,105 @@
+package task.service;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Action submitted by a request thread to an engine thread. The result of the action is delivered through
+ * {@link #getFuture()}, so the request thread can either wait for it by {@link #await()} or continue asynchronously.
+ *
+ * @param <T> type of the result
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+final class Command<T> implements Runnable {
+
+    private final Callable<T> action;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    Command(Callable<T> action) {
+        this.action = action;
+    }
+
+    private T result;
+    private Throwable failure;
+
+    /**
+     * Execute the action unless the command is cancelled.
+     */
+    @Override
+    public void run() {
+        execute();
+        complete();
+    }
+
+    /**
+     * Execute the action unless the command is cancelled, but don't deliver the result until {@link #complete()}.
+     * Must be called by the engine thread only.
+     */
+    void execute() {
+        if (future.isDone()) {
+            return;
+        }
+        try {
+            result = action.call();
+        } catch (Throwable e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Replace the result of the executed action with {@code failure} unless the action failed by itself. Must be
+     * called by the engine thread only.
+     *
+     * @param failure reason why the result of the action can't be delivered
+     */
+    void failIfSucceeded(Throwable failure) {
+        if (this.failure == null) {
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Deliver the result of the executed action. Must be called by the engine thread only.
+     */
+    void complete() {
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(result);
+        }
+    }
+
+    /**
+     * Cancel the command if it is not executed yet.
+     */
+    void cancel() {
+        future.cancel(false);
+    }
+
+    CompletableFuture<T> getFuture() {
+        return future;
+    }
+
+    /**
+     * Wait for the result of the action.
+     *
+     * @return result of the action
+     * @throws java.util.concurrent.CancellationException if the command is cancelled
+     * @throws RuntimeException                           thrown by the action
+     * @throws IllegalStateException                      if the action throws checked exception
+     */
+    T await() {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package task.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Helpers for {@link CompletableFuture} missing in Java 8.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+final class CompletableFutures {
+
+    private CompletableFutures() {
+    }
+
+    /**
+     * Create future completed exceptionally with {@code exception}.
+     *
+     * @param exception exception to complete the future with
+     * @param <T>       type of the future result
+     * @return failed future
+     */
+    static <T> CompletableFuture<T> failed(Throwable exception) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(exception);
+        return future;
+    }
+}
@@ -0,0 +1,42 @@
+package task.service;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Executor that runs at most {@code maxConcurrency} tasks at once by {@code delegate}. Excess tasks are started but
+ * wait for a permit before running.
+ * <p>
+ * Meant for virtual threads: they are cheap to start and park on the {@link Semaphore} without pinning their carrier
+ * threads, while the bound keeps them from piling up in {@code synchronized} waits of the JDBC pool, which would pin
+ * the carriers.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class ConcurrencyLimitingExecutor implements Executor {
+
+    private final Executor delegate;
+    private final Semaphore permits;
+
+    public ConcurrencyLimitingExecutor(Executor delegate, int maxConcurrency) {
+        checkArgument(maxConcurrency > 0, "maxConcurrency is not positive: %s", maxConcurrency);
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                command.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+}
@@ -0,0 +1,112 @@
+package task.service;
+
+import task.dao.AccountDao;
+import task.exception.NoSuchAccountException;
+import task.manager.AccountManager;
+import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static task.service.TransferPreconditions.checkTransfer;
+import static task.service.TransferPreconditions.checkTransfers;
+
+/**
+ * Lock-free implementation of {@link AccountService}. A transfer is two conditional relative updates in one
+ * transaction (see {@link AccountManager#transfer(long, long, BigDecimal)}), so concurrent transfers are serialized
+ * by the database only. Unlike {@link AccountServiceImpl} it stays correct when several service instances share one
+ * database.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class ConditionalAccountService implements AccountService {
+
+    private final AccountManager accountManager;
+    private final AccountDao accountDao;
+
+    @Inject
+    public ConditionalAccountService(AccountManager accountManager, AccountDao accountDao) {
+        this.accountManager = accountManager;
+        this.accountDao = accountDao;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account create(@Nullable BigDecimal amount) {
+        final Account account = new Account().setAmount(Optional.ofNullable(amount).orElse(BigDecimal.ZERO));
+        accountDao.insert(account);
+        return account;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> createAll(List<BigDecimal> amounts) {
+        return accountManager.createAll(amounts);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account getAccount(long accountId) {
+        return Optional.ofNullable(accountDao.select(accountId))
+                .orElseThrow(() -> new NoSuchAccountException(accountId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> getAccounts(Collection<Long> accountIds) {
+        return accountIds.isEmpty() ? Collections.emptyList() : accountDao.selectAll(accountIds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        accountDao.selectEach(context -> action.accept(context.getResultObject()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void transfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        checkTransfer(fromAccountId, toAccountId, amount);
+        accountManager.transfer(fromAccountId, toAccountId, amount);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TransferOutcome tryTransfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        checkTransfer(fromAccountId, toAccountId, amount);
+        return accountManager.tryTransfer(fromAccountId, toAccountId, amount);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TransferOutcome> transferAll(List<Transfer> transfers) {
+        checkTransfers(transfers);
+        return accountManager.transferAll(transfers);
+    }
+}
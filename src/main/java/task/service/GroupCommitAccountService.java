@@ -0,0 +1,268 @@
+package task.service;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.dropwizard.lifecycle.Managed;
+import task.config.GroupCommitConfiguration;
+import task.dao.AccountDao;
+import task.exception.NoSuchAccountException;
+import task.manager.AccountManager;
+import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static task.service.TransferPreconditions.checkTransfer;
+import static task.service.TransferPreconditions.checkTransfers;
+
+/**
+ * Group-commit implementation of {@link AccountService}. Transfers of concurrent requests are put to a queue, and one
+ * committer thread applies up to {@code maxGroupSize} of them in one transaction by relative updates (see
+ * {@link AccountManager#transferEach(List)}), so a commit is paid once per group rather than once per transfer.
+ * A group is committed as soon as it is full or {@code maxDelayMicros} after its first transfer was taken, whichever
+ * comes first; under load the transfers queued while the previous group was committed make the next group at once.
+ * <p>
+ * Every transfer still gets its own result: a failed transfer is compensated inside the transaction and its caller
+ * gets the exception, while the other transfers of the group are committed. Only a failure of the transaction itself
+ * fails the whole group. Like {@link ConditionalAccountService} the balance check is done by the database.
+ * <p>
+ * The service must be started by {@link #start()} before use.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class GroupCommitAccountService implements AccountService, Managed {
+
+    private final AccountManager accountManager;
+    private final AccountDao accountDao;
+    private final int maxGroupSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<PendingTransfer> queue;
+
+    private volatile Thread committer;
+
+    @Inject
+    public GroupCommitAccountService(AccountManager accountManager, AccountDao accountDao,
+                                     GroupCommitConfiguration configuration) {
+        this.accountManager = accountManager;
+        this.accountDao = accountDao;
+        this.maxGroupSize = configuration.getMaxGroupSize();
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(configuration.getMaxDelayMicros());
+        this.queue = new ArrayBlockingQueue<>(configuration.getQueueCapacity());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (committer != null) {
+            throw new IllegalStateException("committer is already started");
+        }
+        committer = new Thread(this::runCommitter, "group-committer");
+        committer.start();
+    }
+
+    @Override
+    public synchronized void stop() throws InterruptedException {
+        final Thread thread = committer;
+        if (thread == null) {
+            return;
+        }
+        committer = null;
+        thread.interrupt();
+        thread.join();
+
+        final List<PendingTransfer> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (PendingTransfer transfer : pending) {
+            transfer.future.cancel(false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account create(@Nullable BigDecimal amount) {
+        final Account account = new Account().setAmount(Optional.ofNullable(amount).orElse(BigDecimal.ZERO));
+        accountDao.insert(account);
+        return account;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> createAll(List<BigDecimal> amounts) {
+        return accountManager.createAll(amounts);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account getAccount(long accountId) {
+        return Optional.ofNullable(accountDao.select(accountId))
+                .orElseThrow(() -> new NoSuchAccountException(accountId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> getAccounts(Collection<Long> accountIds) {
+        return accountIds.isEmpty() ? Collections.emptyList() : accountDao.selectAll(accountIds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        accountDao.selectEach(context -> action.accept(context.getResultObject()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void transfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        checkTransfer(fromAccountId, toAccountId, amount);
+        try {
+            Uninterruptibles.getUninterruptibly(submit(new Transfer(fromAccountId, toAccountId, amount)));
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The calling thread only puts the transfer to the queue, it waits only when the queue is full.
+     */
+    @Override
+    public CompletionStage<Void> transferAsync(long fromAccountId, long toAccountId, BigDecimal amount) {
+        try {
+            checkTransfer(fromAccountId, toAccountId, amount);
+            return submit(new Transfer(fromAccountId, toAccountId, amount));
+        } catch (RuntimeException e) {
+            return CompletableFutures.failed(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The batch is already one transaction, so it is applied by the calling thread.
+     */
+    @Override
+    public List<TransferOutcome> transferAll(List<Transfer> transfers) {
+        checkTransfers(transfers);
+        return accountManager.transferAll(transfers);
+    }
+
+    private CompletableFuture<Void> submit(Transfer transfer) {
+        if (committer == null) {
+            throw new IllegalStateException("committer is not started");
+        }
+        final PendingTransfer pending = new PendingTransfer(transfer);
+        Uninterruptibles.putUninterruptibly(queue, pending);
+        // the committer may have been stopped and the queue drained before the transfer was put, then nobody would
+        // complete it
+        if (committer == null && queue.remove(pending)) {
+            throw new IllegalStateException("committer is stopped");
+        }
+        return pending.future;
+    }
+
+    private void runCommitter() {
+        final List<PendingTransfer> group = new ArrayList<>(maxGroupSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(group, maxGroupSize - group.size());
+            if (maxDelayNanos > 0) {
+                awaitGroup(group);
+            }
+            commit(group);
+            group.clear();
+        }
+    }
+
+    // keeps the interrupt status, so the committer exits after the group is committed
+    private void awaitGroup(List<PendingTransfer> group) {
+        final long deadline = System.nanoTime() + maxDelayNanos;
+        while (group.size() < maxGroupSize) {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            final PendingTransfer next;
+            try {
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+            queue.drainTo(group, maxGroupSize - group.size());
+        }
+    }
+
+    private void commit(List<PendingTransfer> group) {
+        final List<Transfer> transfers = new ArrayList<>(group.size());
+        for (PendingTransfer pending : group) {
+            transfers.add(pending.transfer);
+        }
+        final List<RuntimeException> failures;
+        try {
+            failures = accountManager.transferEach(transfers);
+        } catch (RuntimeException e) {
+            // the transaction is rolled back, so none of the transfers is applied
+            for (PendingTransfer pending : group) {
+                pending.future.completeExceptionally(e);
+            }
+            return;
+        }
+        // results are delivered only after the commit
+        for (int i = 0; i < group.size(); i++) {
+            final RuntimeException failure = failures.get(i);
+            if (failure == null) {
+                group.get(i).future.complete(null);
+            } else {
+                group.get(i).future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static final class PendingTransfer {
+
+        private final Transfer transfer;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingTransfer(Transfer transfer) {
+            this.transfer = transfer;
+        }
+    }
+}
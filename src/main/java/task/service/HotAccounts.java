@@ -0,0 +1,116 @@
+package task.service;
+
+import com.google.common.collect.ImmutableSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import task.config.HotAccountsConfiguration;
+import task.dao.AccountSlotDao;
+import task.manager.HotAccountManager;
+import task.model.Account;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Designated hot accounts whose balance is split into sub-balance slots, used by {@link AccountServiceImpl}.
+ * <p>
+ * A deposit to a hot account is a relative update of a random slot, so it takes neither the lock of the account nor
+ * its {@code ACCOUNT} row, and concurrent deposits contend only when they hit the same slot. A withdrawal takes the
+ * lock of the account as usual and uses its {@code ACCOUNT} row; when the row is short of money, the slots are swept
+ * into it first. Reads add the slots to the row by one query.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class HotAccounts {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HotAccounts.class);
+
+    private static final HotAccounts NONE = new HotAccounts(ImmutableSet.of(), 1, null, null);
+
+    private final Set<Long> accountIds;
+    private final int slots;
+    private final HotAccountManager hotAccountManager;
+    private final AccountSlotDao accountSlotDao;
+
+    @Inject
+    public HotAccounts(HotAccountsConfiguration configuration, HotAccountManager hotAccountManager,
+                       AccountSlotDao accountSlotDao) {
+        this(ImmutableSet.copyOf(configuration.getAccountIds()), configuration.getSlots(), hotAccountManager,
+                accountSlotDao);
+    }
+
+    private HotAccounts(Set<Long> accountIds, int slots, HotAccountManager hotAccountManager,
+                        AccountSlotDao accountSlotDao) {
+        this.accountIds = accountIds;
+        this.slots = slots;
+        this.hotAccountManager = hotAccountManager;
+        this.accountSlotDao = accountSlotDao;
+    }
+
+    /**
+     * Get hot accounts of no account.
+     *
+     * @return empty hot accounts
+     */
+    public static HotAccounts none() {
+        return NONE;
+    }
+
+    /**
+     * Create missing slots of all hot accounts, must be called before the accounts are used.
+     */
+    public void createSlots() {
+        for (long accountId : accountIds) {
+            if (!hotAccountManager.createSlots(accountId, slots)) {
+                LOGGER.warn("Hot account {} doesn't exist, deposits to it will fail", accountId);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return accountIds.isEmpty();
+    }
+
+    public boolean contains(long accountId) {
+        return accountIds.contains(accountId);
+    }
+
+    /**
+     * Get balance of the hot account including its slots.
+     *
+     * @param accountId hot account id
+     * @return balance or {@code null} if the account doesn't exist
+     */
+    @Nullable
+    public BigDecimal getBalance(long accountId) {
+        return accountSlotDao.selectBalance(accountId);
+    }
+
+    /**
+     * Transfer money from {@code fromAccount} to a random slot of the hot account, see
+     * {@link HotAccountManager#transferToSlot}.
+     *
+     * @param fromAccount source account guarded by the caller
+     * @param toAccountId destination hot account id
+     * @param amount      money to transfer
+     */
+    public void deposit(Account fromAccount, long toAccountId, BigDecimal amount) {
+        hotAccountManager.transferToSlot(fromAccount, toAccountId, ThreadLocalRandom.current().nextInt(slots), amount);
+    }
+
+    /**
+     * Move money of the slots of the hot account to its {@code ACCOUNT} row, see {@link HotAccountManager#sweep}.
+     *
+     * @param accountId hot account id guarded by the caller
+     * @return account with its whole balance or {@code null} if the account doesn't exist
+     */
+    @Nullable
+    public Account sweep(long accountId) {
+        return hotAccountManager.sweep(accountId);
+    }
+}
@@ -0,0 +1,209 @@
+package task.service;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.math.IntMath;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Bounded, time-expiring map of non-zero {@code long} keys to values, used to remember recently seen idempotency keys.
+ * <p>
+ * Keys are kept in two generations of open-addressing hash tables with primitive keys, each table is allocated for
+ * {@code maxKeys} keys at load factor of at most one half, so a lookup costs a couple of probes regardless of the
+ * number of keys. New keys are put to the current generation; when it is older than {@code ttl} or holds
+ * {@code maxKeys} keys it becomes the previous generation and the former previous generation is dropped at once.
+ * So a key is remembered for at least {@code ttl} and at most twice as long, unless more than {@code maxKeys} keys
+ * arrive within {@code ttl}, and the memory is bounded by two tables.
+ * <p>
+ * {@link #get(long)} takes no locks. {@link #putIfAbsent(long, Object)} takes the shared side of a lock which is
+ * taken exclusively only to switch generations, so a key can't be put to both generations.
+ *
+ * @param <V> type of values
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class IdempotencyStore<V> {
+
+    private static final long EMPTY = 0;
+
+    private final int maxKeys;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+    private final StampedLock generationLock = new StampedLock();
+
+    private volatile Generation<V> current;
+    @Nullable
+    private volatile Generation<V> previous;
+
+    public IdempotencyStore(int maxKeys, long ttl, TimeUnit unit) {
+        this(maxKeys, ttl, unit, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    IdempotencyStore(int maxKeys, long ttl, TimeUnit unit, LongSupplier nanoTime) {
+        checkArgument(maxKeys > 0 && maxKeys <= 1 << 29, "maxKeys must be in range [1, 2^29]: %s", maxKeys);
+        this.maxKeys = maxKeys;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.nanoTime = nanoTime;
+        this.current = new Generation<>(maxKeys, nanoTime.getAsLong());
+    }
+
+    /**
+     * Get value of the key.
+     *
+     * @param key non-zero key
+     * @return value or {@code null} if the key is not known or has expired
+     */
+    @Nullable
+    public V get(long key) {
+        checkKey(key);
+        final V value = current.get(key);
+        if (value != null) {
+            return value;
+        }
+        final Generation<V> generation = previous;
+        return generation == null ? null : generation.get(key);
+    }
+
+    /**
+     * Put the value unless the key is already known.
+     *
+     * @param key   non-zero key
+     * @param value value
+     * @return value of the known key or {@code null} if the value is put
+     */
+    @Nullable
+    public V putIfAbsent(long key, V value) {
+        checkKey(key);
+        while (true) {
+            final Generation<V> generation;
+            final long stamp = generationLock.readLock();
+            try {
+                generation = current;
+                if (!isRetired(generation)) {
+                    final Generation<V> previousGeneration = previous;
+                    final V previousValue = previousGeneration == null ? null : previousGeneration.get(key);
+                    if (previousValue != null) {
+                        return previousValue;
+                    }
+                    final V currentValue = generation.putIfAbsent(key, value);
+                    if (currentValue != Generation.FULL) {
+                        return currentValue;
+                    }
+                }
+            } finally {
+                generationLock.unlockRead(stamp);
+            }
+            rotate(generation);
+        }
+    }
+
+    private boolean isRetired(Generation<V> generation) {
+        return generation.size() >= maxKeys || nanoTime.getAsLong() - generation.createdNanos >= ttlNanos;
+    }
+
+    private void rotate(Generation<V> expected) {
+        final long stamp = generationLock.writeLock();
+        try {
+            if (current == expected) {
+                previous = expected;
+                current = new Generation<>(maxKeys, nanoTime.getAsLong());
+            }
+        } finally {
+            generationLock.unlockWrite(stamp);
+        }
+    }
+
+    private static void checkKey(long key) {
+        checkArgument(key != EMPTY, "key must not be zero");
+    }
+
+    private static final class Generation<V> {
+
+        // returned by putIfAbsent when there is no free slot, never stored
+        private static final Object FULL = new Object();
+
+        private final long createdNanos;
+        private final int shift;
+        private final int mask;
+        private final AtomicLongArray keys;
+        private final AtomicReferenceArray<V> values;
+        private final AtomicInteger size = new AtomicInteger();
+
+        private Generation(int maxKeys, long createdNanos) {
+            final int capacity = IntMath.ceilingPowerOfTwo(2 * maxKeys);
+            this.createdNanos = createdNanos;
+            this.shift = Long.SIZE - IntMath.log2(capacity, RoundingMode.UNNECESSARY);
+            this.mask = capacity - 1;
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicReferenceArray<>(capacity);
+        }
+
+        private int size() {
+            return size.get();
+        }
+
+        @Nullable
+        private V get(long key) {
+            int index = index(key);
+            for (int probe = 0; probe <= mask; probe++) {
+                final long slotKey = keys.get(index);
+                if (slotKey == key) {
+                    return awaitValue(index);
+                }
+                if (slotKey == EMPTY) {
+                    return null;
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Nullable
+        private V putIfAbsent(long key, V value) {
+            int index = index(key);
+            for (int probe = 0; probe <= mask; probe++) {
+                final long slotKey = keys.get(index);
+                if (slotKey == EMPTY) {
+                    if (keys.compareAndSet(index, EMPTY, key)) {
+                        values.set(index, value);
+                        size.incrementAndGet();
+                        return null;
+                    }
+                    // the slot is taken by a concurrent put, maybe of the same key
+                    continue;
+                }
+                if (slotKey == key) {
+                    return awaitValue(index);
+                }
+                index = (index + 1) & mask;
+            }
+            return (V) FULL;
+        }
+
+        // the value is set right after the key is claimed
+        private V awaitValue(int index) {
+            V value;
+            while ((value = values.get(index)) == null) {
+                Thread.yield();
+            }
+            return value;
+        }
+
+        // Fibonacci hashing spreads sequential keys over the table
+        private int index(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package task.service;
+
+import com.google.common.annotations.VisibleForTesting;
+import task.config.IdempotencyConfiguration;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.exception.OutcomeUnknownException;
+import task.exception.TransferInProgressException;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Transfers of {@link AccountService} deduplicated by request ids chosen by clients, so a transfer retried after
+ * a timeout is not applied twice. The outcome of every transfer is remembered in the {@link IdempotencyStore} by its
+ * request id, and a retry is answered from the store without calling the service, i.e. without locks or database
+ * access: it succeeds if the transfer succeeded and throws the same exception if the transfer failed, see below.
+ * <p>
+ * A retry of a transfer still in progress gets {@link TransferInProgressException}, and a request id of another
+ * transfer gets {@link IllegalArgumentException}. A transfer known to be not applied, i.e. cancelled or rejected by
+ * an executor before it started, is forgotten, so it can be retried with the same request id. Any other failure,
+ * e.g. {@link OutcomeUnknownException} or a database error which may have happened after the commit, may have applied
+ * the transfer, so a retry gets the same exception instead of applying the transfer again.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class IdempotentTransfers {
+
+    private final AccountService accountService;
+    private final IdempotencyStore<Attempt> store;
+
+    @Inject
+    public IdempotentTransfers(AccountService accountService, IdempotencyConfiguration configuration) {
+        this(accountService, new IdempotencyStore<>(
+                configuration.getMaxKeys(), configuration.getTtlSeconds(), TimeUnit.SECONDS));
+    }
+
+    @VisibleForTesting
+    IdempotentTransfers(AccountService accountService, IdempotencyStore<Attempt> store) {
+        this.accountService = accountService;
+        this.store = store;
+    }
+
+    /**
+     * Transfer money unless the transfer with the same request id is already done, see
+     * {@link AccountService#transfer}.
+     *
+     * @param requestId     positive id of the transfer chosen by the client
+     * @param fromAccountId source account id
+     * @param toAccountId   destination account id
+     * @param amount        amount of money to transfer
+     * @throws TransferInProgressException if the transfer with the request id is still in progress
+     * @throws IllegalArgumentException    if the request id is used by another transfer
+     */
+    public void transfer(long requestId, long fromAccountId, long toAccountId, BigDecimal amount) {
+        final Transfer transfer = new Transfer(fromAccountId, toAccountId, amount);
+        final Attempt attempt = begin(requestId, transfer);
+        if (attempt == null) {
+            return;
+        }
+        try {
+            accountService.transfer(fromAccountId, toAccountId, amount);
+        } catch (RuntimeException e) {
+            attempt.complete(e);
+            throw e;
+        }
+        attempt.complete(null);
+    }
+
+    /**
+     * Transfer money unless the transfer with the same request id is already done, like {@link #transfer}, but return
+     * the outcome of a rejected transfer instead of throwing its exception, see {@link AccountService#tryTransfer}.
+     *
+     * @param requestId     positive id of the transfer chosen by the client
+     * @param fromAccountId source account id
+     * @param toAccountId   destination account id
+     * @param amount        amount of money to transfer
+     * @return {@link TransferOutcome#OK} if the transfer is done now or was done before, or the reason of rejection
+     * @throws TransferInProgressException if the transfer with the request id is still in progress
+     * @throws IllegalArgumentException    if the request id is used by another transfer
+     */
+    public TransferOutcome tryTransfer(long requestId, long fromAccountId, long toAccountId, BigDecimal amount) {
+        // the outcome of a rejected transfer is remembered as its exception, so that retries of transferAsync get it
+        try {
+            transfer(requestId, fromAccountId, toAccountId, amount);
+            return TransferOutcome.OK;
+        } catch (NoSuchAccountException e) {
+            return TransferOutcome.NO_SUCH_ACCOUNT;
+        } catch (LimitExceededException e) {
+            return TransferOutcome.LIMIT_EXCEEDED;
+        }
+    }
+
+    /**
+     * Transfer money asynchronously unless the transfer with the same request id is already done, see
+     * {@link AccountService#transferAsync}.
+     *
+     * @param requestId     positive id of the transfer chosen by the client
+     * @param fromAccountId source account id
+     * @param toAccountId   destination account id
+     * @param amount        amount of money to transfer
+     * @return stage completed when the transfer is done, or completed exceptionally like {@link #transfer}
+     */
+    public CompletionStage<Void> transferAsync(long requestId, long fromAccountId, long toAccountId,
+                                               BigDecimal amount) {
+        final Attempt attempt;
+        try {
+            attempt = begin(requestId, new Transfer(fromAccountId, toAccountId, amount));
+        } catch (RuntimeException e) {
+            return CompletableFutures.failed(e);
+        }
+        if (attempt == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final CompletionStage<Void> result;
+        try {
+            result = accountService.transferAsync(fromAccountId, toAccountId, amount);
+        } catch (RuntimeException e) {
+            attempt.complete(e);
+            return CompletableFutures.failed(e);
+        }
+        return result.whenComplete((ignored, failure) -> attempt.complete(
+                failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure));
+    }
+
+    /**
+     * Transfer money asynchronously unless the transfer with the same request id is already done, like
+     * {@link #transferAsync}, but complete the stage with the outcome of a rejected transfer instead of its exception,
+     * see {@link AccountService#tryTransferAsync}.
+     *
+     * @param requestId     positive id of the transfer chosen by the client
+     * @param fromAccountId source account id
+     * @param toAccountId   destination account id
+     * @param amount        amount of money to transfer
+     * @return stage completed with the outcome of the transfer, or completed exceptionally like {@link #transfer}
+     */
+    public CompletionStage<TransferOutcome> tryTransferAsync(long requestId, long fromAccountId, long toAccountId,
+                                                             BigDecimal amount) {
+        return TransferOutcomes.of(transferAsync(requestId, fromAccountId, toAccountId, amount));
+    }
+
+    /**
+     * Find the outcome of the transfer with the request id or register a new attempt of it.
+     *
+     * @return attempt to complete by the caller or {@code null} if the transfer is already done
+     * @throws RuntimeException exception of the failed transfer or of a conflicting retry
+     */
+    @Nullable
+    private Attempt begin(long requestId, Transfer transfer) {
+        if (requestId <= 0) {
+            throw new IllegalArgumentException("requestId must be positive: " + requestId);
+        }
+        final Attempt attempt = new Attempt(transfer);
+        while (true) {
+            Attempt known = store.get(requestId);
+            if (known == null) {
+                known = store.putIfAbsent(requestId, attempt);
+                if (known == null) {
+                    return attempt;
+                }
+            }
+            if (!known.isSameTransfer(transfer)) {
+                throw new IllegalArgumentException("requestId " + requestId + " is used by another transfer");
+            }
+            final Object result = known.result;
+            if (result == Attempt.DONE) {
+                return null;
+            } else if (result == Attempt.IN_PROGRESS) {
+                throw new TransferInProgressException(requestId);
+            } else if (result instanceof RuntimeException) {
+                throw (RuntimeException) result;
+            } else if (known.retry()) {
+                return known;
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static final class Attempt {
+
+        private static final Object IN_PROGRESS = new Object();
+        private static final Object DONE = new Object();
+        private static final Object FORGOTTEN = new Object();
+
+        private static final AtomicReferenceFieldUpdater<Attempt, Object> RESULT =
+                AtomicReferenceFieldUpdater.newUpdater(Attempt.class, Object.class, "result");
+
+        private final Transfer transfer;
+
+        // IN_PROGRESS, DONE, FORGOTTEN or exception of the rejected or possibly applied transfer
+        private volatile Object result = IN_PROGRESS;
+
+        private Attempt(Transfer transfer) {
+            this.transfer = transfer;
+        }
+
+        private boolean isSameTransfer(Transfer other) {
+            return transfer.getFromAccountId() == other.getFromAccountId()
+                    && transfer.getToAccountId() == other.getToAccountId()
+                    && transfer.getAmount().compareTo(other.getAmount()) == 0;
+        }
+
+        private boolean retry() {
+            return RESULT.compareAndSet(this, FORGOTTEN, IN_PROGRESS);
+        }
+
+        private void complete(@Nullable Throwable failure) {
+            if (failure == null) {
+                result = DONE;
+            } else if (failure instanceof CancellationException || failure instanceof RejectedExecutionException) {
+                // the transfer never started, so it may be tried again
+                result = FORGOTTEN;
+            } else {
+                // either nothing is transferred for sure (rejection) or the transfer may have been applied, in both
+                // cases a retry gets the same answer
+                result = failure instanceof RuntimeException
+                        ? failure : new OutcomeUnknownException("transfer failed", failure);
+            }
+        }
+    }
+}
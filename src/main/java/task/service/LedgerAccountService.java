@@ -0,0 +1,555 @@
+package task.service;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import task.config.JournalConfiguration;
+import task.config.LedgerConfiguration;
+import task.dao.AccountDao;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.exception.OutcomeUnknownException;
+import task.journal.BalanceSnapshot;
+import task.journal.TransferJournal;
+import task.manager.AccountManager;
+import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static task.service.TransferPreconditions.checkTransfer;
+import static task.service.TransferPreconditions.checkTransfers;
+
+/**
+ * Single-writer implementation of {@link AccountService}. Account balances are kept in memory and every modification
+ * is applied by one sequencer thread that takes commands from a bounded ring buffer. Request threads put commands to
+ * the ring buffer and wait for their results, or continue asynchronously in case of
+ * {@link #transferAsync(long, long, BigDecimal)}.
+ * <p>
+ * Since the sequencer is the only writer of both the in-memory balances and the database, a transfer needs neither
+ * account locks nor selects: it is checked against the in-memory balances and written through to the database by
+ * {@link AccountManager#transfer}. Balances are loaded from the database lazily when an account is touched by the
+ * sequencer for the first time. Note that without the journal every transfer is still one database transaction
+ * committed by the sequencer, so the throughput of the ledger is bound by the latency of a commit.
+ * <p>
+ * When the {@link TransferJournal} is enabled, transfers are appended to the journal instead of being written to the
+ * database. The sequencer appends the transfers of all commands it has drained, syncs the journal once and only then
+ * completes the commands, so the cost of a flush is shared by the whole batch. Balances changed by a transfer may be
+ * read before its journal record is durable, but the transfer is acknowledged only after that. New accounts are
+ * journaled too, as deposits from {@link TransferJournal#EXTERNAL_ACCOUNT_ID}.
+ * <p>
+ * Every {@code snapshotInterval} journal records the sequencer copies all balances into a {@link BalanceSnapshot}
+ * that is written to the journal directory by a background thread, and one more snapshot is written when the ledger
+ * is stopped. On start the ledger restores balances from the latest snapshot and replays only the journal records
+ * after it, so it serves recovered balances without touching the database; accounts missing in both are still
+ * loaded from the database. After a snapshot is written, journal segments covered by the oldest kept snapshot are
+ * deleted, so the journal doesn't grow without limit.
+ * <p>
+ * A failure to sync the journal stops the ledger: the balances and the journal already contain the transfers of the
+ * batch, but they may not survive a crash. Commands of the batch fail with {@link OutcomeUnknownException}, the
+ * ledger rejects all later commands and {@link #getFailure()} reports the failure until the service is restarted and
+ * recovers from the journal.
+ * <p>
+ * The service must be started by {@link #start()} before use.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class LedgerAccountService implements AccountService, Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LedgerAccountService.class);
+
+    private final AccountManager accountManager;
+    private final AccountDao accountDao;
+    private final JournalConfiguration journalConfiguration;
+    private final BlockingQueue<Command<?>> ringBuffer;
+
+    // Balances are written by the sequencer thread only. BigDecimal is immutable, so readers can use values directly.
+    private final ConcurrentMap<Long, BigDecimal> balancesByAccountId = new ConcurrentHashMap<>();
+
+    private volatile Thread sequencer;
+
+    // opened before the sequencer is started and closed after it is stopped, null when the journal is disabled
+    @Nullable
+    private volatile TransferJournal journal;
+
+    // writes snapshots taken by the sequencer, null when the journal is disabled
+    @Nullable
+    private ExecutorService snapshotWriter;
+    // sequence of the latest snapshot taken, written by the sequencer thread only when it is started
+    private long snapshotSequence;
+    private volatile boolean snapshotInProgress;
+
+    // set by the sequencer when the journal fails, then the ledger is stopped for good
+    @Nullable
+    private volatile Throwable failure;
+
+    @Inject
+    public LedgerAccountService(AccountManager accountManager, AccountDao accountDao, LedgerConfiguration configuration) {
+        this.accountManager = accountManager;
+        this.accountDao = accountDao;
+        this.journalConfiguration = configuration.getJournal();
+        this.ringBuffer = new ArrayBlockingQueue<>(configuration.getRingBufferSize());
+    }
+
+    @Override
+    public synchronized void start() throws IOException {
+        if (sequencer != null) {
+            throw new IllegalStateException("ledger is already started");
+        }
+        failure = null;
+        if (journalConfiguration.isEnabled()) {
+            final Path directory = Paths.get(journalConfiguration.getDirectory());
+            final long sequence = recover(directory);
+            final TransferJournal openJournal = openJournal(directory);
+            openJournal.advanceTo(sequence);
+            journal = openJournal;
+            snapshotWriter = Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("ledger-snapshot").setDaemon(true).build());
+        }
+        sequencer = new Thread(this::runSequencer, "ledger-sequencer");
+        sequencer.start();
+    }
+
+    @Override
+    public synchronized void stop() throws InterruptedException, IOException {
+        final Thread thread = sequencer;
+        if (thread == null) {
+            return;
+        }
+        sequencer = null;
+        thread.interrupt();
+        thread.join();
+
+        final List<Command<?>> pending = new ArrayList<>();
+        ringBuffer.drainTo(pending);
+        for (Command<?> command : pending) {
+            command.cancel();
+        }
+
+        final TransferJournal openJournal = journal;
+        if (openJournal != null) {
+            journal = null;
+            snapshotWriter.shutdown();
+            snapshotWriter.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            snapshotWriter = null;
+            // the journal is forced on close, so the snapshot is never ahead of it unless the journal failed
+            openJournal.close();
+            if (failure == null && openJournal.getLastSequence() > snapshotSequence) {
+                final Path directory = Paths.get(journalConfiguration.getDirectory());
+                BalanceSnapshot.copyOf(openJournal.getLastSequence(), balancesByAccountId).write(directory);
+                deleteCoveredSegments(directory);
+            }
+        }
+    }
+
+    /**
+     * Open the journal in {@code directory}.
+     *
+     * @param directory journal directory
+     * @return opened journal
+     * @throws IOException if the journal can't be opened
+     */
+    TransferJournal openJournal(Path directory) throws IOException {
+        return TransferJournal.open(directory, journalConfiguration.getSegmentSize(),
+                journalConfiguration.getDurability());
+    }
+
+    /**
+     * Get the failure of the journal which stopped the ledger.
+     *
+     * @return failure or {@code null} if the ledger is operational
+     */
+    @Nullable
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Restore balances from the latest snapshot and the journal records after it, and move the account id sequence
+     * of the database past the restored accounts.
+     *
+     * @return sequence of the last applied journal record
+     */
+    private long recover(Path directory) throws IOException {
+        balancesByAccountId.clear();
+        final Optional<BalanceSnapshot> snapshot = BalanceSnapshot.readLatest(directory);
+        snapshot.ifPresent(balances -> balances.forEach(balancesByAccountId::put));
+        final long[] sequence = {snapshot.map(BalanceSnapshot::getSequence).orElse(0L)};
+        snapshotSequence = sequence[0];
+
+        // the sequencer is not started yet, so this thread is the only writer of balances
+        TransferJournal.read(directory, sequence[0] + 1, record -> {
+            replay(record.getTransfer());
+            sequence[0] = record.getSequence();
+        });
+
+        final long maxAccountId = balancesByAccountId.keySet().stream().mapToLong(Long::longValue).max().orElse(0);
+        if (maxAccountId > accountDao.selectMaxId()) {
+            accountDao.restartSequence(maxAccountId + 1);
+        }
+        return sequence[0];
+    }
+
+    private void replay(Transfer transfer) {
+        if (transfer.getFromAccountId() == TransferJournal.EXTERNAL_ACCOUNT_ID) {
+            balancesByAccountId.put(transfer.getToAccountId(), transfer.getAmount());
+            return;
+        }
+        final Account fromAccount = load(transfer.getFromAccountId()).withdraw(transfer.getAmount());
+        final Account toAccount = load(transfer.getToAccountId()).deposit(transfer.getAmount());
+        balancesByAccountId.put(fromAccount.getId(), fromAccount.getAmount());
+        balancesByAccountId.put(toAccount.getId(), toAccount.getAmount());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account create(@Nullable BigDecimal amount) {
+        final Account account = new Account().setAmount(Optional.ofNullable(amount).orElse(BigDecimal.ZERO));
+        return execute(() -> {
+            accountDao.insert(account);
+            final TransferJournal journal = this.journal;
+            if (journal != null) {
+                journal.append(new Transfer(TransferJournal.EXTERNAL_ACCOUNT_ID, account.getId(), account.getAmount()));
+            }
+            balancesByAccountId.put(account.getId(), account.getAmount());
+            return account;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> createAll(List<BigDecimal> amounts) {
+        return execute(() -> {
+            final List<Account> accounts = accountManager.createAll(amounts);
+            final TransferJournal journal = this.journal;
+            for (Account account : accounts) {
+                if (journal != null) {
+                    journal.append(new Transfer(TransferJournal.EXTERNAL_ACCOUNT_ID, account.getId(), account.getAmount()));
+                }
+                balancesByAccountId.put(account.getId(), account.getAmount());
+            }
+            return accounts;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account getAccount(long accountId) {
+        final BigDecimal amount = balancesByAccountId.get(accountId);
+        if (amount != null) {
+            return new Account().setId(accountId).setAmount(amount);
+        }
+        return Optional.ofNullable(accountDao.select(accountId))
+                .orElseThrow(() -> new NoSuchAccountException(accountId));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Balances held by the ledger are served from memory, the other accounts are selected by one query.
+     */
+    @Override
+    public List<Account> getAccounts(Collection<Long> accountIds) {
+        final List<Account> accounts = new ArrayList<>(accountIds.size());
+        final Set<Long> untouchedIds = new HashSet<>();
+        for (long accountId : new HashSet<>(accountIds)) {
+            final BigDecimal amount = balancesByAccountId.get(accountId);
+            if (amount != null) {
+                accounts.add(new Account().setId(accountId).setAmount(amount));
+            } else {
+                untouchedIds.add(accountId);
+            }
+        }
+        if (!untouchedIds.isEmpty()) {
+            accounts.addAll(accountDao.selectAll(untouchedIds));
+        }
+        return accounts;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Amounts of accounts held by the ledger are taken from memory instead of the database. Accounts recovered from
+     * the snapshot or the journal may be missing in the database, so ids held by the ledger are merged into the
+     * database scan in order of ids; memory for the merge depends only on the number of accounts held by the ledger.
+     */
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        final PeekingIterator<Long> heldIds =
+                Iterators.peekingIterator(balancesByAccountId.keySet().stream().sorted().iterator());
+        accountDao.selectEach(context -> {
+            final Account account = context.getResultObject();
+            while (heldIds.hasNext() && heldIds.peek() <= account.getId()) {
+                final long heldId = heldIds.next();
+                if (heldId < account.getId()) {
+                    acceptHeldAccount(heldId, action);
+                }
+            }
+            final BigDecimal amount = balancesByAccountId.get(account.getId());
+            action.accept(amount == null ? account : account.setAmount(amount));
+        });
+        while (heldIds.hasNext()) {
+            acceptHeldAccount(heldIds.next(), action);
+        }
+    }
+
+    private void acceptHeldAccount(long accountId, Consumer<Account> action) {
+        final BigDecimal amount = balancesByAccountId.get(accountId);
+        if (amount != null) {
+            action.accept(new Account().setId(accountId).setAmount(amount));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void transfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        checkTransfer(fromAccountId, toAccountId, amount);
+        execute(() -> {
+            transferInternal(fromAccountId, toAccountId, amount);
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TransferOutcome> transferAll(List<Transfer> transfers) {
+        checkTransfers(transfers);
+        return execute(() -> transferAllInternal(transfers));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The calling thread only puts the transfer to the ring buffer, it waits only when the ring buffer is full.
+     */
+    @Override
+    public CompletionStage<Void> transferAsync(long fromAccountId, long toAccountId, BigDecimal amount) {
+        try {
+            checkTransfer(fromAccountId, toAccountId, amount);
+            return this.<Void>submit(() -> {
+                transferInternal(fromAccountId, toAccountId, amount);
+                return null;
+            }).getFuture();
+        } catch (RuntimeException e) {
+            return CompletableFutures.failed(e);
+        }
+    }
+
+    private <T> T execute(Callable<T> action) {
+        return submit(action).await();
+    }
+
+    private <T> Command<T> submit(Callable<T> action) {
+        checkNotFailed();
+        if (sequencer == null) {
+            throw new IllegalStateException("ledger is not started");
+        }
+        final Command<T> command = new Command<>(action);
+        Uninterruptibles.putUninterruptibly(ringBuffer, command);
+        // the sequencer may have failed, or the ledger may have been stopped, and the ring buffer drained before the
+        // command was put, then nobody would run it
+        if (failure != null && ringBuffer.remove(command)) {
+            checkNotFailed();
+        }
+        if (sequencer == null && ringBuffer.remove(command)) {
+            throw new IllegalStateException("ledger is stopped");
+        }
+        return command;
+    }
+
+    private void checkNotFailed() {
+        final Throwable cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("ledger is stopped after a journal failure", cause);
+        }
+    }
+
+    private void runSequencer() {
+        final TransferJournal journal = this.journal;
+        final List<Command<?>> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(ringBuffer.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            ringBuffer.drainTo(batch);
+            if (journal == null) {
+                for (Command<?> command : batch) {
+                    command.run();
+                }
+            } else if (!runJournaled(journal, batch)) {
+                // commands put after the failure are rejected, they were never executed
+                batch.clear();
+                ringBuffer.drainTo(batch);
+                for (Command<?> command : batch) {
+                    command.cancel();
+                }
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * @return {@code false} if the journal failed and the ledger must stop
+     */
+    private boolean runJournaled(TransferJournal journal, List<Command<?>> batch) {
+        for (Command<?> command : batch) {
+            command.execute();
+        }
+        try {
+            journal.sync(journal.getLastSequence());
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to sync the journal, the ledger rejects all further commands", e);
+            failure = e;
+            // balances and the journal contain the transfers of the batch, but they may be lost by a crash
+            final OutcomeUnknownException unknown = new OutcomeUnknownException("journal sync failed", e);
+            for (Command<?> command : batch) {
+                command.failIfSucceeded(unknown);
+                command.complete();
+            }
+            return false;
+        }
+        for (Command<?> command : batch) {
+            command.complete();
+        }
+        takeSnapshotIfDue(journal.getLastSequence());
+        return true;
+    }
+
+    private void takeSnapshotIfDue(long sequence) {
+        final long interval = journalConfiguration.getSnapshotInterval();
+        if (interval == 0 || sequence - snapshotSequence < interval || snapshotInProgress) {
+            return;
+        }
+        // copying is the only part done by the sequencer, the copy is consistent with the journal up to sequence
+        final BalanceSnapshot snapshot = BalanceSnapshot.copyOf(sequence, balancesByAccountId);
+        snapshotSequence = sequence;
+        snapshotInProgress = true;
+        final Path directory = Paths.get(journalConfiguration.getDirectory());
+        snapshotWriter.execute(() -> {
+            try {
+                snapshot.write(directory);
+                deleteCoveredSegments(directory);
+            } catch (IOException e) {
+                // the journal is intact, so recovery just replays more records
+                LOGGER.warn("Failed to write snapshot of balances at sequence {}", sequence, e);
+            } finally {
+                snapshotInProgress = false;
+            }
+        });
+    }
+
+    // the previous snapshot is kept in case the latest one is damaged, so segments are deleted only up to it
+    private static void deleteCoveredSegments(Path directory) throws IOException {
+        TransferJournal.deleteSegments(directory, BalanceSnapshot.oldestSequence(directory));
+    }
+
+    // must be called by the sequencer thread only
+    private void transferInternal(long fromAccountId, long toAccountId, BigDecimal amount) {
+        final Account fromAccount = load(fromAccountId);
+        final Account toAccount = load(toAccountId);
+
+        if (!fromAccount.canWithdraw(amount)) {
+            throw new LimitExceededException(fromAccountId, amount, fromAccount.getAmount());
+        }
+
+        final TransferJournal journal = this.journal;
+        if (journal != null) {
+            journal.append(new Transfer(fromAccountId, toAccountId, amount));
+            fromAccount.withdraw(amount);
+            toAccount.deposit(amount);
+        } else {
+            accountManager.transfer(fromAccount, toAccount, amount);
+        }
+
+        // publish new balances only after the transaction is committed or the transfer is journaled
+        balancesByAccountId.put(fromAccountId, fromAccount.getAmount());
+        balancesByAccountId.put(toAccountId, toAccount.getAmount());
+    }
+
+    // must be called by the sequencer thread only
+    private List<TransferOutcome> transferAllInternal(List<Transfer> transfers) {
+        final TransferBatch batch = new TransferBatch(this::find, transfers.size());
+        for (Transfer transfer : transfers) {
+            batch.apply(transfer);
+        }
+
+        final List<TransferOutcome> outcomes = batch.getOutcomes();
+        final List<Account> updatedAccounts = batch.getUpdatedAccounts();
+        final TransferJournal journal = this.journal;
+        if (journal != null) {
+            for (int i = 0; i < transfers.size(); i++) {
+                if (outcomes.get(i) == TransferOutcome.OK) {
+                    journal.append(transfers.get(i));
+                }
+            }
+        } else if (!updatedAccounts.isEmpty()) {
+            accountManager.updateAll(updatedAccounts);
+        }
+        if (!updatedAccounts.isEmpty()) {
+            for (Account account : updatedAccounts) {
+                balancesByAccountId.put(account.getId(), account.getAmount());
+            }
+        }
+        return outcomes;
+    }
+
+    // must be called by the sequencer thread only
+    private Account load(long accountId) {
+        return Optional.ofNullable(find(accountId)).orElseThrow(() -> new NoSuchAccountException(accountId));
+    }
+
+    // must be called by the sequencer thread only
+    @Nullable
+    private Account find(long accountId) {
+        final BigDecimal amount = balancesByAccountId.get(accountId);
+        if (amount != null) {
+            return new Account().setId(accountId).setAmount(amount);
+        }
+        final Account account = accountDao.select(accountId);
+        if (account != null) {
+            balancesByAccountId.put(accountId, account.getAmount());
+        }
+        return account;
+    }
+}
@@ -0,0 +1,134 @@
+package task.service;
+
+import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Decorator of a blocking {@link AccountService} that executes {@link #transferAsync(long, long, BigDecimal)} by
+ * a dedicated executor, so the calling (request) thread neither waits for account locks nor for the database.
+ * Synchronous methods are delegated as is.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class OffloadingAccountService implements AccountService {
+
+    /**
+     * Name of the binding of the decorated service and of the executor.
+     */
+    public static final String BLOCKING = "blocking";
+
+    private final AccountService delegate;
+    private final Executor executor;
+
+    @Inject
+    public OffloadingAccountService(@Named(BLOCKING) AccountService delegate, @Named(BLOCKING) Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account create(@Nullable BigDecimal amount) {
+        return delegate.create(amount);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> createAll(List<BigDecimal> amounts) {
+        return delegate.createAll(amounts);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account getAccount(long accountId) {
+        return delegate.getAccount(accountId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> getAccounts(Collection<Long> accountIds) {
+        return delegate.getAccounts(accountIds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        delegate.forEachAccount(action);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void transfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        delegate.transfer(fromAccountId, toAccountId, amount);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TransferOutcome tryTransfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        return delegate.tryTransfer(fromAccountId, toAccountId, amount);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletionStage<Void> transferAsync(long fromAccountId, long toAccountId, BigDecimal amount) {
+        try {
+            return CompletableFuture.runAsync(() -> delegate.transfer(fromAccountId, toAccountId, amount), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFutures.failed(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The pool calls {@link AccountService#tryTransfer} of the delegate, so rejections are not thrown.
+     */
+    @Override
+    public CompletionStage<TransferOutcome> tryTransferAsync(long fromAccountId, long toAccountId, BigDecimal amount) {
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> delegate.tryTransfer(fromAccountId, toAccountId, amount), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFutures.failed(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TransferOutcome> transferAll(List<Transfer> transfers) {
+        return delegate.transferAll(transfers);
+    }
+}
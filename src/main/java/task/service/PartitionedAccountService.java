@@ -0,0 +1,284 @@
+package task.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.lifecycle.Managed;
+import task.config.PartitioningConfiguration;
+import task.dao.AccountDao;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.manager.AccountManager;
+import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static task.service.TransferPreconditions.checkTransfer;
+import static task.service.TransferPreconditions.checkTransfers;
+
+/**
+ * Partitioned implementation of {@link AccountService}. Account ids are hashed onto a fixed set of single-threaded
+ * partitions, and every modification of an account is executed by the thread of its partition, so it needs no
+ * account locks. Request threads submit transfers to partitions and wait for their results instead of piling up on
+ * locks of hot accounts, or don't wait at all in case of {@link #transferAsync(long, long, BigDecimal)}.
+ * <p>
+ * A transfer between accounts of several partitions is executed by the lowest partition, while every other partition
+ * is parked by a barrier task until the transfer is done. Tasks of such transfers are put to the queues of all their
+ * partitions atomically, so every pair of partitions sees them in the same order and they can't deadlock.
+ * <p>
+ * The queue of every partition holds at most {@code queueCapacity} tasks. A transfer to a partition with a full queue
+ * is rejected by {@link RejectedExecutionException} at once, so a hot partition pushes back on its clients instead of
+ * queueing their transfers until the heap runs out.
+ * <p>
+ * The service must be started by {@link #start()} before use.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class PartitionedAccountService implements AccountService, Managed {
+
+    private final AccountManager accountManager;
+    private final AccountDao accountDao;
+    private final int partitionCount;
+    private final int queueCapacity;
+
+    // makes enqueueing of a multi-partition task atomic
+    private final Lock enqueueLock = new ReentrantLock();
+
+    private volatile ExecutorService[] partitions;
+
+    @Inject
+    public PartitionedAccountService(AccountManager accountManager, AccountDao accountDao,
+                                     PartitioningConfiguration configuration) {
+        this.accountManager = accountManager;
+        this.accountDao = accountDao;
+        this.partitionCount = configuration.getPartitions();
+        this.queueCapacity = configuration.getQueueCapacity();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (partitions != null) {
+            throw new IllegalStateException("partitions are already started");
+        }
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("account-partition-%d").build();
+        final ExecutorService[] executors = new ExecutorService[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            executors[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+        }
+        partitions = executors;
+    }
+
+    @Override
+    public synchronized void stop() throws InterruptedException {
+        final ExecutorService[] executors = partitions;
+        if (executors == null) {
+            return;
+        }
+        partitions = null;
+        for (ExecutorService executor : executors) {
+            // interrupts parked barriers, pending tasks are never completed
+            for (Runnable task : executor.shutdownNow()) {
+                ((Command<?>) task).cancel();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account create(@Nullable BigDecimal amount) {
+        final Account account = new Account().setAmount(Optional.ofNullable(amount).orElse(BigDecimal.ZERO));
+        accountDao.insert(account);
+        return account;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> createAll(List<BigDecimal> amounts) {
+        return accountManager.createAll(amounts);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account getAccount(long accountId) {
+        return Optional.ofNullable(accountDao.select(accountId))
+                .orElseThrow(() -> new NoSuchAccountException(accountId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> getAccounts(Collection<Long> accountIds) {
+        return accountIds.isEmpty() ? Collections.emptyList() : accountDao.selectAll(accountIds);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        accountDao.selectEach(context -> action.accept(context.getResultObject()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void transfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        checkTransfer(fromAccountId, toAccountId, amount);
+        execute(partitionsOf(Stream.of(fromAccountId, toAccountId)), () -> {
+            transferInternal(fromAccountId, toAccountId, amount);
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The calling thread only puts the transfer to the queues of partitions.
+     */
+    @Override
+    public CompletionStage<Void> transferAsync(long fromAccountId, long toAccountId, BigDecimal amount) {
+        try {
+            checkTransfer(fromAccountId, toAccountId, amount);
+            return this.<Void>submit(partitionsOf(Stream.of(fromAccountId, toAccountId)), () -> {
+                transferInternal(fromAccountId, toAccountId, amount);
+                return null;
+            }).getFuture();
+        } catch (RuntimeException e) {
+            return CompletableFutures.failed(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<TransferOutcome> transferAll(List<Transfer> transfers) {
+        checkTransfers(transfers);
+        if (transfers.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final int[] partitionIds = partitionsOf(transfers.stream()
+                .flatMap(transfer -> Stream.of(transfer.getFromAccountId(), transfer.getToAccountId())));
+        return execute(partitionIds, () -> transferAllInternal(transfers));
+    }
+
+    private int[] partitionsOf(Stream<Long> accountIds) {
+        return accountIds
+                .mapToInt(this::partitionOf)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private int partitionOf(long accountId) {
+        return (StripedLocks.spread(accountId) & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    private <T> T execute(int[] partitionIds, Callable<T> action) {
+        return submit(partitionIds, action).await();
+    }
+
+    // the action is executed by the first partition while the other ones are parked
+    private <T> Command<T> submit(int[] partitionIds, Callable<T> action) {
+        final ExecutorService[] executors = partitions;
+        if (executors == null) {
+            throw new IllegalStateException("partitions are not started");
+        }
+
+        if (partitionIds.length == 1) {
+            final Command<T> command = new Command<>(action);
+            executors[partitionIds[0]].execute(command);
+            return command;
+        }
+
+        final CountDownLatch parked = new CountDownLatch(partitionIds.length - 1);
+        final CountDownLatch done = new CountDownLatch(1);
+        final Command<T> command = new Command<>(() -> {
+            try {
+                parked.await();
+                return action.call();
+            } finally {
+                done.countDown();
+            }
+        });
+        final Callable<Void> barrier = () -> {
+            parked.countDown();
+            done.await();
+            return null;
+        };
+
+        enqueueLock.lock();
+        try {
+            executors[partitionIds[0]].execute(command);
+            for (int i = 1; i < partitionIds.length; i++) {
+                executors[partitionIds[i]].execute(new Command<>(barrier));
+            }
+        } catch (RejectedExecutionException e) {
+            // the command is skipped by its partition, and the barriers already enqueued pass at once
+            command.cancel();
+            done.countDown();
+            throw e;
+        } finally {
+            enqueueLock.unlock();
+        }
+        return command;
+    }
+
+    @GuardedBy("submit()")
+    private void transferInternal(long fromAccountId, long toAccountId, BigDecimal amount) {
+        final Account fromAccount = getAccount(fromAccountId);
+        final Account toAccount = getAccount(toAccountId);
+
+        // this pre-check allows us to avoid extra database transaction: begin -> rollback in case of exceeded limit
+        if (!fromAccount.canWithdraw(amount)) {
+            throw new LimitExceededException(fromAccountId, amount, fromAccount.getAmount());
+        }
+
+        accountManager.transfer(fromAccount, toAccount, amount);
+    }
+
+    @GuardedBy("submit()")
+    private List<TransferOutcome> transferAllInternal(List<Transfer> transfers) {
+        final TransferBatch batch = new TransferBatch(accountDao::select, transfers.size());
+        for (Transfer transfer : transfers) {
+            batch.apply(transfer);
+        }
+
+        final List<Account> updatedAccounts = batch.getUpdatedAccounts();
+        if (!updatedAccounts.isEmpty()) {
+            accountManager.updateAll(updatedAccounts);
+        }
+        return batch.getOutcomes();
+    }
+}
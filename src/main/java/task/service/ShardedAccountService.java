@@ -0,0 +1,292 @@
+package task.service;
+
+import com.google.common.collect.Lists;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import task.dao.AccountDao;
+import task.dao.AccountShards;
+import task.dao.PendingTransferDao;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.exception.OutcomeUnknownException;
+import task.model.Account;
+import task.model.PendingTransfer;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static task.service.TransferPreconditions.checkTransfer;
+import static task.service.TransferPreconditions.checkTransfers;
+
+/**
+ * Implementation of {@link AccountService} for accounts partitioned across several databases, see
+ * {@link AccountShards}. {@code accountDao} must route calls to shards, see {@link task.dao.ShardedAccountDao}.
+ * <p>
+ * A transfer between accounts of one shard is two conditional relative updates in one local transaction, like in
+ * {@link ConditionalAccountService}. A transfer between shards is a saga of local transactions: the source account is
+ * debited on its shard, then the destination account is credited on its shard. If the credit fails, the debit is
+ * compensated by crediting the source account back. While the saga is in progress the money is visible on neither
+ * account.
+ * <p>
+ * The saga is logged durably, see {@link PendingTransferDao}. The debit transaction stores the transfer as pending
+ * on the source shard. The credit transaction marks it as credited on the destination shard, and the compensation
+ * transaction deletes it. After the credit the pending transfer and its mark are deleted. If the compensation fails
+ * too, the transfer fails with {@link OutcomeUnknownException}. It stays pending, like a transfer of a process killed
+ * between the steps, and {@link #recoverPendingTransfers()} completes it on the next start.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class ShardedAccountService implements AccountService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardedAccountService.class);
+
+    // accounts per multi-row insert to all shards
+    private static final int INSERT_CHUNK_SIZE = 2000;
+
+    private final AccountShards shards;
+    private final AccountDao accountDao;
+    private final List<PendingTransferDao> pendingTransferDaos;
+
+    @Inject
+    public ShardedAccountService(AccountShards shards, AccountDao accountDao) {
+        this(shards, accountDao, pendingTransferDaos(shards));
+    }
+
+    ShardedAccountService(AccountShards shards, AccountDao accountDao, List<PendingTransferDao> pendingTransferDaos) {
+        this.shards = shards;
+        this.accountDao = accountDao;
+        this.pendingTransferDaos = pendingTransferDaos;
+    }
+
+    private static List<PendingTransferDao> pendingTransferDaos(AccountShards shards) {
+        final List<PendingTransferDao> pendingTransferDaos = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            pendingTransferDaos.add(shards.get(shard).getMapper(PendingTransferDao.class));
+        }
+        return pendingTransferDaos;
+    }
+
+    /**
+     * Complete transfers between shards which are still pending after a crash or after failures of both the credit
+     * and the compensation. A transfer whose credit is marked is only forgotten. Otherwise the credit is replayed, or
+     * the debit is compensated if the destination account doesn't exist. Must be called before transfers are served.
+     *
+     * @return number of completed transfers
+     */
+    public int recoverPendingTransfers() {
+        int recovered = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            for (PendingTransfer transfer : pendingTransferDaos.get(shard).selectAll()) {
+                recover(shard, transfer);
+                recovered++;
+            }
+        }
+        return recovered;
+    }
+
+    private void recover(int fromShard, PendingTransfer transfer) {
+        final int toShard = shards.shardOf(transfer.getToAccountId());
+        if (!pendingTransferDaos.get(toShard).isCredited(fromShard, transfer.getId())) {
+            try {
+                inTransaction(toShard, () -> credit(fromShard, toShard, transfer));
+                LOGGER.info("Pending transfer {} is completed by replaying its credit", transfer);
+            } catch (NoSuchAccountException e) {
+                inTransaction(fromShard, () -> compensate(fromShard, transfer));
+                LOGGER.info("Pending transfer {} is completed by compensating its debit", transfer);
+                return;
+            }
+        }
+        forget(fromShard, toShard, transfer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account create(@Nullable BigDecimal amount) {
+        final Account account = new Account().setAmount(Optional.ofNullable(amount).orElse(BigDecimal.ZERO));
+        accountDao.insert(account);
+        return account;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Accounts are spread across shards in round-robin order and inserted by multi-row inserts committed on every
+     * shard separately, so the call is not atomic.
+     */
+    @Override
+    public List<Account> createAll(List<BigDecimal> amounts) {
+        final List<Account> accounts = new ArrayList<>(amounts.size());
+        if (amounts.isEmpty()) {
+            return accounts;
+        }
+        final List<Long> ids = accountDao.allocateIds(amounts.size());
+        for (int i = 0; i < amounts.size(); i++) {
+            final BigDecimal amount = Optional.ofNullable(amounts.get(i)).orElse(BigDecimal.ZERO);
+            accounts.add(new Account().setId(ids.get(i)).setAmount(amount));
+        }
+        for (List<Account> chunk : Lists.partition(accounts, INSERT_CHUNK_SIZE)) {
+            accountDao.insertAll(chunk);
+        }
+        return accounts;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Account getAccount(long accountId) {
+        return Optional.ofNullable(accountDao.select(accountId))
+                .orElseThrow(() -> new NoSuchAccountException(accountId));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Account> getAccounts(Collection<Long> accountIds) {
+        return accountIds.isEmpty() ? Collections.emptyList() : accountDao.selectAll(accountIds);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Accounts are passed shard by shard, so they are ordered by ids only within a shard.
+     */
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        accountDao.selectEach(context -> action.accept(context.getResultObject()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void transfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        checkTransfer(fromAccountId, toAccountId, amount);
+        transferInternal(fromAccountId, toAccountId, amount);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every transfer of the batch is applied by its own local transaction or saga, so the batch is not atomic.
+     */
+    @Override
+    public List<TransferOutcome> transferAll(List<Transfer> transfers) {
+        checkTransfers(transfers);
+
+        final List<TransferOutcome> outcomes = new ArrayList<>(transfers.size());
+        for (Transfer transfer : transfers) {
+            try {
+                transferInternal(transfer.getFromAccountId(), transfer.getToAccountId(), transfer.getAmount());
+                outcomes.add(TransferOutcome.OK);
+            } catch (NoSuchAccountException e) {
+                outcomes.add(TransferOutcome.NO_SUCH_ACCOUNT);
+            } catch (LimitExceededException e) {
+                outcomes.add(TransferOutcome.LIMIT_EXCEEDED);
+            }
+        }
+        return outcomes;
+    }
+
+    private void transferInternal(long fromAccountId, long toAccountId, BigDecimal amount) {
+        final int fromShard = shards.shardOf(fromAccountId);
+        final int toShard = shards.shardOf(toAccountId);
+        if (fromShard == toShard) {
+            inTransaction(fromShard, () -> {
+                debit(fromAccountId, amount);
+                credit(toAccountId, amount);
+            });
+            return;
+        }
+
+        final PendingTransfer transfer = new PendingTransfer()
+                .setFromAccountId(fromAccountId)
+                .setToAccountId(toAccountId)
+                .setAmount(amount);
+        inTransaction(fromShard, () -> {
+            debit(fromAccountId, amount);
+            pendingTransferDaos.get(fromShard).insert(transfer);
+        });
+        try {
+            inTransaction(toShard, () -> credit(fromShard, toShard, transfer));
+        } catch (RuntimeException | Error e) {
+            try {
+                inTransaction(fromShard, () -> compensate(fromShard, transfer));
+            } catch (RuntimeException | Error compensationError) {
+                // the transfer stays pending until recovery, the caller gets both errors
+                final OutcomeUnknownException unknown = new OutcomeUnknownException(
+                        "compensation of debit of account " + fromAccountId + " failed", e);
+                unknown.addSuppressed(compensationError);
+                throw unknown;
+            }
+            throw e;
+        }
+        forget(fromShard, toShard, transfer);
+    }
+
+    // credit of the destination account of the pending transfer, the mark prevents a second credit by recovery
+    private void credit(int fromShard, int toShard, PendingTransfer transfer) {
+        credit(transfer.getToAccountId(), transfer.getAmount());
+        pendingTransferDaos.get(toShard).insertCredit(fromShard, transfer.getId());
+    }
+
+    private void compensate(int fromShard, PendingTransfer transfer) {
+        credit(transfer.getFromAccountId(), transfer.getAmount());
+        pendingTransferDaos.get(fromShard).delete(transfer.getId());
+    }
+
+    // the transfer is applied, so a failure is only logged: the transfer stays pending and recovery forgets it, or the
+    // mark stays on the destination shard, where it is never looked up again
+    private void forget(int fromShard, int toShard, PendingTransfer transfer) {
+        try {
+            pendingTransferDaos.get(fromShard).delete(transfer.getId());
+            pendingTransferDaos.get(toShard).deleteCredit(fromShard, transfer.getId());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Failed to forget applied transfer {}", transfer, e);
+        }
+    }
+
+    private void debit(long accountId, BigDecimal amount) {
+        if (accountDao.debit(accountId, amount) != 1) {
+            // zero rows are updated either for absent account or for insufficient balance
+            final Account account = accountDao.select(accountId);
+            if (account == null) {
+                throw new NoSuchAccountException(accountId);
+            }
+            throw new LimitExceededException(accountId, amount, account.getAmount());
+        }
+    }
+
+    private void credit(long accountId, BigDecimal amount) {
+        if (accountDao.credit(accountId, amount) != 1) {
+            throw new NoSuchAccountException(accountId);
+        }
+    }
+
+    // the session is rolled back by close() when the action fails
+    private void inTransaction(int shard, Runnable action) {
+        final SqlSessionManager sqlSessionManager = shards.get(shard);
+        sqlSessionManager.startManagedSession();
+        try {
+            action.run();
+            sqlSessionManager.commit();
+        } finally {
+            sqlSessionManager.close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package task.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.math.IntMath;
+import task.metrics.HdrHistogramReservoir;
+import task.metrics.HeavyHitters;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Fixed table of locks. Every account id is hashed onto one of the stripes, so several accounts can share the same
+ * lock. All locks are created up front, so getting a lock for an account allocates nothing.
+ * <p>
+ * Locks taken by {@link #lock(int)} are measured: the time spent waiting for every lock and the number of times
+ * every stripe was found locked by another thread, see {@link #registerMetrics(MetricRegistry)}. Callers attribute the
+ * waits to accounts by {@link #addWait(long, long)}, so the accounts causing lock convoys can be found at runtime, see
+ * {@link #getContendedAccounts()}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@ThreadSafe
+public class StripedLocks {
+
+    public static final int DEFAULT_STRIPES = 1024;
+
+    // number of the most contended stripes reported by the metrics
+    private static final int CONTENDED_STRIPES = 16;
+    // accounts with the longest waits tracked, and counters of a row of the sketch of waits
+    private static final int CONTENDED_ACCOUNTS = 64;
+    private static final int CONTENDED_ACCOUNTS_WIDTH = 4096;
+
+    private final Lock[] locks;
+    private final int mask;
+    private final AtomicLongArray contentions;
+    private final Timer waitTimer = new Timer(new HdrHistogramReservoir());
+    private final HeavyHitters contendedAccounts = new HeavyHitters(CONTENDED_ACCOUNTS, CONTENDED_ACCOUNTS_WIDTH);
+
+    /**
+     * Create the table with {@link #DEFAULT_STRIPES} stripes.
+     */
+    public StripedLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Create the table with at least {@code stripes} stripes. The number of stripes is rounded up to a power of two.
+     *
+     * @param stripes minimal number of stripes
+     * @throws IllegalArgumentException when {@code stripes} is not positive
+     */
+    public StripedLocks(int stripes) {
+        checkArgument(stripes > 0, "stripes is not positive: %s", stripes);
+        final int size = IntMath.ceilingPowerOfTwo(stripes);
+        this.locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.contentions = new AtomicLongArray(size);
+    }
+
+    /**
+     * Register the {@code wait} timer of lock acquisitions, the {@code contentions} gauge of the total number of
+     * contended acquisitions and the {@code contendedStripes} gauge of the most contended stripes with their numbers of
+     * contended acquisitions.
+     *
+     * @param metrics registry to register metrics in
+     */
+    public void registerMetrics(MetricRegistry metrics) {
+        metrics.register(name(StripedLocks.class, "wait"), waitTimer);
+        metrics.register(name(StripedLocks.class, "contentions"),
+                (Gauge<Long>) () -> IntStream.range(0, locks.length).mapToLong(contentions::get).sum());
+        metrics.register(name(StripedLocks.class, "contendedStripes"),
+                (Gauge<Map<Integer, Long>>) this::getContendedStripes);
+    }
+
+    /**
+     * Get stripe index for the {@code accountId}.
+     *
+     * @param accountId account id
+     * @return stripe index in range {@code [0, size())}
+     */
+    public int stripeOf(long accountId) {
+        return spread(accountId) & mask;
+    }
+
+    /**
+     * Spread the bits of account id, so ids with a power of two stride don't land on the same stripe or partition.
+     *
+     * @param accountId account id
+     * @return hash of the account id
+     */
+    static int spread(long accountId) {
+        long hash = accountId * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) hash;
+    }
+
+    /**
+     * Get lock of the stripe with given index.
+     *
+     * @param stripe stripe index
+     * @return the lock
+     */
+    public Lock getLock(int stripe) {
+        return locks[stripe];
+    }
+
+    /**
+     * Acquire the lock of the stripe with given index, the acquisition is measured.
+     *
+     * @param stripe stripe index
+     * @return nanoseconds spent waiting for the lock, zero if it was free
+     */
+    public long lock(int stripe) {
+        final Lock lock = locks[stripe];
+        if (lock.tryLock()) {
+            waitTimer.update(0, TimeUnit.NANOSECONDS);
+            return 0;
+        }
+        contentions.incrementAndGet(stripe);
+        final long start = System.nanoTime();
+        lock.lock();
+        final long waitNanos = Math.max(System.nanoTime() - start, 1);
+        waitTimer.update(waitNanos, TimeUnit.NANOSECONDS);
+        return waitNanos;
+    }
+
+    /**
+     * Attribute time spent waiting for a lock to the account guarded by it.
+     *
+     * @param accountId account id
+     * @param waitNanos nanoseconds spent waiting, see {@link #lock(int)}
+     */
+    public void addWait(long accountId, long waitNanos) {
+        if (waitNanos > 0) {
+            contendedAccounts.add(accountId, waitNanos);
+        }
+    }
+
+    /**
+     * Get the sketch of accounts with the longest total waits for their locks.
+     *
+     * @return total nanoseconds spent waiting by account ids
+     */
+    public HeavyHitters getContendedAccounts() {
+        return contendedAccounts;
+    }
+
+    /**
+     * Get number of contended acquisitions of the lock of the stripe, i.e. acquisitions by {@link #lock(int)} that
+     * found the lock held by another thread.
+     *
+     * @param stripe stripe index
+     * @return number of contended acquisitions
+     */
+    public long getContentions(int stripe) {
+        return contentions.get(stripe);
+    }
+
+    /**
+     * Get the most contended stripes.
+     *
+     * @return numbers of contended acquisitions by stripe indexes, in descending order of the numbers
+     */
+    public Map<Integer, Long> getContendedStripes() {
+        final Map<Integer, Long> contendedStripes = new LinkedHashMap<>();
+        IntStream.range(0, locks.length)
+                .filter(stripe -> contentions.get(stripe) > 0)
+                .boxed()
+                .sorted(Comparator.comparingLong(contentions::get).reversed())
+                .limit(CONTENDED_STRIPES)
+                .forEach(stripe -> contendedStripes.put(stripe, contentions.get(stripe)));
+        return contendedStripes;
+    }
+
+    /**
+     * Get number of stripes.
+     *
+     * @return number of stripes
+     */
+    public int size() {
+        return locks.length;
+    }
+}
@@ -0,0 +1,19 @@
+package task.service;
+
+/**
+ * Kind of threads executing blocking work.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public enum ThreadType {
+
+    /**
+     * Fixed pool of platform threads.
+     */
+    PLATFORM,
+
+    /**
+     * New virtual thread per task, requires Java 21+, see {@link VirtualThreads}.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,96 @@
+package task.service;
+
+import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * Applies transfers of a batch in memory one by one. Every account is loaded once per batch, so later transfers see
+ * the effect of earlier ones. The caller is responsible for saving {@link #getUpdatedAccounts()} and for keeping the
+ * accounts from being modified by others until they are saved.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@NotThreadSafe
+final class TransferBatch {
+
+    private final LongFunction<Account> loader;
+    private final Map<Long, Account> accountsById = new HashMap<>();
+    private final Map<Long, Account> updatedAccountsById = new LinkedHashMap<>();
+    private final List<TransferOutcome> outcomes;
+
+    /**
+     * Create empty batch.
+     *
+     * @param loader returns account by id or {@code null} when account doesn't exist
+     * @param size   expected number of transfers
+     */
+    TransferBatch(LongFunction<Account> loader, int size) {
+        this.loader = loader;
+        this.outcomes = new ArrayList<>(size);
+    }
+
+    /**
+     * Apply the {@code transfer} if both accounts exist and source account has enough money.
+     *
+     * @param transfer transfer to apply
+     * @return outcome of the transfer
+     */
+    TransferOutcome apply(Transfer transfer) {
+        final TransferOutcome outcome = applyInternal(transfer);
+        outcomes.add(outcome);
+        return outcome;
+    }
+
+    private TransferOutcome applyInternal(Transfer transfer) {
+        final Account fromAccount = find(transfer.getFromAccountId());
+        final Account toAccount = find(transfer.getToAccountId());
+        if (fromAccount == null || toAccount == null) {
+            return TransferOutcome.NO_SUCH_ACCOUNT;
+        }
+        if (!fromAccount.canWithdraw(transfer.getAmount())) {
+            return TransferOutcome.LIMIT_EXCEEDED;
+        }
+        fromAccount.withdraw(transfer.getAmount());
+        toAccount.deposit(transfer.getAmount());
+        updatedAccountsById.put(fromAccount.getId(), fromAccount);
+        updatedAccountsById.put(toAccount.getId(), toAccount);
+        return TransferOutcome.OK;
+    }
+
+    private Account find(long accountId) {
+        if (accountsById.containsKey(accountId)) {
+            return accountsById.get(accountId);
+        }
+        final Account account = loader.apply(accountId);
+        accountsById.put(accountId, account);
+        return account;
+    }
+
+    /**
+     * Get accounts modified by successfully applied transfers.
+     *
+     * @return modified accounts in order of their first modification
+     */
+    List<Account> getUpdatedAccounts() {
+        return new ArrayList<>(updatedAccountsById.values());
+    }
+
+    /**
+     * Get outcomes of all applied transfers.
+     *
+     * @return outcomes in order of {@link #apply(Transfer)} calls
+     */
+    List<TransferOutcome> getOutcomes() {
+        return Collections.unmodifiableList(outcomes);
+    }
+}
@@ -0,0 +1,46 @@
+package task.service;
+
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.model.TransferOutcome;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Conversion of exceptions of rejected transfers to {@link TransferOutcome}s.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+final class TransferOutcomes {
+
+    private TransferOutcomes() {
+    }
+
+    /**
+     * Get outcome of the asynchronous transfer: the returned stage is completed with {@link TransferOutcome#OK} when
+     * the transfer is done, with the outcome of the rejection when it fails with {@link NoSuchAccountException} or
+     * {@link LimitExceededException}, and exceptionally with any other exception.
+     *
+     * @param transfer stage of the transfer
+     * @return stage of the outcome
+     */
+    static CompletionStage<TransferOutcome> of(CompletionStage<Void> transfer) {
+        final CompletableFuture<TransferOutcome> outcome = new CompletableFuture<>();
+        transfer.whenComplete((ignored, failure) -> {
+            final Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                    ? failure.getCause() : failure;
+            if (cause == null) {
+                outcome.complete(TransferOutcome.OK);
+            } else if (cause instanceof NoSuchAccountException) {
+                outcome.complete(TransferOutcome.NO_SUCH_ACCOUNT);
+            } else if (cause instanceof LimitExceededException) {
+                outcome.complete(TransferOutcome.LIMIT_EXCEEDED);
+            } else {
+                outcome.completeExceptionally(cause);
+            }
+        });
+        return outcome;
+    }
+}
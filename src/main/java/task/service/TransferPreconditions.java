@@ -0,0 +1,51 @@
+package task.service;
+
+import task.model.Transfer;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Argument checks shared by all implementations of {@link AccountService#transfer(long, long, BigDecimal)}.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+final class TransferPreconditions {
+
+    private TransferPreconditions() {
+    }
+
+    /**
+     * Check transfer arguments.
+     *
+     * @param fromAccountId account id to transfer money from
+     * @param toAccountId   account id to transfer money to
+     * @param amount        money amount to transfer
+     * @throws NullPointerException     when {@code amount} is null
+     * @throws IllegalArgumentException when {@code fromAccountId == toAccountId} or amount is not positive
+     */
+    static void checkTransfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+        if (fromAccountId == toAccountId) {
+            throw new IllegalArgumentException("fromAccountId == toAccountId: " + fromAccountId);
+        }
+        if (Objects.requireNonNull(amount, "amount is null").compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("amount is not positive: " + amount);
+        }
+    }
+
+    /**
+     * Check every transfer of the batch.
+     *
+     * @param transfers transfers to check
+     * @throws NullPointerException     when {@code transfers}, any transfer or its amount is null
+     * @throws IllegalArgumentException when any transfer has {@code fromAccountId == toAccountId} or not positive amount
+     */
+    static void checkTransfers(List<Transfer> transfers) {
+        Objects.requireNonNull(transfers, "transfers is null");
+        for (Transfer transfer : transfers) {
+            Objects.requireNonNull(transfer, "transfer is null");
+            checkTransfer(transfer.getFromAccountId(), transfer.getToAccountId(), transfer.getAmount());
+        }
+    }
+}
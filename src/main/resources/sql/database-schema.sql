@@ -1,7 +1,7 @@
 SET DATABASE SQL SYNTAX ORA TRUE
 /
 
-CREATE SEQUENCE ACCOUNT_ID_SEQ MINVALUE 1 MAXVALUE 9999999 INCREMENT BY 1 START WITH 1 CACHE 20 NOCYCLE
+CREATE SEQUENCE ACCOUNT_ID_SEQ AS BIGINT MINVALUE 1 MAXVALUE 9223372036854775807 INCREMENT BY 1 START WITH 1 CACHE 20 NOCYCLE
 /
 
 CREATE TABLE ACCOUNT (
@@ -10,3 +10,31 @@ CREATE TABLE ACCOUNT (
     CONSTRAINT ACCOUNT_PK PRIMARY KEY (ID)
 )
 /
+
+CREATE TABLE ACCOUNT_SLOT (
+    ACCOUNT_ID NUMBER(19) NOT NULL,
+    SLOT NUMBER(10) NOT NULL,
+    AMOUNT NUMBER(38, 8) NOT NULL,
+    CONSTRAINT ACCOUNT_SLOT_PK PRIMARY KEY (ACCOUNT_ID, SLOT),
+    CONSTRAINT ACCOUNT_SLOT_ACCOUNT_FK FOREIGN KEY (ACCOUNT_ID) REFERENCES ACCOUNT (ID)
+)
+/
+
+CREATE SEQUENCE PENDING_TRANSFER_ID_SEQ AS BIGINT MINVALUE 1 MAXVALUE 9223372036854775807 INCREMENT BY 1 START WITH 1 CACHE 20 NOCYCLE
+/
+
+CREATE TABLE PENDING_TRANSFER (
+    ID NUMBER(19) NOT NULL,
+    FROM_ACCOUNT_ID NUMBER(19) NOT NULL,
+    TO_ACCOUNT_ID NUMBER(19) NOT NULL,
+    AMOUNT NUMBER(38, 8) NOT NULL,
+    CONSTRAINT PENDING_TRANSFER_PK PRIMARY KEY (ID)
+)
+/
+
+CREATE TABLE CREDITED_TRANSFER (
+    SOURCE_SHARD NUMBER(10) NOT NULL,
+    TRANSFER_ID NUMBER(19) NOT NULL,
+    CONSTRAINT CREDITED_TRANSFER_PK PRIMARY KEY (SOURCE_SHARD, TRANSFER_ID)
+)
+/
@@ -1,18 +1,22 @@
 package task;
 
-import io.dropwizard.Configuration;
 import io.dropwizard.testing.junit.DropwizardAppRule;
 import org.eclipse.jetty.http.HttpStatus;
 import org.junit.ClassRule;
 import org.junit.Test;
+import task.api.BatchTransferResponse;
+import task.api.BulkCreateAccountResponse;
 import task.api.CreateAccountRequest;
 import task.api.CreateAccountResponse;
 import task.api.GetAccountResponse;
 import task.api.TransferRequest;
+import task.model.TransferOutcome;
+import task.rest.AccountResource;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.Response;
 import java.math.BigDecimal;
+import java.util.Arrays;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
@@ -22,7 +26,7 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 public class AccountServiceApplicationIT {
 
     @ClassRule
-    public static final DropwizardAppRule<Configuration> RULE = new DropwizardAppRule<>(AccountServiceApplication.class);
+    public static final DropwizardAppRule<AccountServiceConfiguration> RULE = new DropwizardAppRule<>(AccountServiceApplication.class);
 
     @Test
     public void test_getAccount_it_must_return_GetAccountResponse_when_account_exists() throws Exception {
@@ -40,6 +44,68 @@ public class AccountServiceApplicationIT {
                 .get(GetAccountResponse.class);
     }
 
+    @Test
+    public void test_getAccounts_it_must_return_existing_accounts() throws Exception {
+        // Given, when
+        final GetAccountResponse[] response = RULE.client()
+                .target("http://localhost:" + RULE.getLocalPort() + "/accounts/batch")
+                .queryParam("id", 1, 2, 100500)
+                .request()
+                .get(GetAccountResponse[].class);
+
+        // Then
+        assertThat(response.length).isEqualTo(2);
+        final GetAccountResponse first = response[0].getAccountId() == 1 ? response[0] : response[1];
+        assertThat(first.getAmount()).isEqualByComparingTo(new BigDecimal("123.45"));
+    }
+
+    @Test
+    public void test_getAccounts_it_must_return_UNPROCESSABLE_ENTITY_when_too_many_ids_are_posted() throws Exception {
+        // Given
+        final Long[] ids = new Long[AccountResource.MAX_BATCH_SIZE + 1];
+        Arrays.fill(ids, 1L);
+
+        // When
+        final Response response = RULE.client()
+                .target("http://localhost:" + RULE.getLocalPort() + "/accounts/batch")
+                .request()
+                .post(Entity.json(ids));
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY_422);
+    }
+
+    @Test
+    public void test_transferAll_it_must_return_UNPROCESSABLE_ENTITY_when_too_many_transfers_are_posted() throws Exception {
+        // Given
+        final TransferRequest[] requests = new TransferRequest[AccountResource.MAX_BATCH_SIZE + 1];
+        Arrays.fill(requests, new TransferRequest(1, 2, BigDecimal.ONE));
+
+        // When
+        final Response response = RULE.client()
+                .target("http://localhost:" + RULE.getLocalPort() + "/accounts/transfers")
+                .request()
+                .post(Entity.json(requests));
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY_422);
+    }
+
+    @Test
+    public void test_export_it_must_return_csv_line_per_account() throws Exception {
+        // Given, when
+        final Response response = RULE.client()
+                .target("http://localhost:" + RULE.getLocalPort() + "/accounts/export")
+                .queryParam("format", "csv")
+                .request()
+                .get();
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK_200);
+        assertThat(response.getMediaType().toString()).isEqualTo("text/csv");
+        assertThat(response.readEntity(String.class)).startsWith("accountId,amount\n1,");
+    }
+
     @Test
     public void test_getAccount_it_must_return_NOT_FOUND_when_account_does_not_exist() throws Exception {
         // Given, when
@@ -78,6 +144,22 @@ public class AccountServiceApplicationIT {
                 .post(Entity.json(new CreateAccountRequest(amount)));
     }
 
+    @Test
+    public void test_create_bulk_it_must_create_accounts_in_order_of_requests() throws Exception {
+        // Given, when
+        final BulkCreateAccountResponse response = RULE.client()
+                .target("http://localhost:" + RULE.getLocalPort() + "/accounts/create-bulk")
+                .request()
+                .post(Entity.json(Arrays.asList(
+                        new CreateAccountRequest(new BigDecimal("1.5")), new CreateAccountRequest(BigDecimal.TEN))))
+                .readEntity(BulkCreateAccountResponse.class);
+
+        // Then
+        assertThat(response.getAccountIds().size()).isEqualTo(2);
+        assertThat(getAccount(response.getAccountIds().get(0)).getAmount()).isEqualByComparingTo("1.5");
+        assertThat(getAccount(response.getAccountIds().get(1)).getAmount()).isEqualByComparingTo("10");
+    }
+
     @Test
     public void test_create_account_it_must_return_UNPROCESSABLE_ENTITY_when_amount_is_negative() throws Exception {
         // Given
@@ -137,10 +219,21 @@ public class AccountServiceApplicationIT {
 
         // Then
         assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST_400);
-        assertThat(response.readEntity(String.class)).contains(
-                "Failed to withdraw from account: ",
-                "delta: 200 is greater than amount: 100.50000000"
-        );
+        assertThat(response.readEntity(String.class)).isEqualTo("LIMIT_EXCEEDED");
+    }
+
+    @Test
+    public void test_transfer_it_must_return_NOT_FOUND_when_destination_account_does_not_exist() throws Exception {
+        // Given
+        final CreateAccountResponse from = createResponseEntity(new BigDecimal("100.500"));
+
+        // When
+        final Response response = transferResponse(from.getAccountId(), 100500, BigDecimal.ONE);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_FOUND_404);
+        assertThat(response.readEntity(String.class)).isEqualTo("NO_SUCH_ACCOUNT");
+        assertThat(getAccount(from.getAccountId()).getAmount()).isEqualByComparingTo(new BigDecimal("100.500"));
     }
 
     @Test
@@ -162,4 +255,89 @@ public class AccountServiceApplicationIT {
         assertThat(from2.getAmount()).isEqualByComparingTo(new BigDecimal("0.5"));
         assertThat(to2.getAmount()).isEqualByComparingTo(new BigDecimal("100000100"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_transfer_it_must_transfer_once_when_request_with_request_id_is_retried() throws Exception {
+        // Given
+        final CreateAccountResponse from = createResponseEntity(new BigDecimal("100.500"));
+        final CreateAccountResponse to = createResponseEntity(new BigDecimal("100000000"));
+        final TransferRequest request = new TransferRequest(from.getAccountId(), from.getAccountId(),
+                to.getAccountId(), new BigDecimal("60"));
+
+        // When
+        final Response response = transferResponse(request);
+        final Response retryResponse = transferResponse(request);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK_200);
+        assertThat(retryResponse.getStatus()).isEqualTo(HttpStatus.OK_200);
+        assertThat(retryResponse.readEntity(String.class)).isEqualTo("OK");
+        assertThat(getAccount(from.getAccountId()).getAmount()).isEqualByComparingTo(new BigDecimal("40.5"));
+    }
+
+    private Response transferResponse(TransferRequest request) {
+        return RULE.client().target("http://localhost:" + RULE.getLocalPort() + "/accounts/transfer")
+                .request()
+                .post(Entity.json(request));
+    }
+
+    @Test
+    public void test_transferAll_it_must_return_outcome_of_every_transfer() throws Exception {
+        // Given
+        final CreateAccountResponse from = createResponseEntity(new BigDecimal("100.500"));
+        final CreateAccountResponse to = createResponseEntity(new BigDecimal("100000000"));
+
+        // When
+        final Response response = RULE.client().target("http://localhost:" + RULE.getLocalPort() + "/accounts/transfers")
+                .request()
+                .post(Entity.json(Arrays.asList(
+                        new TransferRequest(from.getAccountId(), to.getAccountId(), new BigDecimal("100")),
+                        new TransferRequest(from.getAccountId(), to.getAccountId(), new BigDecimal("100")),
+                        new TransferRequest(from.getAccountId(), 100500, new BigDecimal("0.5")))));
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK_200);
+        assertThat(response.readEntity(BatchTransferResponse.class)).isEqualTo(new BatchTransferResponse(Arrays.asList(
+                TransferOutcome.OK, TransferOutcome.LIMIT_EXCEEDED, TransferOutcome.NO_SUCH_ACCOUNT)));
+
+        assertThat(getAccount(from.getAccountId()).getAmount()).isEqualByComparingTo(new BigDecimal("0.5"));
+        assertThat(getAccount(to.getAccountId()).getAmount()).isEqualByComparingTo(new BigDecimal("100000100"));
+    }
+
+    @Test
+    public void test_transferAsync_it_must_transfer_when_request_is_correct() throws Exception {
+        // Given
+        final CreateAccountResponse from = createResponseEntity(new BigDecimal("100.500"));
+        final CreateAccountResponse to = createResponseEntity(new BigDecimal("100000000"));
+
+        // When
+        final Response response = transferAsyncResponse(from.getAccountId(), to.getAccountId(), new BigDecimal("100"));
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK_200);
+        assertThat(response.readEntity(String.class)).isEqualTo("OK");
+
+        assertThat(getAccount(from.getAccountId()).getAmount()).isEqualByComparingTo(new BigDecimal("0.5"));
+        assertThat(getAccount(to.getAccountId()).getAmount()).isEqualByComparingTo(new BigDecimal("100000100"));
+    }
+
+    @Test
+    public void test_transferAsync_it_must_return_BAD_REQUEST_when_transfer_amount_is_greater_than_source_account_amount() throws Exception {
+        // Given
+        final CreateAccountResponse from = createResponseEntity(new BigDecimal("100.500"));
+        final CreateAccountResponse to = createResponseEntity(new BigDecimal("100000000"));
+
+        // When
+        final Response response = transferAsyncResponse(from.getAccountId(), to.getAccountId(), new BigDecimal("200"));
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST_400);
+        assertThat(response.readEntity(String.class)).isEqualTo("LIMIT_EXCEEDED");
+    }
+
+    private Response transferAsyncResponse(long fromAccountId, long toAccountId, BigDecimal amount) {
+        return RULE.client().target("http://localhost:" + RULE.getLocalPort() + "/accounts/transfer-async")
+                .request()
+                .post(Entity.json(new TransferRequest(fromAccountId, toAccountId, amount)));
+    }
+}
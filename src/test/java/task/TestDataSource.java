@@ -2,16 +2,22 @@ package task;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Module;
 import com.google.inject.Scopes;
+import com.google.inject.util.Modules;
 import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.SqlSessionManager;
 import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.mybatis.guice.XMLMyBatisModule;
 import org.mybatis.guice.datasource.builtin.PooledDataSourceProvider;
 import org.mybatis.guice.datasource.helper.JdbcHelper;
+import task.dao.AccountShards;
 import task.manager.AccountManager;
+import task.manager.HotAccountManager;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
@@ -39,8 +45,8 @@ public class TestDataSource {
         this.initScripts = initScripts;
     }
 
-    public Injector createInjector() throws Exception {
-        final Injector injector = Guice.createInjector(
+    public Injector createInjector(Module... overrides) throws Exception {
+        final Injector injector = Guice.createInjector(Modules.override(
                 new XMLMyBatisModule() {
                     @Override
                     protected void initialize() {
@@ -53,12 +59,13 @@ public class TestDataSource {
                         setClassPathResource("mybatis-config.xml");
 
                         bind(AccountManager.class);
+                        bind(HotAccountManager.class);
 
                         final Properties dataSourceProperties = createDataSourceProperties();
                         addProperties(dataSourceProperties);
                         bindProperties(binder(), dataSourceProperties);
                     }
-                }
+                }).with(overrides)
         );
 
         // prepare the test db
@@ -74,6 +81,16 @@ public class TestDataSource {
         return injector;
     }
 
+    public AccountShards createShards(int shards) throws Exception {
+        final List<SqlSessionManager> sqlSessionManagers = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            final Injector injector = createInjector();
+            AccountShards.partitionSequence(injector.getInstance(DataSource.class), shard, shards);
+            sqlSessionManagers.add(injector.getInstance(SqlSessionManager.class));
+        }
+        return new AccountShards(sqlSessionManagers);
+    }
+
     private Properties createDataSourceProperties() {
         Properties myBatisProperties = new Properties();
         myBatisProperties.setProperty("mybatis.environment.id", "test");
@@ -0,0 +1,88 @@
+package task.admin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import task.metrics.HeavyHitters;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ContendedAccountsServletTest {
+
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final HeavyHitters contendedAccounts = new HeavyHitters(4, 64);
+    private final ContendedAccountsServlet servlet = new ContendedAccountsServlet(contendedAccounts, new ObjectMapper());
+
+    @Before
+    public void setUp() throws Exception {
+        contendedAccounts.add(1, 1_500_000);
+        contendedAccounts.add(2, 3_000_000);
+        contendedAccounts.add(3, 500_000);
+    }
+
+    @Test
+    public void test_doGet_it_must_write_most_contended_accounts_with_wait_totals() throws Exception {
+        // Given
+        when(request.getParameter("limit")).thenReturn("2");
+        when(response.getOutputStream()).thenReturn(new BodyOutputStream());
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).setStatus(HttpServletResponse.SC_OK);
+        verify(response).setContentType("application/json");
+        assertThat(new String(body.toByteArray(), StandardCharsets.UTF_8))
+                .isEqualTo("[{\"accountId\":2,\"waitMillis\":3.0},{\"accountId\":1,\"waitMillis\":1.5}]");
+    }
+
+    @Test
+    public void test_doGet_it_must_respond_with_bad_request_when_limit_is_out_of_range() throws Exception {
+        // Given
+        when(request.getParameter("limit")).thenReturn("5");
+
+        // When
+        servlet.doGet(request, response);
+
+        // Then
+        verify(response).sendError(HttpServletResponse.SC_BAD_REQUEST, "limit must be in range [1, 4]: 5");
+    }
+
+    private final class BodyOutputStream extends ServletOutputStream {
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+            body.write(b);
+        }
+    }
+}
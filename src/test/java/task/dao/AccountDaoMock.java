@@ -1,7 +1,16 @@
 package task.dao;
 
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import task.model.Account;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -16,7 +25,30 @@ public class AccountDaoMock implements AccountDao {
 
     @Override
     public Account select(long accountId) {
-        return accountsById.get(accountId);
+        // like the database, return a new object on every select
+        final Account account = accountsById.get(accountId);
+        return account == null ? null : new Account().setId(account.getId()).setAmount(account.getAmount());
+    }
+
+    @Override
+    public void selectEach(ResultHandler<Account> handler) {
+        final DefaultResultContext<Account> context = new DefaultResultContext<>();
+        accountsById.keySet().stream().sorted().forEach(accountId -> {
+            context.nextResultObject(select(accountId));
+            handler.handleResult(context);
+        });
+    }
+
+    @Override
+    public List<Account> selectAll(Collection<Long> accountIds) {
+        final List<Account> accounts = new ArrayList<>();
+        for (long accountId : new HashSet<>(accountIds)) {
+            final Account account = select(accountId);
+            if (account != null) {
+                accounts.add(account);
+            }
+        }
+        return accounts;
     }
 
     @Override
@@ -25,6 +57,22 @@ public class AccountDaoMock implements AccountDao {
         accountsById.put(account.getId(), account);
     }
 
+    @Override
+    public List<Long> allocateIds(int count) {
+        final List<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(generator.incrementAndGet());
+        }
+        return ids;
+    }
+
+    @Override
+    public void insertAll(List<Account> accounts) {
+        for (Account account : accounts) {
+            accountsById.put(account.getId(), account);
+        }
+    }
+
     @Override
     public int update(Account account) {
         final Account newValue = accountsById.computeIfPresent(account.getId(), (key, value) -> account);
@@ -35,6 +83,45 @@ public class AccountDaoMock implements AccountDao {
         }
     }
 
+    @Override
+    public int debit(long accountId, BigDecimal amount) {
+        final boolean[] debited = new boolean[1];
+        accountsById.computeIfPresent(accountId, (key, value) -> {
+            if (!value.canWithdraw(amount)) {
+                return value;
+            }
+            debited[0] = true;
+            return new Account().setId(accountId).setAmount(value.getAmount().subtract(amount));
+        });
+        return debited[0] ? 1 : 0;
+    }
+
+    @Override
+    public int credit(long accountId, BigDecimal amount) {
+        final Account newValue = accountsById.computeIfPresent(accountId,
+                (key, value) -> new Account().setId(accountId).setAmount(value.getAmount().add(amount)));
+        if (newValue == null) {
+            return 0;
+        } else {
+            return 1;
+        }
+    }
+
+    @Override
+    public long selectMaxId() {
+        return accountsById.keySet().stream().mapToLong(Long::longValue).max().orElse(0);
+    }
+
+    @Override
+    public void restartSequence(long nextId) {
+        generator.set(nextId - 1);
+    }
+
+    @Override
+    public List<BatchResult> flush() {
+        return Collections.emptyList();
+    }
+
     @Override
     public int ping() {
         return 1;
@@ -1,5 +1,6 @@
 package task.dao;
 
+import com.google.inject.Injector;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -7,6 +8,9 @@ import task.TestDataSource;
 import task.model.Account;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -32,6 +36,46 @@ public class AccountDaoTest {
         assertThat(account2).isEqualTo(new Account().setId(2).setAmount(new BigDecimal("678.90")));
     }
 
+    @Test
+    public void test_selectAll() throws Exception {
+        final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
+        final List<Account> inserted = new ArrayList<>();
+        for (long id = 3; id <= 2500; id++) {
+            inserted.add(new Account().setId(id).setAmount(BigDecimal.valueOf(id)));
+        }
+        dao.insertAll(inserted);
+        // more ids than one IN list can hold, with a duplicate and a missing one
+        final List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 2600; id++) {
+            ids.add(id);
+        }
+        ids.add(1L);
+
+        final List<Account> accounts = dao.selectAll(ids);
+
+        assertThat(accounts).hasSize(2500);
+        assertThat(accounts).contains(
+                new Account().setId(1).setAmount(new BigDecimal("123.45")),
+                new Account().setId(2500).setAmount(new BigDecimal("2500.00000000")));
+    }
+
+    @Test
+    public void test_selectEach() throws Exception {
+        final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
+        final List<Account> inserted = new ArrayList<>();
+        for (long id = 2000; id >= 3; id--) {
+            inserted.add(new Account().setId(id).setAmount(BigDecimal.valueOf(id)));
+        }
+        dao.insertAll(inserted);
+
+        final List<Long> ids = new ArrayList<>();
+        dao.selectEach(context -> ids.add(context.getResultObject().getId()));
+
+        assertThat(ids).hasSize(2000);
+        assertThat(ids).isSorted();
+        assertThat(ids.get(0)).isEqualTo(1);
+    }
+
     @Test
     public void test_insert() throws Exception {
         final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
@@ -44,6 +88,29 @@ public class AccountDaoTest {
         assertThat(account.getAmount()).isEqualByComparingTo(new BigDecimal(4.5));
     }
 
+    @Test
+    public void test_allocateIds() throws Exception {
+        final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
+
+        assertThat(dao.allocateIds(3)).containsExactly(3L, 4L, 5L);
+
+        // ids are not limited by the former MAXVALUE 9999999 of the sequence
+        dao.restartSequence(Integer.MAX_VALUE);
+        assertThat(dao.allocateIds(2)).containsExactly((long) Integer.MAX_VALUE, Integer.MAX_VALUE + 1L);
+    }
+
+    @Test
+    public void test_insertAll() throws Exception {
+        final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
+
+        dao.insertAll(Arrays.asList(
+                new Account().setId(10).setAmount(BigDecimal.ONE),
+                new Account().setId(11).setAmount(BigDecimal.TEN)));
+
+        assertThat(dao.select(10)).isEqualTo(new Account().setId(10).setAmount(BigDecimal.ONE));
+        assertThat(dao.select(11)).isEqualTo(new Account().setId(11).setAmount(BigDecimal.TEN));
+    }
+
     @Test
     public void test_update() throws Exception {
         final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
@@ -55,6 +122,47 @@ public class AccountDaoTest {
         assertThat(dao.select(1)).isEqualTo(new Account().setId(1).setAmount(BigDecimal.ZERO));
     }
 
+    @Test
+    public void test_debit() throws Exception {
+        final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
+
+        assertThat(dao.debit(1, new BigDecimal("23.45"))).isEqualTo(1);
+        assertThat(dao.debit(1, new BigDecimal("100.01"))).isEqualTo(0);
+        assertThat(dao.debit(3, BigDecimal.ONE)).isEqualTo(0);
+
+        assertThat(dao.select(1)).isEqualTo(new Account().setId(1).setAmount(new BigDecimal("100")));
+    }
+
+    @Test
+    public void test_credit() throws Exception {
+        final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
+
+        assertThat(dao.credit(2, new BigDecimal("0.1"))).isEqualTo(1);
+        assertThat(dao.credit(3, BigDecimal.ONE)).isEqualTo(0);
+
+        assertThat(dao.select(2)).isEqualTo(new Account().setId(2).setAmount(new BigDecimal("679")));
+    }
+
+    @Test
+    public void test_selectMaxId() throws Exception {
+        final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
+
+        assertThat(dao.selectMaxId()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_restartSequence() throws Exception {
+        final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
+
+        final Account account = new Account().setAmount(BigDecimal.ONE);
+
+        dao.restartSequence(100);
+        dao.insert(account);
+
+        assertThat(account.getId()).isEqualTo(100);
+        assertThat(dao.selectMaxId()).isEqualTo(100);
+    }
+
     @Test
     public void test_ping() throws Exception {
         final AccountDao dao = dataSource.createInjector().getInstance(AccountDao.class);
@@ -0,0 +1,42 @@
+package task.dao;
+
+import org.apache.ibatis.session.SqlSessionManager;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class AccountShardsTest {
+
+    @Test
+    public void test_shardOf_it_must_partition_ids_by_modulo_starting_from_first_id() throws Exception {
+        // Given
+        final AccountShards shards = new AccountShards(Collections.nCopies(3, mock(SqlSessionManager.class)));
+
+        // When, then
+        assertThat(shards.size()).isEqualTo(3);
+        assertThat(shards.shardOf(1)).isEqualTo(0);
+        assertThat(shards.shardOf(2)).isEqualTo(1);
+        assertThat(shards.shardOf(3)).isEqualTo(2);
+        assertThat(shards.shardOf(4)).isEqualTo(0);
+        assertThat(shards.shardOf(0)).isEqualTo(2);
+        assertThat(shards.shardOf(-1)).isEqualTo(1);
+    }
+
+    @Test
+    public void test_constructor_it_must_throw_IllegalArgumentException_when_there_are_no_shards() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> new AccountShards(Collections.emptyList()));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("no shards");
+    }
+}
@@ -0,0 +1,196 @@
+package task.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.Injector;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.junit.Before;
+import org.junit.Test;
+import task.TestDataSource;
+import task.exception.NoSuchAccountException;
+import task.manager.AccountManager;
+import task.model.Account;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class CachingAccountDaoTest {
+
+    private final TestDataSource dataSource = new TestDataSource(
+            "sql/database-schema.sql", "sql/database-test-data.sql");
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    private Injector injector;
+    private AccountDao accountDao;
+
+    @Before
+    public void setUp() throws Exception {
+        injector = dataSource.createInjector(new CachingAccountDaoModule(100, metrics));
+        accountDao = injector.getInstance(AccountDao.class);
+    }
+
+    @Test
+    public void test_select_it_must_serve_cached_amount_without_database_round_trip() throws Exception {
+        // Given
+        accountDao.select(1);
+        updateBehindCache("update account set amount = 0 where id = 1");
+
+        // When
+        final Account account = accountDao.select(1);
+
+        // Then
+        assertThat(accountDao).isInstanceOf(CachingAccountDao.class);
+        assertThat(account).isEqualTo(new Account().setId(1).setAmount(new BigDecimal("123.45")));
+        assertThat(gauge("hits")).isEqualTo(1L);
+        assertThat(gauge("misses")).isEqualTo(1L);
+    }
+
+    @Test
+    public void test_selectAll_it_must_serve_cached_amounts_and_select_others() throws Exception {
+        // Given
+        accountDao.select(1);
+        updateBehindCache("update account set amount = 0 where id in (1, 2)");
+
+        // When
+        final List<Account> accounts = accountDao.selectAll(Arrays.asList(1L, 2L, 3L));
+
+        // Then
+        assertThat(accounts).containsExactlyInAnyOrder(
+                new Account().setId(1).setAmount(new BigDecimal("123.45")),
+                new Account().setId(2).setAmount(new BigDecimal("0E-8")));
+    }
+
+    @Test
+    public void test_select_it_must_not_cache_absent_account() throws Exception {
+        // Given
+        accountDao.select(3);
+        updateBehindCache("insert into account(id, amount) values (account_id_seq.nextval, 1)");
+
+        // When
+        final Account account = accountDao.select(3);
+
+        // Then
+        assertThat(account).isEqualTo(new Account().setId(3).setAmount(BigDecimal.ONE));
+    }
+
+    @Test
+    public void test_insert_it_must_cache_committed_account() throws Exception {
+        // Given
+        final Account account = new Account().setAmount(new BigDecimal("4.5"));
+
+        // When
+        accountDao.insert(account);
+        updateBehindCache("update account set amount = 0 where id = 3");
+
+        // Then
+        assertThat(accountDao.select(3).getAmount()).isEqualByComparingTo(new BigDecimal("4.5"));
+    }
+
+    @Test
+    public void test_transfer_it_must_update_cache_after_commit() throws Exception {
+        // Given
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final Account fromAccount = accountDao.select(1);
+        final Account toAccount = accountDao.select(2);
+
+        // When
+        accountManager.transfer(fromAccount, toAccount, new BigDecimal("23.45"));
+        updateBehindCache("update account set amount = 0");
+
+        // Then
+        assertThat(accountDao.select(1).getAmount()).isEqualByComparingTo(new BigDecimal("100"));
+        assertThat(accountDao.select(2).getAmount()).isEqualByComparingTo(new BigDecimal("702.35"));
+    }
+
+    @Test
+    public void test_transfer_it_must_not_cache_uncommitted_amount_when_transaction_is_rolled_back() throws Exception {
+        // Given
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final Account fromAccount = accountDao.select(1);
+        final Account toAccount = new Account().setId(100).setAmount(BigDecimal.ZERO);
+
+        // When
+        final Throwable exception = catchThrowable(() ->
+                accountManager.transfer(fromAccount, toAccount, new BigDecimal("23.45")));
+
+        // Then
+        assertThat(exception).isInstanceOf(NoSuchAccountException.class);
+        assertThat(accountDao.select(1).getAmount()).isEqualByComparingTo(new BigDecimal("123.45"));
+    }
+
+    @Test
+    public void test_transfer_by_ids_it_must_invalidate_relatively_updated_accounts_after_commit() throws Exception {
+        // Given
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        accountDao.select(1);
+        accountDao.select(2);
+
+        // When
+        accountManager.transfer(1, 2, new BigDecimal("23.45"));
+
+        // Then
+        assertThat(accountDao.select(1).getAmount()).isEqualByComparingTo(new BigDecimal("100"));
+        assertThat(accountDao.select(2).getAmount()).isEqualByComparingTo(new BigDecimal("702.35"));
+    }
+
+    @Test
+    public void test_select_it_must_not_cache_amount_loaded_before_concurrent_invalidation() throws Exception {
+        // Given
+        final CountDownLatch selecting = new CountDownLatch(1);
+        final CountDownLatch committed = new CountDownLatch(1);
+        final AccountDaoMock delegate = new AccountDaoMock() {
+            @Override
+            public Account select(long accountId) {
+                final Account account = super.select(accountId);
+                if (selecting.getCount() > 0) {
+                    // the select has read the amount, the debit commits before the amount is published
+                    selecting.countDown();
+                    Uninterruptibles.awaitUninterruptibly(committed);
+                }
+                return account;
+            }
+        };
+        delegate.insert(new Account().setAmount(new BigDecimal("100")));
+        final CachingAccountDao cachingDao = new CachingAccountDao(delegate, mock(SqlSessionManager.class), 100);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // When
+        final Future<Account> loaded = executor.submit(() -> cachingDao.select(1));
+        selecting.await();
+        cachingDao.debit(1, BigDecimal.TEN);
+        committed.countDown();
+        loaded.get();
+        executor.shutdown();
+
+        // Then
+        assertThat(cachingDao.select(1).getAmount()).isEqualByComparingTo(new BigDecimal("90"));
+    }
+
+    private void updateBehindCache(String sql) throws Exception {
+        try (Connection connection = injector.getInstance(DataSource.class).getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+            connection.commit();
+        }
+    }
+
+    private Object gauge(String name) {
+        return metrics.getGauges().get(MetricRegistry.name(CachingAccountDao.class, name)).getValue();
+    }
+}
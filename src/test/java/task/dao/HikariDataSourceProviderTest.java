@@ -0,0 +1,108 @@
+package task.dao;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.google.inject.Scopes;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Test;
+import task.TestDataSource;
+import task.config.DataSourceConfiguration;
+import task.model.Account;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class HikariDataSourceProviderTest {
+
+    private final TestDataSource dataSource = new TestDataSource(
+            "sql/database-schema.sql", "sql/database-test-data.sql");
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final DataSourceConfiguration configuration = new DataSourceConfiguration();
+
+    private HikariDataSource hikariDataSource;
+
+    @After
+    public void tearDown() throws Exception {
+        if (hikariDataSource != null) {
+            hikariDataSource.close();
+        }
+    }
+
+    @Test
+    public void test_get_it_must_provide_pool_used_by_mybatis() throws Exception {
+        // Given
+        final Injector injector = createInjector();
+
+        // When
+        final Account account = injector.getInstance(AccountDao.class).select(1);
+
+        // Then
+        assertThat(injector.getInstance(DataSource.class)).isInstanceOf(HikariDataSource.class);
+        assertThat(account).isEqualTo(new Account().setId(1).setAmount(new BigDecimal("123.45")));
+    }
+
+    @Test
+    public void test_get_it_must_report_wait_time_and_connection_counts() throws Exception {
+        // Given
+        createInjector();
+
+        // When
+        try (Connection ignored = hikariDataSource.getConnection()) {
+            // Then
+            assertThat(metrics.timer("account-db.pool.Wait").getCount()).isGreaterThan(0);
+            // gauges are refreshed by the pool once a second, so only the first read is exact
+            assertThat(gauge("account-db.pool.ActiveConnections")).isEqualTo(1);
+        }
+        assertThat(metrics.getGauges()).containsKeys(
+                "account-db.pool.IdleConnections",
+                "account-db.pool.PendingConnections",
+                "account-db.pool.TotalConnections");
+    }
+
+    @Test
+    public void test_get_it_must_report_timeout_when_no_connection_is_available() throws Exception {
+        // Given
+        configuration.setMaximumPoolSize(1);
+        configuration.setConnectionTimeoutMillis(250);
+        createInjector();
+
+        // When
+        final Throwable exception;
+        try (Connection ignored = hikariDataSource.getConnection()) {
+            exception = catchThrowable(() -> hikariDataSource.getConnection());
+        }
+
+        // Then
+        assertThat(exception).isInstanceOf(SQLException.class);
+        assertThat(metrics.meter("account-db.pool.ConnectionTimeoutRate").getCount()).isEqualTo(1);
+    }
+
+    private Injector createInjector() throws Exception {
+        configuration.setMinimumIdle(2);
+        final Injector injector = dataSource.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(DataSourceConfiguration.class).toInstance(configuration);
+                bind(MetricRegistry.class).toInstance(metrics);
+                bind(DataSource.class).toProvider(HikariDataSourceProvider.class).in(Scopes.SINGLETON);
+            }
+        });
+        hikariDataSource = (HikariDataSource) injector.getInstance(DataSource.class);
+        return injector;
+    }
+
+    private int gauge(String name) {
+        return (Integer) metrics.getGauges().get(name).getValue();
+    }
+}
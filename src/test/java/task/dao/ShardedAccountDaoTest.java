@@ -0,0 +1,129 @@
+package task.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+import task.TestDataSource;
+import task.model.Account;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class ShardedAccountDaoTest {
+
+    private final TestDataSource dataSource = new TestDataSource("sql/database-schema.sql");
+
+    private AccountShards shards;
+    private AccountDao accountDao;
+
+    @Before
+    public void setUp() throws Exception {
+        shards = dataSource.createShards(3);
+        accountDao = new ShardedAccountDao(shards);
+    }
+
+    @Test
+    public void test_insert_it_must_insert_accounts_to_shards_in_round_robin_order() throws Exception {
+        // Given, when
+        for (int i = 1; i <= 4; i++) {
+            accountDao.insert(new Account().setAmount(BigDecimal.valueOf(i)));
+        }
+
+        // Then
+        for (long accountId = 1; accountId <= 4; accountId++) {
+            final AccountDao shardDao = shards.get(shards.shardOf(accountId)).getMapper(AccountDao.class);
+            assertThat(shardDao.select(accountId))
+                    .isEqualTo(new Account().setId(accountId).setAmount(BigDecimal.valueOf(accountId)));
+        }
+    }
+
+    @Test
+    public void test_allocateIds_and_insertAll_it_must_spread_accounts_across_shards_in_round_robin_order() throws Exception {
+        // Given
+        final List<Long> ids = accountDao.allocateIds(5);
+        final List<Account> accounts = new ArrayList<>();
+        for (long id : ids) {
+            accounts.add(new Account().setId(id).setAmount(BigDecimal.valueOf(id)));
+        }
+
+        // When
+        accountDao.insertAll(accounts);
+
+        // Then
+        assertThat(ids).containsExactly(1L, 2L, 3L, 4L, 5L);
+        for (Account account : accounts) {
+            final AccountDao shardDao = shards.get(shards.shardOf(account.getId())).getMapper(AccountDao.class);
+            assertThat(shardDao.select(account.getId())).isEqualTo(account);
+        }
+        accountDao.insert(new Account().setAmount(BigDecimal.ZERO));
+        assertThat(accountDao.select(6)).isEqualTo(new Account().setId(6).setAmount(BigDecimal.ZERO));
+    }
+
+    @Test
+    public void test_restartSequence_it_must_restart_every_shard_at_its_first_id_not_less_than_nextId() throws Exception {
+        // Given
+        accountDao.insert(new Account().setAmount(BigDecimal.ONE));
+
+        // When
+        accountDao.restartSequence(11);
+        final List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            final Account account = new Account().setAmount(BigDecimal.ONE);
+            accountDao.insert(account);
+            ids.add(account.getId());
+        }
+
+        // Then: shard 0 has ids 1, 4, 7..., shard 1 has ids 2, 5, 8... and shard 2 has ids 3, 6, 9...
+        assertThat(ids).containsExactlyInAnyOrder(11L, 12L, 13L, 14L, 15L, 16L);
+        for (long accountId : ids) {
+            final AccountDao shardDao = shards.get(shards.shardOf(accountId)).getMapper(AccountDao.class);
+            assertThat(shardDao.select(accountId)).isNotNull();
+        }
+    }
+
+    @Test
+    public void test_selectAll_it_must_select_accounts_from_their_shards() throws Exception {
+        // Given
+        for (int i = 1; i <= 4; i++) {
+            accountDao.insert(new Account().setAmount(BigDecimal.valueOf(i)));
+        }
+
+        // When
+        final List<Account> accounts = accountDao.selectAll(Arrays.asList(1L, 3L, 4L, 100L));
+
+        // Then
+        assertThat(accounts).containsExactlyInAnyOrder(
+                new Account().setId(1).setAmount(new BigDecimal("1.00000000")),
+                new Account().setId(3).setAmount(new BigDecimal("3.00000000")),
+                new Account().setId(4).setAmount(new BigDecimal("4.00000000")));
+    }
+
+    @Test
+    public void test_debit_and_credit_it_must_route_to_shard_of_account() throws Exception {
+        // Given
+        accountDao.insert(new Account().setAmount(BigDecimal.TEN));
+        accountDao.insert(new Account().setAmount(BigDecimal.ONE));
+
+        // When
+        final int debited = accountDao.debit(1, BigDecimal.ONE);
+        final int credited = accountDao.credit(2, BigDecimal.ONE);
+
+        // Then
+        assertThat(debited).isEqualTo(1);
+        assertThat(credited).isEqualTo(1);
+        assertThat(accountDao.select(1).getAmount()).isEqualByComparingTo(new BigDecimal("9"));
+        assertThat(accountDao.select(2).getAmount()).isEqualByComparingTo(new BigDecimal("2"));
+        assertThat(accountDao.select(3)).isNull();
+    }
+
+    @Test
+    public void test_ping_it_must_ping_all_shards() throws Exception {
+        assertThat(accountDao.ping()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,82 @@
+package task.dao;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Injector;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import task.TestDataSource;
+import task.exception.NoSuchAccountException;
+import task.manager.AccountManager;
+import task.model.Account;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class StatementMetricsTest {
+
+    private final TestDataSource dataSource = new TestDataSource(
+            "sql/database-schema.sql", "sql/database-test-data.sql");
+
+    private final MetricRegistry metrics = new MetricRegistry();
+
+    private AccountDao accountDao;
+    private AccountManager accountManager;
+
+    @Before
+    public void setUp() throws Exception {
+        final Injector injector = dataSource.createInjector(
+                binder -> binder.bind(MetricRegistry.class).toInstance(metrics));
+        new StatementMetrics(metrics).install(injector.getInstance(SqlSessionFactory.class).getConfiguration());
+        accountDao = injector.getInstance(AccountDao.class);
+        accountManager = injector.getInstance(AccountManager.class);
+    }
+
+    @Test
+    public void test_intercept_it_must_measure_statements_by_mapped_statement_id() throws Exception {
+        // When
+        accountDao.select(1);
+        accountDao.select(2);
+        accountDao.credit(1, BigDecimal.ONE);
+
+        // Then
+        assertThat(metrics.getTimers().get("account-db.statements.task.dao.AccountDao.select").getCount())
+                .isEqualTo(2);
+        assertThat(metrics.getTimers().get("account-db.statements.task.dao.AccountDao.credit").getCount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void test_intercept_it_must_measure_commit_and_transfer_separately() throws Exception {
+        // Given
+        final Account fromAccount = accountDao.select(1);
+        final Account toAccount = accountDao.select(2);
+
+        // When
+        accountManager.transfer(fromAccount, toAccount, BigDecimal.TEN);
+
+        // Then
+        assertThat(metrics.getTimers().get("account-db.statements.task.dao.AccountDao.update").getCount())
+                .isEqualTo(2);
+        assertThat(metrics.getTimers().get("account-db.commit").getCount()).isEqualTo(1);
+        assertThat(metrics.getTimers().get("task.manager.AccountManager.transfer").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_intercept_it_must_measure_failed_transfer_without_commit() throws Exception {
+        // When
+        final Throwable exception = catchThrowable(() -> accountManager.transfer(1, 3, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception).isInstanceOf(NoSuchAccountException.class);
+        assertThat(metrics.getTimers().get("account-db.statements.task.dao.AccountDao.debit").getCount())
+                .isEqualTo(1);
+        assertThat(metrics.getTimers().get("account-db.commit")).matches(timer -> timer.getCount() == 0);
+        assertThat(metrics.getTimers().get("task.manager.AccountManager.transfer").getCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,52 @@
+package task.health;
+
+import com.codahale.metrics.health.HealthCheck;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import task.service.LedgerAccountService;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LedgerHealthCheckTest {
+
+    @Mock
+    private LedgerAccountService ledger;
+
+    private HealthCheck healthCheck;
+
+    @Before
+    public void setUp() throws Exception {
+        healthCheck = new LedgerHealthCheck(ledger);
+    }
+
+    @Test
+    public void test_execute_it_must_return_healthy_result_when_ledger_has_no_failure() throws Exception {
+        // Given, when
+        doReturn(null).when(ledger).getFailure();
+
+        // Then
+        assertThat(healthCheck.execute().isHealthy(), is(true));
+    }
+
+    @Test
+    public void test_execute_it_must_return_unhealthy_result_when_journal_failed() throws Exception {
+        // Given, when
+        final IllegalStateException failure = new IllegalStateException("journal flush failed");
+        doReturn(failure).when(ledger).getFailure();
+
+        // Then
+        final HealthCheck.Result result = healthCheck.execute();
+        assertThat(result.isHealthy(), not(true));
+        assertThat(result.getError(), is(failure));
+    }
+}
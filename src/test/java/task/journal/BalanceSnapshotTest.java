@@ -0,0 +1,116 @@
+package task.journal;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class BalanceSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_readLatest_it_must_return_balances_of_the_latest_written_snapshot() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+        BalanceSnapshot.copyOf(5, ImmutableMap.of(1L, BigDecimal.ONE)).write(directory);
+        BalanceSnapshot.copyOf(7, ImmutableMap.of(
+                1L, new BigDecimal("0.5"),
+                2L, new BigDecimal("12345678901234567890.12345678"))).write(directory);
+
+        // When
+        final Optional<BalanceSnapshot> snapshot = BalanceSnapshot.readLatest(directory);
+
+        // Then
+        assertThat(snapshot).isPresent();
+        assertThat(snapshot.get().getSequence()).isEqualTo(7);
+        assertThat(toMap(snapshot.get())).isEqualTo(ImmutableMap.of(
+                1L, new BigDecimal("0.5"),
+                2L, new BigDecimal("12345678901234567890.12345678")));
+    }
+
+    @Test
+    public void test_readLatest_it_must_fall_back_to_previous_snapshot_when_the_latest_is_damaged() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+        BalanceSnapshot.copyOf(5, ImmutableMap.of(1L, BigDecimal.ONE)).write(directory);
+        final Path latest = BalanceSnapshot.copyOf(7, ImmutableMap.of(1L, BigDecimal.TEN)).write(directory);
+        try (RandomAccessFile file = new RandomAccessFile(latest.toFile(), "rw")) {
+            file.seek(file.length() - 5);
+            file.write(42);
+        }
+
+        // When
+        final Optional<BalanceSnapshot> snapshot = BalanceSnapshot.readLatest(directory);
+
+        // Then
+        assertThat(snapshot).isPresent();
+        assertThat(snapshot.get().getSequence()).isEqualTo(5);
+        assertThat(toMap(snapshot.get())).isEqualTo(ImmutableMap.of(1L, BigDecimal.ONE));
+    }
+
+    @Test
+    public void test_readLatest_it_must_return_empty_when_there_are_no_snapshots() throws Exception {
+        // Given, when
+        final Optional<BalanceSnapshot> snapshot = BalanceSnapshot.readLatest(folder.getRoot().toPath());
+
+        // Then
+        assertThat(snapshot).isEmpty();
+    }
+
+    @Test
+    public void test_write_it_must_keep_the_latest_two_snapshots() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+
+        // When
+        for (int sequence = 1; sequence <= 4; sequence++) {
+            BalanceSnapshot.copyOf(sequence, ImmutableMap.of(1L, BigDecimal.ONE)).write(directory);
+        }
+
+        // Then
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList()))
+                    .containsExactly("balances-00000000000000000003.snapshot", "balances-00000000000000000004.snapshot");
+        }
+    }
+
+    @Test
+    public void test_oldestSequence_it_must_return_sequence_of_the_oldest_kept_snapshot() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+        final long noSnapshots = BalanceSnapshot.oldestSequence(directory);
+        for (int sequence = 3; sequence <= 9; sequence += 3) {
+            BalanceSnapshot.copyOf(sequence, ImmutableMap.of(1L, BigDecimal.ONE)).write(directory);
+        }
+
+        // When
+        final long oldest = BalanceSnapshot.oldestSequence(directory);
+
+        // Then
+        assertThat(noSnapshots).isEqualTo(0);
+        assertThat(oldest).isEqualTo(6);
+    }
+
+    private static Map<Long, BigDecimal> toMap(BalanceSnapshot snapshot) {
+        final Map<Long, BigDecimal> balances = new HashMap<>();
+        snapshot.forEach(balances::put);
+        return balances;
+    }
+}
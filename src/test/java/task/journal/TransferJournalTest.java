@@ -0,0 +1,281 @@
+package task.journal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import task.model.Transfer;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class TransferJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_append_it_must_assign_consecutive_sequences_and_read_must_return_records_in_order() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+
+        // When
+        try (TransferJournal journal = TransferJournal.open(directory, 1024, Durability.SYNC)) {
+            assertThat(journal.append(new Transfer(1, 2, new BigDecimal("1.5")))).isEqualTo(1);
+            assertThat(journal.append(new Transfer(2, 3, new BigDecimal("12345678901234567890.12345678")))).isEqualTo(2);
+            journal.sync(2);
+        }
+
+        // Then
+        assertThat(read(directory, 1)).containsExactly(
+                new Transfer(1, 2, new BigDecimal("1.5")),
+                new Transfer(2, 3, new BigDecimal("12345678901234567890.12345678")));
+        assertThat(read(directory, 2)).containsExactly(
+                new Transfer(2, 3, new BigDecimal("12345678901234567890.12345678")));
+    }
+
+    @Test
+    public void test_append_it_must_start_new_segment_when_record_does_not_fit() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+
+        // When
+        try (TransferJournal journal = TransferJournal.open(directory, TransferJournal.MIN_SEGMENT_SIZE, Durability.NONE)) {
+            for (int i = 1; i <= 10; i++) {
+                journal.append(new Transfer(i, i + 1, BigDecimal.valueOf(i)));
+            }
+        }
+
+        // Then
+        assertThat(segments(directory)).hasSize(5);
+        assertThat(read(directory, 1)).hasSize(10);
+        assertThat(read(directory, 8)).extracting(Transfer::getFromAccountId).containsExactly(8L, 9L, 10L);
+    }
+
+    @Test
+    public void test_deleteSegments_it_must_delete_only_segments_with_all_records_up_to_sequence() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+        try (TransferJournal journal = TransferJournal.open(directory, TransferJournal.MIN_SEGMENT_SIZE, Durability.NONE)) {
+            for (int i = 1; i <= 10; i++) {
+                journal.append(new Transfer(i, i + 1, BigDecimal.valueOf(i)));
+            }
+        }
+
+        // When
+        final int deleted = TransferJournal.deleteSegments(directory, 6);
+
+        // Then
+        assertThat(deleted).isEqualTo(3);
+        assertThat(segments(directory)).hasSize(2);
+        assertThat(read(directory, 7)).extracting(Transfer::getFromAccountId).containsExactly(7L, 8L, 9L, 10L);
+    }
+
+    @Test
+    public void test_deleteSegments_it_must_keep_the_last_segment() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+        try (TransferJournal journal = TransferJournal.open(directory, TransferJournal.MIN_SEGMENT_SIZE, Durability.NONE)) {
+            for (int i = 1; i <= 4; i++) {
+                journal.append(new Transfer(i, i + 1, BigDecimal.valueOf(i)));
+            }
+        }
+
+        // When
+        final int deleted = TransferJournal.deleteSegments(directory, 4);
+
+        // Then
+        assertThat(deleted).isEqualTo(1);
+        try (TransferJournal journal = TransferJournal.open(directory, TransferJournal.MIN_SEGMENT_SIZE, Durability.NONE)) {
+            assertThat(journal.getLastSequence()).isEqualTo(4);
+            assertThat(journal.append(new Transfer(5, 6, BigDecimal.ONE))).isEqualTo(5);
+        }
+    }
+
+    @Test
+    public void test_open_it_must_continue_after_last_record() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+        try (TransferJournal journal = TransferJournal.open(directory, 1024, Durability.GROUP)) {
+            journal.append(new Transfer(1, 2, BigDecimal.ONE));
+            journal.sync(1);
+        }
+
+        // When
+        try (TransferJournal journal = TransferJournal.open(directory, 1024, Durability.GROUP)) {
+            assertThat(journal.getLastSequence()).isEqualTo(1);
+            assertThat(journal.append(new Transfer(2, 1, BigDecimal.TEN))).isEqualTo(2);
+            journal.sync(2);
+        }
+
+        // Then
+        assertThat(read(directory, 1)).containsExactly(
+                new Transfer(1, 2, BigDecimal.ONE),
+                new Transfer(2, 1, BigDecimal.TEN));
+    }
+
+    @Test
+    public void test_open_it_must_drop_torn_record_at_the_end() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+        try (TransferJournal journal = TransferJournal.open(directory, 1024, Durability.SYNC)) {
+            journal.append(new Transfer(1, 2, BigDecimal.ONE));
+            journal.append(new Transfer(2, 1, BigDecimal.TEN));
+            journal.sync(2);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segments(directory).get(0).toFile(), "rw")) {
+            // corrupt the amount of the second record
+            final long secondRecordEnd = 2 * (8 + 28 + 1);
+            file.seek(secondRecordEnd - 1);
+            file.write(42);
+        }
+
+        // When
+        try (TransferJournal journal = TransferJournal.open(directory, 1024, Durability.SYNC)) {
+            assertThat(journal.getLastSequence()).isEqualTo(1);
+            journal.append(new Transfer(3, 1, BigDecimal.ONE));
+            journal.sync(2);
+        }
+
+        // Then
+        assertThat(read(directory, 1)).containsExactly(
+                new Transfer(1, 2, BigDecimal.ONE),
+                new Transfer(3, 1, BigDecimal.ONE));
+    }
+
+    @Test
+    public void test_sync_it_must_make_records_of_concurrent_writers_durable_when_durability_is_GROUP() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        try (TransferJournal journal = TransferJournal.open(directory, 4096, Durability.GROUP)) {
+            for (int i = 0; i < 200; i++) {
+                futures.add(executor.submit(() -> journal.sync(journal.append(new Transfer(1, 2, BigDecimal.ONE)))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        final List<Long> sequences = new ArrayList<>();
+        TransferJournal.read(directory, 1, record -> sequences.add(record.getSequence()));
+        assertThat(sequences).hasSize(200);
+        assertThat(sequences).isSorted();
+    }
+
+    @Test
+    public void test_advanceTo_it_must_continue_after_given_sequence_when_journal_is_behind() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+
+        // When
+        try (TransferJournal journal = TransferJournal.open(directory, 1024, Durability.NONE)) {
+            journal.append(new Transfer(1, 2, BigDecimal.ONE));
+            journal.advanceTo(10);
+            assertThat(journal.append(new Transfer(2, 1, BigDecimal.ONE))).isEqualTo(11);
+            journal.advanceTo(5);
+            assertThat(journal.append(new Transfer(1, 2, BigDecimal.TEN))).isEqualTo(12);
+        }
+
+        // Then
+        final List<Long> sequences = new ArrayList<>();
+        TransferJournal.read(directory, 1, record -> sequences.add(record.getSequence()));
+        assertThat(sequences).containsExactly(1L, 11L, 12L);
+    }
+
+    @Test
+    public void test_append_it_must_throw_IllegalStateException_when_journal_is_closed() throws Exception {
+        // Given
+        final TransferJournal journal = TransferJournal.open(folder.getRoot().toPath(), 1024, Durability.NONE);
+        journal.close();
+
+        // When
+        final Throwable exception = catchThrowable(() -> journal.append(new Transfer(1, 2, BigDecimal.ONE)));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("journal is closed");
+    }
+
+    @Test(timeout = 10_000)
+    public void test_sync_it_must_fail_at_once_after_flusher_failed_when_durability_is_GROUP() throws Exception {
+        // Given
+        final Path directory = folder.getRoot().toPath();
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final TransferJournal journal = new TransferJournal(directory, 1024, Durability.GROUP) {
+            @Override
+            protected void force(MappedByteBuffer buffer) {
+                if (failing.get()) {
+                    throw new UncheckedIOException(new IOException("disk failure"));
+                }
+                super.force(buffer);
+            }
+        };
+
+        // When
+        try {
+            journal.append(new Transfer(1, 2, BigDecimal.ONE));
+            final Throwable firstSync = catchThrowable(() -> journal.sync(1));
+            failing.set(false);
+            final Throwable secondSync = catchThrowable(() -> journal.sync(1));
+            final Throwable append = catchThrowable(() -> journal.append(new Transfer(1, 2, BigDecimal.ONE)));
+
+            // Then
+            assertThat(firstSync).isInstanceOf(IllegalStateException.class).hasCauseInstanceOf(UncheckedIOException.class);
+            assertThat(secondSync).isInstanceOf(IllegalStateException.class).hasMessage("journal flush failed");
+            assertThat(append).isInstanceOf(IllegalStateException.class).hasMessage("journal flush failed");
+            assertThat(journal.isFailed()).isTrue();
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void test_open_it_must_throw_IllegalArgumentException_when_segment_is_too_small() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() ->
+                TransferJournal.open(folder.getRoot().toPath(), 64, Durability.NONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("segmentSize < ");
+    }
+
+    private static List<Transfer> read(Path directory, long fromSequence) throws IOException {
+        final List<Transfer> transfers = new ArrayList<>();
+        TransferJournal.read(directory, fromSequence, record -> transfers.add(record.getTransfer()));
+        return transfers;
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+}
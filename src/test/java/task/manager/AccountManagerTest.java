@@ -1,6 +1,7 @@
 package task.manager;
 
 import com.google.inject.Injector;
+import org.apache.ibatis.exceptions.PersistenceException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -9,8 +10,14 @@ import task.dao.AccountDao;
 import task.exception.LimitExceededException;
 import task.exception.NoSuchAccountException;
 import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -117,4 +124,206 @@ public class AccountManagerTest {
         assertThat(accountDao.select(1)).isEqualTo(new Account().setId(1).setAmount(new BigDecimal("113.45")));
         assertThat(accountDao.select(2)).isEqualTo(new Account().setId(2).setAmount(new BigDecimal("688.90")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_createAll_it_must_insert_accounts_with_ids_from_sequence() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final AccountDao accountDao = injector.getInstance(AccountDao.class);
+
+        // Given
+        final List<BigDecimal> amounts = new ArrayList<>();
+        for (int i = 0; i < 1234; i++) {
+            amounts.add(BigDecimal.valueOf(i));
+        }
+        amounts.set(0, null);
+
+        // When
+        final List<Account> accounts = accountManager.createAll(amounts);
+
+        // Then
+        assertThat(accounts).hasSize(1234);
+        assertThat(accounts).extracting(Account::getId).doesNotHaveDuplicates().allMatch(id -> id > 2);
+        assertThat(accountDao.select(accounts.get(0).getId()).getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(accountDao.select(accounts.get(1233).getId()).getAmount()).isEqualByComparingTo("1233");
+        assertThat(accountDao.selectMaxId()).isEqualTo(1236);
+    }
+
+    @Test
+    public void test_createAll_it_must_rollback_transaction_when_any_insert_fails() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final AccountDao accountDao = injector.getInstance(AccountDao.class);
+
+        // Given
+        final List<BigDecimal> amounts = new ArrayList<>(Collections.nCopies(600, BigDecimal.ONE));
+        // the amount doesn't fit the column
+        amounts.add(new BigDecimal("1e40"));
+
+        // When
+        final Throwable exception = catchThrowable(() -> accountManager.createAll(amounts));
+
+        // Then
+        assertThat(exception).isInstanceOf(PersistenceException.class);
+        assertThat(accountDao.selectMaxId()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_updateAll_it_must_update_all_accounts_when_accounts_exist() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final AccountDao accountDao = injector.getInstance(AccountDao.class);
+
+        // Given
+        final Account account1 = new Account().setId(1).setAmount(BigDecimal.ONE);
+        final Account account2 = new Account().setId(2).setAmount(BigDecimal.TEN);
+
+        // When
+        accountManager.updateAll(Arrays.asList(account1, account2));
+
+        // Then
+        assertThat(accountDao.select(1)).isEqualTo(account1);
+        assertThat(accountDao.select(2)).isEqualTo(account2);
+    }
+
+    @Test
+    public void test_updateAll_it_must_rollback_transaction_when_any_account_does_not_exist() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final AccountDao accountDao = injector.getInstance(AccountDao.class);
+
+        // Given
+        final Account account1 = new Account().setId(1).setAmount(BigDecimal.ONE);
+        final Account account3 = new Account().setId(3).setAmount(BigDecimal.TEN);
+
+        // When
+        final Throwable exception = catchThrowable(() -> accountManager.updateAll(Arrays.asList(account1, account3)));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 3");
+
+        assertThat(accountDao.select(1)).isEqualTo(new Account().setId(1).setAmount(new BigDecimal("123.45")));
+    }
+
+    @Test
+    public void test_transfer_by_ids_it_must_transfer_when_accounts_exist_and_money_is_enough() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final AccountDao accountDao = injector.getInstance(AccountDao.class);
+
+        // Given, when
+        accountManager.transfer(1, 2, new BigDecimal("23.45"));
+
+        // Then
+        assertThat(accountDao.select(1)).isEqualTo(new Account().setId(1).setAmount(new BigDecimal("100")));
+        assertThat(accountDao.select(2)).isEqualTo(new Account().setId(2).setAmount(new BigDecimal("702.35")));
+    }
+
+    @Test
+    public void test_transfer_by_ids_it_must_throw_NoSuchAccountException_when_first_account_does_not_exist() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final AccountDao accountDao = injector.getInstance(AccountDao.class);
+
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountManager.transfer(3, 1, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 3");
+
+        assertThat(accountDao.select(1)).isEqualTo(new Account().setId(1).setAmount(new BigDecimal("123.45")));
+    }
+
+    @Test
+    public void test_transfer_by_ids_it_must_rollback_transaction_when_second_account_does_not_exist() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final AccountDao accountDao = injector.getInstance(AccountDao.class);
+
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountManager.transfer(2, 4, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 4");
+
+        assertThat(accountDao.select(2)).isEqualTo(new Account().setId(2).setAmount(new BigDecimal("678.90")));
+    }
+
+    @Test
+    public void test_transfer_by_ids_it_must_throw_LimitExceededException_when_amount_is_greater_than_balance() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final AccountDao accountDao = injector.getInstance(AccountDao.class);
+
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountManager.transfer(1, 2, new BigDecimal("200")));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(LimitExceededException.class)
+                .hasMessageStartingWith("Failed to withdraw from account: 1");
+
+        assertThat(accountDao.select(1)).isEqualTo(new Account().setId(1).setAmount(new BigDecimal("123.45")));
+        assertThat(accountDao.select(2)).isEqualTo(new Account().setId(2).setAmount(new BigDecimal("678.90")));
+    }
+
+    @Test
+    public void test_transferAll_it_must_apply_transfers_in_order_and_compensate_failed_ones() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final AccountDao accountDao = injector.getInstance(AccountDao.class);
+
+        // Given, when
+        final List<TransferOutcome> outcomes = accountManager.transferAll(Arrays.asList(
+                new Transfer(1, 2, new BigDecimal("200")),
+                new Transfer(2, 1, new BigDecimal("200")),
+                new Transfer(1, 3, BigDecimal.ONE),
+                new Transfer(3, 1, BigDecimal.ONE)));
+
+        // Then
+        assertThat(outcomes).containsExactly(
+                TransferOutcome.LIMIT_EXCEEDED,
+                TransferOutcome.OK,
+                TransferOutcome.NO_SUCH_ACCOUNT,
+                TransferOutcome.NO_SUCH_ACCOUNT);
+
+        assertThat(accountDao.select(1)).isEqualTo(new Account().setId(1).setAmount(new BigDecimal("323.45")));
+        assertThat(accountDao.select(2)).isEqualTo(new Account().setId(2).setAmount(new BigDecimal("478.90")));
+    }
+
+    @Test
+    public void test_transferEach_it_must_apply_transfers_in_order_and_return_reasons_of_failed_ones() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        final AccountManager accountManager = injector.getInstance(AccountManager.class);
+        final AccountDao accountDao = injector.getInstance(AccountDao.class);
+
+        // Given, when
+        final List<RuntimeException> failures = accountManager.transferEach(Arrays.asList(
+                new Transfer(1, 2, new BigDecimal("200")),
+                new Transfer(2, 1, new BigDecimal("200")),
+                new Transfer(1, 3, BigDecimal.ONE),
+                new Transfer(3, 1, BigDecimal.ONE)));
+
+        // Then
+        assertThat(failures).hasSize(4);
+        assertThat(failures.get(0))
+                .isInstanceOf(LimitExceededException.class)
+                .hasMessageStartingWith("Failed to withdraw from account: 1");
+        assertThat(failures.get(1)).isNull();
+        assertThat(failures.get(2))
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 3");
+        assertThat(failures.get(3))
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 3");
+
+        assertThat(accountDao.select(1)).isEqualTo(new Account().setId(1).setAmount(new BigDecimal("323.45")));
+        assertThat(accountDao.select(2)).isEqualTo(new Account().setId(2).setAmount(new BigDecimal("478.90")));
+    }
+}
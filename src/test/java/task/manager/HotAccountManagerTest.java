@@ -0,0 +1,113 @@
+package task.manager;
+
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.Test;
+import task.TestDataSource;
+import task.dao.AccountDao;
+import task.dao.AccountSlotDao;
+import task.exception.NoSuchAccountException;
+import task.model.Account;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class HotAccountManagerTest {
+
+    private static final int SLOTS = 4;
+
+    private final TestDataSource dataSource = new TestDataSource(
+            "sql/database-schema.sql", "sql/database-test-data.sql");
+
+    private HotAccountManager hotAccountManager;
+    private AccountDao accountDao;
+    private AccountSlotDao accountSlotDao;
+
+    @Before
+    public void setUp() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        hotAccountManager = injector.getInstance(HotAccountManager.class);
+        accountDao = injector.getInstance(AccountDao.class);
+        accountSlotDao = injector.getInstance(AccountSlotDao.class);
+    }
+
+    @Test
+    public void test_createSlots_it_must_create_empty_slots_once() throws Exception {
+        // When
+        final boolean created = hotAccountManager.createSlots(2, SLOTS);
+        final boolean createdAgain = hotAccountManager.createSlots(2, SLOTS);
+
+        // Then
+        assertThat(created).isTrue();
+        assertThat(createdAgain).isTrue();
+        assertThat(accountSlotDao.selectSlotAmounts(2)).hasSize(SLOTS).allMatch(amount -> amount.signum() == 0);
+        assertThat(accountSlotDao.selectBalance(2)).isEqualByComparingTo("678.90");
+    }
+
+    @Test
+    public void test_createSlots_it_must_return_false_when_account_does_not_exist() throws Exception {
+        // When
+        final boolean created = hotAccountManager.createSlots(3, SLOTS);
+
+        // Then
+        assertThat(created).isFalse();
+        assertThat(accountSlotDao.selectSlotAmounts(3)).isEmpty();
+    }
+
+    @Test
+    public void test_transferToSlot_it_must_credit_slot_and_keep_account_row() throws Exception {
+        // Given
+        hotAccountManager.createSlots(2, SLOTS);
+
+        // When
+        hotAccountManager.transferToSlot(accountDao.select(1), 2, 1, new BigDecimal("23.45"));
+
+        // Then
+        assertThat(accountDao.select(1).getAmount()).isEqualByComparingTo("100");
+        assertThat(accountDao.select(2).getAmount()).isEqualByComparingTo("678.90");
+        assertThat(accountSlotDao.selectSlotAmounts(2).get(1)).isEqualByComparingTo("23.45");
+        assertThat(accountSlotDao.selectBalance(2)).isEqualByComparingTo("702.35");
+    }
+
+    @Test
+    public void test_transferToSlot_it_must_rollback_transaction_when_slot_does_not_exist() throws Exception {
+        // When
+        final Throwable exception = catchThrowable(() ->
+                hotAccountManager.transferToSlot(accountDao.select(1), 2, 0, BigDecimal.TEN));
+
+        // Then
+        assertThat(exception).isInstanceOf(NoSuchAccountException.class).hasMessage("No such account: 2");
+        assertThat(accountDao.select(1).getAmount()).isEqualByComparingTo("123.45");
+    }
+
+    @Test
+    public void test_sweep_it_must_move_money_of_slots_to_account_row() throws Exception {
+        // Given
+        hotAccountManager.createSlots(2, SLOTS);
+        accountSlotDao.credit(2, 0, new BigDecimal("0.10"));
+        accountSlotDao.credit(2, 3, new BigDecimal("1.00"));
+
+        // When
+        final Account account = hotAccountManager.sweep(2);
+
+        // Then
+        assertThat(account.getAmount()).isEqualByComparingTo("680");
+        assertThat(accountDao.select(2).getAmount()).isEqualByComparingTo("680");
+        assertThat(accountSlotDao.selectSlotAmounts(2)).allMatch(amount -> amount.signum() == 0);
+        assertThat(accountSlotDao.selectBalance(2)).isEqualByComparingTo("680");
+    }
+
+    @Test
+    public void test_sweep_it_must_return_null_when_account_does_not_exist() throws Exception {
+        // When
+        final Account account = hotAccountManager.sweep(3);
+
+        // Then
+        assertThat(account).isNull();
+    }
+}
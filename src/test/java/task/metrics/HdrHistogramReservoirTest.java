@@ -0,0 +1,99 @@
+package task.metrics;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class HdrHistogramReservoirTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final HdrHistogramReservoir reservoir = new HdrHistogramReservoir(1, TimeUnit.MINUTES, nanoTime::get);
+
+    @Test
+    public void test_getSnapshot_it_must_return_percentiles_of_all_recorded_values() throws Exception {
+        // Given
+        for (long value = 1; value <= 1000; value++) {
+            reservoir.update(value * 1000);
+        }
+
+        // When
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        // Then
+        assertThat(snapshot.size()).isEqualTo(1000);
+        assertThat(snapshot.getMin()).isEqualTo(1000);
+        assertThat((double) snapshot.getMax()).isCloseTo(1_000_000, offset(10_000.0));
+        assertThat(snapshot.getMedian()).isCloseTo(500_000, offset(5_000.0));
+        assertThat(snapshot.get99thPercentile()).isCloseTo(990_000, offset(10_000.0));
+        assertThat(snapshot.getMean()).isCloseTo(500_500, offset(5_000.0));
+        assertThat(snapshot.getValues()).hasSize(1000);
+    }
+
+    @Test
+    public void test_getSnapshot_it_must_keep_values_of_previous_window() throws Exception {
+        // Given
+        reservoir.update(100);
+        reservoir.getSnapshot();
+        nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+        // When
+        reservoir.update(200);
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        // Then
+        assertThat(snapshot.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_getSnapshot_it_must_drop_values_older_than_two_windows() throws Exception {
+        // Given
+        reservoir.update(100);
+        reservoir.getSnapshot();
+        nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        reservoir.update(200);
+        reservoir.getSnapshot();
+        nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(1));
+
+        // When
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        // Then
+        assertThat(snapshot.size()).isEqualTo(1);
+        assertThat(snapshot.getMin()).isEqualTo(200);
+    }
+
+    @Test
+    public void test_getSnapshot_it_must_return_zeros_when_nothing_is_recorded() throws Exception {
+        // When
+        final Snapshot snapshot = reservoir.getSnapshot();
+
+        // Then
+        assertThat(snapshot.size()).isZero();
+        assertThat(snapshot.getMax()).isZero();
+        assertThat(snapshot.get99thPercentile()).isZero();
+    }
+
+    @Test
+    public void test_timer_it_must_return_same_timer_for_same_name() throws Exception {
+        // Given
+        final MetricRegistry metrics = new MetricRegistry();
+
+        // When
+        final Timer timer = HdrHistogramReservoir.timer(metrics, "timer");
+        timer.update(5, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThat(HdrHistogramReservoir.timer(metrics, "timer")).isSameAs(timer);
+        assertThat((double) timer.getSnapshot().getMin()).isCloseTo(5_000_000, offset(50_000.0));
+    }
+}
@@ -0,0 +1,116 @@
+package task.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class HeavyHittersTest {
+
+    @Test
+    public void test_getTop_it_must_return_heavy_keys_in_descending_order_of_totals() throws Exception {
+        // Given
+        final HeavyHitters heavyHitters = new HeavyHitters(8, 1024);
+        for (long key = 1; key <= 10_000; key++) {
+            heavyHitters.add(key, 1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            heavyHitters.add(42, 10);
+            heavyHitters.add(7, 5);
+            heavyHitters.add(12345, 1);
+        }
+
+        // When
+        final Map<Long, Long> top = heavyHitters.getTop(3);
+
+        // Then
+        assertThat(top.keySet()).containsExactly(42L, 7L, 12345L);
+        assertThat(top.get(42L)).isGreaterThanOrEqualTo(10_001);
+        assertThat(top.get(7L)).isGreaterThanOrEqualTo(5_001);
+    }
+
+    @Test
+    public void test_estimate_it_must_never_underestimate_total() throws Exception {
+        // Given
+        final HeavyHitters heavyHitters = new HeavyHitters(4, 64);
+        final long[] totals = new long[1000];
+
+        // When
+        for (int i = 0; i < 100_000; i++) {
+            final int key = ThreadLocalRandom.current().nextInt(1, totals.length);
+            heavyHitters.add(key, 3);
+            totals[key] += 3;
+        }
+
+        // Then
+        for (int key = 1; key < totals.length; key++) {
+            assertThat(heavyHitters.estimate(key)).isGreaterThanOrEqualTo(totals[key]);
+        }
+    }
+
+    @Test
+    public void test_add_it_must_track_heavy_key_when_weights_are_added_concurrently() throws Exception {
+        // Given
+        final HeavyHitters heavyHitters = new HeavyHitters(4, 4096);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int thread = 0; thread < 8; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    heavyHitters.add(ThreadLocalRandom.current().nextLong(100, 100_000), 1);
+                    heavyHitters.add(1, 1);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Then
+        final Map<Long, Long> top = heavyHitters.getTop(1);
+        assertThat(top).containsOnlyKeys(1L);
+        assertThat(top.get(1L)).isGreaterThanOrEqualTo(80_000);
+    }
+
+    @Test
+    public void test_clear_it_must_forget_keys_and_totals() throws Exception {
+        // Given
+        final HeavyHitters heavyHitters = new HeavyHitters(4, 64);
+        heavyHitters.add(1, 100);
+
+        // When
+        heavyHitters.clear();
+
+        // Then
+        assertThat(heavyHitters.getTop(4)).isEmpty();
+        assertThat(heavyHitters.estimate(1)).isZero();
+    }
+
+    @Test
+    public void test_add_it_must_throw_IllegalArgumentException_when_key_is_zero() throws Exception {
+        // Given
+        final HeavyHitters heavyHitters = new HeavyHitters(4, 64);
+
+        // When
+        final Throwable exception = catchThrowable(() -> heavyHitters.add(0, 1));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("key must not be zero");
+    }
+}
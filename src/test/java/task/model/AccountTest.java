@@ -201,4 +201,53 @@ public class AccountTest {
         // Then
         assertThat(account.getAmount().compareTo(BigDecimal.valueOf(20)), is(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_withdraw_it_must_withdraw_when_delta_has_more_than_eight_fractional_digits() throws Exception {
+        // Given
+        account.setAmount(BigDecimal.ONE);
+
+        // When
+        account.withdraw(new BigDecimal("0.000000001"));
+
+        // Then
+        assertThat(account.getAmount().compareTo(new BigDecimal("0.999999999")), is(0));
+    }
+
+    @Test(expected = LimitExceededException.class) // Then
+    public void test_withdraw_it_must_throw_limit_exceeded_exception_when_amount_is_not_representable_in_units() throws Exception {
+        // Given
+        account.setAmount(new BigDecimal("100000000000"));
+
+        // When
+        account.withdraw(new BigDecimal("100000000000.1"));
+    }
+
+    @Test
+    public void test_deposit_it_must_fall_back_to_big_decimal_when_units_overflow() throws Exception {
+        // Given
+        account.setAmount(new BigDecimal("9999999999"));
+        for (int i = 0; i < 1000; i++) {
+            account.deposit(new BigDecimal("9999999999"));
+        }
+
+        // When
+        account.withdraw(BigDecimal.ONE);
+
+        // Then
+        assertThat(account.getAmount().compareTo(new BigDecimal("10009999998998")), is(0));
+    }
+
+    @Test
+    public void test_equals_it_must_ignore_scale_of_amount() throws Exception {
+        // Given
+        account.setId(1).setAmount(new BigDecimal("1.5"));
+
+        // When
+        final Account other = new Account().setId(1).setAmount(new BigDecimal("1.50000000"));
+
+        // Then
+        assertThat(account.equals(other), is(true));
+        assertThat(account.hashCode(), is(other.hashCode()));
+    }
+}
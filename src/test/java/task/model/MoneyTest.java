@@ -0,0 +1,57 @@
+package task.model;
+
+import com.google.common.math.LongMath;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class MoneyTest {
+
+    @Test
+    public void test_toUnits_it_must_convert_amount_with_up_to_eight_fractional_digits() throws Exception {
+        assertThat(Money.toUnits(new BigDecimal("123.45"))).isEqualTo(12_345_000_000L);
+        assertThat(Money.toUnits(new BigDecimal("0.00000001"))).isEqualTo(1L);
+        assertThat(Money.toUnits(BigDecimal.ZERO)).isEqualTo(0L);
+        assertThat(Money.toUnits(new BigDecimal("9999999999.99999999"))).isEqualTo(999_999_999_999_999_999L);
+    }
+
+    @Test
+    public void test_toUnits_it_must_convert_amount_exactly_on_both_sides_of_double_precision() throws Exception {
+        assertThat(Money.toUnits(new BigDecimal("9999999.99999999"))).isEqualTo(999_999_999_999_999L);
+        assertThat(Money.toUnits(new BigDecimal("-9999999.99999999"))).isEqualTo(-999_999_999_999_999L);
+        assertThat(Money.toUnits(new BigDecimal("10000000.00000001"))).isEqualTo(1_000_000_000_000_001L);
+        assertThat(Money.toUnits(new BigDecimal("0.30000001"))).isEqualTo(30_000_001L);
+        assertThat(Money.toUnits(new BigDecimal("1.10"))).isEqualTo(110_000_000L);
+
+        final Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            final int scale = random.nextInt(Money.SCALE + 1);
+            final long unscaled = (random.nextLong() >>> 1) % LongMath.pow(10, Money.MAX_INTEGER_DIGITS + scale);
+            final BigDecimal amount = BigDecimal.valueOf(unscaled >> random.nextInt(60), scale);
+            assertThat(Money.toUnits(amount)).as("%s", amount)
+                    .isEqualTo(amount.movePointRight(Money.SCALE).longValueExact());
+        }
+    }
+
+    @Test
+    public void test_toUnits_it_must_return_NOT_REPRESENTABLE_when_amount_has_too_many_fractional_digits() throws Exception {
+        assertThat(Money.toUnits(new BigDecimal("0.000000001"))).isEqualTo(Money.NOT_REPRESENTABLE);
+    }
+
+    @Test
+    public void test_toUnits_it_must_return_NOT_REPRESENTABLE_when_amount_has_too_many_integer_digits() throws Exception {
+        assertThat(Money.toUnits(new BigDecimal("10000000000"))).isEqualTo(Money.NOT_REPRESENTABLE);
+        assertThat(Money.toUnits(new BigDecimal("1E+20"))).isEqualTo(Money.NOT_REPRESENTABLE);
+    }
+
+    @Test
+    public void test_toDecimal_it_must_return_amount_with_scale_eight() throws Exception {
+        assertThat(Money.toDecimal(12_345_000_000L)).isEqualTo(new BigDecimal("123.45000000"));
+    }
+}
@@ -0,0 +1,54 @@
+package task.protocol;
+
+import org.junit.Test;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class ResultCodeTest {
+
+    @Test
+    public void test_of_it_must_map_exceptions_like_exception_mapper() throws Exception {
+        // When / Then
+        assertThat(ResultCode.of(null)).isEqualTo(ResultCode.OK);
+        assertThat(ResultCode.of(new NoSuchAccountException(1))).isEqualTo(ResultCode.NO_SUCH_ACCOUNT);
+        assertThat(ResultCode.of(new LimitExceededException(1, BigDecimal.ONE, BigDecimal.TEN)))
+                .isEqualTo(ResultCode.LIMIT_EXCEEDED);
+        assertThat(ResultCode.of(new IllegalArgumentException())).isEqualTo(ResultCode.INVALID_REQUEST);
+        assertThat(ResultCode.of(new IllegalStateException())).isEqualTo(ResultCode.ERROR);
+    }
+
+    @Test
+    public void test_of_it_must_unwrap_completion_exception() throws Exception {
+        // When
+        final ResultCode resultCode = ResultCode.of(new CompletionException(new NoSuchAccountException(1)));
+
+        // Then
+        assertThat(resultCode).isEqualTo(ResultCode.NO_SUCH_ACCOUNT);
+    }
+
+    @Test
+    public void test_fromCode_it_must_return_result_code_by_its_byte() throws Exception {
+        for (ResultCode resultCode : ResultCode.values()) {
+            // When / Then
+            assertThat(ResultCode.fromCode(resultCode.getCode())).isEqualTo(resultCode);
+        }
+    }
+
+    @Test
+    public void test_fromCode_it_must_throw_exception_when_code_is_unknown() throws Exception {
+        // When
+        final Throwable exception = catchThrowable(() -> ResultCode.fromCode((byte) 100));
+
+        // Then
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+}
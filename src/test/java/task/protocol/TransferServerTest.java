@@ -0,0 +1,225 @@
+package task.protocol;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import task.config.BinaryProtocolConfiguration;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.service.AccountService;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class TransferServerTest {
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1.50000000");
+
+    @Mock
+    private AccountService accountService;
+    private TransferServer server;
+    private TransferClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        final BinaryProtocolConfiguration configuration = new BinaryProtocolConfiguration();
+        configuration.setPort(0);
+        server = new TransferServer(accountService, configuration);
+        server.start();
+        client = new TransferClient("localhost", server.getLocalPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    public void test_transfer_it_must_call_account_service_with_amount_in_money_units() throws Exception {
+        // Given
+        when(accountService.transferAsync(1, 2, AMOUNT)).thenReturn(completedFuture(null));
+
+        // When
+        final ResultCode resultCode = client.transfer(1, 2, new BigDecimal("1.5"));
+
+        // Then
+        assertThat(resultCode).isEqualTo(ResultCode.OK);
+        verify(accountService).transferAsync(1, 2, AMOUNT);
+    }
+
+    @Test
+    public void test_transfer_it_must_return_result_code_of_failed_transfer() throws Exception {
+        // Given
+        when(accountService.transferAsync(1, 2, AMOUNT))
+                .thenReturn(failed(new LimitExceededException(1, BigDecimal.ONE, AMOUNT)));
+        when(accountService.transferAsync(1, 3, AMOUNT)).thenReturn(failed(new NoSuchAccountException(3)));
+        when(accountService.transferAsync(1, 1, AMOUNT)).thenReturn(failed(new IllegalArgumentException()));
+        when(accountService.transferAsync(1, 4, AMOUNT)).thenThrow(new IllegalStateException());
+
+        // When
+        final ResultCode limitExceeded = client.transfer(1, 2, AMOUNT);
+        final ResultCode noSuchAccount = client.transfer(1, 3, AMOUNT);
+        final ResultCode invalidRequest = client.transfer(1, 1, AMOUNT);
+        final ResultCode error = client.transfer(1, 4, AMOUNT);
+
+        // Then
+        assertThat(limitExceeded).isEqualTo(ResultCode.LIMIT_EXCEEDED);
+        assertThat(noSuchAccount).isEqualTo(ResultCode.NO_SUCH_ACCOUNT);
+        assertThat(invalidRequest).isEqualTo(ResultCode.INVALID_REQUEST);
+        assertThat(error).isEqualTo(ResultCode.ERROR);
+    }
+
+    @Test
+    public void test_send_it_must_pipeline_transfers_and_receive_results_in_order_of_completion() throws Exception {
+        // Given
+        final CompletableFuture<Void> first = new CompletableFuture<>();
+        final CompletableFuture<Void> second = new CompletableFuture<>();
+        when(accountService.transferAsync(1, 2, AMOUNT)).thenReturn(first);
+        when(accountService.transferAsync(2, 1, AMOUNT)).thenReturn(second);
+
+        // When
+        final long firstRequestId = client.send(1, 2, AMOUNT);
+        final long secondRequestId = client.send(2, 1, AMOUNT);
+        client.flush();
+        verify(accountService, timeout(5000)).transferAsync(2, 1, AMOUNT);
+        second.completeExceptionally(new LimitExceededException(2, BigDecimal.ONE, AMOUNT));
+        final TransferResult secondResult = client.receive();
+        first.complete(null);
+        final TransferResult firstResult = client.receive();
+
+        // Then
+        assertThat(secondResult.getRequestId()).isEqualTo(secondRequestId);
+        assertThat(secondResult.getResultCode()).isEqualTo(ResultCode.LIMIT_EXCEEDED);
+        assertThat(firstResult.getRequestId()).isEqualTo(firstRequestId);
+        assertThat(firstResult.getResultCode()).isEqualTo(ResultCode.OK);
+    }
+
+    @Test(timeout = 30_000)
+    public void test_transfer_it_must_not_block_completing_thread_when_other_connection_does_not_read_responses() throws Exception {
+        // Given: all transfers are completed by one engine thread, like the sequencer of the LEDGER engine
+        final ExecutorService engine = Executors.newSingleThreadExecutor();
+        when(accountService.transferAsync(anyLong(), anyLong(), any()))
+                .thenAnswer(invocation -> CompletableFuture.runAsync(() -> { }, engine));
+        final Socket stalledSocket = new Socket();
+        stalledSocket.setReceiveBufferSize(4096);
+        stalledSocket.connect(new InetSocketAddress("localhost", server.getLocalPort()));
+        final AtomicLong sentRequests = new AtomicLong();
+        final Thread stalledSender = new Thread(() -> {
+            try {
+                final DataOutputStream output = new DataOutputStream(stalledSocket.getOutputStream());
+                while (true) {
+                    output.writeInt(TransferProtocol.TRANSFER_LENGTH);
+                    output.writeByte(TransferProtocol.TRANSFER);
+                    output.writeLong(sentRequests.incrementAndGet());
+                    output.writeLong(1);
+                    output.writeLong(2);
+                    output.writeLong(1);
+                }
+            } catch (IOException e) {
+                // the socket is closed by the test
+            }
+        });
+        stalledSender.start();
+
+        try {
+            // the stalled client never reads, so once its buffers are full the server stops reading its requests
+            long sent;
+            do {
+                sent = sentRequests.get();
+                Thread.sleep(500);
+            } while (sentRequests.get() != sent);
+
+            // When
+            final ResultCode resultCode = inBackground(() -> client.transfer(1, 2, AMOUNT)).get(5, TimeUnit.SECONDS);
+
+            // Then
+            assertThat(resultCode).isEqualTo(ResultCode.OK);
+        } finally {
+            stalledSocket.close();
+            stalledSender.join();
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    public void test_send_it_must_throw_exception_when_amount_is_not_representable_in_money_units() throws Exception {
+        // When
+        final Throwable exception = catchThrowable(() -> client.send(1, 2, new BigDecimal("0.000000001")));
+
+        // Then
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void test_start_it_must_close_connection_when_frame_has_unexpected_length() throws Exception {
+        // Given
+        try (Socket socket = new Socket("localhost", server.getLocalPort())) {
+            final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            final InputStream input = socket.getInputStream();
+
+            // When
+            output.writeInt(TransferProtocol.TRANSFER_LENGTH + 1);
+            output.flush();
+
+            // Then
+            assertThat(input.read()).isEqualTo(-1);
+        }
+        verifyZeroInteractions(accountService);
+    }
+
+    @Test
+    public void test_stop_it_must_close_open_connections() throws Exception {
+        // When
+        server.stop();
+
+        // Then
+        final Throwable exception = catchThrowable(() -> client.transfer(1, 2, AMOUNT));
+        assertThat(exception).isInstanceOf(IOException.class);
+        verify(accountService, never()).transferAsync(anyLong(), anyLong(), any());
+    }
+
+    private static <T> Future<T> inBackground(Callable<T> action) {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(action);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static CompletableFuture<Void> failed(Throwable exception) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(exception);
+        return future;
+    }
+}
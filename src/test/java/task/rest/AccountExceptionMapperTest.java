@@ -4,6 +4,7 @@ import org.junit.Before;
 import org.junit.Test;
 import task.exception.LimitExceededException;
 import task.exception.NoSuchAccountException;
+import task.exception.TransferInProgressException;
 
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
@@ -75,4 +76,17 @@ public class AccountExceptionMapperTest {
         assertThat(response.getStatusInfo(), is(Response.Status.INTERNAL_SERVER_ERROR));
         assertThat(response.getEntity(), is("test message"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_response_it_must_map_TransferInProgressException_to_CONFLICT() throws Exception {
+        // Given
+        final Exception exception = new TransferInProgressException(1);
+
+        // When
+        final Response response = exceptionMapper.toResponse(exception);
+
+        // Then
+        assertThat(response.getStatusInfo(), is(Response.Status.CONFLICT));
+        assertThat(response.getEntity(), is(exception.getMessage()));
+    }
+}
@@ -3,23 +3,44 @@ package task.rest;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import task.api.BatchTransferResponse;
+import task.api.BulkCreateAccountResponse;
 import task.api.CreateAccountRequest;
 import task.api.CreateAccountResponse;
+import task.api.ExportFormat;
 import task.api.GetAccountResponse;
 import task.api.TransferRequest;
-import task.exception.LimitExceededException;
 import task.exception.NoSuchAccountException;
+import task.exception.TransferInProgressException;
 import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
 import task.service.AccountService;
+import task.service.IdempotentTransfers;
 
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -31,11 +52,13 @@ public class AccountResourceTest {
     private AccountResource accountResource;
     @Mock
     private AccountService accountService;
+    @Mock
+    private IdempotentTransfers idempotentTransfers;
     private Account account;
 
     @Before
     public void setUp() throws Exception {
-        accountResource = new AccountResource(accountService);
+        accountResource = new AccountResource(accountService, idempotentTransfers);
         account = new Account().setId(1).setAmount(BigDecimal.TEN);
     }
 
@@ -61,6 +84,22 @@ public class AccountResourceTest {
         accountResource.create(new CreateAccountRequest(account.getAmount()));
     }
 
+    @Test
+    public void test_createAll_it_must_return_response_with_account_ids_when_service_creates_accounts() throws Exception {
+        // Given
+        when(accountService.createAll(Arrays.asList(BigDecimal.ONE, null))).thenReturn(Arrays.asList(
+                new Account().setId(3).setAmount(BigDecimal.ONE),
+                new Account().setId(4).setAmount(BigDecimal.ZERO)));
+
+        // When
+        final Response response = accountResource.createAll(Arrays.asList(
+                new CreateAccountRequest(BigDecimal.ONE), new CreateAccountRequest(null)));
+
+        // Then
+        assertThat(response.getStatusInfo(), is(Response.Status.OK));
+        assertThat(response.getEntity(), is(new BulkCreateAccountResponse(Arrays.asList(3L, 4L))));
+    }
+
     @Test
     public void test_getAccount_it_must_return_response_with_account_id_and_amount_when_service_returns_account() throws Exception {
         // Given
@@ -84,10 +123,70 @@ public class AccountResourceTest {
     }
 
 
+    @Test
+    public void test_getAccounts_it_must_stream_json_array_of_accounts_returned_by_service() throws Exception {
+        // Given
+        when(accountService.getAccounts(Arrays.asList(1L, 2L, 3L))).thenReturn(Arrays.asList(
+                new Account().setId(1).setAmount(new BigDecimal("123.45000000")),
+                new Account().setId(2).setAmount(new BigDecimal("678.90000000"))));
+
+        // When
+        final Response response = accountResource.getAccounts(Arrays.asList(1L, 2L, 3L));
+
+        // Then
+        assertThat(response.getStatusInfo(), is(Response.Status.OK));
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(body);
+        assertThat(body.toString("UTF-8"),
+                is("[{\"accountId\":1,\"amount\":123.45000000},{\"accountId\":2,\"amount\":678.90000000}]"));
+    }
+
+    @Test
+    public void test_getAccountsByPost_it_must_stream_empty_json_array_when_service_finds_nothing() throws Exception {
+        // Given
+        when(accountService.getAccounts(Collections.singletonList(100L))).thenReturn(Collections.emptyList());
+
+        // When
+        final Response response = accountResource.getAccountsByPost(Collections.singletonList(100L));
+
+        // Then
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(body);
+        assertThat(body.toString("UTF-8"), is("[]"));
+    }
+
+    @Test
+    public void test_export_it_must_stream_line_per_account_in_requested_format() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            final Consumer<Account> action = invocation.getArgument(0);
+            action.accept(new Account().setId(1).setAmount(new BigDecimal("123.45000000")));
+            action.accept(new Account().setId(2).setAmount(new BigDecimal("0E-8")));
+            return null;
+        }).when(accountService).forEachAccount(any());
+
+        // When
+        final Response ndjson = accountResource.export(ExportFormat.NDJSON);
+        final Response csv = accountResource.export(ExportFormat.CSV);
+
+        // Then
+        assertThat(ndjson.getMediaType().toString(), is("application/x-ndjson"));
+        assertThat(write(ndjson), is("{\"accountId\":1,\"amount\":123.45000000}\n{\"accountId\":2,\"amount\":0.00000000}\n"));
+        assertThat(csv.getMediaType().toString(), is("text/csv"));
+        assertThat(write(csv), is("accountId,amount\n1,123.45000000\n2,0.00000000\n"));
+    }
+
+    private static String write(Response response) throws Exception {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(body);
+        return body.toString("UTF-8");
+    }
+
     @Test
     public void test_transfer_it_must_return_ok_response_when_service_transfers() throws Exception {
         // Given
         final TransferRequest request = new TransferRequest(1, 2, BigDecimal.TEN);
+        when(accountService.tryTransfer(1, 2, BigDecimal.TEN)).thenReturn(TransferOutcome.OK);
 
         // When
         final Response response = accountResource.transfer(request);
@@ -97,13 +196,154 @@ public class AccountResourceTest {
         assertThat(response.getEntity(), is("OK"));
     }
 
-    @Test(expected = LimitExceededException.class) // Then
+    @Test
+    public void test_transfer_it_must_return_bad_request_response_when_limit_is_exceeded() throws Exception {
+        // Given
+        final TransferRequest request = new TransferRequest(1, 2, BigDecimal.TEN);
+        when(accountService.tryTransfer(1, 2, BigDecimal.TEN)).thenReturn(TransferOutcome.LIMIT_EXCEEDED);
+
+        // When
+        final Response response = accountResource.transfer(request);
+
+        // Then
+        assertThat(response.getStatusInfo(), is(Response.Status.BAD_REQUEST));
+        assertThat(response.getEntity(), is("LIMIT_EXCEEDED"));
+        assertThat(response.getMediaType(), is(MediaType.TEXT_PLAIN_TYPE));
+    }
+
+    @Test
+    public void test_transfer_it_must_return_not_found_response_when_account_does_not_exist() throws Exception {
+        // Given
+        final TransferRequest request = new TransferRequest(1, 2, BigDecimal.TEN);
+        when(accountService.tryTransfer(1, 2, BigDecimal.TEN)).thenReturn(TransferOutcome.NO_SUCH_ACCOUNT);
+
+        // When
+        final Response response = accountResource.transfer(request);
+
+        // Then
+        assertThat(response.getStatusInfo(), is(Response.Status.NOT_FOUND));
+        assertThat(response.getEntity(), is("NO_SUCH_ACCOUNT"));
+    }
+
+    @Test(expected = IllegalArgumentException.class) // Then
     public void test_transfer_it_must_throw_exception_when_service_throws_exception() throws Exception {
         // Given
         final TransferRequest request = new TransferRequest(1, 2, BigDecimal.TEN);
-        doThrow(LimitExceededException.class).when(accountService).transfer(request.getFrom(), request.getTo(), request.getAmount());
+        when(accountService.tryTransfer(1, 2, BigDecimal.TEN)).thenThrow(IllegalArgumentException.class);
 
         // When
         accountResource.transfer(request);
     }
+
+    @Test
+    public void test_transfer_it_must_transfer_by_idempotent_transfers_when_request_has_request_id() throws Exception {
+        // Given
+        final TransferRequest request = new TransferRequest(42L, 1, 2, BigDecimal.TEN);
+        when(idempotentTransfers.tryTransfer(42, 1, 2, BigDecimal.TEN)).thenReturn(TransferOutcome.OK);
+
+        // When
+        final Response response = accountResource.transfer(request);
+
+        // Then
+        assertThat(response.getStatusInfo(), is(Response.Status.OK));
+        verify(idempotentTransfers).tryTransfer(42, 1, 2, BigDecimal.TEN);
+        verifyZeroInteractions(accountService);
+    }
+
+    @Test(expected = IllegalArgumentException.class) // Then
+    public void test_transferAll_it_must_throw_exception_when_request_has_request_id() throws Exception {
+        // Given
+        final List<TransferRequest> requests = Collections.singletonList(new TransferRequest(42L, 1, 2, BigDecimal.TEN));
+
+        // When
+        accountResource.transferAll(requests);
+    }
+
+    @Test
+    public void test_transferAll_it_must_return_response_with_outcomes_when_service_transfers() throws Exception {
+        // Given
+        final List<TransferRequest> requests = Arrays.asList(
+                new TransferRequest(1, 2, BigDecimal.TEN),
+                new TransferRequest(2, 3, BigDecimal.ONE));
+        final List<Transfer> transfers = Arrays.asList(
+                new Transfer(1, 2, BigDecimal.TEN),
+                new Transfer(2, 3, BigDecimal.ONE));
+        final List<TransferOutcome> outcomes = Arrays.asList(TransferOutcome.OK, TransferOutcome.NO_SUCH_ACCOUNT);
+        when(accountService.transferAll(transfers)).thenReturn(outcomes);
+
+        // When
+        final Response response = accountResource.transferAll(requests);
+
+        // Then
+        assertThat(response.getStatusInfo(), is(Response.Status.OK));
+        assertThat(response.getEntity(), is(new BatchTransferResponse(outcomes)));
+    }
+
+    @Test
+    public void test_transferAsync_it_must_resume_with_ok_response_when_service_transfers() throws Exception {
+        // Given
+        final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        when(accountService.tryTransferAsync(1, 2, BigDecimal.ONE))
+                .thenReturn(CompletableFuture.completedFuture(TransferOutcome.OK));
+
+        // When
+        accountResource.transferAsync(new TransferRequest(1, 2, BigDecimal.ONE), asyncResponse);
+
+        // Then
+        final ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(asyncResponse).resume(response.capture());
+        assertThat(response.getValue().getStatusInfo(), is(Response.Status.OK));
+        assertThat(response.getValue().getEntity(), is("OK"));
+    }
+
+    @Test
+    public void test_transferAsync_it_must_resume_with_not_found_response_when_account_does_not_exist() throws Exception {
+        // Given
+        final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        when(accountService.tryTransferAsync(1, 2, BigDecimal.ONE))
+                .thenReturn(CompletableFuture.completedFuture(TransferOutcome.NO_SUCH_ACCOUNT));
+
+        // When
+        accountResource.transferAsync(new TransferRequest(1, 2, BigDecimal.ONE), asyncResponse);
+
+        // Then
+        final ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(asyncResponse).resume(response.capture());
+        assertThat(response.getValue().getStatusInfo(), is(Response.Status.NOT_FOUND));
+        assertThat(response.getValue().getEntity(), is("NO_SUCH_ACCOUNT"));
+        assertThat(response.getValue().getMediaType(), is(MediaType.TEXT_PLAIN_TYPE));
+    }
+
+    @Test
+    public void test_transferAsync_it_must_transfer_by_idempotent_transfers_when_request_has_request_id() throws Exception {
+        // Given
+        final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        final TransferInProgressException exception = new TransferInProgressException(42);
+        final CompletableFuture<TransferOutcome> future = new CompletableFuture<>();
+        future.completeExceptionally(exception);
+        when(idempotentTransfers.tryTransferAsync(42, 1, 2, BigDecimal.ONE)).thenReturn(future);
+
+        // When
+        accountResource.transferAsync(new TransferRequest(42L, 1, 2, BigDecimal.ONE), asyncResponse);
+
+        // Then
+        verify(asyncResponse).resume(exception);
+        verifyZeroInteractions(accountService);
+    }
+
+    @Test
+    public void test_transferAsync_it_must_resume_with_unwrapped_exception_when_service_fails() throws Exception {
+        // Given
+        final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        final IllegalStateException exception = new IllegalStateException("ledger is stopped");
+        final CompletableFuture<TransferOutcome> future = new CompletableFuture<>();
+        future.completeExceptionally(new CompletionException(exception));
+        when(accountService.tryTransferAsync(1, 2, BigDecimal.ONE)).thenReturn(future);
+
+        // When
+        accountResource.transferAsync(new TransferRequest(1, 2, BigDecimal.ONE), asyncResponse);
+
+        // Then
+        verify(asyncResponse).resume(exception);
+    }
 }
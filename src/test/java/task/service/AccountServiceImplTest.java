@@ -10,8 +10,13 @@ import task.exception.LimitExceededException;
 import task.exception.NoSuchAccountException;
 import task.manager.AccountManager;
 import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -258,4 +263,180 @@ public class AccountServiceImplTest {
         // Then
         verify(accountManager).transfer(eq(fromAccount), eq(toAccount), eq(BigDecimal.ONE));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void test_transfer_it_must_call_account_manager_transfer_when_both_accounts_share_the_same_lock_stripe() throws Exception {
+        // Given
+        accountService = new AccountServiceImpl(accountManager, accountDao, new StripedLocks(1));
+        final Account fromAccount = new Account().setId(1).setAmount(BigDecimal.TEN);
+        final Account toAccount = new Account().setId(2).setAmount(BigDecimal.ONE);
+        when(accountDao.select(1)).thenReturn(fromAccount);
+        when(accountDao.select(2)).thenReturn(toAccount);
+
+        // When
+        accountService.transfer(1, 2, BigDecimal.ONE);
+
+        // Then
+        verify(accountManager).transfer(eq(fromAccount), eq(toAccount), eq(BigDecimal.ONE));
+    }
+
+    @Test
+    public void test_tryTransfer_it_must_return_LIMIT_EXCEEDED_when_transfer_amount_is_greater_than_source_amount() throws Exception {
+        // Given
+        when(accountDao.select(1)).thenReturn(new Account().setId(1).setAmount(BigDecimal.ONE));
+        when(accountDao.select(2)).thenReturn(new Account().setId(2).setAmount(BigDecimal.ZERO));
+
+        // When
+        final TransferOutcome outcome = accountService.tryTransfer(1, 2, BigDecimal.TEN);
+
+        // Then
+        assertThat(outcome).isEqualTo(TransferOutcome.LIMIT_EXCEEDED);
+
+        verifyZeroInteractions(accountManager);
+    }
+
+    @Test
+    public void test_tryTransfer_it_must_return_NO_SUCH_ACCOUNT_when_dao_select_returns_null_for_second_id() throws Exception {
+        // Given
+        when(accountDao.select(1)).thenReturn(new Account().setId(1).setAmount(BigDecimal.ONE));
+        when(accountDao.select(2)).thenReturn(null);
+
+        // When
+        final TransferOutcome outcome = accountService.tryTransfer(1, 2, BigDecimal.ONE);
+
+        // Then
+        assertThat(outcome).isEqualTo(TransferOutcome.NO_SUCH_ACCOUNT);
+
+        verifyZeroInteractions(accountManager);
+    }
+
+    @Test
+    public void test_tryTransfer_it_must_call_account_manager_transfer_and_return_OK_when_money_is_enough() throws Exception {
+        // Given
+        final Account fromAccount = new Account().setId(1).setAmount(BigDecimal.TEN);
+        final Account toAccount = new Account().setId(2).setAmount(BigDecimal.ONE);
+        when(accountDao.select(1)).thenReturn(fromAccount);
+        when(accountDao.select(2)).thenReturn(toAccount);
+
+        // When
+        final TransferOutcome outcome = accountService.tryTransfer(1, 2, BigDecimal.ONE);
+
+        // Then
+        assertThat(outcome).isEqualTo(TransferOutcome.OK);
+        verify(accountManager).transfer(eq(fromAccount), eq(toAccount), eq(BigDecimal.ONE));
+    }
+
+    @Test
+    public void test_tryTransfer_it_must_throw_IllegalArgumentException_when_amount_is_zero() throws Exception {
+        // When
+        final Throwable exception = catchThrowable(() -> accountService.tryTransfer(1, 2, BigDecimal.ZERO));
+
+        // Then
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+
+        verifyZeroInteractions(accountDao, accountManager);
+    }
+
+    @Test
+    public void test_transferAll_it_must_throw_IllegalArgumentException_when_any_transfer_is_invalid() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transferAll(Arrays.asList(
+                new Transfer(1, 2, BigDecimal.ONE),
+                new Transfer(2, 2, BigDecimal.ONE))));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("fromAccountId == toAccountId: ");
+
+        verifyZeroInteractions(accountDao);
+        verifyZeroInteractions(accountManager);
+    }
+
+    @Test
+    public void test_transferAll_it_must_apply_transfers_in_order_and_update_accounts_once() throws Exception {
+        // Given
+        when(accountDao.select(1)).thenReturn(new Account().setId(1).setAmount(BigDecimal.TEN));
+        when(accountDao.select(2)).thenReturn(new Account().setId(2).setAmount(BigDecimal.ONE));
+        when(accountDao.select(3)).thenReturn(null);
+
+        // When
+        final List<TransferOutcome> outcomes = accountService.transferAll(Arrays.asList(
+                new Transfer(2, 1, BigDecimal.TEN),
+                new Transfer(1, 2, BigDecimal.TEN),
+                new Transfer(2, 1, BigDecimal.TEN),
+                new Transfer(1, 3, BigDecimal.ONE)));
+
+        // Then
+        assertThat(outcomes).containsExactly(
+                TransferOutcome.LIMIT_EXCEEDED,
+                TransferOutcome.OK,
+                TransferOutcome.OK,
+                TransferOutcome.NO_SUCH_ACCOUNT);
+
+        verify(accountDao).select(1);
+        verify(accountDao).select(2);
+        verify(accountDao).select(3);
+        verify(accountManager).updateAll(Arrays.asList(
+                new Account().setId(1).setAmount(BigDecimal.TEN),
+                new Account().setId(2).setAmount(BigDecimal.ONE)));
+    }
+
+    @Test
+    public void test_transferAll_it_must_not_call_account_manager_when_nothing_is_transferred() throws Exception {
+        // Given
+        when(accountDao.select(1)).thenReturn(new Account().setId(1).setAmount(BigDecimal.ONE));
+        when(accountDao.select(2)).thenReturn(new Account().setId(2).setAmount(BigDecimal.ONE));
+
+        // When
+        final List<TransferOutcome> outcomes = accountService.transferAll(Collections.singletonList(
+                new Transfer(1, 2, BigDecimal.TEN)));
+
+        // Then
+        assertThat(outcomes).containsExactly(TransferOutcome.LIMIT_EXCEEDED);
+        verifyZeroInteractions(accountManager);
+    }
+
+    @Test
+    public void test_transferAsync_it_must_complete_exceptionally_when_transfer_throws_exception() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() ->
+                accountService.transferAsync(1, 1, BigDecimal.ONE).toCompletableFuture().get());
+
+        // Then
+        assertThat(exception)
+                .hasCauseInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("fromAccountId == toAccountId: 1");
+        verifyZeroInteractions(accountManager, accountDao);
+    }
+
+    @Test
+    public void test_transfer_it_must_attribute_lock_wait_to_contended_account() throws Exception {
+        // Given
+        final StripedLocks locks = new StripedLocks();
+        final AccountService service = new AccountServiceImpl(accountManager, accountDao, locks);
+        final Account fromAccount = new Account().setId(1).setAmount(BigDecimal.TEN);
+        final Account toAccount = new Account().setId(2).setAmount(BigDecimal.ZERO);
+        when(accountDao.select(1)).thenReturn(fromAccount);
+        when(accountDao.select(2)).thenReturn(toAccount);
+        final int toStripe = locks.stripeOf(2);
+        assertThat(locks.stripeOf(1)).isNotEqualTo(toStripe);
+
+        // When
+        locks.getLock(toStripe).lock();
+        final Thread transfer = new Thread(() -> service.transfer(1, 2, BigDecimal.ONE));
+        try {
+            transfer.start();
+            while (locks.getContentions(toStripe) == 0) {
+                Thread.yield();
+            }
+        } finally {
+            locks.getLock(toStripe).unlock();
+        }
+        transfer.join();
+
+        // Then
+        verify(accountManager).transfer(fromAccount, toAccount, BigDecimal.ONE);
+        assertThat(locks.getContendedAccounts().getTop(16)).containsOnlyKeys(2L);
+    }
+}
@@ -0,0 +1,65 @@
+package task.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class ConcurrencyLimitingExecutorTest {
+
+    private final ExecutorService delegate = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() throws Exception {
+        delegate.shutdownNow();
+    }
+
+    @Test
+    public void test_execute_it_must_not_run_more_than_maxConcurrency_tasks_at_once() throws Exception {
+        // Given
+        final ConcurrencyLimitingExecutor executor = new ConcurrencyLimitingExecutor(delegate, 3);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(2);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(maxRunning.get()).isBetween(1, 3);
+    }
+
+    @Test
+    public void test_constructor_it_must_throw_IllegalArgumentException_when_maxConcurrency_is_not_positive() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> new ConcurrencyLimitingExecutor(delegate, 0));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maxConcurrency is not positive: 0");
+    }
+}
@@ -0,0 +1,136 @@
+package task.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import task.dao.AccountDao;
+import task.dao.AccountDaoMock;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.manager.AccountManager;
+import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class ConditionalAccountServiceTest {
+
+    private AccountDao accountDao;
+    private AccountService accountService;
+
+    @Before
+    public void setUp() throws Exception {
+        accountDao = new AccountDaoMock();
+        accountDao.insert(new Account().setAmount(BigDecimal.TEN));
+        accountDao.insert(new Account().setAmount(BigDecimal.ONE));
+
+        accountService = new ConditionalAccountService(new AccountManager(accountDao), accountDao);
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_IllegalArgumentException_when_fromAccountId_is_equal_to_toAccountId() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 1, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("fromAccountId == toAccountId: ");
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_NoSuchAccountException_when_account_does_not_exist() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(100, 1, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 100");
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_LimitExceededException_when_amount_is_greater_than_balance() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(2, 1, BigDecimal.TEN));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(LimitExceededException.class)
+                .hasMessageStartingWith("Failed to withdraw from account: 2");
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(BigDecimal.ONE);
+    }
+
+    @Test
+    public void test_tryTransfer_it_must_return_outcomes_of_rejected_and_done_transfers() throws Exception {
+        // Given, when
+        final TransferOutcome noSuchAccount = accountService.tryTransfer(100, 1, BigDecimal.ONE);
+        final TransferOutcome limitExceeded = accountService.tryTransfer(2, 1, BigDecimal.TEN);
+        final TransferOutcome ok = accountService.tryTransfer(1, 2, BigDecimal.ONE);
+
+        // Then
+        assertThat(noSuchAccount).isEqualTo(TransferOutcome.NO_SUCH_ACCOUNT);
+        assertThat(limitExceeded).isEqualTo(TransferOutcome.LIMIT_EXCEEDED);
+        assertThat(ok).isEqualTo(TransferOutcome.OK);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("9"));
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("2"));
+    }
+
+    @Test
+    public void test_transfer_it_must_keep_total_amount_when_transfers_are_concurrent() throws Exception {
+        // Given
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            final boolean forward = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                try {
+                    accountService.transfer(forward ? 1 : 2, forward ? 2 : 1, BigDecimal.ONE);
+                } catch (LimitExceededException ignored) {
+                    // expected when one of the accounts is drained
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Then
+        final BigDecimal total = accountService.getAccount(1).getAmount().add(accountService.getAccount(2).getAmount());
+        assertThat(total).isEqualByComparingTo(new BigDecimal("11"));
+        assertThat(accountService.getAccount(1).getAmount()).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+        assertThat(accountService.getAccount(2).getAmount()).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    public void test_transferAll_it_must_return_outcomes_in_order() throws Exception {
+        // Given, when
+        final List<TransferOutcome> outcomes = accountService.transferAll(Arrays.asList(
+                new Transfer(2, 1, BigDecimal.TEN),
+                new Transfer(1, 2, BigDecimal.TEN),
+                new Transfer(2, 100, BigDecimal.ONE)));
+
+        // Then
+        assertThat(outcomes).containsExactly(
+                TransferOutcome.LIMIT_EXCEEDED,
+                TransferOutcome.OK,
+                TransferOutcome.NO_SUCH_ACCOUNT);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("11"));
+    }
+}
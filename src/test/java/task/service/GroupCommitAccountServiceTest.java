@@ -0,0 +1,214 @@
+package task.service;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import task.config.GroupCommitConfiguration;
+import task.dao.AccountDao;
+import task.dao.AccountDaoMock;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.manager.AccountManager;
+import task.model.Account;
+import task.model.Transfer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class GroupCommitAccountServiceTest {
+
+    private AccountDao accountDao;
+    private AccountManager accountManager;
+    private GroupCommitAccountService accountService;
+
+    @Before
+    public void setUp() throws Exception {
+        accountDao = new AccountDaoMock();
+        accountDao.insert(new Account().setAmount(BigDecimal.TEN));
+        accountDao.insert(new Account().setAmount(BigDecimal.ONE));
+
+        final GroupCommitConfiguration configuration = new GroupCommitConfiguration();
+        configuration.setMaxGroupSize(8);
+        configuration.setMaxDelayMicros(1000);
+        configuration.setQueueCapacity(16);
+        accountManager = spy(new AccountManager(accountDao));
+        accountService = new GroupCommitAccountService(accountManager, accountDao, configuration);
+        accountService.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        accountService.stop();
+    }
+
+    @Test
+    public void test_transfer_it_must_update_database_when_money_is_enough() throws Exception {
+        // Given, when
+        accountService.transfer(1, 2, new BigDecimal("3"));
+
+        // Then
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("7"));
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("4"));
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_NoSuchAccountException_and_keep_balance_when_destination_does_not_exist() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 100, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 100");
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_LimitExceededException_when_amount_is_greater_than_balance() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(2, 1, BigDecimal.TEN));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(LimitExceededException.class)
+                .hasMessageStartingWith("Failed to withdraw from account: 2");
+    }
+
+    @Test
+    public void test_transferAsync_it_must_deliver_own_result_to_every_transfer_of_a_group() throws Exception {
+        // Given, when
+        final CompletableFuture<Void> applied = accountService.transferAsync(1, 2, BigDecimal.ONE).toCompletableFuture();
+        final CompletableFuture<Void> failed = accountService.transferAsync(1, 100, BigDecimal.ONE).toCompletableFuture();
+        final CompletableFuture<Void> alsoApplied = accountService.transferAsync(2, 1, new BigDecimal("2")).toCompletableFuture();
+        CompletableFuture.allOf(applied, alsoApplied).get();
+        final Throwable exception = catchThrowable(failed::get);
+
+        // Then
+        assertThat(exception).hasCauseInstanceOf(NoSuchAccountException.class);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("11"));
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    public void test_transfer_it_must_commit_concurrent_transfers_in_groups_and_keep_total_amount() throws Exception {
+        // Given
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 400; i++) {
+            final boolean forward = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                try {
+                    accountService.transfer(forward ? 1 : 2, forward ? 2 : 1, BigDecimal.ONE);
+                } catch (LimitExceededException ignored) {
+                    // expected when one of the accounts is drained
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Then
+        final BigDecimal total = accountService.getAccount(1).getAmount().add(accountService.getAccount(2).getAmount());
+        assertThat(total).isEqualByComparingTo(new BigDecimal("11"));
+        verify(accountManager, atMost(399)).transferEach(anyList());
+    }
+
+    @Test
+    public void test_transfer_it_must_fail_every_transfer_of_a_group_when_transaction_fails() throws Exception {
+        // Given
+        final IllegalStateException failure = new IllegalStateException("database is down");
+        doThrow(failure).when(accountManager).transferEach(anyList());
+
+        // When
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 2, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception).isSameAs(failure);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_IllegalStateException_when_committer_is_stopped() throws Exception {
+        // Given
+        accountService.stop();
+
+        // When
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 2, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("committer is not started");
+    }
+
+    @Test(timeout = 30_000)
+    public void test_transfer_it_must_throw_IllegalStateException_when_committer_is_stopped_while_queue_is_full() throws Exception {
+        // Given: the committer is busy with a group, and the queue is full
+        final CountDownLatch committing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final GroupCommitConfiguration configuration = new GroupCommitConfiguration();
+        configuration.setMaxGroupSize(1);
+        configuration.setMaxDelayMicros(0);
+        configuration.setQueueCapacity(1);
+        final AccountManager blockingManager = spy(new AccountManager(accountDao));
+        doAnswer(invocation -> {
+            committing.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+            return invocation.callRealMethod();
+        }).when(blockingManager).transferEach(anyList());
+        accountService.stop();
+        final GroupCommitAccountService service =
+                new GroupCommitAccountService(blockingManager, accountDao, configuration);
+        service.start();
+        service.transferAsync(1, 2, BigDecimal.ONE);
+        committing.await();
+        service.transferAsync(1, 2, BigDecimal.ONE);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // When: the transfer waits for a free slot while the committer is stopped
+        final Throwable exception;
+        try {
+            final Future<Throwable> late = executor.submit(() ->
+                    catchThrowable(() -> service.transfer(1, 2, BigDecimal.ONE)));
+            Thread.sleep(200);
+            final Future<?> stopping = executor.submit(() -> {
+                service.stop();
+                return null;
+            });
+            Thread.sleep(200);
+            release.countDown();
+            stopping.get(10, TimeUnit.SECONDS);
+            exception = late.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertThat(exception).isInstanceOf(IllegalStateException.class).hasMessage("committer is stopped");
+    }
+}
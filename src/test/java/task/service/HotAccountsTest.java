@@ -0,0 +1,157 @@
+package task.service;
+
+import com.google.inject.Injector;
+import org.junit.Before;
+import org.junit.Test;
+import task.TestDataSource;
+import task.config.HotAccountsConfiguration;
+import task.dao.AccountDao;
+import task.dao.AccountSlotDao;
+import task.exception.LimitExceededException;
+import task.manager.AccountManager;
+import task.manager.HotAccountManager;
+import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class HotAccountsTest {
+
+    private final TestDataSource dataSource = new TestDataSource(
+            "sql/database-schema.sql", "sql/database-test-data.sql");
+
+    private AccountDao accountDao;
+    private AccountService accountService;
+
+    @Before
+    public void setUp() throws Exception {
+        final Injector injector = dataSource.createInjector();
+        accountDao = injector.getInstance(AccountDao.class);
+
+        final HotAccountsConfiguration configuration = new HotAccountsConfiguration();
+        configuration.setAccountIds(Collections.singletonList(2L));
+        configuration.setSlots(4);
+        final HotAccounts hotAccounts = new HotAccounts(configuration,
+                injector.getInstance(HotAccountManager.class), injector.getInstance(AccountSlotDao.class));
+        hotAccounts.createSlots();
+
+        accountService = new AccountServiceImpl(injector.getInstance(AccountManager.class), accountDao,
+                new StripedLocks(), hotAccounts);
+    }
+
+    @Test
+    public void test_transfer_it_must_deposit_to_slots_of_hot_account() throws Exception {
+        // When
+        accountService.transfer(1, 2, new BigDecimal("23.45"));
+
+        // Then
+        assertThat(accountDao.select(2).getAmount()).isEqualByComparingTo("678.90");
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo("100");
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo("702.35");
+    }
+
+    @Test
+    public void test_transfer_it_must_sweep_slots_when_hot_account_row_is_short_of_money() throws Exception {
+        // Given
+        accountService.transfer(1, 2, new BigDecimal("100"));
+
+        // When
+        accountService.transfer(2, 1, new BigDecimal("700"));
+
+        // Then
+        assertThat(accountDao.select(2).getAmount()).isEqualByComparingTo("78.90");
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo("723.45");
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo("78.90");
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_LimitExceededException_when_amount_is_greater_than_whole_balance() throws Exception {
+        // Given
+        accountService.transfer(1, 2, new BigDecimal("100"));
+
+        // When
+        final Throwable exception = catchThrowable(() -> accountService.transfer(2, 1, new BigDecimal("800")));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(LimitExceededException.class)
+                .hasMessageStartingWith("Failed to withdraw from account: 2");
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo("778.90");
+    }
+
+    @Test
+    public void test_getAccounts_it_must_include_slots_of_hot_accounts() throws Exception {
+        // Given
+        accountService.transfer(1, 2, BigDecimal.TEN);
+        final List<Account> exported = new ArrayList<>();
+
+        // When
+        final List<Account> accounts = accountService.getAccounts(Arrays.asList(1L, 2L));
+        accountService.forEachAccount(exported::add);
+
+        // Then
+        assertThat(accounts).extracting(Account::getAmount)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("113.45"), new BigDecimal("688.90"));
+        assertThat(exported).extracting(Account::getAmount)
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("113.45"), new BigDecimal("688.90"));
+    }
+
+    @Test
+    public void test_transferAll_it_must_see_whole_balance_of_hot_accounts() throws Exception {
+        // Given
+        accountService.transfer(1, 2, new BigDecimal("100"));
+
+        // When
+        final List<TransferOutcome> outcomes = accountService.transferAll(Arrays.asList(
+                new Transfer(2, 1, new BigDecimal("700")),
+                new Transfer(1, 2, new BigDecimal("1000"))));
+
+        // Then
+        assertThat(outcomes).containsExactly(TransferOutcome.OK, TransferOutcome.LIMIT_EXCEEDED);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo("723.45");
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo("78.90");
+    }
+
+    @Test
+    public void test_transfer_it_must_keep_total_amount_when_transfers_are_concurrent() throws Exception {
+        // Given
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            final boolean forward = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                try {
+                    accountService.transfer(forward ? 1 : 2, forward ? 2 : 1, BigDecimal.ONE);
+                } catch (LimitExceededException ignored) {
+                    // expected when one of the accounts is drained
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(accountService.getAccount(1).getAmount().add(accountService.getAccount(2).getAmount()))
+                .isEqualByComparingTo("802.35");
+    }
+}
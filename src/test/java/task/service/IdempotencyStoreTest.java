@@ -0,0 +1,152 @@
+package task.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class IdempotencyStoreTest {
+
+    private static final int MAX_KEYS = 4;
+    private static final long TTL_SECONDS = 60;
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private IdempotencyStore<String> store;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new IdempotencyStore<>(MAX_KEYS, TTL_SECONDS, TimeUnit.SECONDS, nanoTime::get);
+    }
+
+    @Test
+    public void test_putIfAbsent_it_must_put_value_of_unknown_key() throws Exception {
+        // When
+        final String known = store.putIfAbsent(1, "first");
+
+        // Then
+        assertThat(known).isNull();
+        assertThat(store.get(1)).isEqualTo("first");
+        assertThat(store.get(2)).isNull();
+    }
+
+    @Test
+    public void test_putIfAbsent_it_must_return_value_of_known_key() throws Exception {
+        // Given
+        store.putIfAbsent(1, "first");
+
+        // When
+        final String known = store.putIfAbsent(1, "second");
+
+        // Then
+        assertThat(known).isEqualTo("first");
+        assertThat(store.get(1)).isEqualTo("first");
+    }
+
+    @Test
+    public void test_get_it_must_find_key_of_previous_generation() throws Exception {
+        // Given
+        store.putIfAbsent(1, "first");
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(TTL_SECONDS));
+
+        // When
+        store.putIfAbsent(2, "second");
+
+        // Then
+        assertThat(store.get(1)).isEqualTo("first");
+        assertThat(store.putIfAbsent(1, "third")).isEqualTo("first");
+        assertThat(store.get(2)).isEqualTo("second");
+    }
+
+    @Test
+    public void test_get_it_must_forget_key_after_two_generations() throws Exception {
+        // Given
+        store.putIfAbsent(1, "first");
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(TTL_SECONDS));
+        store.putIfAbsent(2, "second");
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(TTL_SECONDS));
+
+        // When
+        store.putIfAbsent(3, "third");
+
+        // Then
+        assertThat(store.get(1)).isNull();
+        assertThat(store.get(2)).isEqualTo("second");
+        assertThat(store.get(3)).isEqualTo("third");
+    }
+
+    @Test
+    public void test_putIfAbsent_it_must_start_new_generation_when_current_one_is_full() throws Exception {
+        // Given
+        for (long key = 1; key <= MAX_KEYS; key++) {
+            store.putIfAbsent(key, "value");
+        }
+
+        // When
+        for (long key = MAX_KEYS + 1; key <= 2 * MAX_KEYS + 1; key++) {
+            store.putIfAbsent(key, "value");
+        }
+
+        // Then
+        assertThat(store.get(1)).isNull();
+        assertThat(store.get(MAX_KEYS)).isNull();
+        assertThat(store.get(MAX_KEYS + 1)).isEqualTo("value");
+        assertThat(store.get(2 * MAX_KEYS + 1)).isEqualTo("value");
+    }
+
+    @Test
+    public void test_putIfAbsent_it_must_put_value_of_key_only_once_when_keys_are_put_concurrently() throws Exception {
+        // Given
+        final int threads = 8;
+        final int keys = 100_000;
+        final IdempotencyStore<Integer> store = new IdempotencyStore<>(keys, 1, TimeUnit.HOURS);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            final int value = thread;
+            tasks.add(() -> {
+                int put = 0;
+                for (long key = 1; key <= keys; key++) {
+                    if (store.putIfAbsent(key, value) == null) {
+                        put++;
+                    }
+                }
+                return put;
+            });
+        }
+
+        // When
+        int put = 0;
+        try {
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                put += future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then
+        assertThat(put).isEqualTo(keys);
+    }
+
+    @Test
+    public void test_get_it_must_throw_exception_when_key_is_zero() throws Exception {
+        // When
+        final Throwable exception = catchThrowable(() -> store.get(0));
+
+        // Then
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+}
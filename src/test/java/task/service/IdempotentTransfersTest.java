@@ -0,0 +1,208 @@
+package task.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import task.exception.LimitExceededException;
+import task.exception.OutcomeUnknownException;
+import task.exception.TransferInProgressException;
+import task.model.TransferOutcome;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class IdempotentTransfersTest {
+
+    @Mock
+    private AccountService accountService;
+    private IdempotentTransfers idempotentTransfers;
+
+    @Before
+    public void setUp() throws Exception {
+        idempotentTransfers = new IdempotentTransfers(accountService,
+                new IdempotencyStore<>(1000, 1, TimeUnit.HOURS));
+    }
+
+    @Test
+    public void test_transfer_it_must_not_transfer_again_when_transfer_is_retried() throws Exception {
+        // Given
+        idempotentTransfers.transfer(42, 1, 2, BigDecimal.TEN);
+
+        // When
+        idempotentTransfers.transfer(42, 1, 2, new BigDecimal("10.00"));
+
+        // Then
+        verify(accountService).transfer(1, 2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_same_exception_when_rejected_transfer_is_retried() throws Exception {
+        // Given
+        final LimitExceededException exception = new LimitExceededException(1, BigDecimal.ONE, BigDecimal.TEN);
+        doThrow(exception).when(accountService).transfer(1, 2, BigDecimal.TEN);
+        catchThrowable(() -> idempotentTransfers.transfer(42, 1, 2, BigDecimal.TEN));
+
+        // When
+        final Throwable retryException = catchThrowable(() -> idempotentTransfers.transfer(42, 1, 2, BigDecimal.TEN));
+
+        // Then
+        assertThat(retryException).isSameAs(exception);
+        verify(accountService).transfer(1, 2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_tryTransfer_it_must_return_same_outcome_when_rejected_transfer_is_retried() throws Exception {
+        // Given
+        doThrow(new LimitExceededException(1, BigDecimal.ONE, BigDecimal.TEN))
+                .when(accountService).transfer(1, 2, BigDecimal.TEN);
+        final TransferOutcome outcome = idempotentTransfers.tryTransfer(42, 1, 2, BigDecimal.TEN);
+
+        // When
+        final TransferOutcome retryOutcome = idempotentTransfers.tryTransfer(42, 1, 2, BigDecimal.TEN);
+
+        // Then
+        assertThat(outcome).isEqualTo(TransferOutcome.LIMIT_EXCEEDED);
+        assertThat(retryOutcome).isEqualTo(TransferOutcome.LIMIT_EXCEEDED);
+        verify(accountService).transfer(1, 2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_tryTransfer_it_must_return_OK_when_transfer_is_retried() throws Exception {
+        // Given
+        idempotentTransfers.transfer(42, 1, 2, BigDecimal.TEN);
+
+        // When
+        final TransferOutcome outcome = idempotentTransfers.tryTransfer(42, 1, 2, BigDecimal.TEN);
+
+        // Then
+        assertThat(outcome).isEqualTo(TransferOutcome.OK);
+        verify(accountService).transfer(1, 2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transfer_it_must_transfer_again_when_transfer_cancelled_before_start_is_retried() throws Exception {
+        // Given
+        doThrow(new CancellationException()).doNothing()
+                .when(accountService).transfer(1, 2, BigDecimal.TEN);
+        catchThrowable(() -> idempotentTransfers.transfer(42, 1, 2, BigDecimal.TEN));
+
+        // When
+        idempotentTransfers.transfer(42, 1, 2, BigDecimal.TEN);
+        idempotentTransfers.transfer(42, 1, 2, BigDecimal.TEN);
+
+        // Then
+        verify(accountService, times(2)).transfer(1, 2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_same_exception_when_possibly_applied_transfer_is_retried() throws Exception {
+        // Given: the transaction may have been committed before the connection was lost
+        final IllegalStateException failure = new IllegalStateException("connection is lost");
+        doThrow(failure).when(accountService).transfer(1, 2, BigDecimal.TEN);
+        catchThrowable(() -> idempotentTransfers.transfer(42, 1, 2, BigDecimal.TEN));
+
+        // When
+        final Throwable exception = catchThrowable(() -> idempotentTransfers.transfer(42, 1, 2, BigDecimal.TEN));
+
+        // Then
+        assertThat(exception).isSameAs(failure);
+        verify(accountService).transfer(1, 2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transferAsync_it_must_fail_retry_with_same_exception_when_outcome_is_unknown() throws Exception {
+        // Given
+        final OutcomeUnknownException failure =
+                new OutcomeUnknownException("journal sync failed", new IOException("disk failure"));
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        result.completeExceptionally(failure);
+        when(accountService.transferAsync(1, 2, BigDecimal.TEN)).thenReturn(result);
+        catchThrowable(() -> idempotentTransfers.transferAsync(42, 1, 2, BigDecimal.TEN).toCompletableFuture().join());
+
+        // When
+        final Throwable exception = catchThrowable(() ->
+                idempotentTransfers.transferAsync(42, 1, 2, BigDecimal.TEN).toCompletableFuture().join());
+
+        // Then
+        assertThat(exception).isInstanceOf(CompletionException.class).hasCause(failure);
+        verify(accountService).transferAsync(1, 2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_tryTransferAsync_it_must_complete_with_same_outcome_when_rejected_transfer_is_retried() throws Exception {
+        // Given
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        result.completeExceptionally(new CompletionException(new LimitExceededException(1, BigDecimal.ONE, BigDecimal.TEN)));
+        when(accountService.transferAsync(1, 2, BigDecimal.TEN)).thenReturn(result);
+        final TransferOutcome outcome =
+                idempotentTransfers.tryTransferAsync(42, 1, 2, BigDecimal.TEN).toCompletableFuture().join();
+
+        // When
+        final TransferOutcome retryOutcome =
+                idempotentTransfers.tryTransferAsync(42, 1, 2, BigDecimal.TEN).toCompletableFuture().join();
+
+        // Then
+        assertThat(outcome).isEqualTo(TransferOutcome.LIMIT_EXCEEDED);
+        assertThat(retryOutcome).isEqualTo(TransferOutcome.LIMIT_EXCEEDED);
+        verify(accountService).transferAsync(1, 2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_exception_when_request_id_is_used_by_another_transfer() throws Exception {
+        // Given
+        idempotentTransfers.transfer(42, 1, 2, BigDecimal.TEN);
+
+        // When
+        final Throwable exception = catchThrowable(() -> idempotentTransfers.transfer(42, 1, 2, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+        verify(accountService).transfer(1, 2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transferAsync_it_must_fail_retry_when_transfer_is_in_progress() throws Exception {
+        // Given
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        when(accountService.transferAsync(1, 2, BigDecimal.TEN)).thenReturn(future);
+        final CompletableFuture<Void> first = idempotentTransfers.transferAsync(42, 1, 2, BigDecimal.TEN)
+                .toCompletableFuture();
+
+        // When
+        final Throwable exception = catchThrowable(() ->
+                idempotentTransfers.transferAsync(42, 1, 2, BigDecimal.TEN).toCompletableFuture().get());
+        future.complete(null);
+        idempotentTransfers.transferAsync(42, 1, 2, BigDecimal.TEN).toCompletableFuture().get();
+
+        // Then
+        assertThat(exception).hasCauseInstanceOf(TransferInProgressException.class);
+        assertThat(first).isCompleted();
+        verify(accountService).transferAsync(1, 2, BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_exception_when_request_id_is_not_positive() throws Exception {
+        // When
+        final Throwable exception = catchThrowable(() -> idempotentTransfers.transfer(0, 1, 2, BigDecimal.TEN));
+
+        // Then
+        assertThat(exception).isInstanceOf(IllegalArgumentException.class);
+    }
+}
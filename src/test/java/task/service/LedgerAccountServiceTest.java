@@ -0,0 +1,589 @@
+package task.service;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import task.config.LedgerConfiguration;
+import task.dao.AccountDao;
+import task.dao.AccountDaoMock;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.exception.OutcomeUnknownException;
+import task.journal.BalanceSnapshot;
+import task.journal.Durability;
+import task.journal.JournalRecord;
+import task.journal.TransferJournal;
+import task.manager.AccountManager;
+import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class LedgerAccountServiceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AccountDao accountDao;
+    private LedgerAccountService accountService;
+
+    @Before
+    public void setUp() throws Exception {
+        accountDao = new AccountDaoMock();
+        accountDao.insert(new Account().setAmount(BigDecimal.TEN));
+        accountDao.insert(new Account().setAmount(BigDecimal.ONE));
+
+        final LedgerConfiguration configuration = new LedgerConfiguration();
+        configuration.setRingBufferSize(16);
+        accountService = new LedgerAccountService(new AccountManager(accountDao), accountDao, configuration);
+        accountService.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        accountService.stop();
+    }
+
+    @Test
+    public void test_create_it_must_insert_account_and_return_it_from_memory() throws Exception {
+        // Given, when
+        final Account account = accountService.create(new BigDecimal("5.5"));
+
+        // Then
+        assertThat(account.getId()).isEqualTo(3);
+        assertThat(accountService.getAccount(3).getAmount()).isEqualByComparingTo(new BigDecimal("5.5"));
+    }
+
+    @Test
+    public void test_createAll_it_must_journal_new_accounts_and_return_them_from_memory() throws Exception {
+        // Given
+        final LedgerAccountService journaledService = startJournaled();
+
+        // When
+        final List<Account> accounts;
+        try {
+            accounts = journaledService.createAll(Arrays.asList(new BigDecimal("5.5"), null));
+        } finally {
+            journaledService.stop();
+        }
+
+        // Then
+        assertThat(accounts).extracting(Account::getId).containsExactly(3L, 4L);
+        assertThat(journaledService.getAccount(3).getAmount()).isEqualByComparingTo(new BigDecimal("5.5"));
+        assertThat(journaledService.getAccount(4).getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        final List<Transfer> journaled = new ArrayList<>();
+        TransferJournal.read(folder.getRoot().toPath(), 1, record -> journaled.add(record.getTransfer()));
+        assertThat(journaled).containsExactly(
+                new Transfer(TransferJournal.EXTERNAL_ACCOUNT_ID, 3, new BigDecimal("5.5")),
+                new Transfer(TransferJournal.EXTERNAL_ACCOUNT_ID, 4, BigDecimal.ZERO));
+    }
+
+    @Test
+    public void test_getAccounts_it_must_return_balances_from_memory_and_other_accounts_from_database() throws Exception {
+        // Given
+        accountService.transfer(1, 2, new BigDecimal("3"));
+        accountDao.insert(new Account().setAmount(new BigDecimal("7")));
+
+        // When
+        final List<Account> accounts = accountService.getAccounts(Arrays.asList(1L, 2L, 3L, 100L, 1L));
+
+        // Then
+        assertThat(accounts).containsExactlyInAnyOrder(
+                new Account().setId(1).setAmount(new BigDecimal("7")),
+                new Account().setId(2).setAmount(new BigDecimal("4")),
+                new Account().setId(3).setAmount(new BigDecimal("7")));
+    }
+
+    @Test
+    public void test_forEachAccount_it_must_pass_all_accounts_with_balances_held_in_memory() throws Exception {
+        // Given
+        accountService.transfer(1, 2, new BigDecimal("3"));
+        accountDao.insert(new Account().setAmount(new BigDecimal("7")));
+
+        // When
+        final List<Account> accounts = new ArrayList<>();
+        accountService.forEachAccount(accounts::add);
+
+        // Then
+        assertThat(accounts).containsExactly(
+                new Account().setId(1).setAmount(new BigDecimal("7")),
+                new Account().setId(2).setAmount(new BigDecimal("4")),
+                new Account().setId(3).setAmount(new BigDecimal("7")));
+    }
+
+    @Test
+    public void test_getAccount_it_must_throw_NoSuchAccountException_when_account_does_not_exist() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.getAccount(100));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 100");
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_IllegalArgumentException_when_fromAccountId_is_equal_to_toAccountId() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 1, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("fromAccountId == toAccountId: ");
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_NoSuchAccountException_when_account_does_not_exist() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 100, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 100");
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_LimitExceededException_when_amount_is_greater_than_balance() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(2, 1, BigDecimal.TEN));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(LimitExceededException.class)
+                .hasMessageStartingWith("Failed to withdraw from account: 2");
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(BigDecimal.ONE);
+    }
+
+    @Test
+    public void test_transfer_it_must_update_memory_and_database_when_money_is_enough() throws Exception {
+        // Given, when
+        accountService.transfer(1, 2, new BigDecimal("3"));
+
+        // Then
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("7"));
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("4"));
+        assertThat(accountDao.select(1).getAmount()).isEqualByComparingTo(new BigDecimal("7"));
+        assertThat(accountDao.select(2).getAmount()).isEqualByComparingTo(new BigDecimal("4"));
+    }
+
+    @Test
+    public void test_transfer_it_must_keep_total_amount_when_transfers_are_concurrent() throws Exception {
+        // Given
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            final boolean forward = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                try {
+                    accountService.transfer(forward ? 1 : 2, forward ? 2 : 1, BigDecimal.ONE);
+                } catch (LimitExceededException ignored) {
+                    // expected when one of the accounts is drained
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Then
+        final BigDecimal total = accountService.getAccount(1).getAmount().add(accountService.getAccount(2).getAmount());
+        assertThat(total).isEqualByComparingTo(new BigDecimal("11"));
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_IllegalStateException_when_ledger_is_stopped() throws Exception {
+        // Given
+        accountService.stop();
+
+        // When
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 2, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("ledger is not started");
+    }
+
+    @Test
+    public void test_transferAll_it_must_apply_transfers_in_order_and_update_memory_and_database() throws Exception {
+        // Given, when
+        final List<TransferOutcome> outcomes = accountService.transferAll(Arrays.asList(
+                new Transfer(2, 1, BigDecimal.TEN),
+                new Transfer(1, 2, BigDecimal.TEN),
+                new Transfer(1, 100, BigDecimal.ONE)));
+
+        // Then
+        assertThat(outcomes).containsExactly(
+                TransferOutcome.LIMIT_EXCEEDED,
+                TransferOutcome.OK,
+                TransferOutcome.NO_SUCH_ACCOUNT);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("11"));
+        assertThat(accountDao.select(2).getAmount()).isEqualByComparingTo(new BigDecimal("11"));
+    }
+
+    @Test
+    public void test_transferAsync_it_must_complete_when_transfer_is_applied() throws Exception {
+        // Given, when
+        accountService.transferAsync(1, 2, new BigDecimal("3")).toCompletableFuture().get();
+
+        // Then
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("7"));
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("4"));
+    }
+
+    @Test
+    public void test_transferAsync_it_must_complete_exceptionally_when_amount_is_greater_than_balance() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() ->
+                accountService.transferAsync(2, 1, BigDecimal.TEN).toCompletableFuture().get());
+
+        // Then
+        assertThat(exception).hasCauseInstanceOf(LimitExceededException.class);
+    }
+
+    @Test
+    public void test_transferAsync_it_must_complete_exceptionally_when_ledger_is_stopped() throws Exception {
+        // Given
+        accountService.stop();
+
+        // When
+        final Throwable exception = catchThrowable(() ->
+                accountService.transferAsync(1, 2, BigDecimal.ONE).toCompletableFuture().get());
+
+        // Then
+        assertThat(exception).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void test_transfer_it_must_append_journal_instead_of_updating_database_when_journal_is_enabled() throws Exception {
+        // Given
+        final LedgerAccountService journaledService = startJournaled();
+
+        // When
+        try {
+            journaledService.transfer(1, 2, new BigDecimal("3"));
+            final List<TransferOutcome> outcomes = journaledService.transferAll(Arrays.asList(
+                    new Transfer(2, 1, BigDecimal.TEN),
+                    new Transfer(2, 1, BigDecimal.ONE)));
+            assertThat(outcomes).containsExactly(TransferOutcome.LIMIT_EXCEEDED, TransferOutcome.OK);
+        } finally {
+            journaledService.stop();
+        }
+
+        // Then
+        assertThat(journaledService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("8"));
+        assertThat(journaledService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("3"));
+        assertThat(accountDao.select(1).getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+        assertThat(accountDao.select(2).getAmount()).isEqualByComparingTo(BigDecimal.ONE);
+
+        final List<Transfer> journaled = new ArrayList<>();
+        TransferJournal.read(folder.getRoot().toPath(), 1, record -> journaled.add(record.getTransfer()));
+        assertThat(journaled).containsExactly(
+                new Transfer(1, 2, new BigDecimal("3")),
+                new Transfer(2, 1, BigDecimal.ONE));
+    }
+
+    @Test
+    public void test_transferAsync_it_must_complete_when_transfer_is_journaled() throws Exception {
+        // Given
+        final LedgerAccountService journaledService = startJournaled();
+
+        // When
+        final List<JournalRecord> records = new ArrayList<>();
+        try {
+            journaledService.transferAsync(1, 2, BigDecimal.ONE).toCompletableFuture().get();
+            TransferJournal.read(folder.getRoot().toPath(), 1, records::add);
+        } finally {
+            journaledService.stop();
+        }
+
+        // Then
+        assertThat(records).extracting(JournalRecord::getSequence).containsExactly(1L);
+    }
+
+    @Test
+    public void test_start_it_must_recover_balances_from_snapshot_and_journal_when_journal_is_enabled() throws Exception {
+        // Given
+        final LedgerAccountService journaledService = startJournaled();
+        final long createdAccountId;
+        try {
+            createdAccountId = journaledService.create(new BigDecimal("5")).getId();
+            journaledService.transfer(1, createdAccountId, new BigDecimal("2"));
+        } finally {
+            // writes a snapshot
+            journaledService.stop();
+        }
+        final LedgerAccountService restartedService = startJournaled(restartedDatabase());
+        try {
+            restartedService.transfer(createdAccountId, 2, new BigDecimal("7"));
+        } finally {
+            restartedService.stop();
+        }
+
+        // When: the database is recreated once more and the journal tail is replayed after the snapshot
+        final AccountDao database = restartedDatabase();
+        final LedgerAccountService recoveredService = startJournaled(database);
+
+        // Then
+        try {
+            assertThat(recoveredService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("8"));
+            assertThat(recoveredService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("8"));
+            assertThat(recoveredService.getAccount(createdAccountId).getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+            assertThat(recoveredService.create(BigDecimal.ONE).getId()).isEqualTo(createdAccountId + 1);
+        } finally {
+            recoveredService.stop();
+        }
+    }
+
+    @Test
+    public void test_forEachAccount_it_must_pass_recovered_accounts_missing_in_database() throws Exception {
+        // Given
+        final LedgerAccountService journaledService = startJournaled();
+        final long createdAccountId;
+        try {
+            createdAccountId = journaledService.create(new BigDecimal("5")).getId();
+            journaledService.transfer(1, createdAccountId, new BigDecimal("2"));
+        } finally {
+            journaledService.stop();
+        }
+        final LedgerAccountService restartedService = startJournaled(restartedDatabase());
+
+        // When
+        final List<Account> accounts = new ArrayList<>();
+        try {
+            restartedService.forEachAccount(accounts::add);
+        } finally {
+            restartedService.stop();
+        }
+
+        // Then
+        assertThat(accounts).containsExactly(
+                new Account().setId(1).setAmount(new BigDecimal("8")),
+                new Account().setId(2).setAmount(BigDecimal.ONE),
+                new Account().setId(createdAccountId).setAmount(new BigDecimal("7")));
+    }
+
+    @Test
+    public void test_transfer_it_must_take_snapshots_every_snapshotInterval_records() throws Exception {
+        // Given
+        final LedgerAccountService journaledService = startJournaled(accountDao, 2);
+
+        // When
+        try {
+            for (int i = 0; i < 4; i++) {
+                journaledService.transfer(1, 2, BigDecimal.ONE);
+            }
+        } finally {
+            journaledService.stop();
+        }
+
+        // Then
+        final BalanceSnapshot snapshot = BalanceSnapshot.readLatest(folder.getRoot().toPath()).get();
+        assertThat(snapshot.getSequence()).isEqualTo(4);
+        assertThat(snapshot.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_transfer_it_must_delete_journal_segments_covered_by_snapshots() throws Exception {
+        // Given: a segment of 4096 bytes holds about a hundred records
+        final LedgerAccountService journaledService = startJournaled(accountDao, 50);
+        try {
+            for (int i = 0; i < 301; i++) {
+                if (i % 2 == 0) {
+                    journaledService.transfer(1, 2, BigDecimal.ONE);
+                } else {
+                    journaledService.transfer(2, 1, BigDecimal.ONE);
+                }
+            }
+        } finally {
+            journaledService.stop();
+        }
+
+        // When
+        final List<JournalRecord> records = new ArrayList<>();
+        TransferJournal.read(folder.getRoot().toPath(), 1, records::add);
+        final LedgerAccountService recoveredService = startJournaled(restartedDatabase());
+
+        // Then
+        try {
+            assertThat(records.get(0).getSequence()).isGreaterThan(1);
+            assertThat(records.get(0).getSequence()).isLessThanOrEqualTo(
+                    BalanceSnapshot.oldestSequence(folder.getRoot().toPath()) + 1);
+            assertThat(recoveredService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("9"));
+            assertThat(recoveredService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("2"));
+        } finally {
+            recoveredService.stop();
+        }
+    }
+
+    @Test
+    public void test_transfer_it_must_stop_ledger_when_journal_sync_fails() throws Exception {
+        // Given
+        final AtomicBoolean failing = new AtomicBoolean();
+        final LedgerAccountService journaledService = startJournaled(journalConfiguration(0), directory ->
+                new TransferJournal(directory, 4096, Durability.GROUP) {
+                    @Override
+                    protected void force(MappedByteBuffer buffer) {
+                        if (failing.get()) {
+                            throw new UncheckedIOException(new IOException("disk failure"));
+                        }
+                        super.force(buffer);
+                    }
+                });
+
+        // When
+        final Throwable failed;
+        final Throwable rejected;
+        try {
+            journaledService.transfer(1, 2, BigDecimal.ONE);
+            failing.set(true);
+            failed = catchThrowable(() -> journaledService.transfer(1, 2, BigDecimal.ONE));
+            rejected = catchThrowable(() -> journaledService.transfer(1, 2, BigDecimal.ONE));
+        } finally {
+            journaledService.stop();
+        }
+
+        // Then
+        assertThat(failed).isInstanceOf(OutcomeUnknownException.class);
+        assertThat(rejected)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("ledger is stopped after a journal failure");
+        assertThat(journaledService.getFailure()).isInstanceOf(IllegalStateException.class);
+        // no snapshot may claim the transfer which was not made durable
+        assertThat(BalanceSnapshot.readLatest(folder.getRoot().toPath())).isEmpty();
+    }
+
+    @Test(timeout = 30_000)
+    public void test_transfer_it_must_throw_IllegalStateException_when_ledger_is_stopped_while_ring_buffer_is_full() throws Exception {
+        // Given: the sequencer is busy with a transfer from account 100, and the ring buffer is full
+        final CountDownLatch selecting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AccountDao database = new AccountDaoMock() {
+            @Override
+            public Account select(long accountId) {
+                if (accountId == 100) {
+                    selecting.countDown();
+                    Uninterruptibles.awaitUninterruptibly(release);
+                }
+                return super.select(accountId);
+            }
+        };
+        database.insert(new Account().setAmount(BigDecimal.TEN));
+        database.insert(new Account().setAmount(BigDecimal.ONE));
+        final LedgerConfiguration configuration = new LedgerConfiguration();
+        configuration.setRingBufferSize(1);
+        accountService.stop();
+        final LedgerAccountService service =
+                new LedgerAccountService(new AccountManager(database), database, configuration);
+        service.start();
+        service.transferAsync(100, 1, BigDecimal.ONE);
+        selecting.await();
+        service.transferAsync(1, 2, BigDecimal.ONE);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // When: the transfer waits for a free slot while the ledger is stopped
+        final Throwable exception;
+        try {
+            final Future<Throwable> late = executor.submit(() ->
+                    catchThrowable(() -> service.transfer(1, 2, BigDecimal.ONE)));
+            Thread.sleep(200);
+            final Future<?> stopping = executor.submit(() -> {
+                service.stop();
+                return null;
+            });
+            Thread.sleep(200);
+            release.countDown();
+            stopping.get(10, TimeUnit.SECONDS);
+            exception = late.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertThat(exception).isInstanceOf(IllegalStateException.class).hasMessage("ledger is stopped");
+    }
+
+    // a database with the same initial accounts as in setUp, without accounts created later
+    private static AccountDao restartedDatabase() {
+        final AccountDao database = new AccountDaoMock();
+        database.insert(new Account().setAmount(BigDecimal.TEN));
+        database.insert(new Account().setAmount(BigDecimal.ONE));
+        return database;
+    }
+
+    private LedgerAccountService startJournaled() throws Exception {
+        return startJournaled(accountDao);
+    }
+
+    private LedgerAccountService startJournaled(AccountDao database) throws Exception {
+        return startJournaled(database, 0);
+    }
+
+    private LedgerAccountService startJournaled(AccountDao database, long snapshotInterval) throws Exception {
+        accountService.stop();
+        final LedgerAccountService service = new LedgerAccountService(
+                new AccountManager(database), database, journalConfiguration(snapshotInterval));
+        service.start();
+        return service;
+    }
+
+    private LedgerAccountService startJournaled(LedgerConfiguration configuration, JournalFactory journalFactory)
+            throws Exception {
+        accountService.stop();
+        final LedgerAccountService service =
+                new LedgerAccountService(new AccountManager(accountDao), accountDao, configuration) {
+                    @Override
+                    TransferJournal openJournal(Path directory) throws IOException {
+                        return journalFactory.open(directory);
+                    }
+                };
+        service.start();
+        return service;
+    }
+
+    private LedgerConfiguration journalConfiguration(long snapshotInterval) {
+        final LedgerConfiguration configuration = new LedgerConfiguration();
+        configuration.setRingBufferSize(16);
+        configuration.getJournal().setEnabled(true);
+        configuration.getJournal().setDirectory(folder.getRoot().getPath());
+        configuration.getJournal().setSegmentSize(4096);
+        configuration.getJournal().setDurability(Durability.GROUP);
+        configuration.getJournal().setSnapshotInterval(snapshotInterval);
+        return configuration;
+    }
+
+    private interface JournalFactory {
+        TransferJournal open(Path directory) throws IOException;
+    }
+}
@@ -0,0 +1,115 @@
+package task.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import task.exception.LimitExceededException;
+import task.model.TransferOutcome;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class OffloadingAccountServiceTest {
+
+    @Mock
+    private AccountService delegate;
+    private ExecutorService executor;
+    private AccountService accountService;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        accountService = new OffloadingAccountService(delegate, executor);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test_transferAsync_it_must_execute_transfer_by_executor() throws Exception {
+        // Given
+        final AtomicReference<Thread> transferThread = new AtomicReference<>();
+        doAnswer(invocation -> {
+            transferThread.set(Thread.currentThread());
+            return null;
+        }).when(delegate).transfer(1, 2, BigDecimal.ONE);
+
+        // When
+        accountService.transferAsync(1, 2, BigDecimal.ONE).toCompletableFuture().get();
+
+        // Then
+        verify(delegate).transfer(1, 2, BigDecimal.ONE);
+        assertThat(transferThread.get()).isNotNull().isNotSameAs(Thread.currentThread());
+    }
+
+    @Test
+    public void test_transferAsync_it_must_complete_exceptionally_when_transfer_throws_exception() throws Exception {
+        // Given
+        doThrow(new LimitExceededException(1, BigDecimal.ONE, BigDecimal.ZERO))
+                .when(delegate).transfer(1, 2, BigDecimal.ONE);
+
+        // When
+        final Throwable exception = catchThrowable(() ->
+                accountService.transferAsync(1, 2, BigDecimal.ONE).toCompletableFuture().get());
+
+        // Then
+        assertThat(exception).hasCauseInstanceOf(LimitExceededException.class);
+    }
+
+    @Test
+    public void test_transferAsync_it_must_complete_exceptionally_when_executor_is_shut_down() throws Exception {
+        // Given
+        executor.shutdown();
+
+        // When
+        final Throwable exception = catchThrowable(() ->
+                accountService.transferAsync(1, 2, BigDecimal.ONE).toCompletableFuture().get());
+
+        // Then
+        assertThat(exception).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    public void test_tryTransferAsync_it_must_complete_with_outcome_of_delegate() throws Exception {
+        // Given
+        when(delegate.tryTransfer(1, 2, BigDecimal.ONE)).thenReturn(TransferOutcome.LIMIT_EXCEEDED);
+
+        // When
+        final TransferOutcome outcome = accountService.tryTransferAsync(1, 2, BigDecimal.ONE).toCompletableFuture().get();
+
+        // Then
+        assertThat(outcome).isEqualTo(TransferOutcome.LIMIT_EXCEEDED);
+    }
+
+    @Test
+    public void test_tryTransferAsync_it_must_complete_exceptionally_when_executor_is_shut_down() throws Exception {
+        // Given
+        executor.shutdown();
+
+        // When
+        final Throwable exception = catchThrowable(() ->
+                accountService.tryTransferAsync(1, 2, BigDecimal.ONE).toCompletableFuture().get());
+
+        // Then
+        assertThat(exception).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+}
@@ -0,0 +1,295 @@
+package task.service;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import task.config.PartitioningConfiguration;
+import task.dao.AccountDao;
+import task.dao.AccountDaoMock;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.manager.AccountManager;
+import task.model.Account;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class PartitionedAccountServiceTest {
+
+    private static final int ACCOUNTS = 10;
+
+    private PartitionedAccountService accountService;
+
+    @Before
+    public void setUp() throws Exception {
+        final AccountDao accountDao = new AccountDaoMock();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountDao.insert(new Account().setAmount(BigDecimal.TEN));
+        }
+
+        final PartitioningConfiguration configuration = new PartitioningConfiguration();
+        configuration.setPartitions(4);
+        accountService = new PartitionedAccountService(new AccountManager(accountDao), accountDao, configuration);
+        accountService.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        accountService.stop();
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_IllegalArgumentException_when_fromAccountId_is_equal_to_toAccountId() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 1, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("fromAccountId == toAccountId: ");
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_NoSuchAccountException_when_account_does_not_exist() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 100, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 100");
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_LimitExceededException_when_amount_is_greater_than_balance() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 2, new BigDecimal("11")));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(LimitExceededException.class)
+                .hasMessageStartingWith("Failed to withdraw from account: 1");
+    }
+
+    @Test
+    public void test_transfer_it_must_transfer_when_money_is_enough() throws Exception {
+        // Given, when
+        accountService.transfer(1, 2, new BigDecimal("3"));
+
+        // Then
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("7"));
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("13"));
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_IllegalStateException_when_partitions_are_stopped() throws Exception {
+        // Given
+        accountService.stop();
+
+        // When
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 2, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("partitions are not started");
+    }
+
+    @Test
+    public void test_transferAll_it_must_apply_transfers_in_order() throws Exception {
+        // Given, when
+        final List<TransferOutcome> outcomes = accountService.transferAll(Arrays.asList(
+                new Transfer(1, 2, new BigDecimal("11")),
+                new Transfer(2, 1, BigDecimal.TEN),
+                new Transfer(1, 3, new BigDecimal("20")),
+                new Transfer(1, 100, BigDecimal.ONE)));
+
+        // Then
+        assertThat(outcomes).containsExactly(
+                TransferOutcome.LIMIT_EXCEEDED,
+                TransferOutcome.OK,
+                TransferOutcome.OK,
+                TransferOutcome.NO_SUCH_ACCOUNT);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(accountService.getAccount(3).getAmount()).isEqualByComparingTo(new BigDecimal("30"));
+    }
+
+    @Test
+    public void test_transferAll_it_must_return_no_outcomes_when_batch_is_empty() throws Exception {
+        // Given, when
+        final List<TransferOutcome> outcomes = accountService.transferAll(Collections.emptyList());
+
+        // Then
+        assertThat(outcomes).isEmpty();
+    }
+
+    @Test(timeout = 30_000)
+    public void test_transfer_it_must_keep_total_amount_and_not_deadlock_when_transfers_cross_partitions() throws Exception {
+        // Given
+        final ExecutorService executor = Executors.newFixedThreadPool(16);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 5000; i++) {
+            final long fromAccountId = i % ACCOUNTS + 1;
+            final long toAccountId = (i * 7 + 3) % ACCOUNTS + 1;
+            final boolean batch = i % 10 == 0;
+            futures.add(executor.submit(() -> {
+                if (batch) {
+                    accountService.transferAll(Arrays.asList(
+                            new Transfer(fromAccountId, fromAccountId % ACCOUNTS + 1, BigDecimal.ONE),
+                            new Transfer(toAccountId, toAccountId % ACCOUNTS + 1, BigDecimal.ONE)));
+                } else if (fromAccountId != toAccountId) {
+                    try {
+                        accountService.transfer(fromAccountId, toAccountId, BigDecimal.ONE);
+                    } catch (LimitExceededException ignored) {
+                        // expected when one of the accounts is drained
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        // Then
+        BigDecimal total = BigDecimal.ZERO;
+        for (long accountId = 1; accountId <= ACCOUNTS; accountId++) {
+            total = total.add(accountService.getAccount(accountId).getAmount());
+        }
+        assertThat(total).isEqualByComparingTo(BigDecimal.valueOf(10 * ACCOUNTS));
+    }
+
+    @Test
+    public void test_transferAsync_it_must_complete_when_transfer_is_applied() throws Exception {
+        // Given, when
+        accountService.transferAsync(1, 2, new BigDecimal("3")).toCompletableFuture().get();
+
+        // Then
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("7"));
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("13"));
+    }
+
+    @Test
+    public void test_transferAsync_it_must_complete_exceptionally_when_fromAccountId_is_equal_to_toAccountId() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() ->
+                accountService.transferAsync(1, 1, BigDecimal.ONE).toCompletableFuture().get());
+
+        // Then
+        assertThat(exception).hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test(timeout = 30_000)
+    public void test_transferAsync_it_must_complete_exceptionally_with_RejectedExecutionException_when_queue_is_full() throws Exception {
+        // Given: the only partition is busy with a transfer from account 100, and its queue is full
+        final CountDownLatch selecting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final PartitionedAccountService service = startBlocked(1, 100, selecting, release);
+        try {
+            final CompletableFuture<Void> blocked = service.transferAsync(100, 1, BigDecimal.ONE).toCompletableFuture();
+            selecting.await();
+            final CompletableFuture<Void> queued = service.transferAsync(1, 2, BigDecimal.ONE).toCompletableFuture();
+
+            // When
+            final Throwable exception = catchThrowable(() ->
+                    service.transferAsync(1, 2, BigDecimal.ONE).toCompletableFuture().get());
+            release.countDown();
+
+            // Then
+            assertThat(exception).hasCauseInstanceOf(RejectedExecutionException.class);
+            assertThat(catchThrowable(blocked::join)).hasCauseInstanceOf(NoSuchAccountException.class);
+            queued.get();
+            assertThat(service.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("11"));
+        } finally {
+            release.countDown();
+            service.stop();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void test_transfer_it_must_not_park_lower_partition_when_higher_partition_rejects_transfer() throws Exception {
+        // Given: partition 1 is busy with a transfer from an absent account, and its queue is full
+        final long[] lowerAccountIds = accountIdsOfPartition(0, 2, 2, 1);
+        final long[] higherAccountIds = accountIdsOfPartition(1, 2, 1, 1);
+        final long blockingAccountId = accountIdsOfPartition(1, 2, 1, 100)[0];
+        final CountDownLatch selecting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final PartitionedAccountService service = startBlocked(2, blockingAccountId, selecting, release);
+        try {
+            service.transferAsync(blockingAccountId, higherAccountIds[0], BigDecimal.ONE);
+            selecting.await();
+            service.transferAsync(higherAccountIds[0], blockingAccountId, BigDecimal.ONE);
+            final Throwable exception = catchThrowable(() ->
+                    service.transfer(lowerAccountIds[0], higherAccountIds[0], BigDecimal.ONE));
+
+            // When
+            service.transfer(lowerAccountIds[0], lowerAccountIds[1], BigDecimal.ONE);
+
+            // Then
+            assertThat(exception).isInstanceOf(RejectedExecutionException.class);
+            assertThat(service.getAccount(lowerAccountIds[0]).getAmount()).isEqualByComparingTo(new BigDecimal("9"));
+            assertThat(service.getAccount(lowerAccountIds[1]).getAmount()).isEqualByComparingTo(new BigDecimal("11"));
+        } finally {
+            release.countDown();
+            service.stop();
+        }
+    }
+
+    // a service with queues of one task, whose partition blocks on select of blockingAccountId until release
+    private PartitionedAccountService startBlocked(int partitions, long blockingAccountId, CountDownLatch selecting,
+                                                   CountDownLatch release) throws Exception {
+        final AccountDao accountDao = new AccountDaoMock() {
+            @Override
+            public Account select(long accountId) {
+                if (accountId == blockingAccountId) {
+                    selecting.countDown();
+                    Uninterruptibles.awaitUninterruptibly(release);
+                }
+                return super.select(accountId);
+            }
+        };
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountDao.insert(new Account().setAmount(BigDecimal.TEN));
+        }
+        final PartitioningConfiguration configuration = new PartitioningConfiguration();
+        configuration.setPartitions(partitions);
+        configuration.setQueueCapacity(1);
+        accountService.stop();
+        final PartitionedAccountService service =
+                new PartitionedAccountService(new AccountManager(accountDao), accountDao, configuration);
+        service.start();
+        return service;
+    }
+
+    // the first count account ids starting from fromAccountId that belong to the partition
+    private static long[] accountIdsOfPartition(int partition, int partitions, int count, long fromAccountId) {
+        return LongStream.iterate(fromAccountId, accountId -> accountId + 1)
+                .filter(accountId -> (StripedLocks.spread(accountId) & Integer.MAX_VALUE) % partitions == partition)
+                .limit(count)
+                .toArray();
+    }
+}
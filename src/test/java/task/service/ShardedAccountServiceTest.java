@@ -0,0 +1,229 @@
+package task.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import task.TestDataSource;
+import task.dao.AccountDao;
+import task.dao.AccountShards;
+import task.dao.PendingTransferDao;
+import task.dao.ShardedAccountDao;
+import task.exception.LimitExceededException;
+import task.exception.NoSuchAccountException;
+import task.exception.OutcomeUnknownException;
+import task.model.Transfer;
+import task.model.TransferOutcome;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class ShardedAccountServiceTest {
+
+    private final TestDataSource dataSource = new TestDataSource("sql/database-schema.sql");
+
+    private AccountShards shards;
+    private AccountDao accountDao;
+    private AccountService accountService;
+
+    @Before
+    public void setUp() throws Exception {
+        shards = dataSource.createShards(2);
+        accountDao = new ShardedAccountDao(shards);
+        accountService = new ShardedAccountService(shards, accountDao);
+
+        // accounts 1 and 3 belong to the first shard, account 2 - to the second one
+        accountService.create(BigDecimal.TEN);
+        accountService.create(BigDecimal.ONE);
+        accountService.create(BigDecimal.ZERO);
+    }
+
+    @Test
+    public void test_transfer_it_must_transfer_within_one_shard() throws Exception {
+        // Given, when
+        accountService.transfer(1, 3, new BigDecimal("4"));
+
+        // Then
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("6"));
+        assertThat(accountService.getAccount(3).getAmount()).isEqualByComparingTo(new BigDecimal("4"));
+    }
+
+    @Test
+    public void test_transfer_it_must_transfer_between_shards() throws Exception {
+        // Given, when
+        accountService.transfer(1, 2, new BigDecimal("4"));
+
+        // Then
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("6"));
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("5"));
+    }
+
+    @Test
+    public void test_transfer_it_must_compensate_debit_when_destination_account_does_not_exist_on_other_shard() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 4, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 4");
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transfer_it_must_rollback_debit_when_destination_account_does_not_exist_on_same_shard() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(1, 5, BigDecimal.ONE));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(NoSuchAccountException.class)
+                .hasMessage("No such account: 5");
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_transfer_it_must_throw_LimitExceededException_when_amount_is_greater_than_balance() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> accountService.transfer(2, 1, BigDecimal.TEN));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(LimitExceededException.class)
+                .hasMessageStartingWith("Failed to withdraw from account: 2");
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(BigDecimal.ONE);
+    }
+
+    @Test
+    public void test_transfer_it_must_keep_total_amount_when_transfers_are_concurrent() throws Exception {
+        // Given
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 300; i++) {
+            final long fromAccountId = i % 3 + 1;
+            final long toAccountId = (i + 1) % 3 + 1;
+            futures.add(executor.submit(() -> {
+                try {
+                    accountService.transfer(fromAccountId, toAccountId, BigDecimal.ONE);
+                } catch (LimitExceededException ignored) {
+                    // expected when one of the accounts is drained
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Then
+        final BigDecimal total = accountService.getAccount(1).getAmount()
+                .add(accountService.getAccount(2).getAmount())
+                .add(accountService.getAccount(3).getAmount());
+        assertThat(total).isEqualByComparingTo(new BigDecimal("11"));
+    }
+
+    @Test
+    public void test_transferAll_it_must_return_outcomes_in_order() throws Exception {
+        // Given, when
+        final List<TransferOutcome> outcomes = accountService.transferAll(Arrays.asList(
+                new Transfer(2, 1, BigDecimal.TEN),
+                new Transfer(1, 2, BigDecimal.TEN),
+                new Transfer(2, 100, BigDecimal.ONE)));
+
+        // Then
+        assertThat(outcomes).containsExactly(
+                TransferOutcome.LIMIT_EXCEEDED,
+                TransferOutcome.OK,
+                TransferOutcome.NO_SUCH_ACCOUNT);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("11"));
+    }
+
+    @Test
+    public void test_transfer_it_must_leave_nothing_pending_when_transfer_between_shards_is_applied() throws Exception {
+        // Given
+        accountService.transfer(1, 2, new BigDecimal("4"));
+
+        // When
+        final int recovered = new ShardedAccountService(shards, accountDao).recoverPendingTransfers();
+
+        // Then
+        assertThat(recovered).isZero();
+        assertThat(shards.get(1).getMapper(PendingTransferDao.class).isCredited(0, 1)).isFalse();
+    }
+
+    @Test
+    public void test_recoverPendingTransfers_it_must_replay_credit_when_saga_is_killed_after_debit() throws Exception {
+        // Given: neither the credit nor the compensation is applied, like when the process is killed after the debit
+        final Throwable exception = catchThrowable(() ->
+                new ShardedAccountService(shards, failingCredits()).transfer(1, 2, new BigDecimal("4")));
+
+        // When
+        final int recovered = new ShardedAccountService(shards, accountDao).recoverPendingTransfers();
+
+        // Then
+        assertThat(exception).isInstanceOf(OutcomeUnknownException.class);
+        assertThat(recovered).isEqualTo(1);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("6"));
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("5"));
+        assertThat(new ShardedAccountService(shards, accountDao).recoverPendingTransfers()).isZero();
+    }
+
+    @Test
+    public void test_recoverPendingTransfers_it_must_compensate_debit_when_saga_is_killed_and_destination_account_does_not_exist() throws Exception {
+        // Given
+        catchThrowable(() -> new ShardedAccountService(shards, failingCredits()).transfer(1, 4, BigDecimal.ONE));
+
+        // When
+        final int recovered = new ShardedAccountService(shards, accountDao).recoverPendingTransfers();
+
+        // Then
+        assertThat(recovered).isEqualTo(1);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(BigDecimal.TEN);
+        assertThat(new ShardedAccountService(shards, accountDao).recoverPendingTransfers()).isZero();
+    }
+
+    @Test
+    public void test_recoverPendingTransfers_it_must_not_credit_again_when_saga_is_killed_after_credit() throws Exception {
+        // Given: the pending transfer is not deleted after the credit, like when the process is killed after the credit
+        final PendingTransferDao failingDeletes = mock(PendingTransferDao.class,
+                delegatesTo(shards.get(0).getMapper(PendingTransferDao.class)));
+        doThrow(new IllegalStateException("killed")).when(failingDeletes).delete(anyLong());
+        new ShardedAccountService(shards, accountDao,
+                Arrays.asList(failingDeletes, shards.get(1).getMapper(PendingTransferDao.class)))
+                .transfer(1, 2, new BigDecimal("4"));
+
+        // When
+        final int recovered = new ShardedAccountService(shards, accountDao).recoverPendingTransfers();
+
+        // Then
+        assertThat(recovered).isEqualTo(1);
+        assertThat(accountService.getAccount(1).getAmount()).isEqualByComparingTo(new BigDecimal("6"));
+        assertThat(accountService.getAccount(2).getAmount()).isEqualByComparingTo(new BigDecimal("5"));
+        assertThat(shards.get(1).getMapper(PendingTransferDao.class).isCredited(0, 1)).isFalse();
+        assertThat(new ShardedAccountService(shards, accountDao).recoverPendingTransfers()).isZero();
+    }
+
+    // a DAO of the same shards whose credits fail
+    private AccountDao failingCredits() {
+        final AccountDao failingCredits = mock(AccountDao.class, delegatesTo(accountDao));
+        doThrow(new IllegalStateException("killed")).when(failingCredits).credit(anyLong(), any());
+        return failingCredits;
+    }
+}
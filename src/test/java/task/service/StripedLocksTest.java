@@ -0,0 +1,108 @@
+package task.service;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class StripedLocksTest {
+
+    @Test
+    public void test_constructor_it_must_round_number_of_stripes_up_to_power_of_two() throws Exception {
+        assertThat(new StripedLocks(1).size()).isEqualTo(1);
+        assertThat(new StripedLocks(1000).size()).isEqualTo(1024);
+        assertThat(new StripedLocks(1024).size()).isEqualTo(1024);
+    }
+
+    @Test
+    public void test_constructor_it_must_throw_IllegalArgumentException_when_stripes_is_not_positive() throws Exception {
+        // Given, when
+        final Throwable exception = catchThrowable(() -> new StripedLocks(0));
+
+        // Then
+        assertThat(exception)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("stripes is not positive: 0");
+    }
+
+    @Test
+    public void test_stripeOf_it_must_return_same_lock_for_same_account() throws Exception {
+        // Given
+        final StripedLocks locks = new StripedLocks(64);
+
+        // When, then
+        assertThat(locks.getLock(locks.stripeOf(42))).isSameAs(locks.getLock(locks.stripeOf(42)));
+    }
+
+    @Test
+    public void test_stripeOf_it_must_spread_ids_with_power_of_two_stride() throws Exception {
+        // Given
+        final StripedLocks locks = new StripedLocks(64);
+        final Set<Integer> stripes = new HashSet<>();
+
+        // When
+        for (long id = 0; id < 64 * 1024; id += 1024) {
+            stripes.add(locks.stripeOf(id));
+        }
+
+        // Then
+        assertThat(stripes.size()).isGreaterThan(32);
+    }
+
+    @Test
+    public void test_lock_it_must_count_contended_acquisitions_of_stripe() throws Exception {
+        // Given
+        final StripedLocks locks = new StripedLocks(64);
+        final MetricRegistry metrics = new MetricRegistry();
+        locks.registerMetrics(metrics);
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread owner = new Thread(() -> {
+            locks.lock(7);
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                locks.getLock(7).unlock();
+            }
+        });
+        owner.start();
+        locked.await();
+
+        // When
+        final Thread waiter = new Thread(() -> {
+            locks.lock(7);
+            locks.getLock(7).unlock();
+        });
+        waiter.start();
+        while (locks.getContentions(7) == 0) {
+            Thread.yield();
+        }
+        TimeUnit.MILLISECONDS.sleep(10);
+        release.countDown();
+        owner.join();
+        waiter.join();
+        locks.lock(8);
+        locks.getLock(8).unlock();
+
+        // Then
+        assertThat(locks.getContentions(7)).isEqualTo(1);
+        assertThat(locks.getContentions(8)).isZero();
+        assertThat(locks.getContendedStripes()).containsOnlyKeys(7);
+        assertThat(metrics.getGauges().get("task.service.StripedLocks.contentions").getValue()).isEqualTo(1L);
+        assertThat(metrics.timer("task.service.StripedLocks.wait").getCount()).isEqualTo(3);
+        assertThat(metrics.timer("task.service.StripedLocks.wait").getSnapshot().getMax())
+                .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+}
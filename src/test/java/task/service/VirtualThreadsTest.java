@@ -0,0 +1,55 @@
+package task.service;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Expectations depend on the runtime: the tests pass on Java 8 as well as on Java 21+.
+ *
+ * @author Anton Kotov (kotov-anton@yandex.ru)
+ */
+public class VirtualThreadsTest {
+
+    @Test
+    public void test_isSupported_it_must_detect_virtual_threads_by_runtime() throws Exception {
+        assertThat(VirtualThreads.isSupported()).isEqualTo(hasVirtualThreads());
+    }
+
+    @Test
+    public void test_newVirtualThreadPerTaskExecutor_it_must_run_tasks_by_virtual_threads_or_throw_UnsupportedOperationException() throws Exception {
+        if (!hasVirtualThreads()) {
+            // Given, when
+            final Throwable exception = catchThrowable(VirtualThreads::newVirtualThreadPerTaskExecutor);
+
+            // Then
+            assertThat(exception)
+                    .isInstanceOf(UnsupportedOperationException.class)
+                    .hasMessageStartingWith("virtual threads are not supported by Java ");
+            return;
+        }
+
+        // Given
+        final ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+
+        // When
+        final Object virtual = executor.submit(() -> Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                .get();
+        executor.shutdown();
+
+        // Then
+        assertThat(virtual).isEqualTo(Boolean.TRUE);
+    }
+
+    private static boolean hasVirtualThreads() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}